@@ -0,0 +1,54 @@
+package com.biit.appointment.google.cache;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+
+import java.util.List;
+
+/**
+ * Events answered by the {@link EventWindowCache}.
+ */
+public class CachedEventWindow {
+
+    private final List<AppointmentDTO> appointments;
+    private final long retrievedAt;
+
+    public CachedEventWindow(List<AppointmentDTO> appointments, long retrievedAt) {
+        this.appointments = appointments;
+        this.retrievedAt = retrievedAt;
+    }
+
+    /**
+     * @return a read only list. Each appointment is created on its first access.
+     */
+    public List<AppointmentDTO> getAppointments() {
+        return appointments;
+    }
+
+    /**
+     * @return when the oldest part of the events was obtained from Google, in milliseconds since epoch.
+     */
+    public long getRetrievedAt() {
+        return retrievedAt;
+    }
+}
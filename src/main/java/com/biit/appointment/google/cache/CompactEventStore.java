@@ -0,0 +1,351 @@
+package com.biit.appointment.google.cache;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.core.models.CalendarProviderDTO;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Events of a calendar stored on primitive arrays, sorted by start, instead of as {@link Event} or {@link AppointmentDTO}
+ * objects. Each event only keeps the fields used by {@link AppointmentEventConverter}: start and end as epoch
+ * milliseconds, flags, and references to a pool of distinct strings for the id, title, description and time zones.
+ * Repeated titles, as on recurring events, are stored once.
+ * <p>
+ * An interval query only checks the events that start between the query start minus the longest event duration and the
+ * query end, found by binary search. Results are lists that create each {@link AppointmentDTO} when it is first accessed.
+ * Changes create new arrays, so the lists already returned are not affected. Changes are not thread safe.
+ */
+public class CompactEventStore {
+
+    private static final byte ALL_DAY = 1;
+    private static final byte DELETED = 2;
+    private static final int NO_REFERENCE = -1;
+
+    private Snapshot snapshot = new Snapshot(0).trim();
+
+    /**
+     * Gets the events overlapping an interval, ordered by start.
+     *
+     * @param from start of the interval, inclusive, in milliseconds since epoch.
+     * @param to   end of the interval, exclusive, in milliseconds since epoch.
+     * @return a view of the events. Each appointment is created on its first access.
+     */
+    public List<AppointmentDTO> query(long from, long to) {
+        final Snapshot current = snapshot;
+        final int first = current.lowerBound(from - current.maxDuration < from ? from - current.maxDuration : Long.MIN_VALUE);
+        final int last = current.lowerBound(to);
+        final int[] positions = new int[Math.max(0, last - first)];
+        int matches = 0;
+        for (int i = first; i < last; i++) {
+            if (current.getIndexedEnd(i) > from) {
+                positions[matches++] = i;
+            }
+        }
+        return new AppointmentView(current, matches == positions.length ? positions : Arrays.copyOf(positions, matches));
+    }
+
+    /**
+     * Replaces the events of an interval: the events overlapping it are removed, and the new ones added. Previous events
+     * with the same id as a new one are also removed, wherever they were. Events without id or start are ignored.
+     *
+     * @param from   start of the interval, inclusive, in milliseconds since epoch.
+     * @param to     end of the interval, exclusive, in milliseconds since epoch.
+     * @param events all events overlapping the interval.
+     */
+    public void replace(long from, long to, Collection<Event> events) {
+        final List<Event> newEvents = new ArrayList<>(events.size());
+        final Set<String> newIds = new HashSet<>();
+        for (Event event : events) {
+            if (event != null && event.getId() != null && getTime(event.getStart()) != null) {
+                newEvents.add(event);
+                newIds.add(event.getId());
+            }
+        }
+        newEvents.sort(Comparator.comparingLong(event -> getTime(event.getStart())));
+
+        final Snapshot previous = snapshot;
+        final Snapshot next = new Snapshot(previous.size + newEvents.size());
+        int newPosition = 0;
+        for (int i = 0; i < previous.size; i++) {
+            if ((previous.starts[i] < to && previous.getIndexedEnd(i) > from) || newIds.contains(previous.getId(i))) {
+                continue;
+            }
+            //Merged by start.
+            while (newPosition < newEvents.size() && getTime(newEvents.get(newPosition).getStart()) < previous.starts[i]) {
+                next.add(newEvents.get(newPosition++));
+            }
+            next.add(previous, i);
+        }
+        while (newPosition < newEvents.size()) {
+            next.add(newEvents.get(newPosition++));
+        }
+        snapshot = next.trim();
+    }
+
+    /**
+     * Removes an event.
+     *
+     * @param id the event id.
+     * @return true if it was present.
+     */
+    public boolean remove(String id) {
+        final Snapshot previous = snapshot;
+        for (int i = 0; i < previous.size; i++) {
+            if (previous.getId(i).equals(id)) {
+                final Snapshot next = new Snapshot(previous.size - 1);
+                for (int j = 0; j < previous.size; j++) {
+                    if (j != i) {
+                        next.add(previous, j);
+                    }
+                }
+                snapshot = next.trim();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return snapshot.size;
+    }
+
+    /**
+     * @return distinct strings stored.
+     */
+    public int getPooledStrings() {
+        return snapshot.strings.length;
+    }
+
+    private static Long getTime(EventDateTime eventDateTime) {
+        if (eventDateTime == null) {
+            return null;
+        }
+        final DateTime dateTime = eventDateTime.getDateTime() != null ? eventDateTime.getDateTime() : eventDateTime.getDate();
+        return dateTime != null ? dateTime.getValue() : null;
+    }
+
+    /**
+     * Immutable once built.
+     */
+    private static final class Snapshot {
+        private long[] starts;
+        private long[] ends;
+        private byte[] flags;
+        private int[] ids;
+        private int[] titles;
+        private int[] descriptions;
+        private int[] startZones;
+        private int[] endZones;
+        private int size;
+        private long maxDuration;
+        private String[] strings = new String[0];
+        private ZoneId[] zones = new ZoneId[0];
+        //Only while building.
+        private Map<String, Integer> stringReferences = new HashMap<>();
+        private Map<String, Integer> zoneReferences = new HashMap<>();
+
+        private Snapshot(int capacity) {
+            starts = new long[capacity];
+            ends = new long[capacity];
+            flags = new byte[capacity];
+            ids = new int[capacity];
+            titles = new int[capacity];
+            descriptions = new int[capacity];
+            startZones = new int[capacity];
+            endZones = new int[capacity];
+        }
+
+        private void add(Event event) {
+            final long start = getTime(event.getStart());
+            final Long end = getTime(event.getEnd());
+            final boolean allDay = event.getStart().getDateTime() == null;
+            add(start, end != null ? end : start,
+                    (byte) ((allDay ? ALL_DAY : 0) | (Objects.equals(event.getStatus(), AppointmentEventConverter.DELETED_STATUS) ? DELETED : 0)),
+                    event.getId(), event.getSummary(), event.getDescription(),
+                    allDay ? null : event.getStart().getTimeZone(), allDay || event.getEnd() == null ? null : event.getEnd().getTimeZone());
+        }
+
+        private void add(Snapshot from, int position) {
+            add(from.starts[position], from.ends[position], from.flags[position], from.getId(position), from.getString(from.titles[position]),
+                    from.getString(from.descriptions[position]), from.getZoneName(from.startZones[position]),
+                    from.getZoneName(from.endZones[position]));
+        }
+
+        private void add(long start, long end, byte flag, String id, String title, String description, String startZone, String endZone) {
+            starts[size] = start;
+            ends[size] = end;
+            flags[size] = flag;
+            ids[size] = getReference(id);
+            titles[size] = getReference(title);
+            descriptions[size] = getReference(description);
+            startZones[size] = getZoneReference(startZone);
+            endZones[size] = getZoneReference(endZone);
+            maxDuration = Math.max(maxDuration, getIndexedEnd(size) - start);
+            size++;
+        }
+
+        private Snapshot trim() {
+            strings = Arrays.copyOf(strings, stringReferences.size());
+            zones = Arrays.copyOf(zones, zoneReferences.size());
+            stringReferences = null;
+            zoneReferences = null;
+            if (size < starts.length) {
+                starts = Arrays.copyOf(starts, size);
+                ends = Arrays.copyOf(ends, size);
+                flags = Arrays.copyOf(flags, size);
+                ids = Arrays.copyOf(ids, size);
+                titles = Arrays.copyOf(titles, size);
+                descriptions = Arrays.copyOf(descriptions, size);
+                startZones = Arrays.copyOf(startZones, size);
+                endZones = Arrays.copyOf(endZones, size);
+            }
+            return this;
+        }
+
+        private int getReference(String value) {
+            if (value == null) {
+                return NO_REFERENCE;
+            }
+            return stringReferences.computeIfAbsent(value, key -> {
+                if (stringReferences.size() == strings.length) {
+                    strings = Arrays.copyOf(strings, Math.max(16, strings.length * 2));
+                }
+                strings[stringReferences.size()] = key;
+                return stringReferences.size();
+            });
+        }
+
+        private int getZoneReference(String zone) {
+            if (zone == null) {
+                return NO_REFERENCE;
+            }
+            return zoneReferences.computeIfAbsent(zone, key -> {
+                if (zoneReferences.size() == zones.length) {
+                    zones = Arrays.copyOf(zones, zones.length + 1);
+                }
+                zones[zoneReferences.size()] = ZoneId.of(key);
+                return zoneReferences.size();
+            });
+        }
+
+        private String getString(int reference) {
+            return reference == NO_REFERENCE ? null : strings[reference];
+        }
+
+        private String getId(int position) {
+            return strings[ids[position]];
+        }
+
+        private ZoneId getZone(int reference) {
+            return reference == NO_REFERENCE ? ZoneId.systemDefault() : zones[reference];
+        }
+
+        private String getZoneName(int reference) {
+            return reference == NO_REFERENCE ? null : zones[reference].getId();
+        }
+
+        /**
+         * Events without duration still overlap the intervals that contain their start.
+         */
+        private long getIndexedEnd(int position) {
+            return Math.max(ends[position], starts[position] + 1);
+        }
+
+        /**
+         * @return the first position with a start equal or after the value.
+         */
+        private int lowerBound(long value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (starts[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private AppointmentDTO toAppointment(int position) {
+            final AppointmentDTO appointmentDTO = new AppointmentDTO();
+            appointmentDTO.setTitle(getString(titles[position]));
+            appointmentDTO.setDescription(getString(descriptions[position]));
+            appointmentDTO.setCalendarProvider(CalendarProviderDTO.GOOGLE);
+            appointmentDTO.setStartTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(starts[position]), getZone(startZones[position])));
+            appointmentDTO.setEndTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(ends[position]), getZone(endZones[position])));
+            appointmentDTO.setAllDay((flags[position] & ALL_DAY) != 0);
+            appointmentDTO.setExternalReference(getId(position));
+            appointmentDTO.setDeleted((flags[position] & DELETED) != 0);
+            return appointmentDTO;
+        }
+    }
+
+    /**
+     * Read only list of appointments, created on their first access.
+     */
+    private static final class AppointmentView extends AbstractList<AppointmentDTO> {
+        private final Snapshot snapshot;
+        private final int[] positions;
+        private final AppointmentDTO[] appointments;
+
+        private AppointmentView(Snapshot snapshot, int[] positions) {
+            this.snapshot = snapshot;
+            this.positions = positions;
+            this.appointments = new AppointmentDTO[positions.length];
+        }
+
+        @Override
+        public AppointmentDTO get(int index) {
+            Objects.checkIndex(index, positions.length);
+            if (appointments[index] == null) {
+                appointments[index] = snapshot.toAppointment(positions[index]);
+            }
+            return appointments[index];
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.biit.appointment.google.cache;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.google.api.services.calendar.model.Event;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of the events of each user calendar. Each interval obtained from Google is stored as a covered
+ * window, and the events on a {@link CompactEventStore}. Any interval inside windows obtained less than
+ * 'max-staleness-seconds' ago is answered without calling Google, even if it was not requested before.
+ * <p>
+ * Writes done by this library invalidate the windows they change. Changes done directly on Google are seen once the
+ * windows get stale. Calendars are evicted by LRU.
+ * <p>
+ * Each calendar has a version, changed by every invalidation. Readers take it with {@link #getVersion(UUID, String)}
+ * before asking Google, and the events are not stored if it changed meanwhile, as they may be older than the write.
+ */
+@Component
+public class EventWindowCache {
+
+    private static final long DEFAULT_MAX_STALENESS_SECONDS = 60;
+    private static final int DEFAULT_MAX_CALENDARS = 1000;
+
+    @Value("${google.event-window.cache.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${google.event-window.cache.max-staleness-seconds:" + DEFAULT_MAX_STALENESS_SECONDS + "}")
+    private long maxStalenessSeconds = DEFAULT_MAX_STALENESS_SECONDS;
+
+    @Value("${google.event-window.cache.max-calendars:" + DEFAULT_MAX_CALENDARS + "}")
+    private int maxCalendars = DEFAULT_MAX_CALENDARS;
+
+    private final Map<String, CalendarWindows> calendars = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CalendarWindows> eldest) {
+            if (size() > maxCalendars) {
+                removedVersion = ++versions;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    //Last version given to a calendar.
+    private long versions;
+    //Version given when a calendar was removed for the last time. Older versions of missing calendars are not valid.
+    private long removedVersion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the events of an interval, if it is covered by windows not stale.
+     *
+     * @param userId     the user.
+     * @param calendarId the calendar.
+     * @param from       lower bound for the event end, in milliseconds since epoch.
+     * @param to         upper bound for the event start, in milliseconds since epoch.
+     * @return the appointments overlapping the interval ordered by start, or null if Google must be asked.
+     */
+    public synchronized CachedEventWindow get(UUID userId, String calendarId, long from, long to) {
+        final CalendarWindows calendarWindows = enabled ? calendars.get(getKey(userId, calendarId)) : null;
+        final Long retrievedAt = calendarWindows != null
+                ? calendarWindows.getCoveredSince(from, to, System.currentTimeMillis() - maxStalenessSeconds * 1000) : null;
+        if (retrievedAt == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new CachedEventWindow(calendarWindows.events.query(from, to), retrievedAt);
+    }
+
+    /**
+     * Gets the version of a calendar, to be taken before asking Google for its events.
+     *
+     * @return the version to pass to {@link #put(UUID, String, long, long, Collection, long)}.
+     */
+    public synchronized long getVersion(UUID userId, String calendarId) {
+        final CalendarWindows calendarWindows = calendars.get(getKey(userId, calendarId));
+        return calendarWindows != null ? calendarWindows.version : versions;
+    }
+
+    /**
+     * Stores all the events obtained from Google for an interval, unless the calendar has been invalidated since they were
+     * requested.
+     *
+     * @param from    lower bound used for the event end, in milliseconds since epoch.
+     * @param to      upper bound used for the event start, in milliseconds since epoch.
+     * @param events  all events overlapping the interval.
+     * @param version the version of the calendar obtained before requesting the events.
+     */
+    public synchronized void put(UUID userId, String calendarId, long from, long to, Collection<Event> events, long version) {
+        if (!enabled || userId == null || events == null || from >= to) {
+            return;
+        }
+        final CalendarWindows existing = calendars.get(getKey(userId, calendarId));
+        if (existing != null ? existing.version > version : removedVersion > version) {
+            return;
+        }
+        final CalendarWindows calendarWindows = existing != null ? existing : createCalendar(userId, calendarId);
+        calendarWindows.events.replace(from, to, events);
+        calendarWindows.addWindow(from, to, System.currentTimeMillis());
+    }
+
+    /**
+     * Removes an event, for example after deleting it. The windows are still valid.
+     */
+    public synchronized void remove(UUID userId, String calendarId, String eventId) {
+        final CalendarWindows calendarWindows = getChangedCalendar(userId, calendarId);
+        if (eventId != null) {
+            calendarWindows.events.remove(eventId);
+        }
+    }
+
+    /**
+     * Forgets the windows overlapping an interval, for example after creating an event on it.
+     *
+     * @param from start of the interval, in milliseconds since epoch.
+     * @param to   end of the interval, in milliseconds since epoch.
+     */
+    public synchronized void invalidate(UUID userId, String calendarId, long from, long to) {
+        getChangedCalendar(userId, calendarId).removeWindows(from, Math.max(to, from + 1));
+    }
+
+    public synchronized void invalidate(UUID userId, String calendarId) {
+        //Kept empty with a new version, so reads started before are not stored.
+        createCalendar(userId, calendarId);
+    }
+
+    public synchronized void clear() {
+        calendars.clear();
+        removedVersion = ++versions;
+    }
+
+    /**
+     * @return calendars with cached events.
+     */
+    public synchronized int size() {
+        return calendars.size();
+    }
+
+    /**
+     * @return events cached on all calendars.
+     */
+    public synchronized int getEvents() {
+        return calendars.values().stream().mapToInt(calendarWindows -> calendarWindows.events.size()).sum();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the calendar with a new version. Created if not stored, as a read may be running.
+     */
+    private CalendarWindows getChangedCalendar(UUID userId, String calendarId) {
+        final CalendarWindows calendarWindows = calendars.get(getKey(userId, calendarId));
+        if (calendarWindows == null) {
+            return createCalendar(userId, calendarId);
+        }
+        calendarWindows.version = ++versions;
+        return calendarWindows;
+    }
+
+    private CalendarWindows createCalendar(UUID userId, String calendarId) {
+        final CalendarWindows calendarWindows = new CalendarWindows(++versions);
+        calendars.put(getKey(userId, calendarId), calendarWindows);
+        return calendarWindows;
+    }
+
+    private static String getKey(UUID userId, String calendarId) {
+        return userId + "/" + calendarId;
+    }
+
+    private static final class CalendarWindows {
+        private final CompactEventStore events = new CompactEventStore();
+        //Not overlapping, sorted by start. Each one is {from, to, retrievedAt}.
+        private final List<long[]> windows = new ArrayList<>();
+        private long version;
+
+        private CalendarWindows(long version) {
+            this.version = version;
+        }
+
+        /**
+         * A new window replaces the overlapping parts of older ones.
+         */
+        private void addWindow(long from, long to, long retrievedAt) {
+            removeWindows(from, to);
+            int position = 0;
+            while (position < windows.size() && windows.get(position)[0] < from) {
+                position++;
+            }
+            windows.add(position, new long[]{from, to, retrievedAt});
+        }
+
+        private void removeWindows(long from, long to) {
+            final List<long[]> remaining = new ArrayList<>();
+            final Iterator<long[]> iterator = windows.iterator();
+            while (iterator.hasNext()) {
+                final long[] window = iterator.next();
+                if (window[0] >= to || window[1] <= from) {
+                    continue;
+                }
+                iterator.remove();
+                if (window[0] < from) {
+                    remaining.add(new long[]{window[0], from, window[2]});
+                }
+                if (window[1] > to) {
+                    remaining.add(new long[]{to, window[1], window[2]});
+                }
+            }
+            for (long[] window : remaining) {
+                int position = 0;
+                while (position < windows.size() && windows.get(position)[0] < window[0]) {
+                    position++;
+                }
+                windows.add(position, window);
+            }
+        }
+
+        /**
+         * @return when the oldest window needed to cover the interval was retrieved, or null if the interval is not
+         * covered by windows retrieved after the limit.
+         */
+        private Long getCoveredSince(long from, long to, long limit) {
+            windows.removeIf(window -> window[2] < limit);
+            long covered = from;
+            long retrievedAt = Long.MAX_VALUE;
+            for (long[] window : windows) {
+                if (window[1] <= covered) {
+                    continue;
+                }
+                if (window[0] > covered) {
+                    return null;
+                }
+                covered = window[1];
+                retrievedAt = Math.min(retrievedAt, window[2]);
+                if (covered >= to) {
+                    return retrievedAt;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.biit.appointment.google.cache;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.services.calendar.Calendar;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the Credential and Calendar client already built for a user, keyed by its refresh token. Entries are evicted by
+ * LRU when the cache is full, and expire with the access token they were built with.
+ */
+@Component
+public class GoogleClientCache {
+
+    private static final int DEFAULT_MAX_SIZE = 500;
+    //Same margin used by Credential to consider a token as expired.
+    private static final long EXPIRATION_MARGIN_MILLISECONDS = 60_000L;
+
+    @Value("${google.client.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${google.client.cache.max-size:" + DEFAULT_MAX_SIZE + "}")
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    private final Map<String, CachedClient> clients = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedClient> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Gets the credential already built for this data.
+     *
+     * @param credentialData the stored credential data.
+     * @return the cached credential, or null if not present, expired or built for a different access token.
+     */
+    public synchronized Credential getCredential(CredentialData credentialData) {
+        if (!enabled || credentialData == null) {
+            return null;
+        }
+        final String key = getKey(credentialData.getRefreshToken(), credentialData.getAccessToken());
+        final CachedClient cachedClient = key != null ? clients.get(key) : null;
+        if (cachedClient == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (cachedClient.isExpired() || !Objects.equals(cachedClient.getCredential().getAccessToken(), credentialData.getAccessToken())) {
+            clients.remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cachedClient.getCredential();
+    }
+
+    public synchronized void putCredential(CredentialData credentialData, Credential credential) {
+        if (!enabled || credentialData == null || credential == null
+                || getKey(credentialData.getRefreshToken(), credentialData.getAccessToken()) == null) {
+            return;
+        }
+        final Long expiration = credentialData.getAccessTokenExpirationEpochMilliseconds();
+        clients.put(getKey(credentialData.getRefreshToken(), credentialData.getAccessToken()),
+                new CachedClient(credential, expiration != null ? expiration - EXPIRATION_MARGIN_MILLISECONDS : Long.MAX_VALUE));
+    }
+
+    /**
+     * Gets the Calendar client already built for a cached credential.
+     *
+     * @param credential a credential obtained from this cache.
+     * @return the Calendar client, or null if not built yet or the credential was not cached.
+     */
+    public synchronized Calendar getCalendar(Credential credential) {
+        final CachedClient cachedClient = getCachedClient(credential);
+        return cachedClient != null ? cachedClient.getCalendar() : null;
+    }
+
+    /**
+     * Stores the Calendar client for a credential. It is only kept if the credential is also cached.
+     *
+     * @param credential a credential obtained from this cache.
+     * @param calendar   the client built for it.
+     */
+    public synchronized void putCalendar(Credential credential, Calendar calendar) {
+        final CachedClient cachedClient = getCachedClient(credential);
+        if (cachedClient != null) {
+            cachedClient.setCalendar(calendar);
+        }
+    }
+
+    public synchronized void invalidate(CredentialData credentialData) {
+        if (credentialData != null) {
+            clients.remove(getKey(credentialData.getRefreshToken(), credentialData.getAccessToken()));
+        }
+    }
+
+    public synchronized void clear() {
+        clients.clear();
+        GoogleCalDAVLogger.debug(this.getClass(), "Google client cache cleared.");
+    }
+
+    public synchronized int size() {
+        return clients.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private CachedClient getCachedClient(Credential credential) {
+        if (!enabled || credential == null) {
+            return null;
+        }
+        final CachedClient cachedClient = clients.get(getKey(credential.getRefreshToken(), credential.getAccessToken()));
+        //Only the same instance, as the calendar client is bound to it.
+        if (cachedClient == null || cachedClient.getCredential() != credential || cachedClient.isExpired()) {
+            return null;
+        }
+        return cachedClient;
+    }
+
+    private static String getKey(String refreshToken, String accessToken) {
+        return refreshToken != null ? refreshToken : accessToken;
+    }
+
+    private static final class CachedClient {
+        private final Credential credential;
+        private final long expiresAt;
+        private Calendar calendar;
+
+        private CachedClient(Credential credential, long expiresAt) {
+            this.credential = credential;
+            this.expiresAt = expiresAt;
+        }
+
+        private Credential getCredential() {
+            return credential;
+        }
+
+        private Calendar getCalendar() {
+            return calendar;
+        }
+
+        private void setCalendar(Calendar calendar) {
+            this.calendar = calendar;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.biit.appointment.google.cache;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.services.calendar.model.Event;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the events recently obtained from Google with their ETag. When an event is requested again, Google is asked only
+ * for changes using 'If-None-Match', and the cached copy is used if it answers HTTP 304. Entries are evicted by LRU.
+ */
+@Component
+public class GoogleEventCache {
+
+    private static final int DEFAULT_MAX_SIZE = 1000;
+
+    @Value("${google.event.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${google.event.cache.max-size:" + DEFAULT_MAX_SIZE + "}")
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    private final Map<String, CachedEvent> events = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedEvent> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * Gets the ETag of the cached version of an event.
+     *
+     * @return the ETag, or null if the event is not cached.
+     */
+    public synchronized String getEtag(Credential credential, String calendarId, String eventId, String fields) {
+        if (!enabled) {
+            return null;
+        }
+        final CachedEvent cachedEvent = events.get(getKey(credential, calendarId, eventId, fields));
+        return cachedEvent != null ? cachedEvent.getEtag() : null;
+    }
+
+    /**
+     * Gets a copy of the cached event after Google confirms with HTTP 304 that it has not changed.
+     *
+     * @return the event, or null if it is not cached anymore.
+     */
+    public synchronized Event getNotModified(Credential credential, String calendarId, String eventId, String fields) {
+        final CachedEvent cachedEvent = events.get(getKey(credential, calendarId, eventId, fields));
+        if (cachedEvent == null) {
+            return null;
+        }
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(cachedEvent.getSize());
+        return cachedEvent.getEvent().clone();
+    }
+
+    /**
+     * Stores an event obtained from Google. Events without ETag are not stored.
+     *
+     * @param size the size of the response body, to compute the bytes saved on each hit.
+     */
+    public synchronized void put(Credential credential, String calendarId, String eventId, String fields, Event event, long size) {
+        misses.incrementAndGet();
+        if (!enabled || event == null || event.getEtag() == null) {
+            return;
+        }
+        events.put(getKey(credential, calendarId, eventId, fields), new CachedEvent(event.clone(), size));
+    }
+
+    /**
+     * Removes all cached versions of an event, for example after deleting it.
+     */
+    public synchronized void invalidate(Credential credential, String calendarId, String eventId) {
+        final String prefix = getKey(credential, calendarId, eventId, "");
+        events.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+
+    public synchronized int size() {
+        return events.size();
+    }
+
+    /**
+     * @return events served from the cache after a HTTP 304.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return events downloaded from Google.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        final long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    /**
+     * @return response bytes not downloaded thanks to HTTP 304 answers.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    private static String getKey(Credential credential, String calendarId, String eventId, String fields) {
+        //Calendar 'primary' is different for each user.
+        final String user = credential.getRefreshToken() != null ? credential.getRefreshToken() : credential.getAccessToken();
+        return user + '/' + calendarId + '/' + eventId + '/' + (fields != null ? fields : "");
+    }
+
+    private static final class CachedEvent {
+        private final Event event;
+        private final long size;
+
+        private CachedEvent(Event event, long size) {
+            this.event = event;
+            this.size = size;
+        }
+
+        private Event getEvent() {
+            return event;
+        }
+
+        private String getEtag() {
+            return event.getEtag();
+        }
+
+        private long getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.biit.appointment.google.cache;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Last version obtained from Google of the appointments of each user. Used to answer reads while Google is not available.
+ * Only the intervals that have been read completely are served; any other interval is unknown, as an empty answer would
+ * be taken as free time. Users are evicted by LRU.
+ */
+@Component
+public class LastKnownEventCache {
+
+    private static final int DEFAULT_MAX_USERS = 1000;
+
+    @Value("${google.circuit-breaker.fallback.max-users:" + DEFAULT_MAX_USERS + "}")
+    private int maxUsers = DEFAULT_MAX_USERS;
+
+    private final Map<UUID, UserEvents> users = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, UserEvents> eldest) {
+            return size() > maxUsers;
+        }
+    };
+
+    /**
+     * Stores all the appointments obtained for a user in an interval. They replace any previous appointment in the interval,
+     * so events deleted or moved in Google are purged, and the interval is marked as known.
+     *
+     * @param startingFrom lower bound of the interval, or null if unbounded.
+     * @param endingTo     upper bound of the interval, or null if unbounded.
+     */
+    public synchronized void put(UUID userId, LocalDateTime startingFrom, LocalDateTime endingTo, Collection<AppointmentDTO> appointments) {
+        if (userId == null || appointments == null) {
+            return;
+        }
+        final LocalDateTime from = startingFrom != null ? startingFrom : LocalDateTime.MIN;
+        final LocalDateTime to = endingTo != null ? endingTo : LocalDateTime.MAX;
+        final UserEvents userEvents = users.computeIfAbsent(userId, key -> new UserEvents());
+        if (!from.isBefore(to)) {
+            merge(userEvents, appointments);
+            return;
+        }
+        userEvents.events.values().removeIf(appointment -> overlaps(appointment, from, to));
+        merge(userEvents, appointments);
+        userEvents.cover(from, to);
+    }
+
+    /**
+     * Stores some appointments obtained for a user, without marking any interval as known. Deleted appointments are removed.
+     */
+    public synchronized void put(UUID userId, Collection<AppointmentDTO> appointments) {
+        if (userId == null || appointments == null) {
+            return;
+        }
+        merge(users.computeIfAbsent(userId, key -> new UserEvents()), appointments);
+    }
+
+    public synchronized void remove(UUID userId, String externalReference) {
+        final UserEvents userEvents = users.get(userId);
+        if (userEvents != null) {
+            userEvents.events.remove(externalReference);
+        }
+    }
+
+    /**
+     * Gets the known appointments of a user that overlap an interval.
+     *
+     * @return the appointments, or null if the interval has not been completely read from Google.
+     */
+    public synchronized List<AppointmentDTO> get(UUID userId, LocalDateTime startingFrom, LocalDateTime endingTo) {
+        final UserEvents userEvents = users.get(userId);
+        if (userEvents == null) {
+            return null;
+        }
+        final LocalDateTime from = startingFrom != null ? startingFrom : LocalDateTime.MIN;
+        final LocalDateTime to = endingTo != null ? endingTo : LocalDateTime.MAX;
+        if (!userEvents.isCovered(from, to)) {
+            return null;
+        }
+        return getOverlapping(userEvents, from, to);
+    }
+
+    /**
+     * Gets the first known appointments of a user from a date.
+     *
+     * @return the appointments, or null if the known interval from this date does not contain enough appointments.
+     */
+    public synchronized List<AppointmentDTO> get(UUID userId, LocalDateTime startingFrom, int numberOfEvents) {
+        final UserEvents userEvents = users.get(userId);
+        if (userEvents == null) {
+            return null;
+        }
+        final LocalDateTime from = startingFrom != null ? startingFrom : LocalDateTime.MIN;
+        final LocalDateTime coveredTo = userEvents.getCoveredEnd(from);
+        if (coveredTo == null) {
+            return null;
+        }
+        final List<AppointmentDTO> appointments = getOverlapping(userEvents, from, coveredTo);
+        if (appointments.size() < numberOfEvents && !coveredTo.equals(LocalDateTime.MAX)) {
+            return null;
+        }
+        return appointments.stream().limit(numberOfEvents).toList();
+    }
+
+    public synchronized AppointmentDTO get(UUID userId, String externalReference) {
+        final UserEvents userEvents = users.get(userId);
+        return userEvents != null ? userEvents.events.get(externalReference) : null;
+    }
+
+    /**
+     * @return when the appointments of the user were obtained from Google for the last time, or null if never.
+     */
+    public synchronized LocalDateTime getUpdatedAt(UUID userId) {
+        final UserEvents userEvents = users.get(userId);
+        return userEvents != null ? userEvents.updatedAt : null;
+    }
+
+    public synchronized int size() {
+        return users.size();
+    }
+
+    private static void merge(UserEvents userEvents, Collection<AppointmentDTO> appointments) {
+        for (AppointmentDTO appointment : appointments) {
+            if (appointment == null || appointment.getExternalReference() == null) {
+                continue;
+            }
+            if (appointment.isDeleted()) {
+                userEvents.events.remove(appointment.getExternalReference());
+            } else {
+                userEvents.events.put(appointment.getExternalReference(), appointment);
+            }
+        }
+        userEvents.updatedAt = LocalDateTime.now();
+    }
+
+    private static List<AppointmentDTO> getOverlapping(UserEvents userEvents, LocalDateTime from, LocalDateTime to) {
+        return userEvents.events.values().stream()
+                .filter(appointment -> overlaps(appointment, from, to))
+                .sorted((first, second) -> first.getStartTime().compareTo(second.getStartTime()))
+                .toList();
+    }
+
+    private static boolean overlaps(AppointmentDTO appointment, LocalDateTime from, LocalDateTime to) {
+        return appointment.getStartTime() != null && appointment.getEndTime() != null
+                && appointment.getStartTime().isBefore(to) && appointment.getEndTime().isAfter(from);
+    }
+
+    private static final class UserEvents {
+        private final Map<String, AppointmentDTO> events = new HashMap<>();
+        //Known intervals, disjoint and not adjacent. Start to end.
+        private final TreeMap<LocalDateTime, LocalDateTime> covered = new TreeMap<>();
+        private LocalDateTime updatedAt;
+
+        private void cover(LocalDateTime from, LocalDateTime to) {
+            LocalDateTime start = from;
+            LocalDateTime end = to;
+            final Map.Entry<LocalDateTime, LocalDateTime> previous = covered.floorEntry(from);
+            if (previous != null && !previous.getValue().isBefore(from)) {
+                start = previous.getKey();
+                end = max(end, previous.getValue());
+            }
+            final Iterator<Map.Entry<LocalDateTime, LocalDateTime>> next = covered.tailMap(start, true).entrySet().iterator();
+            while (next.hasNext()) {
+                final Map.Entry<LocalDateTime, LocalDateTime> interval = next.next();
+                if (interval.getKey().isAfter(end)) {
+                    break;
+                }
+                end = max(end, interval.getValue());
+                next.remove();
+            }
+            covered.put(start, end);
+        }
+
+        private boolean isCovered(LocalDateTime from, LocalDateTime to) {
+            final LocalDateTime coveredTo = getCoveredEnd(from);
+            return coveredTo != null && !coveredTo.isBefore(to);
+        }
+
+        private LocalDateTime getCoveredEnd(LocalDateTime from) {
+            final Map.Entry<LocalDateTime, LocalDateTime> interval = covered.floorEntry(from);
+            return interval != null && interval.getValue().isAfter(from) ? interval.getValue() : null;
+        }
+
+        private static LocalDateTime max(LocalDateTime first, LocalDateTime second) {
+            return first.isAfter(second) ? first : second;
+        }
+    }
+}
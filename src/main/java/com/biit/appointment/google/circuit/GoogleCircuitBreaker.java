@@ -0,0 +1,229 @@
+package com.biit.appointment.google.circuit;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.http.DeadlineExceededException;
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import com.biit.appointment.google.ratelimit.RateLimitExceededException;
+import com.biit.appointment.google.retry.GoogleRetryPolicy;
+import com.google.api.client.http.HttpResponseException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Stops sending requests to Google while it is failing, so threads do not wait for timeouts during an incident. The
+ * outcome of the last calls is kept on a sliding window. When the failure rate reaches the threshold the circuit opens, and
+ * all calls fail with {@link CircuitOpenException}. After a while, a few calls are allowed (half-open): if they succeed the
+ * circuit closes, if any fails it opens again.
+ * <p>
+ * Only server side errors (HTTP 5xx, HTTP 429) and connection errors are failures. Client errors as HTTP 404 mean that
+ * Google is answering. Unexpected runtime errors are neither successes nor failures. Calls started before the last state
+ * change are not counted, as they describe Google before it.
+ */
+@Component
+public class GoogleCircuitBreaker {
+
+    private static final int DEFAULT_WINDOW_SIZE = 20;
+    private static final int DEFAULT_MINIMUM_CALLS = 10;
+    private static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    private static final long DEFAULT_OPEN_SECONDS = 30;
+    private static final int DEFAULT_HALF_OPEN_CALLS = 3;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+    private static final int PERCENTAGE = 100;
+    private static final long MILLISECONDS = 1000;
+
+    @Value("${google.circuit-breaker.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${google.circuit-breaker.window-size:" + DEFAULT_WINDOW_SIZE + "}")
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+
+    @Value("${google.circuit-breaker.minimum-calls:" + DEFAULT_MINIMUM_CALLS + "}")
+    private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+
+    @Value("${google.circuit-breaker.failure-rate-threshold:" + DEFAULT_FAILURE_RATE_THRESHOLD + "}")
+    private int failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+
+    @Value("${google.circuit-breaker.open-seconds:" + DEFAULT_OPEN_SECONDS + "}")
+    private long openSeconds = DEFAULT_OPEN_SECONDS;
+
+    @Value("${google.circuit-breaker.half-open-calls:" + DEFAULT_HALF_OPEN_CALLS + "}")
+    private int halfOpenCalls = DEFAULT_HALF_OPEN_CALLS;
+
+    private CircuitState state = CircuitState.CLOSED;
+    //Changes on each transition.
+    private long generation;
+    private boolean[] window;
+    private int windowPosition;
+    private int windowCalls;
+    private int windowFailures;
+    private long openedAt;
+    private int halfOpenStarted;
+    private int halfOpenSucceeded;
+
+    /**
+     * Executes a request if the circuit is not open.
+     *
+     * @param operation name of the operation, for logging.
+     * @param request   the request.
+     * @param <T>       type of the response.
+     * @return the response.
+     * @throws CircuitOpenException if the circuit is open and the request has not been executed.
+     * @throws IOException          the error of the request.
+     */
+    public <T> T execute(String operation, GoogleRetryPolicy.GoogleRequest<T> request) throws IOException {
+        if (!enabled) {
+            return request.execute();
+        }
+        final long callGeneration = acquirePermission(operation);
+        try {
+            final T response = request.execute();
+            onResult(callGeneration, false);
+            return response;
+        } catch (IOException e) {
+            onResult(callGeneration, isFailure(e));
+            throw e;
+        } catch (RuntimeException e) {
+            //Not an answer from Google.
+            onIgnored(callGeneration);
+            throw e;
+        }
+    }
+
+    public synchronized CircuitState getState() {
+        //An open circuit is reported as half-open once the waiting time has finished.
+        if (state == CircuitState.OPEN && System.currentTimeMillis() - openedAt >= openSeconds * MILLISECONDS) {
+            return CircuitState.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized boolean isOpen() {
+        return getState() == CircuitState.OPEN;
+    }
+
+    /**
+     * Closes the circuit and forgets the previous calls.
+     */
+    public synchronized void reset() {
+        transition(CircuitState.CLOSED);
+    }
+
+    private boolean isFailure(IOException exception) {
+        if (exception instanceof RateLimitExceededException || exception instanceof CircuitOpenException
+                || exception instanceof DeadlineExceededException) {
+            return false;
+        }
+        if (exception instanceof HttpResponseException responseException) {
+            return responseException.getStatusCode() >= HTTP_SERVER_ERROR || responseException.getStatusCode() == HTTP_TOO_MANY_REQUESTS;
+        }
+        return true;
+    }
+
+    private synchronized long acquirePermission(String operation) throws CircuitOpenException {
+        if (state == CircuitState.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openSeconds * MILLISECONDS) {
+                throw new CircuitOpenException(operation);
+            }
+            transition(CircuitState.HALF_OPEN);
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            if (halfOpenStarted >= halfOpenCalls) {
+                throw new CircuitOpenException(operation);
+            }
+            halfOpenStarted++;
+        }
+        return generation;
+    }
+
+    private synchronized void onIgnored(long callGeneration) {
+        if (callGeneration == generation && state == CircuitState.HALF_OPEN) {
+            //Another call can test Google instead.
+            halfOpenStarted--;
+        }
+    }
+
+    private synchronized void onResult(long callGeneration, boolean failure) {
+        if (callGeneration != generation) {
+            //Started before the last transition.
+            return;
+        }
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failure) {
+                    transition(CircuitState.OPEN);
+                } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                    transition(CircuitState.CLOSED);
+                }
+            }
+            case CLOSED -> {
+                record(failure);
+                if (windowCalls >= minimumCalls && windowFailures * PERCENTAGE >= failureRateThreshold * windowCalls) {
+                    transition(CircuitState.OPEN);
+                }
+            }
+            default -> {
+                //No call starts while open.
+            }
+        }
+    }
+
+    private void record(boolean failure) {
+        if (window == null || window.length != windowSize) {
+            window = new boolean[Math.max(1, windowSize)];
+            windowPosition = 0;
+            windowCalls = 0;
+            windowFailures = 0;
+        }
+        if (windowCalls == window.length) {
+            if (window[windowPosition]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowPosition] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private void transition(CircuitState newState) {
+        if (state != newState) {
+            if (newState == CircuitState.OPEN) {
+                GoogleCalDAVLogger.warning(this.getClass(), "Google Calendar circuit breaker opened for '{}' seconds.", openSeconds);
+            } else {
+                GoogleCalDAVLogger.info(this.getClass(), "Google Calendar circuit breaker changed to '{}'.", newState);
+            }
+        }
+        state = newState;
+        generation++;
+        openedAt = System.currentTimeMillis();
+        halfOpenStarted = 0;
+        halfOpenSucceeded = 0;
+        window = null;
+    }
+}
@@ -0,0 +1,310 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.exceptions.ExternalCalendarActionException;
+import com.biit.appointment.core.exceptions.ExternalCalendarNotFoundException;
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.http.GoogleDeadline;
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking version of {@link GoogleCalendarService}. Each operation runs on a separate executor and returns a
+ * {@link CompletableFuture}, so request threads are not held while waiting for Google. Futures fail with the same
+ * {@link ExternalCalendarActionException} thrown by the blocking service.
+ * <p>
+ * A bean of type {@link Executor} named {@value #EXECUTOR_BEAN_NAME} is used if defined. If not, virtual threads are used when
+ * the JVM supports them (Java 21+), and a fixed pool of platform threads otherwise.
+ */
+@Service
+public class AsyncGoogleCalendarService implements DisposableBean {
+
+    public static final String EXECUTOR_BEAN_NAME = "googleCalendarExecutor";
+    private static final int DEFAULT_POOL_SIZE = 50;
+    private static final long SHUTDOWN_SECONDS = 10;
+    private static final int DEFAULT_MAX_PARALLEL_USERS = 10;
+    private static final long DEFAULT_USER_TIMEOUT_SECONDS = 30;
+
+    @Value("${google.async.max-parallel-users:" + DEFAULT_MAX_PARALLEL_USERS + "}")
+    private int maxParallelUsers = DEFAULT_MAX_PARALLEL_USERS;
+
+    @Value("${google.async.user-timeout-seconds:" + DEFAULT_USER_TIMEOUT_SECONDS + "}")
+    private long userTimeoutSeconds = DEFAULT_USER_TIMEOUT_SECONDS;
+
+    private final GoogleCalendarService googleCalendarService;
+    private final Executor executor;
+    //Only the executors created here are shut down.
+    private final ExecutorService ownedExecutor;
+    private final ScheduledExecutorService timeoutScheduler = createTimeoutScheduler();
+
+    @Autowired
+    public AsyncGoogleCalendarService(GoogleCalendarService googleCalendarService,
+                                      @Qualifier(EXECUTOR_BEAN_NAME) ObjectProvider<Executor> executor,
+                                      @Value("${google.async.virtual-threads:true}") boolean virtualThreads,
+                                      @Value("${google.async.pool-size:" + DEFAULT_POOL_SIZE + "}") int poolSize) {
+        this.googleCalendarService = googleCalendarService;
+        final Executor definedExecutor = executor.getIfAvailable();
+        if (definedExecutor != null) {
+            this.executor = definedExecutor;
+            this.ownedExecutor = null;
+        } else {
+            this.ownedExecutor = createExecutor(virtualThreads, poolSize);
+            this.executor = ownedExecutor;
+        }
+    }
+
+    public AsyncGoogleCalendarService(GoogleCalendarService googleCalendarService, Executor executor) {
+        this.googleCalendarService = googleCalendarService;
+        this.executor = executor;
+        this.ownedExecutor = null;
+    }
+
+    public CompletableFuture<List<AppointmentDTO>> getEvents(LocalDateTime startingFrom, LocalDateTime endingTo,
+                                                             ExternalCalendarCredentialsDTO credentials) {
+        return run(() -> googleCalendarService.getEvents(startingFrom, endingTo, credentials));
+    }
+
+    public CompletableFuture<List<AppointmentDTO>> getEvents(int numberOfEvents, LocalDateTime startingFrom,
+                                                             ExternalCalendarCredentialsDTO credentials) {
+        return run(() -> googleCalendarService.getEvents(numberOfEvents, startingFrom, credentials));
+    }
+
+    /**
+     * Gets the events of many users at the same time, for example to compute the availability of a team. At most
+     * 'google.async.max-parallel-users' calendars are read concurrently, and each one is cancelled if it takes longer than
+     * 'google.async.user-timeout-seconds'. The requests of each user run with a {@link GoogleDeadline} of the same time, so
+     * they are stopped even if they do not react to the interruption. The time needed depends on the slowest user and not
+     * on the number of users.
+     *
+     * @param credentials  the credentials of each user. Only one entry per user is expected.
+     * @param startingFrom lower bound for the event end time.
+     * @param endingTo     upper bound for the event start time.
+     * @return the events of each user, and the error of the users whose calendar could not be read.
+     */
+    public MultiUserEventsResult getEvents(Collection<ExternalCalendarCredentialsDTO> credentials, LocalDateTime startingFrom,
+                                           LocalDateTime endingTo) {
+        final Semaphore permits = new Semaphore(Math.max(1, maxParallelUsers));
+        final Map<UUID, FutureTask<List<AppointmentDTO>>> tasks = new LinkedHashMap<>();
+        final Map<UUID, Future<?>> timeouts = new HashMap<>();
+        final Map<UUID, List<AppointmentDTO>> events = new HashMap<>();
+        final Map<UUID, ExternalCalendarActionException> failures = new HashMap<>();
+        for (ExternalCalendarCredentialsDTO userCredentials : credentials) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.put(userCredentials.getUserId(), new ExternalCalendarActionException(this.getClass(), e));
+                continue;
+            }
+            final AtomicBoolean started = new AtomicBoolean();
+            final FutureTask<List<AppointmentDTO>> task = new FutureTask<>(() -> {
+                started.set(true);
+                //The slot is kept while the thread is still calling Google, even if the task has been cancelled.
+                try (GoogleDeadline ignored = GoogleDeadline.start(Duration.ofSeconds(userTimeoutSeconds))) {
+                    return googleCalendarService.getEvents(startingFrom, endingTo, userCredentials);
+                } finally {
+                    permits.release();
+                }
+            }) {
+                @Override
+                protected void done() {
+                    //Cancelled before running.
+                    if (started.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                failures.put(userCredentials.getUserId(), new ExternalCalendarActionException(this.getClass(), e));
+                continue;
+            }
+            timeouts.put(userCredentials.getUserId(), timeoutScheduler.schedule(() -> task.cancel(true), userTimeoutSeconds,
+                    TimeUnit.SECONDS));
+            tasks.put(userCredentials.getUserId(), task);
+        }
+        tasks.forEach((userId, task) -> {
+            try {
+                events.put(userId, task.get());
+            } catch (ExecutionException e) {
+                failures.put(userId, e.getCause() instanceof ExternalCalendarActionException actionException
+                        ? actionException : new ExternalCalendarActionException(this.getClass(), e.getCause()));
+            } catch (CancellationException e) {
+                GoogleCalDAVLogger.warning(this.getClass(), "Events of user '{}' not obtained after '{}' seconds.",
+                        userId, userTimeoutSeconds);
+                failures.put(userId, new ExternalCalendarActionException(this.getClass(),
+                        new TimeoutException("No response after " + userTimeoutSeconds + " seconds.")));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.cancel(true);
+                failures.put(userId, new ExternalCalendarActionException(this.getClass(), e));
+            } finally {
+                //No timeout is kept once the result is collected.
+                timeouts.get(userId).cancel(false);
+            }
+        });
+        return new MultiUserEventsResult(events, failures);
+    }
+
+    public CompletableFuture<AppointmentDTO> getEvent(String externalReference, ExternalCalendarCredentialsDTO credentials) {
+        return run(() -> googleCalendarService.getEvent(externalReference, credentials));
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param appointmentDTO the appointment to create.
+     * @param credentials    the user credentials.
+     * @return a future with the external reference of the created event.
+     */
+    public CompletableFuture<String> addEvent(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials) {
+        return run(() -> googleCalendarService.addEvent(appointmentDTO, credentials));
+    }
+
+    public CompletableFuture<Void> deleteEvent(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials) {
+        return run(() -> {
+            googleCalendarService.deleteEvent(appointmentDTO, credentials);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<BatchItemResult>> addEvents(Collection<AppointmentDTO> appointments,
+                                                              ExternalCalendarCredentialsDTO credentials) {
+        return run(() -> googleCalendarService.addEvents(appointments, credentials));
+    }
+
+    public CompletableFuture<List<BatchItemResult>> deleteEvents(Collection<AppointmentDTO> appointments,
+                                                                 ExternalCalendarCredentialsDTO credentials) {
+        return run(() -> googleCalendarService.deleteEvents(appointments, credentials));
+    }
+
+    public CompletableFuture<ExternalCalendarCredentialsDTO> updateToken(ExternalCalendarCredentialsDTO credentials) {
+        return run(() -> googleCalendarService.updateToken(credentials));
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Runs the operation on the executor. Unexpected errors are mapped to {@link ExternalCalendarActionException}, as the
+     * blocking service does for communication errors. {@link ExternalCalendarNotFoundException} is kept as thrown.
+     */
+    private <T> CompletableFuture<T> run(Supplier<T> operation) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(operation.get());
+                } catch (ExternalCalendarActionException | ExternalCalendarNotFoundException e) {
+                    future.completeExceptionally(e);
+                } catch (RuntimeException e) {
+                    GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+                    future.completeExceptionally(new ExternalCalendarActionException(this.getClass(), e));
+                }
+            });
+        } catch (RuntimeException e) {
+            //Executor rejected the task.
+            GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+            future.completeExceptionally(new ExternalCalendarActionException(this.getClass(), e));
+        }
+        return future;
+    }
+
+    private static ScheduledExecutorService createTimeoutScheduler() {
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "google-calendar-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //Timeouts of finished tasks are not kept until they expire.
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private static ExecutorService createExecutor(boolean virtualThreads, int poolSize) {
+        if (virtualThreads) {
+            try {
+                //Compiled for Java 17, so the Java 21 method is found at runtime.
+                final ExecutorService virtualExecutor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                GoogleCalDAVLogger.info(AsyncGoogleCalendarService.class, "Google Calendar asynchronous calls use virtual threads.");
+                return virtualExecutor;
+            } catch (ReflectiveOperationException e) {
+                GoogleCalDAVLogger.info(AsyncGoogleCalendarService.class,
+                        "Virtual threads not available. Using a pool of '{}' threads.", poolSize);
+            }
+        }
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(poolSize, runnable -> {
+            final Thread thread = new Thread(runnable, "google-calendar-async-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        timeoutScheduler.shutdownNow();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+            if (!ownedExecutor.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+                ownedExecutor.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+
+/**
+ * Result of one operation sent inside a batch request.
+ */
+public class BatchItemResult {
+
+    private final String externalReference;
+    private final Integer errorCode;
+    private final String errorMessage;
+
+    private BatchItemResult(String externalReference, Integer errorCode, String errorMessage) {
+        this.externalReference = externalReference;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public static BatchItemResult success(String externalReference) {
+        return new BatchItemResult(externalReference, null, null);
+    }
+
+    public static BatchItemResult error(String externalReference, GoogleJsonError error) {
+        return new BatchItemResult(externalReference, error.getCode(), error.getMessage());
+    }
+
+    public static BatchItemResult error(String externalReference, Integer errorCode, String errorMessage) {
+        return new BatchItemResult(externalReference, errorCode, errorMessage);
+    }
+
+    /**
+     * Reference of the event on Google. For deletions, the reference of the deleted event.
+     *
+     * @return the event id, or null if the event could not be created.
+     */
+    public String getExternalReference() {
+        return externalReference;
+    }
+
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public boolean isSuccessful() {
+        return errorCode == null;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchItemResult{"
+                + "externalReference='" + externalReference + '\''
+                + ", errorCode=" + errorCode
+                + ", errorMessage='" + errorMessage + '\''
+                + '}';
+    }
+}
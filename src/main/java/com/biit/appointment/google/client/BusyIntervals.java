@@ -0,0 +1,215 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.google.api.services.calendar.model.TimePeriod;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Busy time of a calendar, as sorted and non-overlapping intervals stored on two primitive arrays of epoch milliseconds.
+ * Interval i goes from {@link #getStart(int)} (inclusive) to {@link #getEnd(int)} (exclusive). If the busy time of the
+ * calendar could not be obtained, there are no intervals and {@link #hasError()} is true.
+ */
+public final class BusyIntervals {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final long[] starts;
+    private final long[] ends;
+    private final String error;
+
+    private BusyIntervals(long[] starts, long[] ends, String error) {
+        this.starts = starts;
+        this.ends = ends;
+        this.error = error;
+    }
+
+    public static BusyIntervals empty() {
+        return new BusyIntervals(EMPTY, EMPTY, null);
+    }
+
+    /**
+     * The free/busy information of this calendar could not be obtained.
+     *
+     * @param error the reason returned by Google, as 'notFound'.
+     * @return intervals without busy time and with the error.
+     */
+    public static BusyIntervals error(String error) {
+        return new BusyIntervals(EMPTY, EMPTY, error);
+    }
+
+    /**
+     * Creates the intervals from the periods returned by Google. Periods are sorted and the overlapping ones are merged.
+     *
+     * @param periods the busy periods.
+     * @return the intervals.
+     */
+    public static BusyIntervals fromTimePeriods(List<TimePeriod> periods) {
+        if (periods == null || periods.isEmpty()) {
+            return empty();
+        }
+        final long[] periodStarts = new long[periods.size()];
+        final long[] periodEnds = new long[periods.size()];
+        for (int i = 0; i < periods.size(); i++) {
+            periodStarts[i] = periods.get(i).getStart().getValue();
+            periodEnds[i] = periods.get(i).getEnd().getValue();
+        }
+        return fromEpochMilliseconds(periodStarts, periodEnds);
+    }
+
+    /**
+     * Creates the intervals from unsorted and maybe overlapping ones. The arrays are not modified.
+     *
+     * @param periodStarts start of each interval in epoch milliseconds.
+     * @param periodEnds   end of each interval in epoch milliseconds, on the same position as its start.
+     * @return the intervals.
+     */
+    public static BusyIntervals fromEpochMilliseconds(long[] periodStarts, long[] periodEnds) {
+        if (periodStarts.length != periodEnds.length) {
+            throw new IllegalArgumentException("Each interval must have a start and an end.");
+        }
+        int length = 0;
+        final long[] sortedStarts = new long[periodStarts.length];
+        final long[] sortedEnds = new long[periodEnds.length];
+        for (int i = 0; i < periodStarts.length; i++) {
+            if (periodEnds[i] > periodStarts[i]) {
+                sortedStarts[length] = periodStarts[i];
+                sortedEnds[length] = periodEnds[i];
+                length++;
+            }
+        }
+        //The union of the intervals does not depend on which end belongs to which start, so both can be sorted on their own.
+        Arrays.sort(sortedStarts, 0, length);
+        Arrays.sort(sortedEnds, 0, length);
+        int merged = 0;
+        int open = 0;
+        int endIndex = 0;
+        for (int i = 0; i < length; i++) {
+            //Closes the intervals ending before this one starts. Touching intervals are merged.
+            while (sortedEnds[endIndex] < sortedStarts[i]) {
+                open--;
+                if (open == 0) {
+                    sortedEnds[merged - 1] = sortedEnds[endIndex];
+                }
+                endIndex++;
+            }
+            if (open == 0) {
+                sortedStarts[merged] = sortedStarts[i];
+                merged++;
+            }
+            open++;
+        }
+        if (merged > 0) {
+            sortedEnds[merged - 1] = sortedEnds[length - 1];
+        }
+        return new BusyIntervals(Arrays.copyOf(sortedStarts, merged), Arrays.copyOf(sortedEnds, merged), null);
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    public long getStart(int index) {
+        return starts[index];
+    }
+
+    public long getEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * @return a copy of the interval starts, sorted.
+     */
+    public long[] getStarts() {
+        return starts.clone();
+    }
+
+    /**
+     * @return a copy of the interval ends, sorted.
+     */
+    public long[] getEnds() {
+        return ends.clone();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean hasError() {
+        return error != null;
+    }
+
+    /**
+     * Checks if a slot does not overlap any busy interval.
+     *
+     * @param from slot start in epoch milliseconds, inclusive.
+     * @param to   slot end in epoch milliseconds, exclusive.
+     * @return true if the slot is free.
+     * @throws IllegalStateException if the busy time could not be obtained, see {@link #getError()}.
+     */
+    public boolean isFree(long from, long to) {
+        if (hasError()) {
+            throw new IllegalStateException("Busy time is not known: " + error);
+        }
+        final int index = firstEndingAfter(from);
+        return index == ends.length || starts[index] >= to;
+    }
+
+    /**
+     * Index of the first interval that ends after the given time, or size() if none.
+     */
+    private int firstEndingAfter(long time) {
+        int low = 0;
+        int high = ends.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (ends[middle] <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("BusyIntervals{");
+        if (error != null) {
+            builder.append("error='").append(error).append("', ");
+        }
+        builder.append("intervals=[");
+        for (int i = 0; i < starts.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(starts[i]).append('-').append(ends[i]);
+        }
+        return builder.append("]}").toString();
+    }
+}
@@ -22,15 +22,18 @@ package com.biit.appointment.google.client;
  */
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.gson.annotations.JsonAdapter;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 public class CredentialData {
 
     private String accessToken;
     private String refreshToken;
+    //Lifetime of the access token counted from createdAt, as returned by the token endpoint.
     private Long expirationTimeMilliseconds;
     private Long refreshTokenExpirationTimeMilliseconds;
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
@@ -54,7 +57,10 @@ public class CredentialData {
         this();
         setAccessToken(credential.getAccessToken());
         setRefreshToken(credential.getRefreshToken());
-        setExpirationTimeMilliseconds(credential.getExpirationTimeMilliseconds());
+        //The credential stores the expiration instant.
+        if (credential.getExpirationTimeMilliseconds() != null) {
+            setExpirationTimeMilliseconds(credential.getExpirationTimeMilliseconds() - getCreatedAtEpochMilliseconds());
+        }
     }
 
     public String getAccessToken() {
@@ -89,6 +95,23 @@ public class CredentialData {
         this.refreshTokenExpirationTimeMilliseconds = refreshTokenExpirationTimeMilliseconds;
     }
 
+    /**
+     * Gets when the access token expires, that is, createdAt plus the token lifetime stored on expirationTimeMilliseconds.
+     *
+     * @return the expiration as epoch milliseconds, or null if unknown.
+     */
+    @JsonIgnore
+    public Long getAccessTokenExpirationEpochMilliseconds() {
+        if (expirationTimeMilliseconds == null || createdAt == null) {
+            return null;
+        }
+        return getCreatedAtEpochMilliseconds() + expirationTimeMilliseconds;
+    }
+
+    private long getCreatedAtEpochMilliseconds() {
+        return createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,64 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+/**
+ * Event fields requested to Google on each read, using partial responses. Requesting less fields reduces the size of the
+ * responses and the time needed to parse them.
+ */
+public enum EventFieldsProfile {
+
+    /**
+     * Only the fields used by {@link com.biit.appointment.google.converter.AppointmentEventConverter}, plus the ETag.
+     */
+    MINIMAL("id,etag,status,summary,description,start,end"),
+
+    /**
+     * Minimal fields plus the location, attendees, organizer and links of the event.
+     */
+    EXTENDED("id,etag,status,summary,description,start,end,location,attendees,organizer,htmlLink,hangoutLink,updated"),
+
+    /**
+     * The whole event resource.
+     */
+    FULL(null);
+
+    private final String eventFields;
+
+    EventFieldsProfile(String eventFields) {
+        this.eventFields = eventFields;
+    }
+
+    /**
+     * @return the field mask for a single event, or null if all fields are requested.
+     */
+    public String getEventFields() {
+        return eventFields;
+    }
+
+    /**
+     * @return the field mask for a page of events, or null if all fields are requested.
+     */
+    public String getEventListFields() {
+        return eventFields != null ? "nextPageToken,nextSyncToken,items(" + eventFields + ")" : null;
+    }
+}
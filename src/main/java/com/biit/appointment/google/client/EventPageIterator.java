@@ -0,0 +1,110 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.Events;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the pages of an events list. A page is only requested when the previous one has been consumed.
+ * Communication errors are thrown as {@link UncheckedIOException}.
+ */
+public class EventPageIterator implements Iterator<List<Event>> {
+
+    private final EventPageFetcher eventPageFetcher;
+    private String nextPageToken;
+    private String nextSyncToken;
+    private boolean finished = false;
+    private List<Event> nextPage;
+
+    public EventPageIterator(EventPageFetcher eventPageFetcher) {
+        this.eventPageFetcher = eventPageFetcher;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextPage == null && !finished) {
+            fetchNextPage();
+        }
+        return nextPage != null;
+    }
+
+    @Override
+    public List<Event> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final List<Event> page = nextPage;
+        nextPage = null;
+        return page;
+    }
+
+    /**
+     * Sync token returned by the last page. Only available when all pages have been consumed.
+     *
+     * @return the token for the next incremental synchronization, or null.
+     */
+    public String getNextSyncToken() {
+        return nextSyncToken;
+    }
+
+    private void fetchNextPage() {
+        final Events events;
+        try {
+            events = eventPageFetcher.fetch(nextPageToken);
+        } catch (IOException e) {
+            finished = true;
+            throw new UncheckedIOException(e);
+        }
+        if (events == null) {
+            finished = true;
+            return;
+        }
+        nextPageToken = events.getNextPageToken();
+        nextSyncToken = events.getNextSyncToken();
+        finished = nextPageToken == null;
+        nextPage = events.getItems() != null ? events.getItems() : new ArrayList<>();
+    }
+
+    /**
+     * Requests one page of events.
+     */
+    @FunctionalInterface
+    public interface EventPageFetcher {
+
+        /**
+         * Gets a page.
+         *
+         * @param pageToken the token of the page, or null for the first one.
+         * @return the page.
+         * @throws IOException if the request fails.
+         */
+        Events fetch(String pageToken) throws IOException;
+    }
+}
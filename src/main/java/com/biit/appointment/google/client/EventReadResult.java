@@ -0,0 +1,70 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Appointments read from Google. If Google is not available, they are the last version known and are marked as stale.
+ */
+public class EventReadResult {
+
+    private final List<AppointmentDTO> appointments;
+    private final boolean stale;
+    private final LocalDateTime retrievedAt;
+
+    public EventReadResult(List<AppointmentDTO> appointments, boolean stale, LocalDateTime retrievedAt) {
+        this.appointments = appointments;
+        this.stale = stale;
+        this.retrievedAt = retrievedAt;
+    }
+
+    public List<AppointmentDTO> getAppointments() {
+        return appointments;
+    }
+
+    /**
+     * @return true if the appointments come from the cache, as Google is not available.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * @return when the appointments were obtained from Google.
+     */
+    public LocalDateTime getRetrievedAt() {
+        return retrievedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "EventReadResult{"
+                + "appointments=" + (appointments != null ? appointments.size() : 0)
+                + ", stale=" + stale
+                + ", retrievedAt=" + retrievedAt
+                + '}';
+    }
+}
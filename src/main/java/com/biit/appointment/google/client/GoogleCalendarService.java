@@ -27,20 +27,43 @@ import com.biit.appointment.core.models.AppointmentDTO;
 import com.biit.appointment.core.models.CalendarProviderDTO;
 import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
 import com.biit.appointment.core.services.IExternalProviderCalendarService;
+import com.biit.appointment.google.cache.CachedEventWindow;
+import com.biit.appointment.google.cache.EventWindowCache;
+import com.biit.appointment.google.cache.LastKnownEventCache;
+import com.biit.appointment.google.circuit.CircuitOpenException;
 import com.biit.appointment.google.converter.AppointmentEventConverter;
 import com.biit.appointment.google.converter.GoogleCalendarCredentialsConverter;
+import com.biit.appointment.google.http.DeadlineExceededException;
+import com.biit.appointment.google.http.GoogleDeadline;
 import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import com.biit.appointment.google.writebehind.GoogleWriteBehindService;
+import com.biit.appointment.google.writebehind.WriteOperation;
 import com.biit.server.exceptions.UserNotFoundException;
 import com.biit.server.security.IAuthenticatedUserProvider;
 import com.biit.server.security.model.IAuthenticatedUser;
 import com.google.api.client.googleapis.auth.oauth2.GoogleTokenResponse;
+import com.google.api.services.calendar.model.Event;
 import org.springframework.stereotype.Controller;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Controller
 public class GoogleCalendarService implements IExternalProviderCalendarService {
@@ -48,20 +71,29 @@ public class GoogleCalendarService implements IExternalProviderCalendarService {
     //Refresh tokens expires after six months of not using them (https://developers.google.com/identity/protocols/oauth2#expiration).
     public static final int REFRESH_TOKEN_EXPIRATION_DAYS = 7;
     public static final long REFRESH_TOKEN_EXPIRATION_SECONDS = (REFRESH_TOKEN_EXPIRATION_DAYS * 24 * 60 * 60) - 1L;
-    private static final int MILLIS = 1000;
 
     private final GoogleClientProvider googleClientProvider;
     private final AppointmentEventConverter eventConverter;
     private final GoogleCalendarCredentialsConverter googleCalendarCredentialsConverter;
     private final IAuthenticatedUserProvider<? extends IAuthenticatedUser> authenticatedUserProvider;
+    private final GoogleTokenManager googleTokenManager;
+    private final LastKnownEventCache lastKnownEventCache;
+    private final GoogleWriteBehindService googleWriteBehindService;
+    private final EventWindowCache eventWindowCache;
 
     public GoogleCalendarService(GoogleClientProvider googleClientProvider, AppointmentEventConverter eventConverter,
                                  GoogleCalendarCredentialsConverter googleCalendarCredentialsConverter,
-                                 IAuthenticatedUserProvider<? extends IAuthenticatedUser> authenticatedUserProvider) {
+                                 IAuthenticatedUserProvider<? extends IAuthenticatedUser> authenticatedUserProvider,
+                                 GoogleTokenManager googleTokenManager, LastKnownEventCache lastKnownEventCache,
+                                 GoogleWriteBehindService googleWriteBehindService, EventWindowCache eventWindowCache) {
         this.googleClientProvider = googleClientProvider;
         this.eventConverter = eventConverter;
         this.googleCalendarCredentialsConverter = googleCalendarCredentialsConverter;
         this.authenticatedUserProvider = authenticatedUserProvider;
+        this.googleTokenManager = googleTokenManager;
+        this.lastKnownEventCache = lastKnownEventCache;
+        this.googleWriteBehindService = googleWriteBehindService;
+        this.eventWindowCache = eventWindowCache;
 
         GoogleCalDAVLogger.info(this.getClass(), "### Google Calendar Controller initialized");
     }
@@ -75,9 +107,64 @@ public class GoogleCalendarService implements IExternalProviderCalendarService {
     @Override
     public List<AppointmentDTO> getEvents(LocalDateTime startingFrom, LocalDateTime endingTo, ExternalCalendarCredentialsDTO credentials)
             throws ExternalCalendarActionException, ExternalCalendarNotFoundException {
+        return readEvents(startingFrom, endingTo, credentials).getAppointments();
+    }
+
+
+    /**
+     * Gets the events of an interval, failing if Google does not answer in time. The timeout includes all pages and
+     * retries.
+     *
+     * @param startingFrom lower bound for the event end time.
+     * @param endingTo     upper bound for the event start time.
+     * @param credentials  the user credentials.
+     * @param timeout      maximum time to wait.
+     * @return the appointments.
+     * @throws ExternalCalendarActionException with a {@link DeadlineExceededException} as cause if the time is exceeded.
+     */
+    public List<AppointmentDTO> getEvents(LocalDateTime startingFrom, LocalDateTime endingTo, ExternalCalendarCredentialsDTO credentials,
+                                          Duration timeout) throws ExternalCalendarActionException, ExternalCalendarNotFoundException {
+        try (GoogleDeadline ignored = GoogleDeadline.start(timeout)) {
+            return getEvents(startingFrom, endingTo, credentials);
+        }
+    }
+
+
+    /**
+     * Gets the events of an interval. If the window cache is enabled and the interval is covered by windows recently
+     * obtained, Google is not called. If Google is not available (the circuit breaker is open), the last version known of
+     * the events is returned and marked as stale.
+     *
+     * @param startingFrom lower bound for the event end time.
+     * @param endingTo     upper bound for the event start time.
+     * @param credentials  the user credentials.
+     * @return the appointments, and if they are stale.
+     */
+    public EventReadResult readEvents(LocalDateTime startingFrom, LocalDateTime endingTo, ExternalCalendarCredentialsDTO credentials)
+            throws ExternalCalendarActionException {
+        final long from = toEpochMilli(startingFrom);
+        final long to = toEpochMilli(endingTo);
+        if (isWindowCacheEnabled()) {
+            final CachedEventWindow cachedEvents = eventWindowCache.get(credentials.getUserId(), GoogleClientProvider.PRIMARY_CALENDAR_ID,
+                    from, to);
+            if (cachedEvents != null) {
+                return new EventReadResult(cachedEvents.getAppointments(), false,
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(cachedEvents.getRetrievedAt()), ZoneId.systemDefault()));
+            }
+        }
+        //Events written while reading are not stored.
+        final long version = isWindowCacheEnabled()
+                ? eventWindowCache.getVersion(credentials.getUserId(), GoogleClientProvider.PRIMARY_CALENDAR_ID) : 0;
         try {
-            return eventConverter.convertAll(googleClientProvider.getEvents(startingFrom, endingTo,
-                    googleCalendarCredentialsConverter.reverse(credentials)));
+            final List<Event> events = googleClientProvider.getEvents(startingFrom, endingTo, googleCalendarCredentialsConverter.reverse(credentials));
+            if (isWindowCacheEnabled()) {
+                eventWindowCache.put(credentials.getUserId(), GoogleClientProvider.PRIMARY_CALENDAR_ID, from, to, events, version);
+            }
+            final List<AppointmentDTO> appointments = eventConverter.convertAll(events);
+            lastKnownEventCache.put(credentials.getUserId(), startingFrom, endingTo, appointments);
+            return new EventReadResult(appointments, false, LocalDateTime.now());
+        } catch (CircuitOpenException e) {
+            return getStaleEvents(credentials, e, () -> lastKnownEventCache.get(credentials.getUserId(), startingFrom, endingTo));
         } catch (IOException | GeneralSecurityException e) {
             GoogleCalDAVLogger.errorMessage(this.getClass(), e);
             throw new ExternalCalendarActionException(this.getClass(), e);
@@ -89,8 +176,105 @@ public class GoogleCalendarService implements IExternalProviderCalendarService {
     public List<AppointmentDTO> getEvents(int numberOfEvents, LocalDateTime startingFrom, ExternalCalendarCredentialsDTO credentials)
             throws ExternalCalendarActionException, ExternalCalendarNotFoundException {
         try {
-            return eventConverter.convertAll(googleClientProvider.getEvents(numberOfEvents, startingFrom,
+            final List<AppointmentDTO> appointments = eventConverter.convertAll(googleClientProvider.getEvents(numberOfEvents, startingFrom,
                     googleCalendarCredentialsConverter.reverse(credentials)));
+            //All events from the date are known if Google returned less than requested, else only up to the last one.
+            if (appointments.size() < numberOfEvents) {
+                lastKnownEventCache.put(credentials.getUserId(), startingFrom, null, appointments);
+            } else if (!appointments.isEmpty() && appointments.get(appointments.size() - 1).getStartTime() != null) {
+                lastKnownEventCache.put(credentials.getUserId(), startingFrom, appointments.get(appointments.size() - 1).getStartTime(),
+                        appointments);
+            } else {
+                lastKnownEventCache.put(credentials.getUserId(), appointments);
+            }
+            return appointments;
+        } catch (CircuitOpenException e) {
+            return getStaleEvents(credentials, e, () -> lastKnownEventCache.get(credentials.getUserId(), startingFrom, numberOfEvents))
+                    .getAppointments();
+        } catch (IOException | GeneralSecurityException e) {
+            GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+            throw new ExternalCalendarActionException(this.getClass(), e);
+        }
+    }
+
+    /**
+     * Gets the events as a stream. Each page is converted when it arrives from Google, so the whole interval is never held in
+     * memory. Communication errors while consuming the stream are thrown as {@link ExternalCalendarActionException}.
+     *
+     * @param startingFrom lower bound for the event end time.
+     * @param endingTo     upper bound for the event start time.
+     * @param credentials  the user credentials.
+     * @return a lazy stream of appointments.
+     */
+    public Stream<AppointmentDTO> streamEvents(LocalDateTime startingFrom, LocalDateTime endingTo, ExternalCalendarCredentialsDTO credentials)
+            throws ExternalCalendarActionException {
+        final Iterator<List<Event>> pages;
+        try {
+            pages = googleClientProvider.getEventPages(startingFrom, endingTo, googleCalendarCredentialsConverter.reverse(credentials));
+        } catch (IOException | GeneralSecurityException e) {
+            GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+            throw new ExternalCalendarActionException(this.getClass(), e);
+        }
+        final Iterator<List<AppointmentDTO>> convertedPages = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return pages.hasNext();
+                } catch (UncheckedIOException e) {
+                    GoogleCalDAVLogger.errorMessage(GoogleCalendarService.class, e.getCause());
+                    throw new ExternalCalendarActionException(GoogleCalendarService.class, e.getCause());
+                }
+            }
+
+            @Override
+            public List<AppointmentDTO> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return eventConverter.convertAll(pages.next());
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(convertedPages, Spliterator.ORDERED), false)
+                .flatMap(List::stream);
+    }
+
+    /**
+     * Gets the busy time of the user primary calendar. Cheaper than {@link #getEvents(LocalDateTime, LocalDateTime,
+     * ExternalCalendarCredentialsDTO)} when only the availability is needed, as event details are not downloaded.
+     *
+     * @param startingFrom start of the interval.
+     * @param endingTo     end of the interval.
+     * @param credentials  the user credentials.
+     * @return the busy intervals.
+     * @throws ExternalCalendarActionException if Google does not return the busy time of the calendar.
+     */
+    public BusyIntervals getFreeBusy(LocalDateTime startingFrom, LocalDateTime endingTo, ExternalCalendarCredentialsDTO credentials)
+            throws ExternalCalendarActionException {
+        final BusyIntervals busyIntervals = getFreeBusy(List.of(GoogleClientProvider.PRIMARY_CALENDAR_ID), startingFrom, endingTo,
+                credentials).get(GoogleClientProvider.PRIMARY_CALENDAR_ID);
+        if (busyIntervals == null || busyIntervals.hasError()) {
+            GoogleCalDAVLogger.warning(this.getClass(), "No busy time obtained for user '{}': {}", credentials.getUserId(), busyIntervals);
+            throw new ExternalCalendarActionException(this.getClass(), "No busy time obtained from Google: "
+                    + (busyIntervals != null ? busyIntervals.getError() : "calendar not returned"));
+        }
+        return busyIntervals;
+    }
+
+    /**
+     * Gets the busy time of many calendars visible to the user, as the calendars of other members of a team, with a single
+     * request.
+     *
+     * @param calendarIds  the calendars, as 'primary' or the email of other users.
+     * @param startingFrom start of the interval.
+     * @param endingTo     end of the interval.
+     * @param credentials  the user credentials.
+     * @return the busy intervals of each calendar.
+     */
+    public Map<String, BusyIntervals> getFreeBusy(Collection<String> calendarIds, LocalDateTime startingFrom, LocalDateTime endingTo,
+                                                  ExternalCalendarCredentialsDTO credentials) throws ExternalCalendarActionException {
+        try {
+            return googleClientProvider.getFreeBusy(calendarIds, startingFrom, endingTo,
+                    googleCalendarCredentialsConverter.reverse(credentials));
         } catch (IOException | GeneralSecurityException e) {
             GoogleCalDAVLogger.errorMessage(this.getClass(), e);
             throw new ExternalCalendarActionException(this.getClass(), e);
@@ -101,8 +285,19 @@ public class GoogleCalendarService implements IExternalProviderCalendarService {
     public AppointmentDTO getEvent(String externalReference, ExternalCalendarCredentialsDTO credentials)
             throws ExternalCalendarActionException, ExternalCalendarNotFoundException {
         try {
-            return eventConverter.convert(googleClientProvider.getEvent(externalReference,
+            final AppointmentDTO appointment = eventConverter.convert(googleClientProvider.getEvent(externalReference,
                     googleCalendarCredentialsConverter.reverse(credentials)));
+            if (appointment != null) {
+                lastKnownEventCache.put(credentials.getUserId(), List.of(appointment));
+            }
+            return appointment;
+        } catch (CircuitOpenException e) {
+            final AppointmentDTO appointment = lastKnownEventCache.get(credentials.getUserId(), externalReference);
+            if (appointment == null) {
+                throw new ExternalCalendarActionException(this.getClass(), e);
+            }
+            GoogleCalDAVLogger.warning(this.getClass(), "Google not available. Using last known version of event '{}'.", externalReference);
+            return appointment;
         } catch (IOException | GeneralSecurityException e) {
             GoogleCalDAVLogger.errorMessage(this.getClass(), e);
             throw new ExternalCalendarActionException(this.getClass(), e);
@@ -118,9 +313,19 @@ public class GoogleCalendarService implements IExternalProviderCalendarService {
     @Override
     public String addEvent(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials)
             throws ExternalCalendarActionException, ExternalCalendarNotFoundException {
+        invalidateWindows(appointmentDTO, credentials);
+        if (isWriteBehind()) {
+            //Created in background. The reference is already known. Windows read before the event exists are invalidated again.
+            return googleWriteBehindService.enqueueCreate(appointmentDTO, credentials,
+                    getIdempotencyKey(WriteOperation.CREATE, appointmentDTO, credentials),
+                    () -> invalidateWindows(appointmentDTO, credentials));
+        }
         try {
-            return googleClientProvider.createCalendarEvent(eventConverter.reverse(appointmentDTO),
+            final String externalReference = googleClientProvider.createCalendarEvent(eventConverter.reverse(appointmentDTO),
                     googleCalendarCredentialsConverter.reverse(credentials));
+            //Read again meanwhile, before the event existed.
+            invalidateWindows(appointmentDTO, credentials);
+            return externalReference;
         } catch (IOException | GeneralSecurityException e) {
             GoogleCalDAVLogger.errorMessage(this.getClass(), e);
             throw new ExternalCalendarActionException(this.getClass(), e);
@@ -130,9 +335,17 @@ public class GoogleCalendarService implements IExternalProviderCalendarService {
     @Override
     public void deleteEvent(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials)
             throws ExternalCalendarActionException, ExternalCalendarNotFoundException {
+        if (isWriteBehind()) {
+            googleWriteBehindService.enqueueDelete(appointmentDTO, credentials,
+                    getIdempotencyKey(WriteOperation.DELETE, appointmentDTO, credentials),
+                    () -> removeFromCaches(appointmentDTO, credentials));
+            removeFromCaches(appointmentDTO, credentials);
+            return;
+        }
         try {
             googleClientProvider.deleteCalendarEvent(appointmentDTO.getExternalReference(),
                     googleCalendarCredentialsConverter.reverse(credentials));
+            removeFromCaches(appointmentDTO, credentials);
         } catch (IOException | GeneralSecurityException e) {
             GoogleCalDAVLogger.errorMessage(this.getClass(), e);
             throw new ExternalCalendarActionException(this.getClass(), e);
@@ -140,6 +353,121 @@ public class GoogleCalendarService implements IExternalProviderCalendarService {
     }
 
 
+    /**
+     * Creates many events using batch requests, so each HTTP round trip to Google creates up to
+     * {@link GoogleClientProvider#MAX_BATCH_SIZE} events.
+     *
+     * @param appointments the appointments to create.
+     * @param credentials  the user credentials.
+     * @return for each appointment, in the same order, the external reference of the created event or the error.
+     */
+    public List<BatchItemResult> addEvents(Collection<AppointmentDTO> appointments, ExternalCalendarCredentialsDTO credentials)
+            throws ExternalCalendarActionException {
+        try {
+            final List<BatchItemResult> results = googleClientProvider.createCalendarEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID,
+                    eventConverter.reverseAll(appointments), googleCalendarCredentialsConverter.reverse(credentials));
+            appointments.forEach(appointment -> invalidateWindows(appointment, credentials));
+            return results;
+        } catch (IOException | GeneralSecurityException e) {
+            GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+            throw new ExternalCalendarActionException(this.getClass(), e);
+        }
+    }
+
+    /**
+     * Deletes many events using batch requests, so each HTTP round trip to Google deletes up to
+     * {@link GoogleClientProvider#MAX_BATCH_SIZE} events.
+     *
+     * @param appointments the appointments to delete.
+     * @param credentials  the user credentials.
+     * @return for each appointment, in the same order, the result of the deletion.
+     */
+    public List<BatchItemResult> deleteEvents(Collection<AppointmentDTO> appointments, ExternalCalendarCredentialsDTO credentials)
+            throws ExternalCalendarActionException {
+        try {
+            final List<BatchItemResult> results = googleClientProvider.deleteCalendarEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID,
+                    appointments.stream().map(AppointmentDTO::getExternalReference).toList(),
+                    googleCalendarCredentialsConverter.reverse(credentials));
+            appointments.forEach(appointment -> removeFromCaches(appointment, credentials));
+            return results;
+        } catch (IOException | GeneralSecurityException e) {
+            GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+            throw new ExternalCalendarActionException(this.getClass(), e);
+        }
+    }
+
+
+    private boolean isWriteBehind() {
+        return googleWriteBehindService != null && googleWriteBehindService.isEnabled();
+    }
+
+
+    private boolean isWindowCacheEnabled() {
+        return eventWindowCache != null && eventWindowCache.isEnabled();
+    }
+
+
+    /**
+     * Cached windows overlapping the appointment do not contain it.
+     */
+    private void invalidateWindows(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials) {
+        if (!isWindowCacheEnabled()) {
+            return;
+        }
+        if (appointmentDTO.getStartTime() == null || appointmentDTO.getEndTime() == null) {
+            eventWindowCache.invalidate(credentials.getUserId(), GoogleClientProvider.PRIMARY_CALENDAR_ID);
+        } else {
+            eventWindowCache.invalidate(credentials.getUserId(), GoogleClientProvider.PRIMARY_CALENDAR_ID,
+                    toEpochMilli(appointmentDTO.getStartTime()), toEpochMilli(appointmentDTO.getEndTime()));
+        }
+    }
+
+
+    private void removeFromCaches(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials) {
+        lastKnownEventCache.remove(credentials.getUserId(), appointmentDTO.getExternalReference());
+        if (isWindowCacheEnabled()) {
+            eventWindowCache.remove(credentials.getUserId(), GoogleClientProvider.PRIMARY_CALENDAR_ID, appointmentDTO.getExternalReference());
+        }
+    }
+
+
+    private static long toEpochMilli(LocalDateTime localDateTime) {
+        return localDateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+
+    /**
+     * The same appointment always gets the same key, so repeated calls are not written twice. Appointments that cannot be
+     * identified are rejected, as a random key would write them again on each call.
+     */
+    private String getIdempotencyKey(WriteOperation operation, AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials) {
+        if (operation == WriteOperation.DELETE) {
+            if (appointmentDTO.getExternalReference() == null) {
+                throw new ExternalCalendarActionException(this.getClass(), "Cannot delete an appointment without external reference.");
+            }
+            return operation + ":" + credentials.getUserId() + ":" + appointmentDTO.getExternalReference();
+        }
+        if (appointmentDTO.getId() != null) {
+            return operation + ":" + credentials.getUserId() + ":" + appointmentDTO.getId();
+        }
+        if (appointmentDTO.getExternalReference() != null) {
+            return operation + ":" + credentials.getUserId() + ":" + appointmentDTO.getExternalReference();
+        }
+        throw new ExternalCalendarActionException(this.getClass(), "Cannot write in background an appointment without id.");
+    }
+
+
+    private EventReadResult getStaleEvents(ExternalCalendarCredentialsDTO credentials, CircuitOpenException exception,
+                                           Supplier<List<AppointmentDTO>> lastKnownEvents) {
+        final List<AppointmentDTO> appointments = lastKnownEvents.get();
+        if (appointments == null) {
+            throw new ExternalCalendarActionException(this.getClass(), exception);
+        }
+        GoogleCalDAVLogger.warning(this.getClass(), "Google not available. Using last known events of user '{}'.", credentials.getUserId());
+        return new EventReadResult(appointments, true, lastKnownEventCache.getUpdatedAt(credentials.getUserId()));
+    }
+
+
     public ExternalCalendarCredentialsDTO exchangeCodeForToken(String username, String code, String state) {
         final IAuthenticatedUser authenticatedUser = authenticatedUserProvider.findByUsername(username)
                 .orElseThrow(() -> new UserNotFoundException(this.getClass(),
@@ -177,11 +505,16 @@ public class GoogleCalendarService implements IExternalProviderCalendarService {
         try {
             final ExternalCalendarCredentialsDTO refreshedCalendarCredentials =
                     new ExternalCalendarCredentialsDTO(externalCalendarCredentialsDTO.getUserId(), CalendarProviderDTO.GOOGLE);
-            final CredentialData credentialData = googleClientProvider.refreshCredentials(externalCalendarCredentialsDTO
-                    .getCredentialData(CredentialData.class));
+            //Concurrent refreshes for the same user are merged, and recently refreshed tokens are reused.
+            final CredentialData credentialData = googleTokenManager.refresh(externalCalendarCredentialsDTO.getUserId(),
+                    externalCalendarCredentialsDTO.getCredentialData(CredentialData.class));
             GoogleCalDAVLogger.debug(this.getClass(), "Credential data refreshed. Value\n{}", credentialData);
             refreshedCalendarCredentials.setCredentialData(credentialData);
-            refreshedCalendarCredentials.setExpiresAt(LocalDateTime.now().plusSeconds(credentialData.getExpirationTimeMilliseconds() / MILLIS));
+            //Unknown if Google does not send the lifetime of the access token.
+            if (credentialData.getAccessTokenExpirationEpochMilliseconds() != null) {
+                refreshedCalendarCredentials.setExpiresAt(LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(credentialData.getAccessTokenExpirationEpochMilliseconds()), ZoneId.systemDefault()));
+            }
             refreshedCalendarCredentials.setForceRefreshAt(LocalDateTime.now().plusDays(REFRESH_TOKEN_EXPIRATION_DAYS));
             return refreshedCalendarCredentials;
         } catch (IOException | GeneralSecurityException e) {
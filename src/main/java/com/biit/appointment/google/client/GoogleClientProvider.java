@@ -21,7 +21,16 @@ package com.biit.appointment.google.client;
  * #L%
  */
 
+import com.biit.appointment.google.cache.GoogleClientCache;
+import com.biit.appointment.google.cache.GoogleEventCache;
+import com.biit.appointment.google.circuit.GoogleCircuitBreaker;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.biit.appointment.google.http.GoogleDeadline;
+import com.biit.appointment.google.http.GoogleHttpTransportProvider;
 import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import com.biit.appointment.google.metrics.GoogleMetrics;
+import com.biit.appointment.google.ratelimit.GoogleRateLimiter;
+import com.biit.appointment.google.retry.GoogleRetryPolicy;
 import com.google.api.client.auth.oauth2.BearerToken;
 import com.google.api.client.auth.oauth2.ClientParametersAuthentication;
 import com.google.api.client.auth.oauth2.Credential;
@@ -32,8 +41,13 @@ import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeToken
 import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
 import com.google.api.client.googleapis.auth.oauth2.GoogleRefreshTokenRequest;
 import com.google.api.client.googleapis.auth.oauth2.GoogleTokenResponse;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.client.util.Clock;
@@ -41,8 +55,13 @@ import com.google.api.client.util.DateTime;
 import com.google.api.client.util.store.FileDataStoreFactory;
 import com.google.api.services.calendar.Calendar;
 import com.google.api.services.calendar.CalendarScopes;
+import com.google.api.services.calendar.model.Channel;
 import com.google.api.services.calendar.model.Event;
-import com.google.api.services.calendar.model.Events;
+import com.google.api.services.calendar.model.FreeBusyCalendar;
+import com.google.api.services.calendar.model.FreeBusyRequest;
+import com.google.api.services.calendar.model.FreeBusyRequestItem;
+import com.google.api.services.calendar.model.FreeBusyResponse;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Component;
@@ -52,15 +71,26 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Component
 public class GoogleClientProvider {
@@ -69,8 +99,8 @@ public class GoogleClientProvider {
     private static final String DEFAULT_USER_ID = "user";
     private static final int MILLISECONDS = 1000;
 
-    private static final String AUTH_URI = "https://accounts.google.com/o/oauth2/auth";
-    private static final String TOKEN_URI = "https://oauth2.googleapis.com/token";
+    private static final String DEFAULT_AUTH_URI = "https://accounts.google.com/o/oauth2/auth";
+    private static final String DEFAULT_TOKEN_URI = "https://oauth2.googleapis.com/token";
     private static final String AUTH_PROVIDER_FIELD = "auth_provider_x509_cert_url";
     private static final String AUTH_PROVIDER_URI = "https://www.googleapis.com/oauth2/v1/certs";
     private static final String PROJECT_ID_FIELD = "project_id";
@@ -96,7 +126,29 @@ public class GoogleClientProvider {
     private static final List<String> SCOPES = List.of(CalendarScopes.CALENDAR_READONLY);
     private static final String CREDENTIALS_FILE_PATH = "client_secret.json";
 
-    private static final String PRIMARY_CALENDAR_ID = "primary";
+    public static final String PRIMARY_CALENDAR_ID = "primary";
+
+    /**
+     * Maximum number of events that Google returns on a single page.
+     */
+    public static final int MAX_PAGE_SIZE = 2500;
+
+    /**
+     * Maximum number of operations that Google Calendar accepts on a single batch request.
+     */
+    public static final int MAX_BATCH_SIZE = 50;
+
+    /**
+     * Maximum number of calendars that Google accepts on a single free/busy query.
+     */
+    public static final int MAX_FREE_BUSY_CALENDARS = 50;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_GONE = 410;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_CONFLICT = 409;
+    private static final String WEB_HOOK_CHANNEL = "web_hook";
+    private static final String CONFIRMED_STATUS = "confirmed";
+    private static final int DEFAULT_PAGE_SIZE = 250;
 
     @Value("${google.receiver.port:" + DEFAULT_RECEIVER_PORT + "}")
     private Integer receiverPort;
@@ -116,12 +168,54 @@ public class GoogleClientProvider {
     @Value("${google.redirect.urls:}")
     private List<String> redirectUrls;
 
+    @Value("${google.calendar.page-size:" + DEFAULT_PAGE_SIZE + "}")
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    @Value("${google.calendar.fields-profile:MINIMAL}")
+    private EventFieldsProfile fieldsProfile = EventFieldsProfile.MINIMAL;
+
+    //Google endpoints can be replaced by a local stand-in server. An empty root URL uses the Calendar API default.
+    @Value("${google.api.root-url:}")
+    private String rootUrl;
+
+    @Value("${google.oauth.auth-uri:" + DEFAULT_AUTH_URI + "}")
+    private String authUri = DEFAULT_AUTH_URI;
+
+    @Value("${google.oauth.token-uri:" + DEFAULT_TOKEN_URI + "}")
+    private String tokenUri = DEFAULT_TOKEN_URI;
+
     @Value("${server.domain:localhost}")
     private String serverDomain;
 
     @Value("${server.protocol:http}")
     private String serverProtocol;
 
+    private final GoogleHttpTransportProvider googleHttpTransportProvider;
+    private final GoogleClientCache googleClientCache;
+    private final GoogleEventCache googleEventCache;
+    private final GoogleRetryPolicy googleRetryPolicy;
+    private final GoogleRateLimiter googleRateLimiter;
+    private final GoogleCircuitBreaker googleCircuitBreaker;
+    private final GoogleMetrics googleMetrics;
+
+    public GoogleClientProvider() {
+        this(new GoogleHttpTransportProvider(), new GoogleClientCache(), new GoogleEventCache(), new GoogleRetryPolicy(),
+                new GoogleRateLimiter(), new GoogleCircuitBreaker(), new GoogleMetrics());
+    }
+
+    @Autowired
+    public GoogleClientProvider(GoogleHttpTransportProvider googleHttpTransportProvider, GoogleClientCache googleClientCache,
+                                GoogleEventCache googleEventCache, GoogleRetryPolicy googleRetryPolicy,
+                                GoogleRateLimiter googleRateLimiter, GoogleCircuitBreaker googleCircuitBreaker,
+                                GoogleMetrics googleMetrics) {
+        this.googleHttpTransportProvider = googleHttpTransportProvider;
+        this.googleClientCache = googleClientCache;
+        this.googleEventCache = googleEventCache;
+        this.googleRetryPolicy = googleRetryPolicy;
+        this.googleRateLimiter = googleRateLimiter;
+        this.googleCircuitBreaker = googleCircuitBreaker;
+        this.googleMetrics = googleMetrics;
+    }
 
     /**
      * Creates an authorized Credential object.
@@ -147,7 +241,7 @@ public class GoogleClientProvider {
         if (clientId != null && !clientId.isEmpty()) {
             final GoogleClientSecrets clientSecrets = new GoogleClientSecrets();
             clientSecrets.setInstalled(new GoogleClientSecrets.Details().setClientId(clientId).setClientSecret(clientSecret)
-                    .setAuthUri(AUTH_URI).setTokenUri(TOKEN_URI).set(PROJECT_ID_FIELD, projectId).set(AUTH_PROVIDER_FIELD, AUTH_PROVIDER_URI)
+                    .setAuthUri(authUri).setTokenUri(tokenUri).set(PROJECT_ID_FIELD, projectId).set(AUTH_PROVIDER_FIELD, AUTH_PROVIDER_URI)
                     .setRedirectUris(redirectUrls));
             return clientSecrets;
         }
@@ -157,22 +251,22 @@ public class GoogleClientProvider {
     /**
      * Creates an authorized Credential object.
      *
-     * @param netHttpTransport The network HTTP Transport.
+     * @param httpTransport The network HTTP Transport.
      * @return An authorized Credential object.
      * @throws IOException If the credentials.json file cannot be found.
      */
-    public Credential getCredentials(final NetHttpTransport netHttpTransport) throws IOException {
-        return getCredentials(DEFAULT_USER_ID, netHttpTransport);
+    public Credential getCredentials(final HttpTransport httpTransport) throws IOException {
+        return getCredentials(DEFAULT_USER_ID, httpTransport);
     }
 
     /**
      * Creates an authorized Credential object.
      *
-     * @param netHttpTransport The network HTTP Transport.
+     * @param httpTransport The network HTTP Transport.
      * @return An authorized Credential object.
      * @throws IOException If the credentials.json file cannot be found.
      */
-    public Credential getCredentials(String userId, final NetHttpTransport netHttpTransport) throws IOException {
+    public Credential getCredentials(String userId, final HttpTransport httpTransport) throws IOException {
         final GoogleClientSecrets clientSecrets;
         if (clientSecret != null) {
             clientSecrets = getCredentialsFromProperties();
@@ -183,7 +277,7 @@ public class GoogleClientProvider {
         if (clientSecrets != null) {
             // Build flow and trigger user authorization request.
             final GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
-                    netHttpTransport, JSON_FACTORY, clientSecrets, SCOPES)
+                    httpTransport, JSON_FACTORY, clientSecrets, SCOPES)
                     .setDataStoreFactory(new FileDataStoreFactory(new java.io.File(TOKENS_DIRECTORY_PATH)))
                     .setAccessType("offline")
                     .build();
@@ -196,50 +290,99 @@ public class GoogleClientProvider {
 
 
     public Credential getCredentials(CredentialData credentialData) throws IOException, GeneralSecurityException {
-        final NetHttpTransport netHttpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        final Credential credential = (new Credential.Builder(BearerToken.authorizationHeaderAccessMethod()))
-                .setTransport(netHttpTransport)
+        return getCredentials(null, credentialData);
+    }
+
+
+    /**
+     * Gets the credential of a user. The user is used to account the requests on the rate limiter.
+     *
+     * @param userId         the owner of the credentials. Can be null.
+     * @param credentialData the stored credential data.
+     * @return the credential.
+     * @throws IOException              if the transport cannot be created.
+     * @throws GeneralSecurityException if the transport cannot be created.
+     */
+    public Credential getCredentials(UUID userId, CredentialData credentialData) throws IOException, GeneralSecurityException {
+        final Credential cachedCredential = googleClientCache.getCredential(credentialData);
+        //Cached credentials are shared. One of another user is replaced instead of changed.
+        if (cachedCredential != null && (userId == null
+                || (cachedCredential instanceof UserCredential userCredential && userId.equals(userCredential.getUserId())))) {
+            return cachedCredential;
+        }
+        final UserCredential credential = new UserCredential((new Credential.Builder(BearerToken.authorizationHeaderAccessMethod()))
+                .setTransport(googleHttpTransportProvider.getTransport())
                 .setJsonFactory(JSON_FACTORY)
-                .setTokenServerEncodedUrl(TOKEN_URI)
+                .setTokenServerEncodedUrl(tokenUri)
+                .setRequestInitializer(googleHttpTransportProvider.getTokenRequestInitializer())
                 .setClientAuthentication(new ClientParametersAuthentication(this.clientId,
                         this.clientSecret))
-                .setClock(Clock.SYSTEM).build();
+                .setClock(Clock.SYSTEM), userId);
 
 
         credential.setAccessToken(credentialData.getAccessToken());
         credential.setRefreshToken(credentialData.getRefreshToken());
-        credential.setExpirationTimeMilliseconds(credentialData.getExpirationTimeMilliseconds());
+        credential.setExpirationTimeMilliseconds(credentialData.getAccessTokenExpirationEpochMilliseconds());
 
+        googleClientCache.putCredential(credentialData, credential);
         return credential;
     }
 
     public CredentialData refreshCredentials(CredentialData credentialData) throws IOException, GeneralSecurityException {
         return refreshCredentials(credentialData.getRefreshToken(),
-                //Remaining time of the old refresh Token.
-                credentialData.getRefreshTokenExpirationTimeMilliseconds()
-                        - (ChronoUnit.SECONDS.between(LocalDateTime.now(), credentialData.getCreatedAt())) * MILLISECONDS,
+                //Remaining time of the old refresh Token, if known.
+                credentialData.getRefreshTokenExpirationTimeMilliseconds() != null && credentialData.getCreatedAt() != null
+                        ? credentialData.getRefreshTokenExpirationTimeMilliseconds()
+                        - (ChronoUnit.SECONDS.between(credentialData.getCreatedAt(), LocalDateTime.now())) * MILLISECONDS
+                        : null,
                 this.clientId, this.clientSecret);
     }
 
 
     public CredentialData refreshCredentials(String refreshToken, Long refreshTokenExpirationTime, String clientId, String clientSecret)
             throws IOException, GeneralSecurityException {
-        final NetHttpTransport netHttpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        final GoogleTokenResponse tokenResponse = new GoogleRefreshTokenRequest(netHttpTransport, JSON_FACTORY,
-                refreshToken, clientId, clientSecret).setScopes(SCOPES).setGrantType("refresh_token").execute();
+        final GoogleRefreshTokenRequest refreshTokenRequest = new GoogleRefreshTokenRequest(googleHttpTransportProvider.getTransport(),
+                JSON_FACTORY, refreshToken, clientId, clientSecret).setScopes(SCOPES).setGrantType("refresh_token")
+                .setTokenServerUrl(new GenericUrl(tokenUri))
+                .setRequestInitializer(googleHttpTransportProvider.getTokenRequestInitializer());
+        final GoogleTokenResponse tokenResponse = googleMetrics.record("refresh", () ->
+                googleRetryPolicy.execute("refresh", true, () ->
+                        googleMetrics.count("refresh", () -> GoogleDeadline.execute("refresh", refreshTokenRequest::execute))));
 
         return new CredentialData(tokenResponse.getAccessToken(),
                 //No refresh token provided. Keep using the old one.
                 tokenResponse.getRefreshToken() == null ? refreshToken : tokenResponse.getRefreshToken(),
-                tokenResponse.getExpiresInSeconds() * MILLISECONDS,
+                tokenResponse.getExpiresInSeconds() != null ? Long.valueOf(tokenResponse.getExpiresInSeconds() * MILLISECONDS) : null,
                 //No refresh token provided. Keep using the time remaining.
-                tokenResponse.getRefreshToken() == null ? refreshTokenExpirationTime : GoogleCalendarService.REFRESH_TOKEN_EXPIRATION_SECONDS * MILLISECONDS);
+                tokenResponse.getRefreshToken() == null ? refreshTokenExpirationTime
+                        : Long.valueOf(GoogleCalendarService.REFRESH_TOKEN_EXPIRATION_SECONDS * MILLISECONDS));
+    }
+
+
+    /**
+     * Executes a Calendar API request with retries, unless the circuit breaker is open. Each attempt takes a token from the
+     * rate limiter.
+     */
+    private <T> T execute(String operation, boolean idempotent, Credential credential, GoogleRetryPolicy.GoogleRequest<T> request)
+            throws IOException {
+        return googleMetrics.record(operation, () -> googleCircuitBreaker.execute(operation, () ->
+                googleRetryPolicy.execute(operation, idempotent, () -> {
+                    googleRateLimiter.acquire(getUserKey(credential));
+                    return googleMetrics.count(operation, () -> GoogleDeadline.execute(operation, request));
+                })));
+    }
+
+    private static String getUserKey(Credential credential) {
+        if (credential instanceof UserCredential userCredential && userCredential.getUserId() != null) {
+            return userCredential.getUserId().toString();
+        }
+        //Without user, the refresh token also identifies it.
+        return credential.getRefreshToken() != null ? credential.getRefreshToken() : String.valueOf(credential.getAccessToken());
     }
 
 
     private Calendar getCalendarService() throws IOException, GeneralSecurityException {
-        final NetHttpTransport netHttpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        return getCalendarService(getCredentials(netHttpTransport));
+        return getCalendarService(getCredentials(googleHttpTransportProvider.getTransport()));
     }
 
 
@@ -248,10 +391,19 @@ public class GoogleClientProvider {
             GoogleCalDAVLogger.warning(this.getClass(), "No credentials provided!");
             return null;
         }
-        final NetHttpTransport netHttpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        return new Calendar.Builder(netHttpTransport, JSON_FACTORY, credentials)
-                .setApplicationName(APPLICATION_NAME)
-                .build();
+        final Calendar cachedCalendar = googleClientCache.getCalendar(credentials);
+        if (cachedCalendar != null) {
+            return cachedCalendar;
+        }
+        final Calendar.Builder builder = new Calendar.Builder(googleHttpTransportProvider.getTransport(), JSON_FACTORY,
+                googleHttpTransportProvider.getRequestInitializer(credentials))
+                .setApplicationName(APPLICATION_NAME);
+        if (rootUrl != null && !rootUrl.isBlank()) {
+            builder.setRootUrl(rootUrl.endsWith("/") ? rootUrl : rootUrl + "/");
+        }
+        final Calendar calendar = builder.build();
+        googleClientCache.putCalendar(credentials, calendar);
+        return calendar;
     }
 
 
@@ -288,22 +440,13 @@ public class GoogleClientProvider {
 
     public List<Event> getEvents(String calendarId, int numberOfEvents, DateTime startingFrom, Credential credential)
             throws IOException, GeneralSecurityException {
-        // Build a new authorized API client service.
-        final Calendar service = getCalendarService(credential);
-
-        if (service == null) {
-            GoogleCalDAVLogger.warning(this.getClass(), "Google Calendar service is not correctly configured!");
-            return new ArrayList<>();
-        }
-
         // List the next N events from the primary calendar.
-        final Events events = service.events().list(calendarId)
-                .setMaxResults(numberOfEvents)
-                .setTimeMin(startingFrom)
-                .setOrderBy("startTime")
-                .setSingleEvents(true)
-                .execute();
-        return events.getItems();
+        try {
+            return streamEvents(calendarId, startingFrom, null, Math.min(numberOfEvents, MAX_PAGE_SIZE), credential)
+                    .limit(numberOfEvents).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
 
@@ -322,21 +465,181 @@ public class GoogleClientProvider {
 
     public List<Event> getEvents(String calendarId, DateTime startingFrom, DateTime untilTo, Credential credential)
             throws IOException, GeneralSecurityException {
+        try {
+            return streamEvents(calendarId, startingFrom, untilTo, pageSize, credential).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+
+    /**
+     * Gets the events as a stream. Pages are requested from Google only as the stream is consumed, so the whole interval is
+     * never held in memory. Communication errors while consuming the stream are thrown as {@link UncheckedIOException}.
+     *
+     * @param calendarId   the calendar.
+     * @param startingFrom lower bound (exclusive) for the event end time. Can be null.
+     * @param untilTo      upper bound (exclusive) for the event start time. Can be null.
+     * @param pageSize     number of events requested on each page. Up to {@link #MAX_PAGE_SIZE}.
+     * @param credential   the user credentials.
+     * @return a lazy stream of events, ordered by start time.
+     * @throws IOException              if the client cannot be created.
+     * @throws GeneralSecurityException if the client cannot be created.
+     */
+    public Stream<Event> streamEvents(String calendarId, DateTime startingFrom, DateTime untilTo, int pageSize, Credential credential)
+            throws IOException, GeneralSecurityException {
+        final Iterator<List<Event>> pages = getEventPages(calendarId, startingFrom, untilTo, pageSize, credential);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED), false)
+                .flatMap(List::stream);
+    }
+
+
+    public EventPageIterator getEventPages(LocalDateTime startingFrom, LocalDateTime untilTo, Credential credential)
+            throws IOException, GeneralSecurityException {
+        return getEventPages(PRIMARY_CALENDAR_ID, new DateTime(Date.from(startingFrom.atZone(ZoneId.systemDefault()).toInstant())),
+                new DateTime(Date.from(untilTo.atZone(ZoneId.systemDefault()).toInstant())), pageSize, credential);
+    }
+
+
+    /**
+     * Gets the events page by page. Each page is requested when the iterator reaches it.
+     *
+     * @param calendarId   the calendar.
+     * @param startingFrom lower bound (exclusive) for the event end time. Can be null.
+     * @param untilTo      upper bound (exclusive) for the event start time. Can be null.
+     * @param pageSize     number of events requested on each page. Up to {@link #MAX_PAGE_SIZE}.
+     * @param credential   the user credentials.
+     * @return a lazy iterator over the pages.
+     * @throws IOException              if the client cannot be created.
+     * @throws GeneralSecurityException if the client cannot be created.
+     */
+    public EventPageIterator getEventPages(String calendarId, DateTime startingFrom, DateTime untilTo, int pageSize, Credential credential)
+            throws IOException, GeneralSecurityException {
+        return getEventPages(calendarId, startingFrom, untilTo, pageSize, fieldsProfile, credential);
+    }
+
+
+    /**
+     * Gets the events page by page, requesting only the fields of the profile.
+     *
+     * @param calendarId    the calendar.
+     * @param startingFrom  lower bound (exclusive) for the event end time. Can be null.
+     * @param untilTo       upper bound (exclusive) for the event start time. Can be null.
+     * @param pageSize      number of events requested on each page. Up to {@link #MAX_PAGE_SIZE}.
+     * @param fieldsProfile the event fields to obtain.
+     * @param credential    the user credentials.
+     * @return a lazy iterator over the pages.
+     * @throws IOException              if the client cannot be created.
+     * @throws GeneralSecurityException if the client cannot be created.
+     */
+    public EventPageIterator getEventPages(String calendarId, DateTime startingFrom, DateTime untilTo, int pageSize,
+                                           EventFieldsProfile fieldsProfile, Credential credential)
+            throws IOException, GeneralSecurityException {
         // Build a new authorized API client service.
         final Calendar service = getCalendarService(credential);
         if (service == null) {
             GoogleCalDAVLogger.warning(this.getClass(), "Google Calendar service is not correctly configured!");
-            return new ArrayList<>();
+            return new EventPageIterator(pageToken -> null);
         }
 
-        // List the next N events from the primary calendar.
-        final Events events = service.events().list(calendarId)
+        final Calendar.Events.List request = service.events().list(calendarId)
+                .setMaxResults(Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE)))
                 .setTimeMin(startingFrom)
                 .setTimeMax(untilTo)
                 .setOrderBy("startTime")
                 .setSingleEvents(true)
-                .execute();
-        return events.getItems();
+                .setFields(fieldsProfile.getEventListFields());
+        return new EventPageIterator(pageToken -> execute("list", true, credential,
+                () -> request.setPageToken(pageToken).execute()));
+    }
+
+
+    /**
+     * Gets the events changed since a previous synchronization. Without a sync token, all events from the starting date
+     * are returned. The token for the next synchronization is available on the iterator once all pages are consumed.
+     * If Google rejects the sync token with HTTP 410, a full synchronization is needed.
+     *
+     * @param calendarId   the calendar.
+     * @param syncToken    the token obtained from the previous synchronization. Can be null.
+     * @param startingFrom lower bound for the events on a full synchronization. Ignored if a sync token is provided.
+     * @param credential   the user credentials.
+     * @return a lazy iterator over the pages of changed events.
+     * @throws IOException              if the client cannot be created.
+     * @throws GeneralSecurityException if the client cannot be created.
+     */
+    public EventPageIterator getEventChanges(String calendarId, String syncToken, DateTime startingFrom, Credential credential)
+            throws IOException, GeneralSecurityException {
+        final Calendar service = getCalendarService(credential);
+        if (service == null) {
+            GoogleCalDAVLogger.warning(this.getClass(), "Google Calendar service is not correctly configured!");
+            return new EventPageIterator(pageToken -> null);
+        }
+
+        //Order and time filters are not allowed with sync tokens.
+        final Calendar.Events.List request = service.events().list(calendarId)
+                .setMaxResults(pageSize)
+                .setSingleEvents(true)
+                .setFields(fieldsProfile.getEventListFields());
+        if (syncToken != null) {
+            request.setSyncToken(syncToken);
+        } else {
+            request.setTimeMin(startingFrom);
+        }
+        return new EventPageIterator(pageToken -> execute("list", true, credential,
+                () -> request.setPageToken(pageToken).execute()));
+    }
+
+
+    public Map<String, BusyIntervals> getFreeBusy(Collection<String> calendarIds, LocalDateTime startingFrom, LocalDateTime untilTo,
+                                                  Credential credential) throws IOException, GeneralSecurityException {
+        return getFreeBusy(calendarIds, new DateTime(Date.from(startingFrom.atZone(ZoneId.systemDefault()).toInstant())),
+                new DateTime(Date.from(untilTo.atZone(ZoneId.systemDefault()).toInstant())), credential);
+    }
+
+    /**
+     * Gets the busy time of many calendars using the free/busy endpoint, that only returns time periods instead of full
+     * events. Up to {@link #MAX_FREE_BUSY_CALENDARS} calendars are queried on each request.
+     *
+     * @param calendarIds  the calendars, as 'primary' or the email of other users.
+     * @param startingFrom start of the interval.
+     * @param untilTo      end of the interval.
+     * @param credential   the user credentials.
+     * @return the busy intervals of each calendar, in the same order. Calendars that cannot be accessed have an error set.
+     * @throws IOException              if the request fails.
+     * @throws GeneralSecurityException if the client cannot be created.
+     */
+    public Map<String, BusyIntervals> getFreeBusy(Collection<String> calendarIds, DateTime startingFrom, DateTime untilTo,
+                                                  Credential credential) throws IOException, GeneralSecurityException {
+        final Map<String, BusyIntervals> busyIntervals = new LinkedHashMap<>();
+        final Calendar service = getCalendarService(credential);
+        if (service == null) {
+            GoogleCalDAVLogger.warning(this.getClass(), "Google Calendar service is not correctly configured!");
+            return busyIntervals;
+        }
+
+        final List<String> ids = new ArrayList<>(calendarIds);
+        for (int first = 0; first < ids.size(); first += MAX_FREE_BUSY_CALENDARS) {
+            final List<String> chunk = ids.subList(first, Math.min(first + MAX_FREE_BUSY_CALENDARS, ids.size()));
+            final Calendar.Freebusy.Query request = service.freebusy().query(new FreeBusyRequest()
+                    .setTimeMin(startingFrom)
+                    .setTimeMax(untilTo)
+                    .setItems(chunk.stream().map(calendarId -> new FreeBusyRequestItem().setId(calendarId)).toList()));
+            final FreeBusyResponse response = execute("freeBusy", true, credential, request::execute);
+            final Map<String, FreeBusyCalendar> calendars = response.getCalendars() != null ? response.getCalendars() : Map.of();
+            for (String calendarId : chunk) {
+                final FreeBusyCalendar freeBusyCalendar = calendars.get(calendarId);
+                if (freeBusyCalendar == null) {
+                    busyIntervals.put(calendarId, BusyIntervals.error("notFound"));
+                } else if (freeBusyCalendar.getErrors() != null && !freeBusyCalendar.getErrors().isEmpty()) {
+                    GoogleCalDAVLogger.warning(this.getClass(), "Free/busy of calendar '{}' not available: {}", calendarId,
+                            freeBusyCalendar.getErrors());
+                    busyIntervals.put(calendarId, BusyIntervals.error(freeBusyCalendar.getErrors().get(0).getReason()));
+                } else {
+                    busyIntervals.put(calendarId, BusyIntervals.fromTimePeriods(freeBusyCalendar.getBusy()));
+                }
+            }
+        }
+        return busyIntervals;
     }
 
 
@@ -346,6 +649,24 @@ public class GoogleClientProvider {
 
 
     public Event getEvent(String calendarId, String eventId, Credential credential) throws IOException, GeneralSecurityException {
+        return getEvent(calendarId, eventId, fieldsProfile, credential);
+    }
+
+
+    /**
+     * Gets an event. If it has been obtained before, Google is asked only for changes using its ETag, and the cached copy is
+     * returned if it has not changed.
+     *
+     * @param calendarId    the calendar.
+     * @param eventId       the event.
+     * @param fieldsProfile the event fields to obtain.
+     * @param credential    the user credentials.
+     * @return the event.
+     * @throws IOException              if the request fails.
+     * @throws GeneralSecurityException if the client cannot be created.
+     */
+    public Event getEvent(String calendarId, String eventId, EventFieldsProfile fieldsProfile, Credential credential)
+            throws IOException, GeneralSecurityException {
         // Build a new authorized API client service.
         final Calendar service = getCalendarService(credential);
         if (service == null) {
@@ -353,8 +674,32 @@ public class GoogleClientProvider {
             return null;
         }
 
-        // List the next N events from the primary calendar.
-        return service.events().get(calendarId, eventId).execute();
+        final String fields = fieldsProfile.getEventFields();
+        final Calendar.Events.Get request = service.events().get(calendarId, eventId).setFields(fields);
+        final String etag = googleEventCache.getEtag(credential, calendarId, eventId, fields);
+        if (etag != null) {
+            request.getRequestHeaders().setIfNoneMatch(etag);
+        }
+        try {
+            final Event event = execute("get", true, credential, request::execute);
+            //Bytes downloaded, compressed if Google did. Chunked responses have no length: the event size is used instead.
+            final Long contentLength = request.getLastResponseHeaders() != null
+                    ? request.getLastResponseHeaders().getContentLength() : null;
+            googleEventCache.put(credential, calendarId, eventId, fields, event,
+                    contentLength != null ? contentLength : JSON_FACTORY.toByteArray(event).length);
+            return event;
+        } catch (HttpResponseException e) {
+            if (e.getStatusCode() == HTTP_NOT_MODIFIED) {
+                final Event cachedEvent = googleEventCache.getNotModified(credential, calendarId, eventId, fields);
+                if (cachedEvent != null) {
+                    return cachedEvent;
+                }
+                //Evicted meanwhile.
+                request.getRequestHeaders().setIfNoneMatch(null);
+                return execute("get", true, credential, request::execute);
+            }
+            throw e;
+        }
     }
 
 
@@ -382,12 +727,152 @@ public class GoogleClientProvider {
         if (GoogleCalDAVLogger.isDebugEnabled()) {
             GoogleCalDAVLogger.debug(this.getClass(), "Creating event:\n{}", JSON_FACTORY.toPrettyString(event));
         }
-        event = service.events().insert(calendarId, event).setSendNotifications(true).setConferenceDataVersion(1)
-                .execute();
-        GoogleCalDAVLogger.info(this.getClass(), "Event created: {}", event.getHtmlLink());
+        final Calendar.Events.Insert request = service.events().insert(calendarId, event).setSendNotifications(true)
+                .setConferenceDataVersion(1);
+        //With an id assigned by the client, a repeated insert cannot duplicate the event.
+        final boolean idempotent = event.getId() != null;
+        try {
+            final Event createdEvent = execute("insert", idempotent, credential, request::execute);
+            GoogleCalDAVLogger.info(this.getClass(), "Event created: {}", createdEvent.getHtmlLink());
+            return createdEvent.getId();
+        } catch (HttpResponseException e) {
+            if (e.getStatusCode() == HTTP_CONFLICT && idempotent) {
+                return resolveConflict(service, calendarId, event, credential);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The id of the event is already used: the event has been created by a previous attempt, or it was deleted. Deleted
+     * events are restored with the new content.
+     */
+    private String resolveConflict(Calendar service, String calendarId, Event event, Credential credential) throws IOException {
+        final Calendar.Events.Get getRequest = service.events().get(calendarId, event.getId()).setFields("id,status");
+        final Event existingEvent = execute("get", true, credential, getRequest::execute);
+        if (Objects.equals(existingEvent.getStatus(), AppointmentEventConverter.DELETED_STATUS)) {
+            final Calendar.Events.Update updateRequest = service.events().update(calendarId, event.getId(),
+                    event.clone().setStatus(CONFIRMED_STATUS));
+            execute("update", true, credential, updateRequest::execute);
+            googleEventCache.invalidate(credential, calendarId, event.getId());
+            GoogleCalDAVLogger.info(this.getClass(), "Deleted event '{}' restored.", event.getId());
+        } else {
+            GoogleCalDAVLogger.debug(this.getClass(), "Event '{}' already created.", event.getId());
+        }
         return event.getId();
     }
 
+    /**
+     * Creates many events using batch requests, with up to {@link #MAX_BATCH_SIZE} events on each HTTP request.
+     *
+     * @param calendarId the calendar.
+     * @param events     the events to create.
+     * @param credential the user credentials.
+     * @return the result of each event, in the same order.
+     * @throws GeneralSecurityException If security credentials cannot be established.
+     * @throws IOException              If a batch cannot be sent to the Google Calendar API.
+     */
+    public List<BatchItemResult> createCalendarEvents(String calendarId, List<Event> events, Credential credential)
+            throws GeneralSecurityException, IOException {
+        final Calendar service = getCalendarService(credential);
+        if (service == null) {
+            GoogleCalDAVLogger.warning(this.getClass(), "Google Calendar service is not correctly configured!");
+            return new ArrayList<>();
+        }
+
+        final BatchItemResult[] results = new BatchItemResult[events.size()];
+        final List<Integer> conflicts = new ArrayList<>();
+        for (int start = 0; start < events.size(); start += MAX_BATCH_SIZE) {
+            final BatchRequest batch = service.batch();
+            boolean idempotent = true;
+            for (int i = start; i < Math.min(start + MAX_BATCH_SIZE, events.size()); i++) {
+                final int index = i;
+                idempotent &= events.get(i).getId() != null;
+                service.events().insert(calendarId, events.get(i)).setSendNotifications(true).setConferenceDataVersion(1)
+                        .queue(batch, new JsonBatchCallback<>() {
+                            @Override
+                            public void onSuccess(Event event, HttpHeaders responseHeaders) {
+                                results[index] = BatchItemResult.success(event.getId());
+                            }
+
+                            @Override
+                            public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                                if (error.getCode() == HTTP_CONFLICT && events.get(index).getId() != null) {
+                                    conflicts.add(index);
+                                } else {
+                                    results[index] = BatchItemResult.error(null, error);
+                                }
+                            }
+                        });
+            }
+            execute("batchInsert", idempotent, credential, () -> {
+                batch.execute();
+                return null;
+            });
+        }
+        for (Integer index : conflicts) {
+            try {
+                results[index] = BatchItemResult.success(resolveConflict(service, calendarId, events.get(index), credential));
+            } catch (HttpResponseException e) {
+                results[index] = BatchItemResult.error(events.get(index).getId(), e.getStatusCode(), e.getStatusMessage());
+            }
+        }
+        GoogleCalDAVLogger.info(this.getClass(), "'{}' events created on calendar '{}' using batch requests.",
+                Arrays.stream(results).filter(BatchItemResult::isSuccessful).count(), calendarId);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Deletes many events using batch requests, with up to {@link #MAX_BATCH_SIZE} events on each HTTP request. Events
+     * that do not exist anymore are considered as deleted.
+     *
+     * @param calendarId the calendar.
+     * @param eventIds   the events to delete.
+     * @param credential the user credentials.
+     * @return the result of each event, in the same order.
+     * @throws GeneralSecurityException If security credentials cannot be established.
+     * @throws IOException              If a batch cannot be sent to the Google Calendar API.
+     */
+    public List<BatchItemResult> deleteCalendarEvents(String calendarId, List<String> eventIds, Credential credential)
+            throws GeneralSecurityException, IOException {
+        final Calendar service = getCalendarService(credential);
+        if (service == null) {
+            GoogleCalDAVLogger.warning(this.getClass(), "Google Calendar service is not correctly configured!");
+            return new ArrayList<>();
+        }
+
+        final BatchItemResult[] results = new BatchItemResult[eventIds.size()];
+        for (int start = 0; start < eventIds.size(); start += MAX_BATCH_SIZE) {
+            final BatchRequest batch = service.batch();
+            for (int i = start; i < Math.min(start + MAX_BATCH_SIZE, eventIds.size()); i++) {
+                final int index = i;
+                final String eventId = eventIds.get(i);
+                googleEventCache.invalidate(credential, calendarId, eventId);
+                service.events().delete(calendarId, eventId).setSendUpdates("none")
+                        .queue(batch, new JsonBatchCallback<>() {
+                            @Override
+                            public void onSuccess(Void content, HttpHeaders responseHeaders) {
+                                results[index] = BatchItemResult.success(eventId);
+                            }
+
+                            @Override
+                            public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                                if (error.getCode() == HTTP_NOT_FOUND || error.getCode() == HTTP_GONE) {
+                                    results[index] = BatchItemResult.success(eventId);
+                                } else {
+                                    results[index] = BatchItemResult.error(eventId, error);
+                                }
+                            }
+                        });
+            }
+            execute("batchDelete", true, credential, () -> {
+                batch.execute();
+                return null;
+            });
+        }
+        return Arrays.asList(results);
+    }
+
     public void deleteCalendarEvent(String eventId, Credential credential) throws GeneralSecurityException, IOException {
         deleteCalendarEvent(PRIMARY_CALENDAR_ID, eventId, credential);
     }
@@ -396,47 +881,156 @@ public class GoogleClientProvider {
     /**
      * When deleting an event, this event is still accessible by the API for a long time.
      *
-     * @param calendarId
-     * @param eventId
-     * @throws GeneralSecurityException
-     * @throws IOException
+     * @param calendarId the calendar.
+     * @param eventId    the event to delete.
+     * @param credential the user credentials.
+     * @throws GeneralSecurityException If security credentials cannot be established.
+     * @throws IOException              If an error occurs while communicating with the Google Calendar API.
      */
     public void deleteCalendarEvent(String calendarId, String eventId, Credential credential) throws GeneralSecurityException, IOException {
+        deleteCalendarEvent(calendarId, eventId, null, credential);
+    }
+
+
+    /**
+     * Deletes an event with a single request. Events that do not exist or are already deleted are ignored.
+     *
+     * @param calendarId the calendar.
+     * @param eventId    the event to delete.
+     * @param etag       if provided, the event is only deleted if it has not changed since this version was obtained.
+     *                   Otherwise, Google answers with HTTP 412 and an exception is thrown.
+     * @param credential the user credentials.
+     * @return true if the event has been deleted, false if it was already gone.
+     * @throws GeneralSecurityException If security credentials cannot be established.
+     * @throws IOException              If an error occurs while communicating with the Google Calendar API.
+     */
+    public boolean deleteCalendarEvent(String calendarId, String eventId, String etag, Credential credential)
+            throws GeneralSecurityException, IOException {
         final Calendar service = getCalendarService(credential);
         if (service == null) {
             GoogleCalDAVLogger.warning(this.getClass(), "Google Calendar service is not correctly configured!");
-            return;
+            return false;
         }
 
-        final Event event = service.events().get(calendarId, eventId).execute();
+        //Extra request only for tracing.
+        if (GoogleCalDAVLogger.isDebugEnabled()) {
+            logEventToDelete(service, calendarId, eventId);
+        }
 
-        if (event != null) {
-            GoogleCalDAVLogger.debug(this.getClass(), "Event deleted: {}", event.getHtmlLink());
-            service.events().delete(calendarId, eventId).setSendUpdates("none").execute();
-        } else {
-            GoogleCalDAVLogger.debug(this.getClass(), "No event found with id '{}' on calendar '{}'.", eventId, calendarId);
+        final Calendar.Events.Delete request = service.events().delete(calendarId, eventId).setSendUpdates("none");
+        if (etag != null) {
+            request.getRequestHeaders().setIfMatch(etag);
+        }
+        googleEventCache.invalidate(credential, calendarId, eventId);
+        try {
+            execute("delete", true, credential, request::execute);
+            GoogleCalDAVLogger.debug(this.getClass(), "Event '{}' deleted from calendar '{}'.", eventId, calendarId);
+            return true;
+        } catch (HttpResponseException e) {
+            if (e.getStatusCode() == HTTP_NOT_FOUND || e.getStatusCode() == HTTP_GONE) {
+                GoogleCalDAVLogger.debug(this.getClass(), "No event found with id '{}' on calendar '{}'.", eventId, calendarId);
+                return false;
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * Asks Google to send a push notification to the given address each time an event of the calendar changes.
+     *
+     * @param calendarId the calendar.
+     * @param channelId  unique id for the new channel.
+     * @param address    HTTPS address that receives the notifications.
+     * @param token      sent back by Google on each notification, to verify it.
+     * @param expiration when the channel must expire, in milliseconds since epoch. Google may use an earlier one.
+     * @param credential the user credentials.
+     * @return the channel created, with the resource id and the expiration set by Google.
+     * @throws GeneralSecurityException If security credentials cannot be established.
+     * @throws IOException              If an error occurs while communicating with the Google Calendar API.
+     */
+    public Channel watchEvents(String calendarId, String channelId, String address, String token, long expiration, Credential credential)
+            throws GeneralSecurityException, IOException {
+        final Calendar service = getCalendarService(credential);
+        if (service == null) {
+            GoogleCalDAVLogger.warning(this.getClass(), "Google Calendar service is not correctly configured!");
+            return null;
+        }
+
+        final Channel channel = new Channel().setId(channelId).setType(WEB_HOOK_CHANNEL).setAddress(address).setToken(token)
+                .setExpiration(expiration);
+        final Calendar.Events.Watch request = service.events().watch(calendarId, channel);
+        //A channel id can only be used once, so a repeated request would fail.
+        final Channel createdChannel = execute("watch", false, credential, request::execute);
+        GoogleCalDAVLogger.debug(this.getClass(), "Channel '{}' watching calendar '{}' until '{}'.", channelId, calendarId,
+                createdChannel.getExpiration());
+        return createdChannel;
+    }
+
+
+    /**
+     * Stops receiving notifications from a channel.
+     *
+     * @param channelId  the channel.
+     * @param resourceId the resource id returned by Google when the channel was created.
+     * @param credential the user credentials.
+     * @return true if the channel has been stopped, false if it did not exist or was already expired.
+     * @throws GeneralSecurityException If security credentials cannot be established.
+     * @throws IOException              If an error occurs while communicating with the Google Calendar API.
+     */
+    public boolean stopChannel(String channelId, String resourceId, Credential credential) throws GeneralSecurityException, IOException {
+        final Calendar service = getCalendarService(credential);
+        if (service == null) {
+            GoogleCalDAVLogger.warning(this.getClass(), "Google Calendar service is not correctly configured!");
+            return false;
+        }
+
+        final Calendar.Channels.Stop request = service.channels().stop(new Channel().setId(channelId).setResourceId(resourceId));
+        try {
+            execute("stopChannel", true, credential, request::execute);
+            GoogleCalDAVLogger.debug(this.getClass(), "Channel '{}' stopped.", channelId);
+            return true;
+        } catch (HttpResponseException e) {
+            if (e.getStatusCode() == HTTP_NOT_FOUND) {
+                GoogleCalDAVLogger.debug(this.getClass(), "No channel found with id '{}'.", channelId);
+                return false;
+            }
+            throw e;
+        }
+    }
+
+
+    private void logEventToDelete(Calendar service, String calendarId, String eventId) {
+        try {
+            final Event event = service.events().get(calendarId, eventId).execute();
+            GoogleCalDAVLogger.debug(this.getClass(), "Deleting event: {}", event.getHtmlLink());
+        } catch (IOException e) {
+            GoogleCalDAVLogger.debug(this.getClass(), "Event '{}' on calendar '{}' cannot be retrieved: {}", eventId, calendarId, e.getMessage());
         }
     }
 
 
     public GoogleTokenResponse exchangeCodeForToken(String code, String state) throws IOException, GeneralSecurityException {
-        final NetHttpTransport netHttpTransport = GoogleNetHttpTransport.newTrustedTransport();
         if (state != null && !Objects.equals(state, clientState)) {
             GoogleCalDAVLogger.severe(this.getClass(), "State '{}' does not match  with server '{}'.", state, clientState);
             throw new AccessDeniedException("State value is incorrect!");
         }
         final String redirectUri = String.join(",", redirectUrls);
         final GoogleAuthorizationCodeTokenRequest authorizationCodeTokenRequest = new GoogleAuthorizationCodeTokenRequest(
-                netHttpTransport,
+                googleHttpTransportProvider.getTransport(),
                 JSON_FACTORY,
-                TOKEN_URI,
+                tokenUri,
                 clientId,
                 clientSecret,
                 code,
                 redirectUri
-        ).setScopes(SCOPES);
+        ).setScopes(SCOPES).setRequestInitializer(googleHttpTransportProvider.getTokenRequestInitializer());
         try {
-            final GoogleTokenResponse response = authorizationCodeTokenRequest.execute();
+            //Codes can be used only once.
+            final GoogleTokenResponse response = googleMetrics.record("codeExchange", () ->
+                    googleRetryPolicy.execute("codeExchange", false, () ->
+                            googleMetrics.count("codeExchange", () ->
+                                    GoogleDeadline.execute("codeExchange", authorizationCodeTokenRequest::execute))));
             GoogleCalDAVLogger.debug(this.getClass(), "Token obtained successfully for code '{}' from google!", code);
             return response;
         } catch (Exception e) {
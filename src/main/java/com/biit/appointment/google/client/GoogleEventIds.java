@@ -0,0 +1,76 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Event identifiers assigned by the client. Google accepts ids of 5 to 1024 characters using base32hex (lowercase letters
+ * a-v and digits), and rejects with HTTP 409 the creation of an event with an id already used. Deriving the id from a
+ * stable key makes the creation idempotent: repeating it cannot create a second event.
+ */
+public final class GoogleEventIds {
+
+    private static final char[] BASE32HEX = "0123456789abcdefghijklmnopqrstuv".toCharArray();
+    private static final int BITS_PER_CHARACTER = 5;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int CHARACTER_MASK = 0x1F;
+    private static final int BYTE_MASK = 0xFF;
+
+    private GoogleEventIds() {
+    }
+
+    /**
+     * Gets a valid Google event id for a key. The same key always returns the same id.
+     *
+     * @param key any text that identifies the event.
+     * @return the base32hex encoded SHA-256 of the key.
+     */
+    public static String fromKey(String key) {
+        try {
+            return encode(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            //SHA-256 is available on all Java platforms.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        final StringBuilder encoded = new StringBuilder((bytes.length * BITS_PER_BYTE + BITS_PER_CHARACTER - 1) / BITS_PER_CHARACTER);
+        int buffer = 0;
+        int bits = 0;
+        for (byte value : bytes) {
+            buffer = (buffer << BITS_PER_BYTE) | (value & BYTE_MASK);
+            bits += BITS_PER_BYTE;
+            while (bits >= BITS_PER_CHARACTER) {
+                bits -= BITS_PER_CHARACTER;
+                encoded.append(BASE32HEX[(buffer >> bits) & CHARACTER_MASK]);
+            }
+        }
+        if (bits > 0) {
+            encoded.append(BASE32HEX[(buffer << (BITS_PER_CHARACTER - bits)) & CHARACTER_MASK]);
+        }
+        return encoded.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.exceptions.ExternalCalendarActionException;
+import com.biit.appointment.core.models.AppointmentDTO;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Events obtained from the calendars of many users. Users whose calendar could not be read are on the failures map, with
+ * the error obtained.
+ */
+public class MultiUserEventsResult {
+
+    private final Map<UUID, List<AppointmentDTO>> events;
+    private final Map<UUID, ExternalCalendarActionException> failures;
+
+    public MultiUserEventsResult(Map<UUID, List<AppointmentDTO>> events, Map<UUID, ExternalCalendarActionException> failures) {
+        this.events = Collections.unmodifiableMap(events);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    public Map<UUID, List<AppointmentDTO>> getEvents() {
+        return events;
+    }
+
+    public Map<UUID, ExternalCalendarActionException> getFailures() {
+        return failures;
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "MultiUserEventsResult{"
+                + "users=" + events.size()
+                + ", failures=" + failures.keySet()
+                + '}';
+    }
+}
@@ -0,0 +1,44 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.google.api.client.auth.oauth2.Credential;
+
+import java.util.UUID;
+
+/**
+ * Credential that knows the user it belongs to, so requests can be accounted per user. Credentials are shared through the
+ * cache, so the user cannot be changed.
+ */
+public class UserCredential extends Credential {
+
+    private final UUID userId;
+
+    public UserCredential(Credential.Builder builder, UUID userId) {
+        super(builder);
+        this.userId = userId;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+}
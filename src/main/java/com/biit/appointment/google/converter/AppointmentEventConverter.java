@@ -23,25 +23,50 @@ package com.biit.appointment.google.converter;
 
 import com.biit.appointment.core.models.AppointmentDTO;
 import com.biit.appointment.core.models.CalendarProviderDTO;
+import com.biit.appointment.google.client.GoogleEventIds;
 import com.google.api.client.util.DateTime;
 import com.google.api.services.calendar.model.Event;
 import com.google.api.services.calendar.model.EventDateTime;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class AppointmentEventConverter {
 
     public static final String DELETED_STATUS = "cancelled";
+    private static final String DEFAULT_EVENT_ID_NAMESPACE = "appointment-center";
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * MILLIS_PER_SECOND;
+    private static final int NANOS_PER_MILLI = 1_000_000;
+    private static final int SECONDS_PER_MINUTE = 60;
+
+    //New events get an id derived from the appointment id, so creating them again does not duplicate them.
+    @Value("${google.calendar.deterministic-event-ids:false}")
+    private boolean deterministicEventIds = false;
+
+    @Value("${google.calendar.event-id-namespace:" + DEFAULT_EVENT_ID_NAMESPACE + "}")
+    private String eventIdNamespace = DEFAULT_EVENT_ID_NAMESPACE;
+
+    //Google only sends IANA zone names, so the number of entries is bounded.
+    private final Map<String, ZoneId> zones = new ConcurrentHashMap<>();
 
     protected AppointmentDTO convertElement(Event from) {
+        return convertElement(from, ZoneId.systemDefault());
+    }
+
+    private AppointmentDTO convertElement(Event from, ZoneId systemZone) {
         if (from == null) {
             return null;
         }
@@ -49,27 +74,29 @@ public class AppointmentEventConverter {
         appointmentDTO.setTitle(from.getSummary());
         appointmentDTO.setDescription(from.getDescription());
         appointmentDTO.setCalendarProvider(CalendarProviderDTO.GOOGLE);
+        appointmentDTO.setExternalReference(from.getId());
+        appointmentDTO.setDeleted(Objects.equals(from.getStatus(), DELETED_STATUS));
+
+        //Cancelled events obtained from a synchronization only have id and status.
+        if (from.getStart() == null || from.getEnd() == null) {
+            return appointmentDTO;
+        }
 
         //All day event.
         if (from.getStart().getDate() != null) {
-            appointmentDTO.setStartTime(Instant.ofEpochMilli(from.getStart().getDate().getValue())
-                    .atZone(ZoneId.systemDefault()).toLocalDateTime());
-            appointmentDTO.setEndTime(Instant.ofEpochMilli(from.getEnd().getDate().getValue())
-                    .atZone(ZoneId.systemDefault()).toLocalDateTime());
+            appointmentDTO.setStartTime(toLocalDateTime(from.getStart().getDate().getValue(), systemZone));
+            appointmentDTO.setEndTime(toLocalDateTime(from.getEnd().getDate().getValue(), systemZone));
             appointmentDTO.setAllDay(true);
         }
 
         //Normal event
         if (from.getStart().getDateTime() != null) {
-            appointmentDTO.setStartTime(Instant.ofEpochMilli(from.getStart().getDateTime().getValue())
-                    .atZone(ZoneId.of(from.getStart().getTimeZone())).toLocalDateTime());
-            appointmentDTO.setEndTime(Instant.ofEpochMilli(from.getEnd().getDateTime().getValue())
-                    .atZone(ZoneId.of(from.getEnd().getTimeZone())).toLocalDateTime());
+            appointmentDTO.setStartTime(toLocalDateTime(from.getStart().getDateTime().getValue(),
+                    getZone(from.getStart().getTimeZone(), systemZone)));
+            appointmentDTO.setEndTime(toLocalDateTime(from.getEnd().getDateTime().getValue(),
+                    getZone(from.getEnd().getTimeZone(), systemZone)));
             appointmentDTO.setAllDay(false);
         }
-
-        appointmentDTO.setExternalReference(from.getId());
-        appointmentDTO.setDeleted(Objects.equals(from.getStatus(), DELETED_STATUS));
         return appointmentDTO;
     }
 
@@ -79,29 +106,29 @@ public class AppointmentEventConverter {
 
 
     public Event reverse(AppointmentDTO from) {
+        return reverse(from, ZoneId.systemDefault());
+    }
+
+    private Event reverse(AppointmentDTO from, ZoneId systemZone) {
         if (from == null) {
             return null;
         }
 
         final Event event = new Event();
-        event.setId(from.getExternalReference());
+        event.setId(from.getExternalReference() != null ? from.getExternalReference() : getEventId(from));
         event.setSummary(from.getTitle());
         event.setDescription(from.getDescription());
 
         if (from.isAllDay()) {
-            final DateTime startingTime = new DateTime(true, from.getStartTime().toLocalDate()
-                    .atStartOfDay(ZoneId.of("UTC")).toInstant().getEpochSecond() * 1000, null);
+            //Start of the day in UTC.
+            final DateTime startingTime = new DateTime(true, from.getStartTime().toLocalDate().toEpochDay() * MILLIS_PER_DAY, null);
             final EventDateTime startDateTime = new EventDateTime().setDate(startingTime);
             event.setStart(startDateTime);
             event.setEnd(startDateTime);
         } else {
-            final DateTime startingTime = new DateTime(Date.from(from.getStartTime().atZone(ZoneId.systemDefault()).toInstant()));
-            final EventDateTime startDateTime = new EventDateTime().setDateTime(startingTime).setTimeZone(ZoneId.systemDefault().toString());
-            event.setStart(startDateTime);
-
-            final DateTime endingTime = new DateTime(Date.from(from.getEndTime().atZone(ZoneId.systemDefault()).toInstant()));
-            final EventDateTime endingDateTime = new EventDateTime().setDateTime(endingTime).setTimeZone(ZoneId.systemDefault().toString());
-            event.setEnd(endingDateTime);
+            final String timeZone = systemZone.getId();
+            event.setStart(new EventDateTime().setDateTime(toDateTime(from.getStartTime(), systemZone)).setTimeZone(timeZone));
+            event.setEnd(new EventDateTime().setDateTime(toDateTime(from.getEndTime(), systemZone)).setTimeZone(timeZone));
         }
 
         if (from.isDeleted()) {
@@ -111,15 +138,70 @@ public class AppointmentEventConverter {
     }
 
 
+    /**
+     * Id for an appointment not yet created on Google.
+     *
+     * @param appointmentDTO the appointment.
+     * @return a base32hex id derived from the appointment id, or null to let Google assign it.
+     */
+    public String getEventId(AppointmentDTO appointmentDTO) {
+        if (!deterministicEventIds || appointmentDTO.getId() == null) {
+            return null;
+        }
+        return GoogleEventIds.fromKey(eventIdNamespace + ":" + appointmentDTO.getId());
+    }
+
+
     public List<AppointmentDTO> convertAll(Collection<Event> from) {
         if (from == null) {
             return new ArrayList<>();
         }
-        return from.stream().map(this::convert).toList();
+        final ZoneId systemZone = ZoneId.systemDefault();
+        final List<AppointmentDTO> appointments = new ArrayList<>(from.size());
+        for (Event event : from) {
+            appointments.add(convertElement(event, systemZone));
+        }
+        return appointments;
     }
 
 
     public List<Event> reverseAll(Collection<AppointmentDTO> to) {
-        return (to == null ? new ArrayList<>() : to.stream().map(this::reverse).toList());
+        if (to == null) {
+            return new ArrayList<>();
+        }
+        final ZoneId systemZone = ZoneId.systemDefault();
+        final List<Event> events = new ArrayList<>(to.size());
+        for (AppointmentDTO appointmentDTO : to) {
+            events.add(reverse(appointmentDTO, systemZone));
+        }
+        return events;
+    }
+
+
+    /**
+     * Zone of an event time. Times without zone use the system one.
+     */
+    private ZoneId getZone(String timeZone, ZoneId systemZone) {
+        if (timeZone == null) {
+            return systemZone;
+        }
+        return zones.computeIfAbsent(timeZone, ZoneId::of);
+    }
+
+
+    private static LocalDateTime toLocalDateTime(long epochMilli, ZoneId zone) {
+        final ZoneRules rules = zone.getRules();
+        //Fixed offset zones (as UTC) do not need the instant to know the offset.
+        final ZoneOffset offset = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH) : rules.getOffset(Instant.ofEpochMilli(epochMilli));
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMilli, MILLIS_PER_SECOND),
+                (int) Math.floorMod(epochMilli, MILLIS_PER_SECOND) * NANOS_PER_MILLI, offset);
+    }
+
+
+    private static DateTime toDateTime(LocalDateTime localDateTime, ZoneId zone) {
+        //On overlaps and gaps, uses the offset before the transition, as ZonedDateTime does.
+        final ZoneOffset offset = zone.getRules().getOffset(localDateTime);
+        final long epochMilli = localDateTime.toEpochSecond(offset) * MILLIS_PER_SECOND + localDateTime.getNano() / NANOS_PER_MILLI;
+        return new DateTime(false, epochMilli, offset.getTotalSeconds() / SECONDS_PER_MINUTE);
     }
 }
@@ -25,6 +25,7 @@ import com.biit.appointment.core.models.CalendarProviderDTO;
 import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
 import com.biit.appointment.google.client.CredentialData;
 import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.token.GoogleTokenManager;
 import com.google.api.client.auth.oauth2.Credential;
 import org.springframework.stereotype.Component;
 
@@ -36,9 +37,11 @@ import java.util.UUID;
 public class GoogleCalendarCredentialsConverter {
 
     private final GoogleClientProvider googleClientProvider;
+    private final GoogleTokenManager googleTokenManager;
 
-    public GoogleCalendarCredentialsConverter(GoogleClientProvider googleClientProvider) {
+    public GoogleCalendarCredentialsConverter(GoogleClientProvider googleClientProvider, GoogleTokenManager googleTokenManager) {
         this.googleClientProvider = googleClientProvider;
+        this.googleTokenManager = googleTokenManager;
     }
 
 
@@ -60,6 +63,8 @@ public class GoogleCalendarCredentialsConverter {
     }
 
     public Credential reverse(ExternalCalendarCredentialsDTO externalCalendarCredentialsDTO) throws GeneralSecurityException, IOException {
-        return googleClientProvider.getCredentials(externalCalendarCredentialsDTO.getCredentialData(CredentialData.class));
+        //If the stored token has been refreshed in background, the new one is used.
+        return googleClientProvider.getCredentials(externalCalendarCredentialsDTO.getUserId(),
+                googleTokenManager.getValidCredentialData(externalCalendarCredentialsDTO.getCredentialData(CredentialData.class)));
     }
 }
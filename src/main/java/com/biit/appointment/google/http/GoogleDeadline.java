@@ -0,0 +1,115 @@
+package com.biit.appointment.google.http;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.retry.GoogleRetryPolicy;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+
+/**
+ * Sets a maximum time for all Google requests done by the current thread, including pagination and retries:
+ * <pre>
+ * try (GoogleDeadline deadline = GoogleDeadline.start(Duration.ofMillis(800))) {
+ *     return googleCalendarService.getEvents(from, to, credentials);
+ * }
+ * </pre>
+ * Connect and read timeouts of each request are reduced to the remaining time, no retry is done if its wait exceeds the
+ * deadline, and once it has been reached requests fail with {@link DeadlineExceededException}. Nested deadlines can only
+ * reduce the time available.
+ */
+public final class GoogleDeadline implements AutoCloseable {
+
+    private static final ThreadLocal<GoogleDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiration;
+    private final GoogleDeadline previous;
+
+    private GoogleDeadline(long expiration, GoogleDeadline previous) {
+        this.expiration = expiration;
+        this.previous = previous;
+    }
+
+    /**
+     * Starts a deadline on the current thread. Must be closed.
+     *
+     * @param timeout time available from now.
+     * @return the deadline.
+     */
+    public static GoogleDeadline start(Duration timeout) {
+        final GoogleDeadline previous = CURRENT.get();
+        long expiration = System.currentTimeMillis() + timeout.toMillis();
+        if (previous != null) {
+            expiration = Math.min(expiration, previous.expiration);
+        }
+        final GoogleDeadline deadline = new GoogleDeadline(expiration, previous);
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    /**
+     * Time left until the deadline of the current thread.
+     *
+     * @return the milliseconds left, zero or negative if exceeded, or {@link Long#MAX_VALUE} if there is no deadline.
+     */
+    public static long getRemainingMilliseconds() {
+        final GoogleDeadline deadline = CURRENT.get();
+        return deadline != null ? deadline.expiration - System.currentTimeMillis() : Long.MAX_VALUE;
+    }
+
+    public static boolean isExceeded() {
+        return getRemainingMilliseconds() <= 0;
+    }
+
+    /**
+     * Executes a request, reporting as {@link DeadlineExceededException} a timeout caused by the deadline.
+     *
+     * @param operation name of the operation.
+     * @param request   the request.
+     * @param <T>       type of the response.
+     * @return the response.
+     * @throws IOException the error of the request.
+     */
+    public static <T> T execute(String operation, GoogleRetryPolicy.GoogleRequest<T> request) throws IOException {
+        if (isExceeded()) {
+            throw new DeadlineExceededException(operation);
+        }
+        try {
+            return request.execute();
+        } catch (SocketTimeoutException e) {
+            if (isExceeded()) {
+                throw new DeadlineExceededException(operation, e);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.biit.appointment.google.http;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpRequest;
+
+/**
+ * Kind of request sent to Google, to select its timeouts.
+ */
+public enum GoogleHttpOperation {
+    LIST,
+    GET,
+    INSERT,
+    DELETE,
+    TOKEN,
+    OTHER;
+
+    private static final String EVENTS_PATH = "/events";
+
+    /**
+     * Gets the operation of a Calendar API request from its method and URL.
+     *
+     * @param request the request.
+     * @return the operation. Batch and free/busy requests are {@link #OTHER}.
+     */
+    public static GoogleHttpOperation of(HttpRequest request) {
+        final String path = request.getUrl().getRawPath();
+        return switch (request.getRequestMethod()) {
+            case HttpMethods.GET -> path.endsWith(EVENTS_PATH) ? LIST : GET;
+            case HttpMethods.DELETE -> DELETE;
+            case HttpMethods.POST -> path.endsWith(EVENTS_PATH) ? INSERT : OTHER;
+            default -> OTHER;
+        };
+    }
+}
@@ -0,0 +1,249 @@
+package com.biit.appointment.google.http;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import com.google.api.client.googleapis.GoogleUtils;
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.api.client.util.SslUtils;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the single HTTP transport shared by all Google API and OAuth requests. The transport is backed by a pooled Apache
+ * client, so keep-alive connections and TLS sessions are reused between calls instead of loading the trusted keystore and
+ * opening a new connection on each request.
+ * <p>
+ * Also provides the request initializers that set the connect and read timeouts of each kind of request, limited by the
+ * {@link GoogleDeadline} of the current thread.
+ */
+@Component
+public class GoogleHttpTransportProvider implements DisposableBean {
+
+    private static final int DEFAULT_MAX_CONNECTIONS = 200;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final long DEFAULT_IDLE_EVICTION_SECONDS = 30;
+    private static final long DEFAULT_CONNECTION_TIME_TO_LIVE_SECONDS = -1;
+    private static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLISECONDS = 2000;
+    private static final int DEFAULT_TIMEOUT_MILLISECONDS = 20_000;
+    private static final int NOT_DEFINED = -1;
+
+    @Value("${google.http.max-connections:" + DEFAULT_MAX_CONNECTIONS + "}")
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    @Value("${google.http.max-connections-per-route:" + DEFAULT_MAX_CONNECTIONS_PER_ROUTE + "}")
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+    @Value("${google.http.idle-eviction-seconds:" + DEFAULT_IDLE_EVICTION_SECONDS + "}")
+    private long idleEvictionSeconds = DEFAULT_IDLE_EVICTION_SECONDS;
+
+    @Value("${google.http.connection-time-to-live-seconds:" + DEFAULT_CONNECTION_TIME_TO_LIVE_SECONDS + "}")
+    private long connectionTimeToLiveSeconds = DEFAULT_CONNECTION_TIME_TO_LIVE_SECONDS;
+
+    @Value("${google.http.connect-timeout:" + DEFAULT_TIMEOUT_MILLISECONDS + "}")
+    private int connectTimeout = DEFAULT_TIMEOUT_MILLISECONDS;
+
+    @Value("${google.http.read-timeout:" + DEFAULT_TIMEOUT_MILLISECONDS + "}")
+    private int readTimeout = DEFAULT_TIMEOUT_MILLISECONDS;
+
+    @Value("${google.http.list.connect-timeout:" + NOT_DEFINED + "}")
+    private int listConnectTimeout = NOT_DEFINED;
+
+    @Value("${google.http.list.read-timeout:" + NOT_DEFINED + "}")
+    private int listReadTimeout = NOT_DEFINED;
+
+    @Value("${google.http.get.connect-timeout:" + NOT_DEFINED + "}")
+    private int getConnectTimeout = NOT_DEFINED;
+
+    @Value("${google.http.get.read-timeout:" + NOT_DEFINED + "}")
+    private int getReadTimeout = NOT_DEFINED;
+
+    @Value("${google.http.insert.connect-timeout:" + NOT_DEFINED + "}")
+    private int insertConnectTimeout = NOT_DEFINED;
+
+    @Value("${google.http.insert.read-timeout:" + NOT_DEFINED + "}")
+    private int insertReadTimeout = NOT_DEFINED;
+
+    @Value("${google.http.delete.connect-timeout:" + NOT_DEFINED + "}")
+    private int deleteConnectTimeout = NOT_DEFINED;
+
+    @Value("${google.http.delete.read-timeout:" + NOT_DEFINED + "}")
+    private int deleteReadTimeout = NOT_DEFINED;
+
+    @Value("${google.http.token.connect-timeout:" + NOT_DEFINED + "}")
+    private int tokenConnectTimeout = NOT_DEFINED;
+
+    @Value("${google.http.token.read-timeout:" + NOT_DEFINED + "}")
+    private int tokenReadTimeout = NOT_DEFINED;
+
+    private HttpTransport transport;
+    private CloseableHttpClient httpClient;
+
+    /**
+     * Gets the shared transport, creating it on first use.
+     *
+     * @return the pooled transport.
+     * @throws GeneralSecurityException if the Google trust store cannot be loaded.
+     * @throws IOException              if the Google trust store cannot be read.
+     */
+    public synchronized HttpTransport getTransport() throws GeneralSecurityException, IOException {
+        if (transport == null) {
+            httpClient = createHttpClient();
+            transport = new ApacheHttpTransport(httpClient);
+            GoogleCalDAVLogger.info(this.getClass(), "Google HTTP transport created with '{}' max connections and '{}' per route.",
+                    maxConnections, maxConnectionsPerRoute);
+        }
+        return transport;
+    }
+
+    /**
+     * Initializer for Calendar API requests. Timeouts depend on the kind of request, that is only known when it is executed.
+     *
+     * @param delegate initializer applied first, usually the credential.
+     * @return the initializer.
+     */
+    public HttpRequestInitializer getRequestInitializer(HttpRequestInitializer delegate) {
+        return request -> {
+            if (delegate != null) {
+                delegate.initialize(request);
+            }
+            final HttpExecuteInterceptor interceptor = request.getInterceptor();
+            request.setInterceptor(executedRequest -> {
+                if (interceptor != null) {
+                    interceptor.intercept(executedRequest);
+                }
+                setTimeouts(executedRequest, GoogleHttpOperation.of(executedRequest));
+            });
+        };
+    }
+
+    /**
+     * Initializer for OAuth token requests.
+     *
+     * @return the initializer.
+     */
+    public HttpRequestInitializer getTokenRequestInitializer() {
+        return request -> setTimeouts(request, GoogleHttpOperation.TOKEN);
+    }
+
+    private void setTimeouts(HttpRequest request, GoogleHttpOperation operation) throws DeadlineExceededException {
+        final long remaining = GoogleDeadline.getRemainingMilliseconds();
+        if (remaining <= 0) {
+            throw new DeadlineExceededException(operation.name().toLowerCase());
+        }
+        request.setConnectTimeout(limit(getConnectTimeout(operation), remaining));
+        request.setReadTimeout(limit(getReadTimeout(operation), remaining));
+    }
+
+    private int getConnectTimeout(GoogleHttpOperation operation) {
+        final int timeout = switch (operation) {
+            case LIST -> listConnectTimeout;
+            case GET -> getConnectTimeout;
+            case INSERT -> insertConnectTimeout;
+            case DELETE -> deleteConnectTimeout;
+            case TOKEN -> tokenConnectTimeout;
+            default -> NOT_DEFINED;
+        };
+        return timeout != NOT_DEFINED ? timeout : connectTimeout;
+    }
+
+    private int getReadTimeout(GoogleHttpOperation operation) {
+        final int timeout = switch (operation) {
+            case LIST -> listReadTimeout;
+            case GET -> getReadTimeout;
+            case INSERT -> insertReadTimeout;
+            case DELETE -> deleteReadTimeout;
+            case TOKEN -> tokenReadTimeout;
+            default -> NOT_DEFINED;
+        };
+        return timeout != NOT_DEFINED ? timeout : readTimeout;
+    }
+
+    /**
+     * Zero means no timeout.
+     */
+    private int limit(int timeout, long remaining) {
+        if (remaining >= Integer.MAX_VALUE) {
+            return timeout;
+        }
+        return timeout == 0 ? (int) remaining : (int) Math.min(timeout, remaining);
+    }
+
+    private CloseableHttpClient createHttpClient() throws GeneralSecurityException, IOException {
+        //Same trust material used by GoogleNetHttpTransport.newTrustedTransport(), but loaded only once.
+        final SSLContext sslContext = SslUtils.getTlsSslContext();
+        SslUtils.initSslContext(sslContext, GoogleUtils.getCertificateTrustStore(), SslUtils.getPkixTrustManagerFactory());
+
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", new SSLConnectionSocketFactory(sslContext))
+                        .build(),
+                null, null, null, connectionTimeToLiveSeconds, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity(DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLISECONDS);
+
+        final HttpClientBuilder builder = HttpClientBuilder.create()
+                .useSystemProperties()
+                .setConnectionManager(connectionManager)
+                .setRoutePlanner(new SystemDefaultRoutePlanner(ProxySelector.getDefault()))
+                .evictExpiredConnections()
+                //Redirects and retries are handled by the Google client itself.
+                .disableRedirectHandling()
+                .disableAutomaticRetries()
+                //The Google client asks for gzip and decompresses the responses. Apache keeps the compressed Content-Length.
+                .disableContentCompression();
+        if (idleEvictionSeconds > 0) {
+            builder.evictIdleConnections(idleEvictionSeconds, TimeUnit.SECONDS);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
+            httpClient = null;
+            transport = null;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.biit.appointment.google.metrics;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.circuit.CircuitOpenException;
+import com.biit.appointment.google.http.DeadlineExceededException;
+import com.biit.appointment.google.ratelimit.RateLimitExceededException;
+import com.biit.appointment.google.retry.GoogleRetryPolicy;
+import com.google.api.client.http.HttpResponseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer instrumentation of the Google API and OAuth requests. Meters are only registered if a {@link MeterRegistry}
+ * bean exists; otherwise requests are executed without any overhead.
+ * <ul>
+ *     <li>{@value #REQUESTS_TIMER}: duration of each operation as seen by the caller, including retries.</li>
+ *     <li>{@value #CALLS_COUNTER}: HTTP requests sent to Google. Each retry counts, as it consumes quota.</li>
+ *     <li>{@value #IN_FLIGHT_GAUGE}: operations being executed.</li>
+ * </ul>
+ * The timer and the counter are tagged by {@code operation}, {@code outcome} and HTTP {@code status}. Gauges, and the
+ * meters of caches and tokens registered by {@link GoogleMetricsBinder}, are not tagged by operation.
+ */
+@Component
+public class GoogleMetrics {
+
+    public static final String REQUESTS_TIMER = "google.calendar.requests";
+    public static final String CALLS_COUNTER = "google.calendar.calls";
+    public static final String IN_FLIGHT_GAUGE = "google.calendar.requests.in.flight";
+    public static final String OPERATION_TAG = "operation";
+    public static final String OUTCOME_TAG = "outcome";
+    public static final String STATUS_TAG = "status";
+
+    private static final int HTTP_CLIENT_ERROR = 400;
+    private static final int HTTP_SERVER_ERROR = 500;
+    private static final String SUCCESS_STATUS = "2xx";
+    private static final String NO_STATUS = "NONE";
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public GoogleMetrics() {
+        this((MeterRegistry) null);
+    }
+
+    @Autowired
+    public GoogleMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this(meterRegistry.getIfAvailable());
+    }
+
+    public GoogleMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        gauge(IN_FLIGHT_GAUGE, "Google Calendar operations in progress.", inFlight, AtomicInteger::get);
+    }
+
+    public boolean isEnabled() {
+        return meterRegistry != null;
+    }
+
+    /**
+     * Measures an operation, from the caller point of view.
+     *
+     * @param operation name of the operation, used as tag.
+     * @param request   the operation.
+     * @param <T>       type of the response.
+     * @return the response.
+     * @throws IOException the error of the operation.
+     */
+    public <T> T record(String operation, GoogleRetryPolicy.GoogleRequest<T> request) throws IOException {
+        if (meterRegistry == null) {
+            return request.execute();
+        }
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        inFlight.incrementAndGet();
+        Outcome outcome = Outcome.UNKNOWN;
+        String status = NO_STATUS;
+        try {
+            final T response = request.execute();
+            outcome = Outcome.SUCCESS;
+            status = SUCCESS_STATUS;
+            return response;
+        } catch (IOException e) {
+            outcome = getOutcome(e);
+            status = getStatus(e);
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+            sample.stop(Timer.builder(REQUESTS_TIMER)
+                    .description("Google Calendar operations.")
+                    .tags(OPERATION_TAG, operation, OUTCOME_TAG, outcome.name(), STATUS_TAG, status)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Counts an HTTP request sent to Google.
+     *
+     * @param operation name of the operation, used as tag.
+     * @param request   the HTTP request.
+     * @param <T>       type of the response.
+     * @return the response.
+     * @throws IOException the error of the request.
+     */
+    public <T> T count(String operation, GoogleRetryPolicy.GoogleRequest<T> request) throws IOException {
+        if (meterRegistry == null) {
+            return request.execute();
+        }
+        Outcome outcome = Outcome.UNKNOWN;
+        String status = NO_STATUS;
+        try {
+            final T response = request.execute();
+            outcome = Outcome.SUCCESS;
+            status = SUCCESS_STATUS;
+            return response;
+        } catch (IOException e) {
+            outcome = getOutcome(e);
+            status = getStatus(e);
+            throw e;
+        } finally {
+            Counter.builder(CALLS_COUNTER)
+                    .description("HTTP requests sent to Google.")
+                    .tags(OPERATION_TAG, operation, OUTCOME_TAG, outcome.name(), STATUS_TAG, status)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * Registers a gauge, if a registry is available.
+     *
+     * @param name        name of the gauge.
+     * @param description description of the gauge.
+     * @param object      object observed. A strong reference is kept, so it is not collected while the gauge is registered.
+     * @param function    obtains the value from the object.
+     * @param tags        tags as key value pairs.
+     * @param <T>         type of the observed object.
+     */
+    public <T> void gauge(String name, String description, T object, ToDoubleFunction<T> function, String... tags) {
+        if (meterRegistry == null) {
+            return;
+        }
+        Gauge.builder(name, object, function).description(description).tags(tags).strongReference(true).register(meterRegistry);
+    }
+
+    /**
+     * Registers a counter whose total is read from an object, if a registry is available.
+     *
+     * @param name        name of the counter.
+     * @param description description of the counter.
+     * @param object      object observed. Only a weak reference is kept, so it must be referenced elsewhere, as beans are.
+     * @param function    obtains the total from the object. It must never decrease.
+     * @param tags        tags as key value pairs.
+     * @param <T>         type of the observed object.
+     */
+    public <T> void functionCounter(String name, String description, T object, ToDoubleFunction<T> function, String... tags) {
+        if (meterRegistry == null) {
+            return;
+        }
+        FunctionCounter.builder(name, object, function).description(description).tags(tags).register(meterRegistry);
+    }
+
+    private Outcome getOutcome(IOException exception) {
+        if (exception instanceof RateLimitExceededException) {
+            return Outcome.RATE_LIMITED;
+        }
+        if (exception instanceof CircuitOpenException) {
+            return Outcome.CIRCUIT_OPEN;
+        }
+        if (exception instanceof DeadlineExceededException) {
+            return Outcome.DEADLINE_EXCEEDED;
+        }
+        if (exception instanceof HttpResponseException responseException) {
+            if (responseException.getStatusCode() < HTTP_CLIENT_ERROR) {
+                //HTTP 304 Not Modified.
+                return Outcome.SUCCESS;
+            }
+            return responseException.getStatusCode() < HTTP_SERVER_ERROR ? Outcome.CLIENT_ERROR : Outcome.SERVER_ERROR;
+        }
+        return Outcome.IO_ERROR;
+    }
+
+    private String getStatus(IOException exception) {
+        if (exception instanceof HttpResponseException responseException) {
+            return String.valueOf(responseException.getStatusCode());
+        }
+        return NO_STATUS;
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        CLIENT_ERROR,
+        SERVER_ERROR,
+        IO_ERROR,
+        RATE_LIMITED,
+        CIRCUIT_OPEN,
+        DEADLINE_EXCEEDED,
+        UNKNOWN
+    }
+}
@@ -0,0 +1,78 @@
+package com.biit.appointment.google.metrics;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.cache.EventWindowCache;
+import com.biit.appointment.google.cache.GoogleClientCache;
+import com.biit.appointment.google.cache.GoogleEventCache;
+import com.biit.appointment.google.cache.LastKnownEventCache;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registers the gauges and counters of the caches and tokens kept by this library.
+ */
+@Component
+public class GoogleMetricsBinder {
+
+    public static final String CACHE_SIZE_GAUGE = "google.calendar.cache.size";
+    public static final String CACHE_HITS_COUNTER = "google.calendar.cache.hits";
+    public static final String CACHE_MISSES_COUNTER = "google.calendar.cache.misses";
+    public static final String CACHE_EVICTIONS_COUNTER = "google.calendar.cache.evictions";
+    public static final String CACHE_HIT_RATIO_GAUGE = "google.calendar.cache.hit.ratio";
+    public static final String CACHE_BYTES_SAVED_COUNTER = "google.calendar.cache.bytes.saved";
+    public static final String TRACKED_TOKENS_GAUGE = "google.calendar.tokens.tracked";
+    public static final String TOKEN_EXPIRATION_GAUGE = "google.calendar.tokens.next.expiration";
+    private static final double MILLISECONDS = 1000d;
+
+    public GoogleMetricsBinder(GoogleMetrics googleMetrics, GoogleClientCache googleClientCache, GoogleEventCache googleEventCache,
+                               LastKnownEventCache lastKnownEventCache, EventWindowCache eventWindowCache,
+                               GoogleTokenManager googleTokenManager) {
+        googleMetrics.gauge(CACHE_SIZE_GAUGE, "Credentials and clients cached.", googleClientCache, GoogleClientCache::size,
+                "cache", "client");
+        googleMetrics.gauge(CACHE_SIZE_GAUGE, "Events cached with their ETag.", googleEventCache, GoogleEventCache::size,
+                "cache", "event");
+        googleMetrics.gauge(CACHE_SIZE_GAUGE, "Users with last known events for the circuit breaker fallback.", lastKnownEventCache,
+                LastKnownEventCache::size, "cache", "last-known");
+        googleMetrics.gauge(CACHE_SIZE_GAUGE, "Calendars with cached event windows.", eventWindowCache, EventWindowCache::size,
+                "cache", "window");
+        googleMetrics.functionCounter(CACHE_HITS_COUNTER, "Credentials and clients reused.", googleClientCache,
+                GoogleClientCache::getHits, "cache", "client");
+        googleMetrics.functionCounter(CACHE_MISSES_COUNTER, "Credentials and clients built.", googleClientCache,
+                GoogleClientCache::getMisses, "cache", "client");
+        googleMetrics.functionCounter(CACHE_EVICTIONS_COUNTER, "Credentials and clients removed to make room.", googleClientCache,
+                GoogleClientCache::getEvictions, "cache", "client");
+        googleMetrics.gauge(CACHE_HIT_RATIO_GAUGE, "Events served from the cache after a HTTP 304.", googleEventCache,
+                GoogleEventCache::getHitRatio, "cache", "event");
+        googleMetrics.functionCounter(CACHE_BYTES_SAVED_COUNTER, "Response bytes not downloaded thanks to HTTP 304 answers.",
+                googleEventCache, GoogleEventCache::getBytesSaved, "cache", "event");
+        googleMetrics.gauge(TRACKED_TOKENS_GAUGE, "Tokens refreshed in background.", googleTokenManager,
+                GoogleTokenManager::getTrackedTokens);
+        googleMetrics.gauge(TOKEN_EXPIRATION_GAUGE, "Seconds until the first tracked access token expires.", googleTokenManager,
+                GoogleMetricsBinder::getSecondsToNextExpiration);
+    }
+
+    private static double getSecondsToNextExpiration(GoogleTokenManager googleTokenManager) {
+        final Long milliseconds = googleTokenManager.getMillisecondsToNextExpiration();
+        return milliseconds != null ? milliseconds / MILLISECONDS : Double.NaN;
+    }
+}
@@ -0,0 +1,135 @@
+package com.biit.appointment.google.ratelimit;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Client side rate limiter for the Google Calendar API, using token buckets. Each request takes a token from the bucket of
+ * the user and from the bucket of the Google project, so neither the per user nor the per project quotas are exhausted
+ * on bursts. If the project bucket rejects the request, the user token is returned. Buckets are kept in memory unless a
+ * {@link RateLimiterBackend} bean is defined.
+ */
+@Component
+public class GoogleRateLimiter {
+
+    private static final double DEFAULT_USER_TOKENS_PER_SECOND = 10;
+    private static final long DEFAULT_USER_CAPACITY = 20;
+    private static final double DEFAULT_PROJECT_TOKENS_PER_SECOND = 500;
+    private static final long DEFAULT_PROJECT_CAPACITY = 500;
+    private static final long DEFAULT_MAX_WAIT_MILLISECONDS = 10_000;
+    private static final String USER_BUCKET_PREFIX = "google-user:";
+    private static final String PROJECT_BUCKET_PREFIX = "google-project:";
+
+    @Value("${google.rate-limit.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${google.rate-limit.mode:BLOCKING}")
+    private RateLimitMode mode = RateLimitMode.BLOCKING;
+
+    @Value("${google.rate-limit.max-wait-milliseconds:" + DEFAULT_MAX_WAIT_MILLISECONDS + "}")
+    private long maxWaitMilliseconds = DEFAULT_MAX_WAIT_MILLISECONDS;
+
+    @Value("${google.rate-limit.user.tokens-per-second:" + DEFAULT_USER_TOKENS_PER_SECOND + "}")
+    private double userTokensPerSecond = DEFAULT_USER_TOKENS_PER_SECOND;
+
+    @Value("${google.rate-limit.user.capacity:" + DEFAULT_USER_CAPACITY + "}")
+    private long userCapacity = DEFAULT_USER_CAPACITY;
+
+    @Value("${google.rate-limit.project.tokens-per-second:" + DEFAULT_PROJECT_TOKENS_PER_SECOND + "}")
+    private double projectTokensPerSecond = DEFAULT_PROJECT_TOKENS_PER_SECOND;
+
+    @Value("${google.rate-limit.project.capacity:" + DEFAULT_PROJECT_CAPACITY + "}")
+    private long projectCapacity = DEFAULT_PROJECT_CAPACITY;
+
+    @Value("${google.project.id:}")
+    private String projectId = "";
+
+    private final RateLimiterBackend rateLimiterBackend;
+
+    public GoogleRateLimiter() {
+        this(new InMemoryRateLimiterBackend());
+    }
+
+    public GoogleRateLimiter(RateLimiterBackend rateLimiterBackend) {
+        this.rateLimiterBackend = rateLimiterBackend;
+    }
+
+    @Autowired
+    public GoogleRateLimiter(ObjectProvider<RateLimiterBackend> rateLimiterBackend) {
+        this(rateLimiterBackend.getIfAvailable(InMemoryRateLimiterBackend::new));
+    }
+
+    /**
+     * Takes a token for a request of this user. Depending on the mode, waits until the tokens are available or fails.
+     *
+     * @param user the user UUID, or any other key that identifies the user.
+     * @throws RateLimitExceededException if no token is available, or it is not available before the maximum wait time.
+     * @throws InterruptedIOException     if the thread is interrupted while waiting.
+     */
+    public void acquire(String user) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        final long deadline = System.currentTimeMillis() + maxWaitMilliseconds;
+        final String userBucket = USER_BUCKET_PREFIX + user;
+        acquire(userBucket, userTokensPerSecond, userCapacity, deadline);
+        boolean acquired = false;
+        try {
+            acquire(PROJECT_BUCKET_PREFIX + projectId, projectTokensPerSecond, projectCapacity, deadline);
+            acquired = true;
+        } finally {
+            //The request is not sent. Its user token must not be lost.
+            if (!acquired) {
+                rateLimiterBackend.release(userBucket, userCapacity);
+            }
+        }
+    }
+
+    private void acquire(String bucket, double tokensPerSecond, long capacity, long deadline) throws IOException {
+        long wait = rateLimiterBackend.tryAcquire(bucket, tokensPerSecond, capacity);
+        while (wait > 0) {
+            if (mode == RateLimitMode.FAIL_FAST || System.currentTimeMillis() + wait > deadline) {
+                GoogleCalDAVLogger.warning(this.getClass(), "Rate limit exceeded for '{}'.", bucket);
+                throw new RateLimitExceededException(bucket);
+            }
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the rate limiter.");
+            }
+            wait = rateLimiterBackend.tryAcquire(bucket, tokensPerSecond, capacity);
+        }
+    }
+
+    public RateLimiterBackend getRateLimiterBackend() {
+        return rateLimiterBackend;
+    }
+}
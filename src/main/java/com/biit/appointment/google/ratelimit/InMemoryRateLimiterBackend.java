@@ -0,0 +1,127 @@
+package com.biit.appointment.google.ratelimit;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets kept on this node only. Buckets that have been refilled up to their capacity are the same as new ones,
+ * so they are removed periodically and the buckets of idle users do not pile up.
+ */
+public class InMemoryRateLimiterBackend implements RateLimiterBackend {
+
+    private static final double NANOSECONDS_PER_SECOND = 1_000_000_000d;
+    private static final double MILLISECONDS_PER_SECOND = 1_000d;
+    private static final Duration DEFAULT_EVICTION_INTERVAL = Duration.ofMinutes(1);
+    private static final long EVICTED = -1;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final long evictionIntervalNanoseconds;
+    private final AtomicLong nextEviction;
+
+    public InMemoryRateLimiterBackend() {
+        this(DEFAULT_EVICTION_INTERVAL);
+    }
+
+    public InMemoryRateLimiterBackend(Duration evictionInterval) {
+        this.evictionIntervalNanoseconds = evictionInterval.toNanos();
+        this.nextEviction = new AtomicLong(System.nanoTime() + evictionIntervalNanoseconds);
+    }
+
+    @Override
+    public long tryAcquire(String bucket, double tokensPerSecond, long capacity) {
+        evictFullBuckets();
+        long wait;
+        do {
+            //A bucket evicted meanwhile is full. It is created again.
+            wait = buckets.computeIfAbsent(bucket, key -> new Bucket(capacity)).tryAcquire(tokensPerSecond, capacity);
+        } while (wait == EVICTED);
+        return wait;
+    }
+
+    @Override
+    public void release(String bucket, long capacity) {
+        final Bucket existing = buckets.get(bucket);
+        //An evicted bucket is already full.
+        if (existing != null) {
+            existing.release(capacity);
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private void evictFullBuckets() {
+        final long now = System.nanoTime();
+        final long next = nextEviction.get();
+        //Only one thread evicts on each interval.
+        if (now - next < 0 || !nextEviction.compareAndSet(next, now + evictionIntervalNanoseconds)) {
+            return;
+        }
+        buckets.entrySet().removeIf(entry -> entry.getValue().evictIfFull(now));
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefill;
+        private double tokensPerSecond;
+        private long capacity;
+        private boolean evicted = false;
+
+        private Bucket(long capacity) {
+            this.tokens = capacity;
+            this.capacity = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        private synchronized long tryAcquire(double tokensPerSecond, long capacity) {
+            if (evicted) {
+                return EVICTED;
+            }
+            this.tokensPerSecond = tokensPerSecond;
+            this.capacity = capacity;
+            final long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) / NANOSECONDS_PER_SECOND * tokensPerSecond);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerSecond * MILLISECONDS_PER_SECOND));
+        }
+
+        private synchronized void release(long capacity) {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        private synchronized boolean evictIfFull(long now) {
+            if (tokens + (now - lastRefill) / NANOSECONDS_PER_SECOND * tokensPerSecond >= capacity) {
+                evicted = true;
+            }
+            return evicted;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.biit.appointment.google.ratelimit;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.IOException;
+
+/**
+ * The request has not been sent to Google, as the client side rate limit has been reached.
+ */
+public class RateLimitExceededException extends IOException {
+
+    private final String bucket;
+
+    public RateLimitExceededException(String bucket) {
+        super("Rate limit exceeded for '" + bucket + "'.");
+        this.bucket = bucket;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+}
@@ -0,0 +1,48 @@
+package com.biit.appointment.google.ratelimit;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+/**
+ * Stores the state of the token buckets. Define a bean implementing it, backed for example by a database or a cache
+ * server, to share the buckets between all the nodes that use the same Google project.
+ */
+public interface RateLimiterBackend {
+
+    /**
+     * Takes a token from a bucket if available. Buckets are created full.
+     *
+     * @param bucket          the bucket name.
+     * @param tokensPerSecond refill rate of the bucket.
+     * @param capacity        maximum number of tokens, that is, the maximum burst.
+     * @return 0 if a token has been taken, or the milliseconds until a token is available. In that case, no token is taken.
+     */
+    long tryAcquire(String bucket, double tokensPerSecond, long capacity);
+
+    /**
+     * Returns a token taken by {@link #tryAcquire(String, double, long)} that has not been used, for example because the
+     * request has been rejected by another bucket. A bucket never exceeds its capacity.
+     *
+     * @param bucket   the bucket name.
+     * @param capacity maximum number of tokens.
+     */
+    void release(String bucket, long capacity);
+}
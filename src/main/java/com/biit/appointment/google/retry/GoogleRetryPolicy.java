@@ -0,0 +1,204 @@
+package com.biit.appointment.google.retry;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.http.DeadlineExceededException;
+import com.biit.appointment.google.http.GoogleDeadline;
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import com.biit.appointment.google.ratelimit.RateLimitExceededException;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries the requests to Google that fail with a temporary error: HTTP 429, HTTP 5xx, HTTP 403 with a rate limit reason,
+ * and connection errors. Waits between attempts using exponential backoff with full jitter, or the time requested by
+ * Google on the 'Retry-After' header. Gives up when the maximum number of attempts or the maximum total time is reached.
+ * <p>
+ * Requests that are not idempotent, as creating an event, are only retried on rate limit errors, as Google has not
+ * processed them.
+ */
+@Component
+public class GoogleRetryPolicy {
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final long DEFAULT_INITIAL_DELAY_MILLISECONDS = 500;
+    private static final long DEFAULT_MAX_DELAY_MILLISECONDS = 32_000;
+    private static final long DEFAULT_MAX_TOTAL_MILLISECONDS = 60_000;
+    private static final int HTTP_FORBIDDEN = 403;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+    private static final int HTTP_NOT_IMPLEMENTED = 501;
+    private static final int MILLISECONDS = 1000;
+    private static final Set<String> RATE_LIMIT_REASONS = Set.of("rateLimitExceeded", "userRateLimitExceeded",
+            "quotaExceeded");
+
+    @Value("${google.retry.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${google.retry.max-attempts:" + DEFAULT_MAX_ATTEMPTS + "}")
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    @Value("${google.retry.initial-delay-milliseconds:" + DEFAULT_INITIAL_DELAY_MILLISECONDS + "}")
+    private long initialDelayMilliseconds = DEFAULT_INITIAL_DELAY_MILLISECONDS;
+
+    @Value("${google.retry.max-delay-milliseconds:" + DEFAULT_MAX_DELAY_MILLISECONDS + "}")
+    private long maxDelayMilliseconds = DEFAULT_MAX_DELAY_MILLISECONDS;
+
+    @Value("${google.retry.max-total-milliseconds:" + DEFAULT_MAX_TOTAL_MILLISECONDS + "}")
+    private long maxTotalMilliseconds = DEFAULT_MAX_TOTAL_MILLISECONDS;
+
+    /**
+     * Executes a request, retrying it on temporary errors.
+     *
+     * @param operation  name of the operation, for logging.
+     * @param idempotent if the request can be repeated safely even if Google has already processed it.
+     * @param request    the request.
+     * @param <T>        type of the response.
+     * @return the response of the first successful attempt.
+     * @throws IOException the error of the last attempt, if all of them fail or the error cannot be retried.
+     */
+    public <T> T execute(String operation, boolean idempotent, GoogleRequest<T> request) throws IOException {
+        final long deadline = System.currentTimeMillis() + maxTotalMilliseconds;
+        int attempt = 0;
+        while (true) {
+            try {
+                return request.execute();
+            } catch (IOException e) {
+                attempt++;
+                if (!enabled || attempt >= maxAttempts || !isRetryable(e, idempotent)) {
+                    throw e;
+                }
+                final long delay = getDelay(e, attempt);
+                if (System.currentTimeMillis() + delay > deadline || delay >= GoogleDeadline.getRemainingMilliseconds()) {
+                    GoogleCalDAVLogger.warning(this.getClass(), "Operation '{}' not retried, as waiting '{}' ms exceeds the maximum time.",
+                            operation, delay);
+                    throw e;
+                }
+                GoogleCalDAVLogger.warning(this.getClass(), "Operation '{}' failed on attempt '{}': {}. Retrying in '{}' ms.",
+                        operation, attempt, e.getMessage(), delay);
+                sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Checks if the error is temporary.
+     *
+     * @param exception  the error obtained.
+     * @param idempotent if the request can be repeated safely.
+     * @return true if the request can be retried.
+     */
+    public boolean isRetryable(IOException exception, boolean idempotent) {
+        //Already waited on the rate limiter, or no time left.
+        if (exception instanceof RateLimitExceededException || exception instanceof DeadlineExceededException) {
+            return false;
+        }
+        if (exception instanceof HttpResponseException responseException) {
+            final int status = responseException.getStatusCode();
+            if (status == HTTP_TOO_MANY_REQUESTS || isRateLimit(responseException)) {
+                return true;
+            }
+            return idempotent && status >= HTTP_SERVER_ERROR && status != HTTP_NOT_IMPLEMENTED;
+        }
+        //Connection errors. The request may have reached Google.
+        return idempotent && !(exception instanceof InterruptedIOException && Thread.currentThread().isInterrupted());
+    }
+
+    private boolean isRateLimit(HttpResponseException exception) {
+        if (exception.getStatusCode() != HTTP_FORBIDDEN || !(exception instanceof GoogleJsonResponseException jsonException)
+                || jsonException.getDetails() == null || jsonException.getDetails().getErrors() == null) {
+            return false;
+        }
+        for (GoogleJsonError.ErrorInfo errorInfo : jsonException.getDetails().getErrors()) {
+            if (RATE_LIMIT_REASONS.contains(errorInfo.getReason())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Time to wait before the next attempt. Uses the 'Retry-After' header if present. If not, a random time between zero and
+     * the exponential backoff (full jitter), so clients that failed at the same time do not retry at the same time.
+     */
+    private long getDelay(IOException exception, int attempt) {
+        if (exception instanceof HttpResponseException responseException && responseException.getHeaders() != null) {
+            final Long retryAfter = parseRetryAfter(responseException.getHeaders().getFirstHeaderStringValue("Retry-After"));
+            if (retryAfter != null) {
+                return retryAfter;
+            }
+        }
+        final long backoff = Math.min(maxDelayMilliseconds, initialDelayMilliseconds << Math.min(attempt - 1, 30));
+        return ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+
+    /**
+     * 'Retry-After' can be a number of seconds or an HTTP date.
+     */
+    private Long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * MILLISECONDS);
+        } catch (NumberFormatException e) {
+            try {
+                return Math.max(0, ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+                        .toEpochMilli() - Instant.now().toEpochMilli());
+            } catch (DateTimeParseException ex) {
+                return null;
+            }
+        }
+    }
+
+    private void sleep(long milliseconds) throws InterruptedIOException {
+        try {
+            Thread.sleep(milliseconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry.");
+        }
+    }
+
+    /**
+     * A request to Google.
+     *
+     * @param <T> type of the response.
+     */
+    @FunctionalInterface
+    public interface GoogleRequest<T> {
+
+        T execute() throws IOException;
+    }
+}
@@ -0,0 +1,58 @@
+package com.biit.appointment.google.sync;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+
+import java.util.List;
+
+/**
+ * Events obtained from a synchronization. On an incremental synchronization, only the events changed since the previous
+ * one are returned, and deleted ones are marked as deleted. On a full synchronization, all events are returned and must
+ * replace any previous copy.
+ */
+public class EventSyncResult {
+
+    private final List<AppointmentDTO> appointments;
+    private final boolean fullSynchronization;
+
+    public EventSyncResult(List<AppointmentDTO> appointments, boolean fullSynchronization) {
+        this.appointments = appointments;
+        this.fullSynchronization = fullSynchronization;
+    }
+
+    public List<AppointmentDTO> getAppointments() {
+        return appointments;
+    }
+
+    public boolean isFullSynchronization() {
+        return fullSynchronization;
+    }
+
+    @Override
+    public String toString() {
+        return "EventSyncResult{"
+                + "appointments=" + appointments.size()
+                + ", fullSynchronization=" + fullSynchronization
+                + '}';
+    }
+}
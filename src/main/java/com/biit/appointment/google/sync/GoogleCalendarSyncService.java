@@ -0,0 +1,148 @@
+package com.biit.appointment.google.sync;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.exceptions.ExternalCalendarActionException;
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.client.EventPageIterator;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.biit.appointment.google.converter.GoogleCalendarCredentialsConverter;
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.util.DateTime;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Incremental synchronization of Google calendars. Only the events changed since the previous call are downloaded, using
+ * the sync tokens returned by Google.
+ */
+@Service
+public class GoogleCalendarSyncService {
+
+    private static final int HTTP_GONE = 410;
+    private static final int DEFAULT_FULL_SYNC_PAST_DAYS = 30;
+
+    @Value("${google.sync.full-sync-past-days:" + DEFAULT_FULL_SYNC_PAST_DAYS + "}")
+    private int fullSyncPastDays = DEFAULT_FULL_SYNC_PAST_DAYS;
+
+    private final GoogleClientProvider googleClientProvider;
+    private final AppointmentEventConverter eventConverter;
+    private final GoogleCalendarCredentialsConverter googleCalendarCredentialsConverter;
+    private final SyncTokenStore syncTokenStore;
+
+    public GoogleCalendarSyncService(GoogleClientProvider googleClientProvider, AppointmentEventConverter eventConverter,
+                                     GoogleCalendarCredentialsConverter googleCalendarCredentialsConverter,
+                                     ObjectProvider<SyncTokenStore> syncTokenStore) {
+        this.googleClientProvider = googleClientProvider;
+        this.eventConverter = eventConverter;
+        this.googleCalendarCredentialsConverter = googleCalendarCredentialsConverter;
+        this.syncTokenStore = syncTokenStore.getIfAvailable(InMemorySyncTokenStore::new);
+    }
+
+    /**
+     * Gets the changes on the primary calendar of the user since the last synchronization.
+     *
+     * @param credentials the user credentials.
+     * @return the changed events.
+     */
+    public EventSyncResult synchronize(ExternalCalendarCredentialsDTO credentials) throws ExternalCalendarActionException {
+        return synchronize(credentials, GoogleClientProvider.PRIMARY_CALENDAR_ID,
+                LocalDateTime.now().minusDays(fullSyncPastDays));
+    }
+
+    /**
+     * Gets the changes on a calendar since the last synchronization. If there is no previous synchronization, or Google
+     * has invalidated it, a full synchronization is done instead.
+     *
+     * @param credentials  the user credentials.
+     * @param calendarId   the calendar.
+     * @param fullSyncFrom lower bound for the events if a full synchronization is needed.
+     * @return the changed events.
+     */
+    public EventSyncResult synchronize(ExternalCalendarCredentialsDTO credentials, String calendarId, LocalDateTime fullSyncFrom)
+            throws ExternalCalendarActionException {
+        final UUID userId = credentials.getUserId();
+        try {
+            final Credential credential = googleCalendarCredentialsConverter.reverse(credentials);
+            final String syncToken = syncTokenStore.getSyncToken(userId, calendarId);
+            try {
+                return synchronize(userId, calendarId, syncToken, fullSyncFrom, credential);
+            } catch (HttpResponseException e) {
+                if (syncToken == null || e.getStatusCode() != HTTP_GONE) {
+                    throw e;
+                }
+                GoogleCalDAVLogger.info(this.getClass(), "Sync token for user '{}' and calendar '{}' has expired. Doing a full synchronization.",
+                        userId, calendarId);
+                syncTokenStore.removeSyncToken(userId, calendarId);
+                return synchronize(userId, calendarId, null, fullSyncFrom, credential);
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+            throw new ExternalCalendarActionException(this.getClass(), e);
+        }
+    }
+
+    /**
+     * Forgets the last synchronization, so the next one is a full one.
+     *
+     * @param userId     the user.
+     * @param calendarId the calendar.
+     */
+    public void reset(UUID userId, String calendarId) {
+        syncTokenStore.removeSyncToken(userId, calendarId);
+    }
+
+    private EventSyncResult synchronize(UUID userId, String calendarId, String syncToken, LocalDateTime fullSyncFrom, Credential credential)
+            throws IOException, GeneralSecurityException {
+        final EventPageIterator pages = googleClientProvider.getEventChanges(calendarId, syncToken,
+                syncToken == null ? new DateTime(Date.from(fullSyncFrom.atZone(ZoneId.systemDefault()).toInstant())) : null,
+                credential);
+        final List<AppointmentDTO> appointments = new ArrayList<>();
+        try {
+            while (pages.hasNext()) {
+                appointments.addAll(eventConverter.convertAll(pages.next()));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        //Only stored when all pages have been read.
+        syncTokenStore.setSyncToken(userId, calendarId, pages.getNextSyncToken());
+        final EventSyncResult result = new EventSyncResult(appointments, syncToken == null);
+        GoogleCalDAVLogger.debug(this.getClass(), "Calendar '{}' of user '{}' synchronized: {}", calendarId, userId, result);
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+package com.biit.appointment.google.sync;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default store. Tokens are lost on restart, and the next synchronization is a full one.
+ */
+public class InMemorySyncTokenStore implements SyncTokenStore {
+
+    private final Map<String, String> syncTokens = new ConcurrentHashMap<>();
+
+    @Override
+    public String getSyncToken(UUID userId, String calendarId) {
+        return syncTokens.get(getKey(userId, calendarId));
+    }
+
+    @Override
+    public void setSyncToken(UUID userId, String calendarId, String syncToken) {
+        if (syncToken == null) {
+            removeSyncToken(userId, calendarId);
+        } else {
+            syncTokens.put(getKey(userId, calendarId), syncToken);
+        }
+    }
+
+    @Override
+    public void removeSyncToken(UUID userId, String calendarId) {
+        syncTokens.remove(getKey(userId, calendarId));
+    }
+
+    private static String getKey(UUID userId, String calendarId) {
+        return userId + "/" + calendarId;
+    }
+}
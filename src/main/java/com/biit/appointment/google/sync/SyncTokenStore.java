@@ -0,0 +1,44 @@
+package com.biit.appointment.google.sync;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.UUID;
+
+/**
+ * Stores the last sync token obtained from Google for each user and calendar. Define a bean implementing this interface to
+ * persist them; otherwise they are kept in memory.
+ */
+public interface SyncTokenStore {
+
+    /**
+     * Gets the stored token.
+     *
+     * @param userId     the user.
+     * @param calendarId the calendar.
+     * @return the token, or null if no synchronization has been done yet.
+     */
+    String getSyncToken(UUID userId, String calendarId);
+
+    void setSyncToken(UUID userId, String calendarId, String syncToken);
+
+    void removeSyncToken(UUID userId, String calendarId);
+}
@@ -0,0 +1,350 @@
+package com.biit.appointment.google.token;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.GeneralSecurityException;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the Google access tokens. Concurrent refreshes of the same refresh token are merged into a single request to
+ * the token endpoint, and tokens still in use are refreshed in background shortly before they expire, so request threads
+ * do not need to wait for the OAuth server.
+ * <p>
+ * Tokens not used for 'idle-hours' are forgotten, also when the background refresh is disabled. Refresh tokens replaced by
+ * Google are forgotten once the access token obtained with them expires.
+ */
+@Component
+public class GoogleTokenManager implements DisposableBean {
+
+    private static final long DEFAULT_REFRESH_MARGIN_SECONDS = 300;
+    private static final long DEFAULT_IDLE_HOURS = 24;
+    private static final long MILLISECONDS = 1000;
+    private static final long EVICTION_PERIOD_MINUTES = 10;
+
+    @Value("${google.token.refresh-margin-seconds:" + DEFAULT_REFRESH_MARGIN_SECONDS + "}")
+    private long refreshMarginSeconds = DEFAULT_REFRESH_MARGIN_SECONDS;
+
+    @Value("${google.token.proactive-refresh.enabled:true}")
+    private boolean proactiveRefresh = true;
+
+    @Value("${google.token.proactive-refresh.idle-hours:" + DEFAULT_IDLE_HOURS + "}")
+    private long idleHours = DEFAULT_IDLE_HOURS;
+
+    private final GoogleClientProvider googleClientProvider;
+    private final List<GoogleTokenRefreshListener> refreshListeners;
+
+    private final Map<String, CompletableFuture<CredentialData>> refreshesInFlight = new ConcurrentHashMap<>();
+    private final Map<String, TrackedToken> trackedTokens = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "google-token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public GoogleTokenManager(GoogleClientProvider googleClientProvider, ObjectProvider<GoogleTokenRefreshListener> refreshListeners) {
+        this.googleClientProvider = googleClientProvider;
+        this.refreshListeners = refreshListeners.orderedStream().toList();
+        scheduler.scheduleAtFixedRate(this::evictTokens, EVICTION_PERIOD_MINUTES, EVICTION_PERIOD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Gets fresh credentials. If the token has already been refreshed and is not close to expiring, no request is done. If
+     * another thread is already refreshing the same token, its result is used.
+     *
+     * @param userId         the owner of the credentials.
+     * @param credentialData the current credentials.
+     * @return the refreshed credentials.
+     * @throws IOException              if the token endpoint cannot be reached.
+     * @throws GeneralSecurityException if the transport cannot be created.
+     */
+    public CredentialData refresh(UUID userId, CredentialData credentialData) throws IOException, GeneralSecurityException {
+        final TrackedToken trackedToken = trackedTokens.get(credentialData.getRefreshToken());
+        if (trackedToken != null && !isCloseToExpiring(trackedToken.getCredentialData())) {
+            trackedToken.touch();
+            return trackedToken.getCredentialData();
+        }
+        return refreshCoalesced(userId, credentialData);
+    }
+
+    /**
+     * Gets the freshest credentials known for this refresh token, without contacting Google. If the provided access token is
+     * about to expire and a newer one has been obtained in background, the newer one is returned.
+     *
+     * @param credentialData the stored credentials.
+     * @return the provided credentials or a fresher version of them.
+     */
+    public CredentialData getValidCredentialData(CredentialData credentialData) {
+        if (credentialData == null || credentialData.getRefreshToken() == null) {
+            return credentialData;
+        }
+        final TrackedToken trackedToken = trackedTokens.get(credentialData.getRefreshToken());
+        if (trackedToken == null) {
+            return credentialData;
+        }
+        trackedToken.touch();
+        if (isCloseToExpiring(credentialData) && !isCloseToExpiring(trackedToken.getCredentialData())) {
+            return trackedToken.getCredentialData();
+        }
+        return credentialData;
+    }
+
+    /**
+     * Gets credentials ready to be sent to Google, for credentials kept for a long time, as the ones of background tasks. The
+     * freshest version known is used, with the refresh token replacing the provided one if Google has rotated it, and it is
+     * refreshed now if its access token is about to expire.
+     *
+     * @param userId         the owner of the credentials.
+     * @param credentialData the stored credentials.
+     * @return credentials with a valid access token.
+     * @throws IOException              if the token endpoint cannot be reached or rejects the refresh token.
+     * @throws GeneralSecurityException if the transport cannot be created.
+     */
+    public CredentialData getFreshCredentialData(UUID userId, CredentialData credentialData) throws IOException, GeneralSecurityException {
+        if (credentialData == null || credentialData.getRefreshToken() == null) {
+            return credentialData;
+        }
+        final TrackedToken trackedToken = trackedTokens.get(credentialData.getRefreshToken());
+        CredentialData latestData = credentialData;
+        if (trackedToken != null) {
+            trackedToken.touch();
+            //Also if still valid, when Google has replaced the refresh token.
+            if (isCloseToExpiring(credentialData)
+                    || !credentialData.getRefreshToken().equals(trackedToken.getCredentialData().getRefreshToken())) {
+                latestData = trackedToken.getCredentialData();
+            }
+        }
+        if (!isCloseToExpiring(latestData)) {
+            return latestData;
+        }
+        return refresh(userId, latestData);
+    }
+
+    /**
+     * Registers credentials to be refreshed in background before they expire.
+     *
+     * @param credentials the credentials to keep fresh.
+     */
+    public void track(ExternalCalendarCredentialsDTO credentials) {
+        final CredentialData credentialData = credentials.getCredentialData(CredentialData.class);
+        if (credentialData == null || credentialData.getRefreshToken() == null) {
+            return;
+        }
+        final Long expiration = credentials.getExpiresAt() != null
+                ? credentials.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : credentialData.getAccessTokenExpirationEpochMilliseconds();
+        final TrackedToken trackedToken = trackedTokens.get(credentialData.getRefreshToken());
+        if (trackedToken != null && !isCloseToExpiring(trackedToken.getCredentialData())) {
+            //Already tracking a fresher token.
+            return;
+        }
+        trackAndSchedule(credentials.getUserId(), credentialData, expiration);
+    }
+
+    private CredentialData refreshCoalesced(UUID userId, CredentialData credentialData) throws IOException, GeneralSecurityException {
+        final CompletableFuture<CredentialData> refresh = new CompletableFuture<>();
+        final CompletableFuture<CredentialData> inFlight = refreshesInFlight.putIfAbsent(credentialData.getRefreshToken(), refresh);
+        if (inFlight != null) {
+            GoogleCalDAVLogger.debug(this.getClass(), "Waiting for token refresh already in progress for user '{}'.", userId);
+            return join(inFlight);
+        }
+        try {
+            //Another refresh may have finished between the check of the caller and taking the slot.
+            final TrackedToken trackedToken = trackedTokens.get(credentialData.getRefreshToken());
+            if (trackedToken != null && !isCloseToExpiring(trackedToken.getCredentialData())) {
+                trackedToken.touch();
+                refresh.complete(trackedToken.getCredentialData());
+                return trackedToken.getCredentialData();
+            }
+            final CredentialData refreshedData = googleClientProvider.refreshCredentials(credentialData);
+            trackAndSchedule(userId, refreshedData, refreshedData.getAccessTokenExpirationEpochMilliseconds());
+            if (!refreshedData.getRefreshToken().equals(credentialData.getRefreshToken())) {
+                //Google has rotated the refresh token. Requests with the old one get the new credentials.
+                trackToken(userId, credentialData.getRefreshToken(), refreshedData);
+            }
+            refresh.complete(refreshedData);
+            return refreshedData;
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            refresh.completeExceptionally(e);
+            throw e;
+        } finally {
+            refreshesInFlight.remove(credentialData.getRefreshToken(), refresh);
+        }
+    }
+
+    private CredentialData join(CompletableFuture<CredentialData> refresh) throws IOException, GeneralSecurityException {
+        try {
+            return refresh.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof GeneralSecurityException securityException) {
+                throw securityException;
+            }
+            throw e;
+        }
+    }
+
+    private void trackAndSchedule(UUID userId, CredentialData credentialData, Long expiration) {
+        final TrackedToken trackedToken = trackToken(userId, credentialData.getRefreshToken(), credentialData);
+        if (proactiveRefresh && expiration != null) {
+            final long delay = Math.max(0, expiration - refreshMarginSeconds * MILLISECONDS - System.currentTimeMillis());
+            trackedToken.setScheduledRefresh(scheduler.schedule(() -> refreshInBackground(userId, credentialData.getRefreshToken()),
+                    delay, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private TrackedToken trackToken(UUID userId, String refreshToken, CredentialData credentialData) {
+        final TrackedToken trackedToken = new TrackedToken(userId, credentialData);
+        final TrackedToken previous = trackedTokens.put(refreshToken, trackedToken);
+        if (previous != null) {
+            trackedToken.lastUsed = Math.max(trackedToken.lastUsed, previous.lastUsed);
+            previous.cancelScheduledRefresh();
+        }
+        return trackedToken;
+    }
+
+    private void refreshInBackground(UUID userId, String refreshToken) {
+        final TrackedToken trackedToken = trackedTokens.get(refreshToken);
+        if (trackedToken == null) {
+            return;
+        }
+        if (System.currentTimeMillis() - trackedToken.lastUsed > TimeUnit.HOURS.toMillis(idleHours)) {
+            GoogleCalDAVLogger.debug(this.getClass(), "Token of user '{}' not used recently. Background refresh stopped.", userId);
+            trackedTokens.remove(refreshToken, trackedToken);
+            return;
+        }
+        try {
+            final CredentialData refreshedData = refreshCoalesced(userId, trackedToken.getCredentialData());
+            GoogleCalDAVLogger.debug(this.getClass(), "Token of user '{}' refreshed in background.", userId);
+            refreshListeners.forEach(listener -> listener.tokenRefreshed(userId, refreshedData));
+        } catch (IOException | GeneralSecurityException | UncheckedIOException e) {
+            //The token is refreshed on demand on the next request.
+            GoogleCalDAVLogger.warning(this.getClass(), "Background refresh of token for user '{}' failed: {}", userId, e.getMessage());
+        } catch (RuntimeException e) {
+            GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+        }
+    }
+
+    /**
+     * Forgets the tokens not used recently, and the replaced refresh tokens whose access token has expired.
+     */
+    void evictTokens() {
+        final long now = System.currentTimeMillis();
+        trackedTokens.forEach((refreshToken, trackedToken) -> {
+            final Long expiration = trackedToken.getCredentialData().getAccessTokenExpirationEpochMilliseconds();
+            final boolean rotated = !refreshToken.equals(trackedToken.getCredentialData().getRefreshToken());
+            if (now - trackedToken.lastUsed > TimeUnit.HOURS.toMillis(idleHours)
+                    || (rotated && (expiration == null || expiration <= now))) {
+                if (trackedTokens.remove(refreshToken, trackedToken)) {
+                    trackedToken.cancelScheduledRefresh();
+                }
+            }
+        });
+    }
+
+    private boolean isCloseToExpiring(CredentialData credentialData) {
+        final Long expiration = credentialData.getAccessTokenExpirationEpochMilliseconds();
+        return expiration == null || expiration - refreshMarginSeconds * MILLISECONDS <= System.currentTimeMillis();
+    }
+
+    public int getTrackedTokens() {
+        return trackedTokens.size();
+    }
+
+    /**
+     * Time until the first tracked access token expires.
+     *
+     * @return the milliseconds until the expiration, negative if already expired, or null if no token is tracked.
+     */
+    public Long getMillisecondsToNextExpiration() {
+        return trackedTokens.values().stream()
+                .map(trackedToken -> trackedToken.getCredentialData().getAccessTokenExpirationEpochMilliseconds())
+                .filter(Objects::nonNull)
+                .min(Long::compare)
+                .map(expiration -> expiration - System.currentTimeMillis())
+                .orElse(null);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class TrackedToken {
+        private final UUID userId;
+        private final CredentialData credentialData;
+        private volatile long lastUsed;
+        private ScheduledFuture<?> scheduledRefresh;
+
+        private TrackedToken(UUID userId, CredentialData credentialData) {
+            this.userId = userId;
+            this.credentialData = credentialData;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        private CredentialData getCredentialData() {
+            return credentialData;
+        }
+
+        private void touch() {
+            lastUsed = System.currentTimeMillis();
+        }
+
+        private synchronized void setScheduledRefresh(ScheduledFuture<?> scheduledRefresh) {
+            this.scheduledRefresh = scheduledRefresh;
+        }
+
+        private synchronized void cancelScheduledRefresh() {
+            if (scheduledRefresh != null) {
+                scheduledRefresh.cancel(false);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "TrackedToken{userId=" + userId + '}';
+        }
+    }
+}
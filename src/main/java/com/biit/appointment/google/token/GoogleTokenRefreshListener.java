@@ -0,0 +1,35 @@
+package com.biit.appointment.google.token;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.client.CredentialData;
+
+import java.util.UUID;
+
+/**
+ * Notified when an access token is refreshed in background by {@link GoogleTokenManager}. Define a bean implementing this
+ * interface to persist the new credentials.
+ */
+public interface GoogleTokenRefreshListener {
+
+    void tokenRefreshed(UUID userId, CredentialData credentialData);
+}
@@ -0,0 +1,66 @@
+package com.biit.appointment.google.watch;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Receives the push notifications sent by Google to the address set on 'google.watch.address'. Only registered if
+ * 'google.watch.enabled' is true. The path must be accessible without authentication; notifications are verified using
+ * the channel token.
+ */
+@RestController
+@ConditionalOnProperty(name = "google.watch.enabled", havingValue = "true")
+public class GoogleCalendarNotificationController {
+
+    public static final String CHANNEL_ID_HEADER = "X-Goog-Channel-ID";
+    public static final String CHANNEL_TOKEN_HEADER = "X-Goog-Channel-Token";
+    public static final String RESOURCE_ID_HEADER = "X-Goog-Resource-ID";
+    public static final String RESOURCE_STATE_HEADER = "X-Goog-Resource-State";
+
+    private final GoogleWatchService googleWatchService;
+
+    public GoogleCalendarNotificationController(GoogleWatchService googleWatchService) {
+        this.googleWatchService = googleWatchService;
+    }
+
+    /**
+     * Google retries any notification not answered with a success code, so only forged ones are rejected. Notifications
+     * from unknown channels are accepted and ignored.
+     */
+    @PostMapping("${google.watch.path:/google/calendar/notifications}")
+    public ResponseEntity<Void> notification(@RequestHeader(CHANNEL_ID_HEADER) String channelId,
+                                             @RequestHeader(value = CHANNEL_TOKEN_HEADER, required = false) String token,
+                                             @RequestHeader(RESOURCE_ID_HEADER) String resourceId,
+                                             @RequestHeader(RESOURCE_STATE_HEADER) String resourceState) {
+        final NotificationResult result = googleWatchService.handleNotification(channelId, token, resourceId, resourceState);
+        if (result == NotificationResult.REJECTED) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,378 @@
+package com.biit.appointment.google.watch;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.exceptions.ExternalCalendarActionException;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.converter.GoogleCalendarCredentialsConverter;
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import com.biit.appointment.google.sync.EventSyncResult;
+import com.biit.appointment.google.sync.GoogleCalendarSyncService;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.services.calendar.model.Channel;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Push notifications from Google instead of polling. A channel is registered on Google for each user calendar, and each
+ * notification received for it triggers an incremental synchronization of only that calendar. Changes are sent to the
+ * {@link GoogleCalendarChangeListener} beans.
+ * <p>
+ * Synchronizations of a calendar never overlap. Notifications received while one is running trigger a single new one
+ * when it finishes.
+ * <p>
+ * Channels expire. They are renewed in background before expiring: a new channel is registered and the old one stopped
+ * afterward, so no change is lost in between.
+ * <p>
+ * The credentials stored with each channel are refreshed when used, and the channel is updated with the new ones.
+ */
+@Service
+public class GoogleWatchService implements InitializingBean, DisposableBean {
+
+    private static final long DEFAULT_TTL_SECONDS = 7 * 24 * 60 * 60L;
+    private static final long DEFAULT_RENEW_BEFORE_SECONDS = 60 * 60L;
+    private static final long DEFAULT_RENEWAL_CHECK_SECONDS = 5 * 60L;
+    private static final int DEFAULT_SYNC_THREADS = 2;
+    private static final int DEFAULT_FULL_SYNC_PAST_DAYS = 30;
+    private static final int TOKEN_BYTES = 32;
+    private static final String SYNC_STATE = "sync";
+
+    @Value("${google.watch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${google.watch.address:#{null}}")
+    private String address;
+
+    @Value("${google.watch.ttl-seconds:" + DEFAULT_TTL_SECONDS + "}")
+    private long ttlSeconds = DEFAULT_TTL_SECONDS;
+
+    @Value("${google.watch.renew-before-seconds:" + DEFAULT_RENEW_BEFORE_SECONDS + "}")
+    private long renewBeforeSeconds = DEFAULT_RENEW_BEFORE_SECONDS;
+
+    @Value("${google.watch.renewal-check-seconds:" + DEFAULT_RENEWAL_CHECK_SECONDS + "}")
+    private long renewalCheckSeconds = DEFAULT_RENEWAL_CHECK_SECONDS;
+
+    @Value("${google.watch.sync-threads:" + DEFAULT_SYNC_THREADS + "}")
+    private int syncThreads = DEFAULT_SYNC_THREADS;
+
+    @Value("${google.sync.full-sync-past-days:" + DEFAULT_FULL_SYNC_PAST_DAYS + "}")
+    private int fullSyncPastDays = DEFAULT_FULL_SYNC_PAST_DAYS;
+
+    private final GoogleClientProvider googleClientProvider;
+    private final GoogleCalendarSyncService googleCalendarSyncService;
+    private final GoogleCalendarCredentialsConverter googleCalendarCredentialsConverter;
+    private final GoogleTokenManager googleTokenManager;
+    private final WatchChannelStore watchChannelStore;
+    private final List<GoogleCalendarChangeListener> listeners;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    //Calendars with a synchronization queued or running. Only one runs at a time for each calendar.
+    private final Map<String, SyncState> synchronizations = new ConcurrentHashMap<>();
+    private ExecutorService syncExecutor;
+    private ScheduledExecutorService renewalScheduler;
+
+    public GoogleWatchService(GoogleClientProvider googleClientProvider, GoogleCalendarSyncService googleCalendarSyncService,
+                              GoogleCalendarCredentialsConverter googleCalendarCredentialsConverter,
+                              GoogleTokenManager googleTokenManager, ObjectProvider<WatchChannelStore> watchChannelStore,
+                              ObjectProvider<GoogleCalendarChangeListener> listeners) {
+        this.googleClientProvider = googleClientProvider;
+        this.googleCalendarSyncService = googleCalendarSyncService;
+        this.googleCalendarCredentialsConverter = googleCalendarCredentialsConverter;
+        this.googleTokenManager = googleTokenManager;
+        this.watchChannelStore = watchChannelStore.getIfAvailable(InMemoryWatchChannelStore::new);
+        this.listeners = listeners.orderedStream().toList();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        //Notifications are only received by the controller when enabled.
+        if (enabled) {
+            syncExecutor = Executors.newFixedThreadPool(Math.max(1, syncThreads), runnable -> createThread(runnable, "google-watch-sync"));
+        }
+        if (address != null && !address.isBlank()) {
+            renewalScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> createThread(runnable, "google-watch-renewal"));
+            renewalScheduler.scheduleWithFixedDelay(this::renewExpiringChannels, renewalCheckSeconds, renewalCheckSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Starts receiving notifications for the events of a calendar. Any previous channel of the same calendar is stopped.
+     *
+     * @param credentials the user credentials.
+     * @param calendarId  the calendar.
+     * @return the channel registered.
+     * @throws ExternalCalendarActionException if Google rejects the channel.
+     */
+    public WatchChannel watch(ExternalCalendarCredentialsDTO credentials, String calendarId) throws ExternalCalendarActionException {
+        final Collection<WatchChannel> previousChannels = watchChannelStore.get(credentials.getUserId(), calendarId);
+        final WatchChannel channel;
+        try {
+            channel = register(credentials.getUserId(), calendarId, credentials.getCredentialData(CredentialData.class));
+        } catch (IOException | GeneralSecurityException e) {
+            GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+            throw new ExternalCalendarActionException(this.getClass(), e);
+        }
+        previousChannels.forEach(this::stop);
+        return channel;
+    }
+
+    /**
+     * Stops receiving notifications for a calendar.
+     *
+     * @param userId     the user.
+     * @param calendarId the calendar.
+     * @return true if a channel has been stopped.
+     */
+    public boolean stop(UUID userId, String calendarId) {
+        final Collection<WatchChannel> channels = watchChannelStore.get(userId, calendarId);
+        channels.forEach(this::stop);
+        return !channels.isEmpty();
+    }
+
+    public Collection<WatchChannel> getChannels(UUID userId, String calendarId) {
+        return watchChannelStore.get(userId, calendarId);
+    }
+
+    /**
+     * Handles a notification sent by Google. It must be answered quickly, so the synchronization is done in background.
+     *
+     * @param channelId     value of the 'X-Goog-Channel-ID' header.
+     * @param token         value of the 'X-Goog-Channel-Token' header.
+     * @param resourceId    value of the 'X-Goog-Resource-ID' header.
+     * @param resourceState value of the 'X-Goog-Resource-State' header.
+     * @return how the notification has been handled.
+     */
+    public NotificationResult handleNotification(String channelId, String token, String resourceId, String resourceState) {
+        final WatchChannel channel = watchChannelStore.get(channelId);
+        if (channel == null) {
+            GoogleCalDAVLogger.debug(this.getClass(), "Notification received from unknown channel '{}'.", channelId);
+            return NotificationResult.UNKNOWN_CHANNEL;
+        }
+        if (token == null || !MessageDigest.isEqual(channel.getToken().getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))
+                || !Objects.equals(channel.getResourceId(), resourceId)) {
+            GoogleCalDAVLogger.warning(this.getClass(), "Notification for channel '{}' rejected. Token or resource do not match.", channelId);
+            return NotificationResult.REJECTED;
+        }
+        if (SYNC_STATE.equals(resourceState)) {
+            return NotificationResult.SYNC;
+        }
+        scheduleSynchronization(channel);
+        return NotificationResult.ACCEPTED;
+    }
+
+    /**
+     * Registers again the channels that expire soon. Executed periodically.
+     *
+     * @return the number of channels renewed.
+     */
+    public int renewExpiringChannels() {
+        final long renewalTime = System.currentTimeMillis() + renewBeforeSeconds * 1000;
+        int renewed = 0;
+        for (WatchChannel channel : watchChannelStore.getAll()) {
+            if (channel.getExpiration() > renewalTime) {
+                continue;
+            }
+            try {
+                register(channel.getUserId(), channel.getCalendarId(), getCredentialData(channel));
+                stop(channel);
+                renewed++;
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                GoogleCalDAVLogger.warning(this.getClass(), "Channel '{}' cannot be renewed: {}", channel, e.getMessage());
+            }
+        }
+        if (renewed > 0) {
+            GoogleCalDAVLogger.info(this.getClass(), "'{}' notification channels renewed.", renewed);
+        }
+        return renewed;
+    }
+
+    private WatchChannel register(UUID userId, String calendarId, CredentialData credentialData) throws IOException, GeneralSecurityException {
+        if (address == null || address.isBlank()) {
+            throw new IllegalStateException("Property 'google.watch.address' is not defined.");
+        }
+        final CredentialData freshCredentialData = googleTokenManager.getFreshCredentialData(userId, credentialData);
+        final Credential credential = googleCalendarCredentialsConverter.reverse(
+                googleCalendarCredentialsConverter.convertElement(userId, freshCredentialData));
+        final String channelId = UUID.randomUUID().toString();
+        final String token = createToken();
+        final long expiration = System.currentTimeMillis() + ttlSeconds * 1000;
+        final Channel createdChannel = googleClientProvider.watchEvents(calendarId, channelId, address, token, expiration, credential);
+        if (createdChannel == null) {
+            throw new IOException("Google Calendar service is not correctly configured!");
+        }
+        final WatchChannel channel = new WatchChannel(channelId, createdChannel.getResourceId(), userId, calendarId, token,
+                createdChannel.getExpiration() != null ? createdChannel.getExpiration() : expiration, freshCredentialData);
+        watchChannelStore.save(channel);
+        GoogleCalDAVLogger.info(this.getClass(), "Watching calendar '{}' of user '{}' with channel '{}'.", calendarId, userId, channelId);
+        return channel;
+    }
+
+    private void stop(WatchChannel channel) {
+        //Notifications still in flight are ignored from now on.
+        watchChannelStore.remove(channel.getChannelId());
+        try {
+            final CredentialData credentialData = googleTokenManager.getFreshCredentialData(channel.getUserId(),
+                    channel.getCredentialData());
+            googleClientProvider.stopChannel(channel.getChannelId(), channel.getResourceId(), googleCalendarCredentialsConverter.reverse(
+                    googleCalendarCredentialsConverter.convertElement(channel.getUserId(), credentialData)));
+        } catch (IOException | GeneralSecurityException e) {
+            //Google stops sending notifications when the channel expires.
+            GoogleCalDAVLogger.warning(this.getClass(), "Channel '{}' cannot be stopped: {}", channel, e.getMessage());
+        }
+    }
+
+    private void scheduleSynchronization(WatchChannel channel) {
+        if (syncExecutor == null) {
+            GoogleCalDAVLogger.warning(this.getClass(), "Notification for channel '{}' ignored. Watch is not enabled.",
+                    channel.getChannelId());
+            return;
+        }
+        final String key = channel.getUserId() + "/" + channel.getCalendarId();
+        while (true) {
+            if (synchronizations.putIfAbsent(key, SyncState.QUEUED) == null) {
+                execute(key, channel);
+                return;
+            }
+            //A running synchronization may have missed the change. It is repeated once when it finishes.
+            if (synchronizations.replace(key, SyncState.RUNNING, SyncState.NOTIFIED)) {
+                return;
+            }
+            //A queued synchronization covers the change. Otherwise, it has just finished and is scheduled again.
+            final SyncState state = synchronizations.get(key);
+            if (state == SyncState.QUEUED || state == SyncState.NOTIFIED) {
+                return;
+            }
+        }
+    }
+
+    private void execute(String key, WatchChannel channel) {
+        try {
+            syncExecutor.execute(() -> runSynchronization(key, channel));
+        } catch (RejectedExecutionException e) {
+            synchronizations.remove(key);
+            GoogleCalDAVLogger.warning(this.getClass(), "Synchronization of calendar '{}' rejected: {}", key, e.getMessage());
+        }
+    }
+
+    private void runSynchronization(String key, WatchChannel channel) {
+        synchronizations.put(key, SyncState.RUNNING);
+        try {
+            synchronize(channel);
+        } finally {
+            if (!synchronizations.remove(key, SyncState.RUNNING)) {
+                //Notified meanwhile.
+                synchronizations.put(key, SyncState.QUEUED);
+                execute(key, channel);
+            }
+        }
+    }
+
+    private void synchronize(WatchChannel channel) {
+        try {
+            final EventSyncResult changes = googleCalendarSyncService.synchronize(
+                    googleCalendarCredentialsConverter.convertElement(channel.getUserId(), getCredentialData(channel)),
+                    channel.getCalendarId(), LocalDateTime.now().minusDays(fullSyncPastDays));
+            for (GoogleCalendarChangeListener listener : listeners) {
+                try {
+                    listener.calendarChanged(channel.getUserId(), channel.getCalendarId(), changes);
+                } catch (RuntimeException e) {
+                    GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+                }
+            }
+        } catch (ExternalCalendarActionException | IOException | GeneralSecurityException e) {
+            GoogleCalDAVLogger.warning(this.getClass(), "Calendar '{}' of user '{}' not synchronized after a notification: {}",
+                    channel.getCalendarId(), channel.getUserId(), e.getMessage());
+        } catch (RuntimeException e) {
+            GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+        }
+    }
+
+    /**
+     * Gets valid credentials for a channel. If they have been refreshed, the stored channel is updated, so a refresh token
+     * rotated by Google is not lost.
+     */
+    private CredentialData getCredentialData(WatchChannel channel) throws IOException, GeneralSecurityException {
+        final CredentialData credentialData = googleTokenManager.getFreshCredentialData(channel.getUserId(), channel.getCredentialData());
+        if (credentialData != channel.getCredentialData()) {
+            channel.setCredentialData(credentialData);
+            //Not saved again if stopped meanwhile.
+            if (watchChannelStore.get(channel.getChannelId()) != null) {
+                watchChannelStore.save(channel);
+            }
+        }
+        return credentialData;
+    }
+
+    private enum SyncState {
+        QUEUED,
+        RUNNING,
+        //Running, and a notification has been received since it started.
+        NOTIFIED
+    }
+
+    private String createToken() {
+        final byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private Thread createThread(Runnable runnable, String name) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @Override
+    public void destroy() {
+        if (renewalScheduler != null) {
+            renewalScheduler.shutdownNow();
+        }
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.biit.appointment.google.watch;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default store. Channels are lost on restart, and must be registered again.
+ */
+public class InMemoryWatchChannelStore implements WatchChannelStore {
+
+    private final Map<String, WatchChannel> channels = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(WatchChannel channel) {
+        channels.put(channel.getChannelId(), channel);
+    }
+
+    @Override
+    public WatchChannel get(String channelId) {
+        return channelId != null ? channels.get(channelId) : null;
+    }
+
+    @Override
+    public Collection<WatchChannel> get(UUID userId, String calendarId) {
+        return channels.values().stream().filter(channel -> Objects.equals(channel.getUserId(), userId)
+                && Objects.equals(channel.getCalendarId(), calendarId)).toList();
+    }
+
+    @Override
+    public Collection<WatchChannel> getAll() {
+        return new ArrayList<>(channels.values());
+    }
+
+    @Override
+    public void remove(String channelId) {
+        channels.remove(channelId);
+    }
+}
@@ -0,0 +1,40 @@
+package com.biit.appointment.google.watch;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+/**
+ * How a push notification received from Google has been handled.
+ */
+public enum NotificationResult {
+
+    //Changes on the calendar. A synchronization has been scheduled.
+    ACCEPTED,
+
+    //First message sent by Google after creating the channel. Nothing has changed.
+    SYNC,
+
+    //Channel not registered here, expired or stopped.
+    UNKNOWN_CHANNEL,
+
+    //The token or resource does not match the channel. The message has not been sent by Google.
+    REJECTED
+}
@@ -0,0 +1,102 @@
+package com.biit.appointment.google.watch;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.client.CredentialData;
+
+import java.util.UUID;
+
+/**
+ * A notification channel registered on Google for the events of a calendar.
+ */
+public class WatchChannel {
+
+    private String channelId;
+    private String resourceId;
+    private UUID userId;
+    private String calendarId;
+    //Secret sent back by Google on each notification.
+    private String token;
+    private long expiration;
+    private CredentialData credentialData;
+
+    public WatchChannel() {
+        super();
+    }
+
+    public WatchChannel(String channelId, String resourceId, UUID userId, String calendarId, String token, long expiration,
+                        CredentialData credentialData) {
+        this();
+        this.channelId = channelId;
+        this.resourceId = resourceId;
+        this.userId = userId;
+        this.calendarId = calendarId;
+        this.token = token;
+        this.expiration = expiration;
+        this.credentialData = credentialData;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public String getResourceId() {
+        return resourceId;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public String getCalendarId() {
+        return calendarId;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return when Google stops sending notifications, in milliseconds since epoch.
+     */
+    public long getExpiration() {
+        return expiration;
+    }
+
+    public CredentialData getCredentialData() {
+        return credentialData;
+    }
+
+    public void setCredentialData(CredentialData credentialData) {
+        this.credentialData = credentialData;
+    }
+
+    @Override
+    public String toString() {
+        return "WatchChannel{"
+                + "channelId='" + channelId + '\''
+                + ", userId=" + userId
+                + ", calendarId='" + calendarId + '\''
+                + ", expiration=" + expiration
+                + '}';
+    }
+}
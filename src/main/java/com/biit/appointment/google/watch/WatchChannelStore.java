@@ -0,0 +1,60 @@
+package com.biit.appointment.google.watch;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Stores the notification channels registered on Google. Define a bean implementing this interface to keep them after a
+ * restart; otherwise they are kept in memory. Channels contain the user tokens.
+ */
+public interface WatchChannelStore {
+
+    /**
+     * Stores a channel, replacing any previous channel with the same id.
+     *
+     * @param channel the channel.
+     */
+    void save(WatchChannel channel);
+
+    /**
+     * Gets a channel by the id sent on the notifications.
+     *
+     * @param channelId the channel id.
+     * @return the channel, or null if it is unknown.
+     */
+    WatchChannel get(String channelId);
+
+    /**
+     * Gets the channels of a calendar. There can be more than one while a channel is being renewed.
+     *
+     * @param userId     the user.
+     * @param calendarId the calendar.
+     * @return the channels.
+     */
+    Collection<WatchChannel> get(UUID userId, String calendarId);
+
+    Collection<WatchChannel> getAll();
+
+    void remove(String channelId);
+}
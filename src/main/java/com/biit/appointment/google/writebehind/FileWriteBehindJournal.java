@@ -0,0 +1,214 @@
+package com.biit.appointment.google.writebehind;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append only journal on a local file. Each change is written as a JSON line, and the file is synchronized to disk before
+ * returning if requested. The file is compacted on recovery, and emptied each time no write is pending.
+ * <p>
+ * The file contains the user tokens needed to send the writes. It is created readable only by its owner.
+ */
+public class FileWriteBehindJournal implements WriteBehindJournal {
+
+    private static final String ENQUEUED = "ENQUEUED";
+    private static final String COMPLETED = "COMPLETED";
+    private static final String FAILED = "FAILED";
+
+    private final Gson gson = new Gson();
+    private final Path path;
+    private final boolean sync;
+    private FileOutputStream outputStream;
+    private Writer writer;
+    private int pending;
+
+    public FileWriteBehindJournal(Path path, boolean sync) {
+        this.path = path;
+        this.sync = sync;
+    }
+
+    @Override
+    public synchronized void enqueued(PendingWrite write) throws IOException {
+        append(new JournalRecord(ENQUEUED, write, write.getIdempotencyKey(), null, null));
+        pending++;
+    }
+
+    @Override
+    public synchronized void completed(String idempotencyKey, String externalReference) throws IOException {
+        append(new JournalRecord(COMPLETED, null, idempotencyKey, externalReference, null));
+        finished();
+    }
+
+    @Override
+    public synchronized void failed(String idempotencyKey, String error) throws IOException {
+        append(new JournalRecord(FAILED, null, idempotencyKey, null, error));
+        finished();
+    }
+
+    @Override
+    public synchronized List<PendingWrite> recover() throws IOException {
+        close();
+        final Map<String, PendingWrite> pendingWrites = new LinkedHashMap<>();
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    readRecord(line, pendingWrites);
+                }
+            }
+        }
+        compact(pendingWrites.values());
+        pending = pendingWrites.size();
+        GoogleCalDAVLogger.info(this.getClass(), "Write-behind journal '{}' has '{}' pending writes.", path, pending);
+        return new ArrayList<>(pendingWrites.values());
+    }
+
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            outputStream = null;
+        }
+    }
+
+    private void readRecord(String line, Map<String, PendingWrite> pendingWrites) {
+        if (line.isBlank()) {
+            return;
+        }
+        try {
+            final JournalRecord journalRecord = gson.fromJson(line, JournalRecord.class);
+            if (ENQUEUED.equals(journalRecord.type) && journalRecord.write != null) {
+                pendingWrites.putIfAbsent(journalRecord.idempotencyKey, journalRecord.write);
+            } else {
+                pendingWrites.remove(journalRecord.idempotencyKey);
+            }
+        } catch (JsonParseException e) {
+            //Last line not completely written when the application stopped.
+            GoogleCalDAVLogger.warning(this.getClass(), "Ignoring invalid write-behind journal line: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrites the file with only the pending writes. The new file replaces the old one atomically.
+     */
+    private void compact(Iterable<PendingWrite> pendingWrites) throws IOException {
+        createParentDirectories();
+        final Path compacted = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(compacted);
+        createRestrictedFile(compacted);
+        try (Writer compactedWriter = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (PendingWrite write : pendingWrites) {
+                compactedWriter.write(gson.toJson(new JournalRecord(ENQUEUED, write, write.getIdempotencyKey(), null, null)));
+                compactedWriter.write('\n');
+            }
+        }
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void finished() throws IOException {
+        pending = Math.max(0, pending - 1);
+        if (pending == 0) {
+            //Nothing to recover. The file is emptied to not grow forever.
+            getOutputStream().getChannel().truncate(0);
+        }
+    }
+
+    private void append(JournalRecord journalRecord) throws IOException {
+        final Writer journalWriter = getWriter();
+        journalWriter.write(gson.toJson(journalRecord));
+        journalWriter.write('\n');
+        journalWriter.flush();
+        if (sync) {
+            outputStream.getFD().sync();
+        }
+    }
+
+    private Writer getWriter() throws IOException {
+        if (writer == null) {
+            createParentDirectories();
+            if (!Files.exists(path)) {
+                createRestrictedFile(path);
+            }
+            outputStream = new FileOutputStream(path.toFile(), true);
+            writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        }
+        return writer;
+    }
+
+    private FileOutputStream getOutputStream() throws IOException {
+        getWriter();
+        return outputStream;
+    }
+
+    private void createParentDirectories() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+    }
+
+    private void createRestrictedFile(Path file) throws IOException {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(file);
+        }
+    }
+
+    private static final class JournalRecord {
+        private String type;
+        private PendingWrite write;
+        private String idempotencyKey;
+        private String externalReference;
+        private String error;
+
+        private JournalRecord() {
+            super();
+        }
+
+        private JournalRecord(String type, PendingWrite write, String idempotencyKey, String externalReference, String error) {
+            this.type = type;
+            this.write = write;
+            this.idempotencyKey = idempotencyKey;
+            this.externalReference = externalReference;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.biit.appointment.google.writebehind;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.client.BatchItemResult;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.client.GoogleEventIds;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.biit.appointment.google.converter.GoogleCalendarCredentialsConverter;
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.calendar.model.Event;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends event creations and deletions to Google in background, so the caller does not wait for Google. Writes are stored
+ * on a {@link WriteBehindJournal} before returning, and resumed after a restart. Workers send them in batch requests,
+ * retry the temporary errors and notify the {@link GoogleWriteBehindListener} beans of the result.
+ * <p>
+ * Each write has an idempotency key. Enqueuing again a key still pending or recently completed has no effect, unless
+ * another write of the same event has been enqueued since then, as a creation after its deletion. Created events without
+ * id get one derived from the key, so a creation repeated after a failure or a restart never duplicates the event.
+ * <p>
+ * Writes of the same event are sent in the order they were enqueued, one at a time: a write waits until the previous one
+ * of the event is completed or discarded, so a deletion is never sent before the creation of its event.
+ * <p>
+ * The credentials stored with each write are refreshed when it is sent, as it may have waited longer than the access token
+ * lifetime.
+ */
+@Service
+public class GoogleWriteBehindService implements InitializingBean, DisposableBean {
+
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final long DEFAULT_RETRY_DELAY_MILLISECONDS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLISECONDS = 60_000;
+    private static final int DEFAULT_COMPLETED_KEYS = 10_000;
+    private static final long POLL_MILLISECONDS = 500;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+
+    @Value("${google.write-behind.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${google.write-behind.workers:" + DEFAULT_WORKERS + "}")
+    private int workers = DEFAULT_WORKERS;
+
+    @Value("${google.write-behind.batch-size:" + GoogleClientProvider.MAX_BATCH_SIZE + "}")
+    private int batchSize = GoogleClientProvider.MAX_BATCH_SIZE;
+
+    @Value("${google.write-behind.max-attempts:" + DEFAULT_MAX_ATTEMPTS + "}")
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    @Value("${google.write-behind.retry-delay-milliseconds:" + DEFAULT_RETRY_DELAY_MILLISECONDS + "}")
+    private long retryDelayMilliseconds = DEFAULT_RETRY_DELAY_MILLISECONDS;
+
+    //No default: the journal contains user tokens, and must not be left on a shared temporary folder.
+    @Value("${google.write-behind.journal.path:}")
+    private String journalPath;
+
+    @Value("${google.write-behind.journal.sync:true}")
+    private boolean journalSync = true;
+
+    private final GoogleClientProvider googleClientProvider;
+    private final AppointmentEventConverter eventConverter;
+    private final GoogleCalendarCredentialsConverter googleCalendarCredentialsConverter;
+    private final GoogleTokenManager googleTokenManager;
+    private final ObjectProvider<WriteBehindJournal> journalProvider;
+    private final List<GoogleWriteBehindListener> listeners;
+
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Map<String, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    //Writes of each event, in order. Only the first one is on the queue.
+    private final Map<String, Deque<PendingWrite>> eventWrites = new HashMap<>();
+    private final Map<String, String> completedKeys = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > DEFAULT_COMPLETED_KEYS;
+        }
+    };
+    //Key of the last write enqueued for each event. Guarded by completedKeys.
+    private final Map<String, String> lastWrites = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > DEFAULT_COMPLETED_KEYS;
+        }
+    };
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private WriteBehindJournal journal;
+    private ExecutorService workerPool;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running;
+
+    public GoogleWriteBehindService(GoogleClientProvider googleClientProvider, AppointmentEventConverter eventConverter,
+                                    GoogleCalendarCredentialsConverter googleCalendarCredentialsConverter,
+                                    GoogleTokenManager googleTokenManager, ObjectProvider<WriteBehindJournal> journalProvider,
+                                    ObjectProvider<GoogleWriteBehindListener> listeners) {
+        this.googleClientProvider = googleClientProvider;
+        this.eventConverter = eventConverter;
+        this.googleCalendarCredentialsConverter = googleCalendarCredentialsConverter;
+        this.googleTokenManager = googleTokenManager;
+        this.journalProvider = journalProvider;
+        this.listeners = listeners.orderedStream().toList();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (enabled) {
+            start();
+        }
+    }
+
+    /**
+     * Recovers the pending writes from the journal and starts the workers.
+     *
+     * @throws IOException           if the journal cannot be read.
+     * @throws IllegalStateException if there is no {@link WriteBehindJournal} bean and no journal path is configured.
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        journal = journalProvider.getIfAvailable(this::createFileJournal);
+        for (PendingWrite write : journal.recover()) {
+            pendingWrites.put(write.getIdempotencyKey(), write);
+            synchronized (completedKeys) {
+                lastWrites.put(getEventKey(write), write.getIdempotencyKey());
+            }
+            schedule(write);
+        }
+        running = true;
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> createThread(runnable, "google-write-behind-retry"));
+        workerPool = Executors.newFixedThreadPool(Math.max(1, workers),
+                runnable -> createThread(runnable, "google-write-behind-" + threadCounter.incrementAndGet()));
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            workerPool.execute(this::work);
+        }
+        GoogleCalDAVLogger.info(this.getClass(), "Write-behind started with '{}' workers.", workers);
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Enqueues the creation of an event.
+     *
+     * @param appointmentDTO the appointment to create.
+     * @param credentials    the user credentials.
+     * @param idempotencyKey identifies the write. Enqueuing the same key again has no effect.
+     * @return the reference the event will have on Google.
+     */
+    public String enqueueCreate(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials, String idempotencyKey) {
+        return enqueueCreate(appointmentDTO, credentials, idempotencyKey, null);
+    }
+
+    /**
+     * Enqueues the creation of an event.
+     *
+     * @param appointmentDTO the appointment to create.
+     * @param credentials    the user credentials.
+     * @param idempotencyKey identifies the write. Enqueuing the same key again has no effect.
+     * @param onCompleted    executed once the event exists on Google. Not kept on the journal. Can be null.
+     * @return the reference the event will have on Google.
+     */
+    public String enqueueCreate(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials, String idempotencyKey,
+                                Runnable onCompleted) {
+        final Event event = eventConverter.reverse(appointmentDTO);
+        if (event.getId() == null) {
+            event.setId(GoogleEventIds.fromKey(idempotencyKey));
+        }
+        final PendingWrite write = new PendingWrite(idempotencyKey, WriteOperation.CREATE, credentials.getUserId(),
+                GoogleClientProvider.PRIMARY_CALENDAR_ID, event.getId(), toJson(event),
+                credentials.getCredentialData(CredentialData.class));
+        write.setOnCompleted(onCompleted);
+        return enqueue(write);
+    }
+
+    /**
+     * Enqueues the deletion of an event.
+     *
+     * @param appointmentDTO the appointment to delete, with its external reference.
+     * @param credentials    the user credentials.
+     * @param idempotencyKey identifies the write. Enqueuing the same key again has no effect.
+     * @throws IllegalArgumentException if the appointment has no external reference.
+     */
+    public void enqueueDelete(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials, String idempotencyKey) {
+        enqueueDelete(appointmentDTO, credentials, idempotencyKey, null);
+    }
+
+    /**
+     * Enqueues the deletion of an event.
+     *
+     * @param appointmentDTO the appointment to delete, with its external reference.
+     * @param credentials    the user credentials.
+     * @param idempotencyKey identifies the write. Enqueuing the same key again has no effect.
+     * @param onCompleted    executed once the event is deleted on Google. Not kept on the journal. Can be null.
+     * @throws IllegalArgumentException if the appointment has no external reference.
+     */
+    public void enqueueDelete(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials, String idempotencyKey,
+                              Runnable onCompleted) {
+        if (appointmentDTO.getExternalReference() == null) {
+            throw new IllegalArgumentException("Cannot delete an appointment without external reference.");
+        }
+        final PendingWrite write = new PendingWrite(idempotencyKey, WriteOperation.DELETE, credentials.getUserId(),
+                GoogleClientProvider.PRIMARY_CALENDAR_ID, appointmentDTO.getExternalReference(), null,
+                credentials.getCredentialData(CredentialData.class));
+        write.setOnCompleted(onCompleted);
+        enqueue(write);
+    }
+
+    public int getPendingWrites() {
+        return pendingWrites.size();
+    }
+
+    private String enqueue(PendingWrite write) {
+        if (!running) {
+            throw new IllegalStateException("Write-behind is not enabled.");
+        }
+        synchronized (completedKeys) {
+            final String completedReference = completedKeys.get(write.getIdempotencyKey());
+            if (completedReference != null) {
+                //The event may have been written again afterward, as deleted after being created.
+                final String lastWrite = lastWrites.get(getEventKey(write));
+                if (lastWrite == null || lastWrite.equals(write.getIdempotencyKey())) {
+                    return completedReference;
+                }
+                completedKeys.remove(write.getIdempotencyKey());
+            }
+        }
+        final PendingWrite existing = pendingWrites.putIfAbsent(write.getIdempotencyKey(), write);
+        if (existing != null) {
+            return existing.getEventId();
+        }
+        synchronized (completedKeys) {
+            lastWrites.put(getEventKey(write), write.getIdempotencyKey());
+        }
+        try {
+            journal.enqueued(write);
+        } catch (IOException e) {
+            pendingWrites.remove(write.getIdempotencyKey(), write);
+            throw new UncheckedIOException(e);
+        }
+        schedule(write);
+        return write.getEventId();
+    }
+
+    /**
+     * Queues the write, or leaves it waiting if a previous write of the same event is not finished.
+     */
+    private void schedule(PendingWrite write) {
+        synchronized (eventWrites) {
+            final Deque<PendingWrite> writes = eventWrites.computeIfAbsent(getEventKey(write), key -> new ArrayDeque<>());
+            writes.add(write);
+            if (writes.size() == 1) {
+                queue.add(write);
+            }
+        }
+    }
+
+    /**
+     * Queues the next write of the same event, if any.
+     */
+    private void finished(PendingWrite write) {
+        synchronized (eventWrites) {
+            final String eventKey = getEventKey(write);
+            final Deque<PendingWrite> writes = eventWrites.get(eventKey);
+            if (writes == null) {
+                return;
+            }
+            writes.remove(write);
+            if (writes.isEmpty()) {
+                eventWrites.remove(eventKey);
+            } else {
+                queue.add(writes.peek());
+            }
+        }
+    }
+
+    private static String getEventKey(PendingWrite write) {
+        return write.getUserId() + "/" + write.getCalendarId() + "/" + write.getEventId();
+    }
+
+    private void work() {
+        final List<PendingWrite> batch = new ArrayList<>();
+        while (running) {
+            try {
+                final PendingWrite first = queue.poll(POLL_MILLISECONDS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, Math.max(1, Math.min(batchSize, GoogleClientProvider.MAX_BATCH_SIZE)) - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes of the same user, calendar and operation are sent on the same batch request.
+     */
+    private void process(List<PendingWrite> batch) {
+        final Map<String, List<PendingWrite>> groups = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            groups.computeIfAbsent(write.getUserId() + "/" + write.getCalendarId() + "/" + write.getOperation(),
+                    key -> new ArrayList<>()).add(write);
+        }
+        groups.values().forEach(this::send);
+    }
+
+    private void send(List<PendingWrite> writes) {
+        final PendingWrite first = writes.get(0);
+        try {
+            //The latest credentials enqueued, refreshed if expired.
+            final CredentialData credentialData = googleTokenManager.getFreshCredentialData(first.getUserId(),
+                    writes.get(writes.size() - 1).getCredentialData());
+            final Credential credential = googleCalendarCredentialsConverter.reverse(
+                    googleCalendarCredentialsConverter.convertElement(first.getUserId(), credentialData));
+            final List<BatchItemResult> results;
+            if (first.getOperation() == WriteOperation.CREATE) {
+                final List<Event> events = new ArrayList<>(writes.size());
+                for (PendingWrite write : writes) {
+                    events.add(JSON_FACTORY.fromString(write.getEvent(), Event.class));
+                }
+                results = googleClientProvider.createCalendarEvents(first.getCalendarId(), events, credential);
+            } else {
+                results = googleClientProvider.deleteCalendarEvents(first.getCalendarId(),
+                        writes.stream().map(PendingWrite::getEventId).toList(), credential);
+            }
+            for (int i = 0; i < writes.size(); i++) {
+                processResult(writes.get(i), i < results.size() ? results.get(i) : null);
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            GoogleCalDAVLogger.warning(this.getClass(), "Write-behind batch of user '{}' failed: {}", first.getUserId(), e.getMessage());
+            writes.forEach(write -> retry(write, e.getMessage()));
+        }
+    }
+
+    private void processResult(PendingWrite write, BatchItemResult result) {
+        if (result == null) {
+            retry(write, "No response from Google.");
+        } else if (result.isSuccessful()) {
+            complete(write);
+        } else if (result.getErrorCode() == HTTP_TOO_MANY_REQUESTS || result.getErrorCode() >= HTTP_SERVER_ERROR) {
+            retry(write, result.getErrorMessage());
+        } else {
+            discard(write, result.getErrorCode() + " " + result.getErrorMessage());
+        }
+    }
+
+    private void retry(PendingWrite write, String error) {
+        final int attempts = write.incrementAttempts();
+        if (attempts >= maxAttempts || !running) {
+            if (running) {
+                discard(write, error);
+            }
+            //If stopping, the write is kept on the journal and resumed on the next start.
+            return;
+        }
+        final long delay = Math.min(MAX_RETRY_DELAY_MILLISECONDS, retryDelayMilliseconds << Math.min(attempts - 1, 20));
+        retryScheduler.schedule(() -> queue.add(write), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void complete(PendingWrite write) {
+        try {
+            journal.completed(write.getIdempotencyKey(), write.getEventId());
+        } catch (IOException e) {
+            //Sent again after a restart, without duplicating it.
+            GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+        }
+        synchronized (completedKeys) {
+            completedKeys.put(write.getIdempotencyKey(), write.getEventId());
+        }
+        pendingWrites.remove(write.getIdempotencyKey());
+        finished(write);
+        if (write.getOnCompleted() != null) {
+            try {
+                write.getOnCompleted().run();
+            } catch (RuntimeException e) {
+                GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+            }
+        }
+        notifyListeners(new WriteBehindResult(write, null));
+    }
+
+    private void discard(PendingWrite write, String error) {
+        GoogleCalDAVLogger.severe(this.getClass(), "Write '{}' discarded after '{}' attempts: {}", write, write.getAttempts(), error);
+        try {
+            journal.failed(write.getIdempotencyKey(), error);
+        } catch (IOException e) {
+            GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+        }
+        pendingWrites.remove(write.getIdempotencyKey());
+        finished(write);
+        notifyListeners(new WriteBehindResult(write, error != null ? error : "Unknown error"));
+    }
+
+    private void notifyListeners(WriteBehindResult result) {
+        for (GoogleWriteBehindListener listener : listeners) {
+            try {
+                listener.writeProcessed(result);
+            } catch (RuntimeException e) {
+                GoogleCalDAVLogger.errorMessage(this.getClass(), e);
+            }
+        }
+    }
+
+    private String toJson(Event event) {
+        try {
+            return JSON_FACTORY.toString(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private WriteBehindJournal createFileJournal() {
+        if (journalPath == null || journalPath.isBlank()) {
+            throw new IllegalStateException("Write-behind needs the 'google.write-behind.journal.path' property or a "
+                    + WriteBehindJournal.class.getSimpleName() + " bean.");
+        }
+        return new FileWriteBehindJournal(Path.of(journalPath), journalSync);
+    }
+
+    private Thread createThread(Runnable runnable, String name) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException, InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        retryScheduler.shutdownNow();
+        workerPool.shutdown();
+        if (!workerPool.awaitTermination(POLL_MILLISECONDS * 2, TimeUnit.MILLISECONDS)) {
+            workerPool.shutdownNow();
+        }
+        queue.clear();
+        pendingWrites.clear();
+        synchronized (eventWrites) {
+            eventWrites.clear();
+        }
+        if (journal instanceof FileWriteBehindJournal fileWriteBehindJournal) {
+            fileWriteBehindJournal.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.biit.appointment.google.writebehind;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.client.CredentialData;
+
+import java.util.UUID;
+
+/**
+ * A write waiting to be sent to Google. Stored on the {@link WriteBehindJournal} until it is completed.
+ * <p>
+ * It includes the user credentials, so the journal keeps the refresh token of the user for as long as the write is
+ * pending. The access token is refreshed when the write is sent.
+ */
+public class PendingWrite {
+
+    private String idempotencyKey;
+    private WriteOperation operation;
+    private UUID userId;
+    private String calendarId;
+    private String eventId;
+    //Event to create, as Google JSON.
+    private String event;
+    private CredentialData credentialData;
+    private long enqueuedAt;
+    private transient int attempts;
+    private transient Runnable onCompleted;
+
+    public PendingWrite() {
+        super();
+    }
+
+    public PendingWrite(String idempotencyKey, WriteOperation operation, UUID userId, String calendarId, String eventId, String event,
+                        CredentialData credentialData) {
+        this();
+        this.idempotencyKey = idempotencyKey;
+        this.operation = operation;
+        this.userId = userId;
+        this.calendarId = calendarId;
+        this.eventId = eventId;
+        this.event = event;
+        this.credentialData = credentialData;
+        this.enqueuedAt = System.currentTimeMillis();
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public WriteOperation getOperation() {
+        return operation;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public String getCalendarId() {
+        return calendarId;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public CredentialData getCredentialData() {
+        return credentialData;
+    }
+
+    public long getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public int incrementAttempts() {
+        return ++attempts;
+    }
+
+    public Runnable getOnCompleted() {
+        return onCompleted;
+    }
+
+    public void setOnCompleted(Runnable onCompleted) {
+        this.onCompleted = onCompleted;
+    }
+
+    @Override
+    public String toString() {
+        return "PendingWrite{"
+                + "idempotencyKey='" + idempotencyKey + '\''
+                + ", operation=" + operation
+                + ", userId=" + userId
+                + ", eventId='" + eventId + '\''
+                + '}';
+    }
+}
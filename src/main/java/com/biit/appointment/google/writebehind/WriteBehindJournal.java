@@ -0,0 +1,48 @@
+package com.biit.appointment.google.writebehind;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Durable storage of the writes not yet sent to Google, so they are not lost if the application stops. Define a bean
+ * implementing this interface to use another storage; otherwise {@link FileWriteBehindJournal} is used.
+ */
+public interface WriteBehindJournal {
+
+    /**
+     * Stores a new write. Must be durable when the method returns.
+     */
+    void enqueued(PendingWrite write) throws IOException;
+
+    void completed(String idempotencyKey, String externalReference) throws IOException;
+
+    void failed(String idempotencyKey, String error) throws IOException;
+
+    /**
+     * Gets the writes not completed nor failed, in the order they were enqueued.
+     *
+     * @return the writes to resume.
+     */
+    List<PendingWrite> recover() throws IOException;
+}
@@ -0,0 +1,88 @@
+package com.biit.appointment.google.writebehind;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.UUID;
+
+/**
+ * Outcome of a write sent to Google in background.
+ */
+public class WriteBehindResult {
+
+    private final String idempotencyKey;
+    private final WriteOperation operation;
+    private final UUID userId;
+    private final String externalReference;
+    private final String error;
+
+    public WriteBehindResult(PendingWrite write, String error) {
+        this.idempotencyKey = write.getIdempotencyKey();
+        this.operation = write.getOperation();
+        this.userId = write.getUserId();
+        this.externalReference = write.getEventId();
+        this.error = error;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public WriteOperation getOperation() {
+        return operation;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    /**
+     * Reference of the event on Google.
+     *
+     * @return the created or deleted event id.
+     */
+    public String getExternalReference() {
+        return externalReference;
+    }
+
+    /**
+     * Why the write has been discarded.
+     *
+     * @return the error, or null if the write has succeeded.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindResult{"
+                + "idempotencyKey='" + idempotencyKey + '\''
+                + ", operation=" + operation
+                + ", externalReference='" + externalReference + '\''
+                + ", error='" + error + '\''
+                + '}';
+    }
+}
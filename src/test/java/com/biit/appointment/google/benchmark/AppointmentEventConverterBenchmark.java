@@ -0,0 +1,115 @@
+package com.biit.appointment.google.benchmark;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of a calendar of events, as done on each read and write of {@link com.biit.appointment.google.client.GoogleCalendarService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentEventConverterBenchmark {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    //Fixed dates, so each run converts the same events.
+    private static final long FIRST_EVENT = 1_735_718_400_000L;
+    private static final String[] TIME_ZONES = {"UTC", "Europe/Madrid", "America/New_York", "Asia/Tokyo"};
+    //One of each few events lasts all the day.
+    private static final int ALL_DAY_FREQUENCY = 10;
+
+    @Param({"10000"})
+    private int events;
+
+    private AppointmentEventConverter converter;
+    private List<Event> calendar;
+    private List<AppointmentDTO> appointments;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        converter = new AppointmentEventConverter();
+        calendar = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            calendar.add(createEvent(i, FIRST_EVENT + i * ONE_HOUR));
+        }
+        appointments = converter.convertAll(calendar);
+    }
+
+    @Benchmark
+    public AppointmentDTO convert() {
+        next = (next + 1) % events;
+        return converter.convert(calendar.get(next));
+    }
+
+    @Benchmark
+    public Event reverse() {
+        next = (next + 1) % events;
+        return converter.reverse(appointments.get(next));
+    }
+
+    @Benchmark
+    public List<AppointmentDTO> convertAll() {
+        return converter.convertAll(calendar);
+    }
+
+    @Benchmark
+    public List<Event> reverseAll() {
+        return converter.reverseAll(appointments);
+    }
+
+    private static Event createEvent(int index, long start) {
+        final Event event = new Event().setId("event" + index).setSummary("Appointment " + index)
+                .setDescription("Description " + index).setStatus("confirmed");
+        if (index % ALL_DAY_FREQUENCY == 0) {
+            final long day = start - start % (ONE_HOUR * 24);
+            return event.setStart(new EventDateTime().setDate(new DateTime(true, day, null)))
+                    .setEnd(new EventDateTime().setDate(new DateTime(true, day + ONE_HOUR * 24, null)));
+        }
+        final String timeZone = TIME_ZONES[index % TIME_ZONES.length];
+        return event.setStart(new EventDateTime().setDateTime(new DateTime(start)).setTimeZone(timeZone))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(start + ONE_HOUR)).setTimeZone(timeZone));
+    }
+}
@@ -0,0 +1,102 @@
+package com.biit.appointment.google.benchmark;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.utils.ObjectMapperFactory;
+import com.biit.appointment.google.client.CredentialData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stored credentials are serialized on each token refresh, and read on each request to Google. Gson uses the
+ * {@link com.biit.appointment.google.client.LocalDateTimeAdapter} of the creation date, and Jackson its JsonFormat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CredentialSerializationBenchmark {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    private Gson gson;
+    private ObjectMapper objectMapper;
+    private CredentialData credentialData;
+    private String gsonJson;
+    private String jacksonJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        gson = new Gson();
+        objectMapper = ObjectMapperFactory.getObjectMapper();
+        credentialData = new CredentialData("ya29.a0AfB_byC3accessTokenForBenchmarks", "1//09refreshTokenForBenchmarks", ONE_HOUR, null);
+        credentialData.setCreatedAt(LocalDateTime.of(2025, 1, 1, 10, 30, 15));
+        gsonJson = gson.toJson(credentialData);
+        jacksonJson = objectMapper.writeValueAsString(credentialData);
+    }
+
+    @Benchmark
+    public String gsonSerialize() {
+        return gson.toJson(credentialData);
+    }
+
+    @Benchmark
+    public CredentialData gsonDeserialize() {
+        return gson.fromJson(gsonJson, CredentialData.class);
+    }
+
+    @Benchmark
+    public CredentialData gsonRoundTrip() {
+        return gson.fromJson(gson.toJson(credentialData), CredentialData.class);
+    }
+
+    @Benchmark
+    public String jacksonSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(credentialData);
+    }
+
+    @Benchmark
+    public CredentialData jacksonDeserialize() throws JsonProcessingException {
+        return objectMapper.readValue(jacksonJson, CredentialData.class);
+    }
+
+    @Benchmark
+    public CredentialData jacksonRoundTrip() throws JsonProcessingException {
+        return objectMapper.readValue(objectMapper.writeValueAsString(credentialData), CredentialData.class);
+    }
+}
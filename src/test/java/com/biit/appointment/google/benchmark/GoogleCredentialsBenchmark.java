@@ -0,0 +1,117 @@
+package com.biit.appointment.google.benchmark;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.cache.GoogleClientCache;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.converter.GoogleCalendarCredentialsConverter;
+import com.biit.appointment.google.http.GoogleHttpTransportProvider;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import com.biit.appointment.google.token.GoogleTokenRefreshListener;
+import com.google.api.client.auth.oauth2.Credential;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of obtaining the client credential of a user, with and without the client cache, and of converting it to the
+ * stored credentials. No request is sent, so it does not need network access.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoogleCredentialsBenchmark {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final UUID USER_ID = UUID.fromString("6f1b2a43-0d1c-4c6e-9a53-2f6b3c2d7e10");
+
+    private GoogleHttpTransportProvider googleHttpTransportProvider;
+    private GoogleClientProvider cachedClientProvider;
+    private GoogleClientProvider uncachedClientProvider;
+    private GoogleTokenManager googleTokenManager;
+    private GoogleCalendarCredentialsConverter googleCalendarCredentialsConverter;
+    private CredentialData credentialData;
+    private Credential credential;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException, IOException {
+        googleHttpTransportProvider = new GoogleHttpTransportProvider();
+        cachedClientProvider = new StubClientProviderBuilder(googleHttpTransportProvider).build();
+        final GoogleClientCache disabledCache = new GoogleClientCache();
+        ReflectionTestUtils.setField(disabledCache, "enabled", false);
+        uncachedClientProvider = new StubClientProviderBuilder(googleHttpTransportProvider).clientCache(disabledCache).build();
+        googleTokenManager = new GoogleTokenManager(cachedClientProvider,
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        googleCalendarCredentialsConverter = new GoogleCalendarCredentialsConverter(cachedClientProvider, googleTokenManager);
+
+        //Expiration far in the future, so the cached credential is never discarded during the run.
+        credentialData = new CredentialData("accessToken", "refreshToken", 24 * ONE_HOUR, null);
+        credential = cachedClientProvider.getCredentials(USER_ID, credentialData);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        googleTokenManager.destroy();
+        googleHttpTransportProvider.destroy();
+    }
+
+    @Benchmark
+    public Credential getCredentials() throws GeneralSecurityException, IOException {
+        return cachedClientProvider.getCredentials(credentialData);
+    }
+
+    @Benchmark
+    public Credential getCredentialsWithoutCache() throws GeneralSecurityException, IOException {
+        return uncachedClientProvider.getCredentials(credentialData);
+    }
+
+    @Benchmark
+    public ExternalCalendarCredentialsDTO convertCredential() {
+        return googleCalendarCredentialsConverter.convertElement(USER_ID, credential);
+    }
+
+    @Benchmark
+    public ExternalCalendarCredentialsDTO convertCredentialData() {
+        return googleCalendarCredentialsConverter.convertElement(USER_ID, credentialData);
+    }
+}
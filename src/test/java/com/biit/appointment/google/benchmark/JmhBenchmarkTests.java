@@ -0,0 +1,76 @@
+package com.biit.appointment.google.benchmark;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.logger.TestLogging;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+
+/**
+ * Runs the JMH benchmarks of this package. Each benchmark is executed on a forked JVM, and its average time and allocated
+ * bytes per operation are logged.
+ */
+@Test(groups = {"benchmark"})
+public class JmhBenchmarkTests {
+
+    private static final String ALLOCATION_RESULT = "gc.alloc.rate.norm";
+    private static final String ALLOCATION_UNIT = "B/op";
+
+    @Test
+    public void appointmentEventConverter() throws RunnerException {
+        run(AppointmentEventConverterBenchmark.class);
+    }
+
+    @Test
+    public void credentialSerialization() throws RunnerException {
+        run(CredentialSerializationBenchmark.class);
+    }
+
+    @Test
+    public void googleCredentials() throws RunnerException {
+        run(GoogleCredentialsBenchmark.class);
+    }
+
+    private void run(Class<?> benchmark) throws RunnerException {
+        final Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(benchmark.getName())
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true)
+                .build()).run();
+        Assert.assertFalse(results.isEmpty());
+        for (RunResult result : results) {
+            final Result<?> primary = result.getPrimaryResult();
+            final Result<?> allocation = result.getSecondaryResults().get(ALLOCATION_RESULT);
+            TestLogging.info(this.getClass(), "Benchmark '{}': '{}' {}, '{}' {}.", result.getParams().getBenchmark(),
+                    String.format("%.1f", primary.getScore()), primary.getScoreUnit(),
+                    allocation != null ? String.format("%.0f", allocation.getScore()) : "-", ALLOCATION_UNIT);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.biit.appointment.google.cache;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.core.models.CalendarProviderDTO;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleCalendarService;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.biit.appointment.google.converter.GoogleCalendarCredentialsConverter;
+import com.biit.appointment.google.logger.TestLogging;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import com.biit.appointment.google.token.GoogleTokenRefreshListener;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+@Test(groups = {"eventWindowCacheTests"})
+public class EventWindowCacheTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final String CALENDAR_ID = "calendar";
+    private static final int BENCHMARK_EVENTS = 20000;
+    private static final int HEAP_MEASUREMENTS = 5;
+
+    private GoogleCalendarStubServer stubServer;
+    private GoogleTokenManager googleTokenManager;
+    private EventWindowCache eventWindowCache;
+    private GoogleCalendarService googleCalendarService;
+    private ExternalCalendarCredentialsDTO credentials;
+
+    @BeforeClass(alwaysRun = true)
+    public void startServer() throws IOException {
+        stubServer = new GoogleCalendarStubServer();
+        final GoogleClientProvider googleClientProvider = StubClientProviderBuilder.forServer(stubServer).build();
+        googleTokenManager = new GoogleTokenManager(googleClientProvider,
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        eventWindowCache = new EventWindowCache();
+        ReflectionTestUtils.setField(eventWindowCache, "enabled", true);
+        googleCalendarService = new GoogleCalendarService(googleClientProvider, new AppointmentEventConverter(),
+                new GoogleCalendarCredentialsConverter(googleClientProvider, googleTokenManager), null, googleTokenManager,
+                new LastKnownEventCache(), null, eventWindowCache);
+        credentials = new ExternalCalendarCredentialsDTO();
+        credentials.setCalendarProvider(CalendarProviderDTO.GOOGLE);
+        credentials.setUserId(UUID.randomUUID());
+        credentials.setCredentialData(new CredentialData("access", "refresh", ONE_HOUR, null));
+    }
+
+    @BeforeMethod
+    public void clearCache() {
+        eventWindowCache.clear();
+        ReflectionTestUtils.setField(eventWindowCache, "maxStalenessSeconds", 60L);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        googleTokenManager.destroy();
+        stubServer.close();
+    }
+
+    @Test
+    public void intervalQueries() {
+        final CompactEventStore store = new CompactEventStore();
+        store.replace(0, 100, List.of(createEvent("short", 10, 20), createEvent("long", 0, 90), createEvent("instant", 50, 50),
+                createEvent("late", 80, 100)));
+
+        Assert.assertEquals(getIds(store.query(0, 100)), List.of("long", "short", "instant", "late"));
+        Assert.assertEquals(getIds(store.query(20, 50)), List.of("long"));
+        Assert.assertEquals(getIds(store.query(50, 51)), List.of("long", "instant"));
+        Assert.assertEquals(getIds(store.query(90, 95)), List.of("late"));
+        Assert.assertTrue(store.query(100, 200).isEmpty());
+
+        //Events of the replaced interval are removed, and moved events are not duplicated.
+        final List<AppointmentDTO> before = store.query(0, 100);
+        store.replace(0, 30, List.of(createEvent("late", 20, 25)));
+        Assert.assertEquals(getIds(store.query(0, 100)), List.of("late", "instant"));
+        Assert.assertTrue(store.remove("instant"));
+        Assert.assertFalse(store.remove("instant"));
+        Assert.assertEquals(store.size(), 1);
+        //Views already returned do not change.
+        Assert.assertEquals(getIds(before), List.of("long", "short", "instant", "late"));
+    }
+
+    @Test
+    public void compactEventsAreConvertedAsTheConverter() {
+        final Event event = createEvent("converted", System.currentTimeMillis(), System.currentTimeMillis() + ONE_HOUR)
+                .setSummary("Title").setDescription("Description").setStatus("confirmed");
+        event.getStart().setTimeZone("Europe/Madrid");
+        event.getEnd().setTimeZone("America/New_York");
+        final Event allDayEvent = new Event().setId("allDay").setSummary("Title").setStatus(AppointmentEventConverter.DELETED_STATUS)
+                .setStart(new EventDateTime().setDate(new DateTime(true, 0, null)))
+                .setEnd(new EventDateTime().setDate(new DateTime(true, ONE_HOUR * 24, null)));
+
+        final CompactEventStore store = new CompactEventStore();
+        store.replace(Long.MIN_VALUE, Long.MAX_VALUE, List.of(event, allDayEvent));
+        //Ids, one title, one description.
+        Assert.assertEquals(store.getPooledStrings(), 4);
+
+        final AppointmentEventConverter converter = new AppointmentEventConverter();
+        for (AppointmentDTO appointment : store.query(Long.MIN_VALUE, Long.MAX_VALUE)) {
+            final AppointmentDTO expected = converter.convert(appointment.getExternalReference().equals("allDay") ? allDayEvent : event);
+            Assert.assertEquals(appointment.getTitle(), expected.getTitle());
+            Assert.assertEquals(appointment.getDescription(), expected.getDescription());
+            Assert.assertEquals(appointment.getStartTime(), expected.getStartTime());
+            Assert.assertEquals(appointment.getEndTime(), expected.getEndTime());
+            Assert.assertEquals(appointment.isAllDay(), expected.isAllDay());
+            Assert.assertEquals(appointment.isDeleted(), expected.isDeleted());
+            Assert.assertEquals(appointment.getCalendarProvider(), expected.getCalendarProvider());
+        }
+    }
+
+    @Test
+    public void coveredIntervalsAreAnsweredLocally() {
+        final UUID userId = UUID.randomUUID();
+        Assert.assertNull(eventWindowCache.get(userId, CALENDAR_ID, 0, 100));
+
+        eventWindowCache.put(userId, CALENDAR_ID, 0, 50, List.of(createEvent("first", 10, 20)),
+                eventWindowCache.getVersion(userId, CALENDAR_ID));
+        eventWindowCache.put(userId, CALENDAR_ID, 40, 100, List.of(createEvent("second", 60, 70)),
+                eventWindowCache.getVersion(userId, CALENDAR_ID));
+        Assert.assertEquals(getIds(eventWindowCache.get(userId, CALENDAR_ID, 0, 100).getAppointments()), List.of("first", "second"));
+        Assert.assertEquals(getIds(eventWindowCache.get(userId, CALENDAR_ID, 15, 45).getAppointments()), List.of("first"));
+        Assert.assertNull(eventWindowCache.get(userId, CALENDAR_ID, 90, 110));
+        Assert.assertNull(eventWindowCache.get(UUID.randomUUID(), CALENDAR_ID, 0, 100));
+
+        //A creation between 30 and 35 invalidates only the window that contains it.
+        eventWindowCache.invalidate(userId, CALENDAR_ID, 30, 35);
+        Assert.assertNull(eventWindowCache.get(userId, CALENDAR_ID, 0, 100));
+        Assert.assertNotNull(eventWindowCache.get(userId, CALENDAR_ID, 0, 30));
+        Assert.assertNotNull(eventWindowCache.get(userId, CALENDAR_ID, 40, 100));
+    }
+
+    @Test
+    public void readsOlderThanWritesAreNotStored() {
+        final UUID userId = UUID.randomUUID();
+        //Written while reading a calendar not cached yet.
+        long version = eventWindowCache.getVersion(userId, CALENDAR_ID);
+        eventWindowCache.invalidate(userId, CALENDAR_ID, 10, 20);
+        eventWindowCache.put(userId, CALENDAR_ID, 0, 100, List.of(), version);
+        Assert.assertNull(eventWindowCache.get(userId, CALENDAR_ID, 0, 100));
+
+        version = eventWindowCache.getVersion(userId, CALENDAR_ID);
+        eventWindowCache.remove(userId, CALENDAR_ID, "deleted");
+        eventWindowCache.put(userId, CALENDAR_ID, 0, 100, List.of(createEvent("deleted", 10, 20)), version);
+        Assert.assertNull(eventWindowCache.get(userId, CALENDAR_ID, 0, 100));
+
+        version = eventWindowCache.getVersion(userId, CALENDAR_ID);
+        eventWindowCache.invalidate(userId, CALENDAR_ID);
+        eventWindowCache.put(userId, CALENDAR_ID, 0, 100, List.of(), version);
+        Assert.assertNull(eventWindowCache.get(userId, CALENDAR_ID, 0, 100));
+
+        version = eventWindowCache.getVersion(userId, CALENDAR_ID);
+        eventWindowCache.clear();
+        eventWindowCache.put(userId, CALENDAR_ID, 0, 100, List.of(), version);
+        Assert.assertNull(eventWindowCache.get(userId, CALENDAR_ID, 0, 100));
+
+        //Nothing written meanwhile.
+        eventWindowCache.put(userId, CALENDAR_ID, 0, 100, List.of(), eventWindowCache.getVersion(userId, CALENDAR_ID));
+        Assert.assertNotNull(eventWindowCache.get(userId, CALENDAR_ID, 0, 100));
+    }
+
+    @Test
+    public void readsAreServedFromWindows() {
+        final LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        final String eventId = googleCalendarService.addEvent(createAppointment(today.plusDays(1).plusHours(10)), credentials);
+
+        final int requestsBefore = stubServer.getHttpRequests();
+        final List<AppointmentDTO> week = googleCalendarService.getEvents(today, today.plusDays(7), credentials);
+        Assert.assertTrue(week.stream().anyMatch(appointment -> eventId.equals(appointment.getExternalReference())));
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, 1);
+
+        //Inside the week: no request.
+        final List<AppointmentDTO> nextDays = googleCalendarService.getEvents(today.plusDays(1), today.plusDays(4), credentials);
+        Assert.assertTrue(nextDays.stream().anyMatch(appointment -> eventId.equals(appointment.getExternalReference())));
+        Assert.assertTrue(googleCalendarService.getEvents(today, today.plusDays(1), credentials).stream()
+                .noneMatch(appointment -> eventId.equals(appointment.getExternalReference())));
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, 1);
+
+        //Outside the week.
+        googleCalendarService.getEvents(today.plusDays(6), today.plusDays(8), credentials);
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, 2);
+    }
+
+    @Test
+    public void writesInvalidateWindows() {
+        final LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        googleCalendarService.getEvents(today, today.plusDays(7), credentials);
+
+        final AppointmentDTO appointment = createAppointment(today.plusDays(2).plusHours(9));
+        appointment.setExternalReference(googleCalendarService.addEvent(appointment, credentials));
+        int requestsBefore = stubServer.getHttpRequests();
+        Assert.assertTrue(googleCalendarService.getEvents(today, today.plusDays(7), credentials).stream()
+                .anyMatch(event -> appointment.getExternalReference().equals(event.getExternalReference())));
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, 1);
+
+        googleCalendarService.deleteEvent(appointment, credentials);
+        requestsBefore = stubServer.getHttpRequests();
+        Assert.assertTrue(googleCalendarService.getEvents(today, today.plusDays(7), credentials).stream()
+                .noneMatch(event -> appointment.getExternalReference().equals(event.getExternalReference())));
+        //Deletions do not need to read again.
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, 0);
+    }
+
+    @Test
+    public void staleWindowsAreReadAgain() throws InterruptedException {
+        final LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        ReflectionTestUtils.setField(eventWindowCache, "maxStalenessSeconds", 1L);
+        googleCalendarService.getEvents(today, today.plusDays(1), credentials);
+        Thread.sleep(1100);
+
+        final int requestsBefore = stubServer.getHttpRequests();
+        googleCalendarService.getEvents(today, today.plusDays(1), credentials);
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, 1);
+    }
+
+    @Test(groups = {"benchmark"})
+    public void heapFootprint() {
+        final List<Event> events = new ArrayList<>();
+        for (int i = 0; i < BENCHMARK_EVENTS; i++) {
+            events.add(createEvent("event" + i, i * ONE_HOUR, i * ONE_HOUR + ONE_HOUR / 2)
+                    .setSummary("Appointment " + (i % 20)).setDescription("Organization " + (i % 5)).setStatus("confirmed"));
+        }
+
+        final long eventBytes = getRetainedBytes(() -> copyEvents(events));
+        final AppointmentEventConverter converter = new AppointmentEventConverter();
+        final long dtoBytes = getRetainedBytes(() -> converter.convertAll(copyEvents(events)));
+        final long compactBytes = getRetainedBytes(() -> {
+            final CompactEventStore store = new CompactEventStore();
+            store.replace(Long.MIN_VALUE, Long.MAX_VALUE, copyEvents(events));
+            return store;
+        });
+
+        TestLogging.info(this.getClass(), "Heap per cached event: parsed '{}' bytes, converted '{}' bytes, compact '{}' bytes.",
+                eventBytes / BENCHMARK_EVENTS, dtoBytes / BENCHMARK_EVENTS, compactBytes / BENCHMARK_EVENTS);
+        Assert.assertTrue(compactBytes < eventBytes);
+    }
+
+    private List<Event> copyEvents(List<Event> events) {
+        final List<Event> copies = new ArrayList<>(events.size());
+        for (Event event : events) {
+            copies.add(event.clone());
+        }
+        return copies;
+    }
+
+    /**
+     * Approximate heap retained by the object built by the supplier, as the median used heap difference after collections.
+     */
+    private long getRetainedBytes(Supplier<Object> supplier) {
+        final long[] measurements = new long[HEAP_MEASUREMENTS];
+        for (int i = 0; i < HEAP_MEASUREMENTS; i++) {
+            final long before = getUsedHeap();
+            final Object retained = supplier.get();
+            measurements[i] = getUsedHeap() - before;
+            //Keeps the object alive until measured.
+            Assert.assertNotNull(retained);
+        }
+        Arrays.sort(measurements);
+        return measurements[HEAP_MEASUREMENTS / 2];
+    }
+
+    private long getUsedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        //Collects until the used heap is stable, as a single request may leave garbage behind.
+        for (int i = 0; i < HEAP_MEASUREMENTS; i++) {
+            System.gc();
+            final long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                break;
+            }
+            used = current;
+        }
+        return used;
+    }
+
+    private List<String> getIds(List<AppointmentDTO> appointments) {
+        return appointments.stream().map(AppointmentDTO::getExternalReference).toList();
+    }
+
+    private Event createEvent(String id, long start, long end) {
+        return new Event().setId(id).setStart(new EventDateTime().setDateTime(new DateTime(start)).setTimeZone("UTC"))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(end)).setTimeZone("UTC"));
+    }
+
+    private AppointmentDTO createAppointment(LocalDateTime startTime) {
+        final AppointmentDTO appointment = new AppointmentDTO();
+        appointment.setTitle("Cached appointment");
+        appointment.setStartTime(startTime);
+        appointment.setEndTime(startTime.plusHours(1));
+        return appointment;
+    }
+}
@@ -0,0 +1,133 @@
+package com.biit.appointment.google.cache;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.client.UserCredential;
+import com.biit.appointment.google.http.GoogleHttpTransportProvider;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.google.api.client.auth.oauth2.BearerToken;
+import com.google.api.client.auth.oauth2.Credential;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.UUID;
+
+@Test(groups = {"clientCacheTests"})
+public class GoogleClientCacheTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    @Test
+    public void sameCredentialIsReused() throws GeneralSecurityException, IOException {
+        final GoogleClientCache googleClientCache = new GoogleClientCache();
+        final GoogleClientProvider googleClientProvider = new StubClientProviderBuilder(new GoogleHttpTransportProvider())
+                .clientCache(googleClientCache).build();
+        final CredentialData credentialData = new CredentialData("access", "refresh", ONE_HOUR, null);
+
+        final Credential credential = googleClientProvider.getCredentials(credentialData);
+        Assert.assertSame(googleClientProvider.getCredentials(credentialData), credential);
+        Assert.assertEquals(googleClientCache.getMisses(), 1);
+        Assert.assertEquals(googleClientCache.getHits(), 1);
+    }
+
+    @Test
+    public void newAccessTokenIsNotServedFromCache() {
+        final GoogleClientCache googleClientCache = new GoogleClientCache();
+        final Credential credential = new Credential.Builder(BearerToken.authorizationHeaderAccessMethod()).build();
+        credential.setAccessToken("access");
+        googleClientCache.putCredential(new CredentialData("access", "refresh", ONE_HOUR, null), credential);
+
+        Assert.assertNull(googleClientCache.getCredential(new CredentialData("newAccess", "refresh", ONE_HOUR, null)));
+        Assert.assertEquals(googleClientCache.size(), 0);
+    }
+
+    @Test
+    public void expiredTokenIsNotServedFromCache() {
+        final GoogleClientCache googleClientCache = new GoogleClientCache();
+        final Credential credential = new Credential.Builder(BearerToken.authorizationHeaderAccessMethod()).build();
+        credential.setAccessToken("access");
+        //Expires inside the safety margin.
+        final CredentialData credentialData = new CredentialData("access", "refresh", 1000L, null);
+        googleClientCache.putCredential(credentialData, credential);
+
+        Assert.assertNull(googleClientCache.getCredential(credentialData));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        final GoogleClientCache googleClientCache = new GoogleClientCache();
+        ReflectionTestUtils.setField(googleClientCache, "maxSize", 2);
+        final CredentialData first = new CredentialData("access1", "refresh1", ONE_HOUR, null);
+        final CredentialData second = new CredentialData("access2", "refresh2", ONE_HOUR, null);
+        final CredentialData third = new CredentialData("access3", "refresh3", ONE_HOUR, null);
+        googleClientCache.putCredential(first, credential("access1"));
+        googleClientCache.putCredential(second, credential("access2"));
+        //Use first one, so second is the eldest.
+        Assert.assertNotNull(googleClientCache.getCredential(first));
+        googleClientCache.putCredential(third, credential("access3"));
+
+        Assert.assertEquals(googleClientCache.size(), 2);
+        Assert.assertEquals(googleClientCache.getEvictions(), 1);
+        Assert.assertNotNull(googleClientCache.getCredential(first));
+        Assert.assertNull(googleClientCache.getCredential(second));
+        Assert.assertNotNull(googleClientCache.getCredential(third));
+    }
+
+    @Test
+    public void cachedCredentialOfAnotherUserIsNotChanged() throws GeneralSecurityException, IOException {
+        final GoogleClientProvider googleClientProvider = new StubClientProviderBuilder(new GoogleHttpTransportProvider()).build();
+        final CredentialData credentialData = new CredentialData("access", "refresh", ONE_HOUR, null);
+        final UUID firstUser = UUID.randomUUID();
+        final UUID secondUser = UUID.randomUUID();
+
+        final UserCredential first = (UserCredential) googleClientProvider.getCredentials(firstUser, credentialData);
+        Assert.assertSame(googleClientProvider.getCredentials(firstUser, credentialData), first);
+        final UserCredential second = (UserCredential) googleClientProvider.getCredentials(secondUser, credentialData);
+        Assert.assertNotSame(second, first);
+        Assert.assertEquals(first.getUserId(), firstUser);
+        Assert.assertEquals(second.getUserId(), secondUser);
+    }
+
+    @Test
+    public void expirationIsKeptFromCredential() {
+        final long expiration = System.currentTimeMillis() + ONE_HOUR;
+        final Credential credential = credential("access");
+        credential.setExpirationTimeMilliseconds(expiration);
+
+        final CredentialData credentialData = new CredentialData(credential);
+        Assert.assertEquals(credentialData.getAccessTokenExpirationEpochMilliseconds().longValue(), expiration);
+        //Stored as a lifetime, as the token endpoint returns it.
+        Assert.assertTrue(credentialData.getExpirationTimeMilliseconds() <= ONE_HOUR);
+        Assert.assertTrue(credentialData.getExpirationTimeMilliseconds() > ONE_HOUR - 60_000L);
+    }
+
+    private Credential credential(String accessToken) {
+        final Credential credential = new Credential.Builder(BearerToken.authorizationHeaderAccessMethod()).build();
+        credential.setAccessToken(accessToken);
+        return credential;
+    }
+}
@@ -0,0 +1,105 @@
+package com.biit.appointment.google.cache;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.stub.StubEvents;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.services.calendar.model.Event;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+@Test(groups = {"eventCacheTests"})
+public class GoogleEventCacheTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    private GoogleCalendarStubServer stubServer;
+    private GoogleEventCache googleEventCache;
+    private GoogleClientProvider googleClientProvider;
+    private Credential credential;
+
+    @BeforeClass
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        googleEventCache = new GoogleEventCache();
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).eventCache(googleEventCache).build();
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        stubServer.close();
+    }
+
+    @Test
+    public void notModifiedEventIsServedFromCache() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Cached appointment"), credential);
+
+        googleEventCache.clear();
+        final long hitsBefore = googleEventCache.getHits();
+        final long bytesSavedBefore = googleEventCache.getBytesSaved();
+        final long bytesBeforeDownload = stubServer.getBytesSent();
+        final Event event = googleClientProvider.getEvent(eventId, credential);
+        final long bytesBefore = stubServer.getBytesSent();
+        final Event cachedEvent = googleClientProvider.getEvent(eventId, credential);
+
+        Assert.assertEquals(stubServer.getBytesSent(), bytesBefore);
+        Assert.assertEquals(cachedEvent.getSummary(), event.getSummary());
+        Assert.assertEquals(cachedEvent.getEtag(), event.getEtag());
+        Assert.assertEquals(googleEventCache.getHits() - hitsBefore, 1);
+        //The stub does not compress the responses.
+        Assert.assertEquals(googleEventCache.getBytesSaved() - bytesSavedBefore, bytesBefore - bytesBeforeDownload);
+        Assert.assertTrue(googleEventCache.getHitRatio() > 0);
+    }
+
+    @Test
+    public void modifiedEventIsDownloaded() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Cached appointment"), credential);
+        googleClientProvider.getEvent(eventId, credential);
+
+        final Event storedEvent = stubServer.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID).get(eventId);
+        storedEvent.setSummary("Changed").setEtag("\"changed\"");
+
+        Assert.assertEquals(googleClientProvider.getEvent(eventId, credential).getSummary(), "Changed");
+    }
+
+    @Test
+    public void deletedEventIsRemovedFromCache() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Cached appointment"), credential);
+        googleClientProvider.getEvent(eventId, credential);
+        final int sizeBefore = googleEventCache.size();
+
+        googleClientProvider.deleteCalendarEvent(eventId, credential);
+
+        Assert.assertEquals(googleEventCache.size(), sizeBefore - 1);
+        Assert.assertEquals(googleClientProvider.getEvent(eventId, credential).getStatus(), "cancelled");
+    }
+}
@@ -0,0 +1,286 @@
+package com.biit.appointment.google.circuit;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.exceptions.ExternalCalendarActionException;
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.core.models.CalendarProviderDTO;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.cache.LastKnownEventCache;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.EventReadResult;
+import com.biit.appointment.google.client.GoogleCalendarService;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.biit.appointment.google.converter.GoogleCalendarCredentialsConverter;
+import com.biit.appointment.google.ratelimit.GoogleRateLimiter;
+import com.biit.appointment.google.retry.GoogleRetryPolicy;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.stub.StubEvents;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import com.biit.appointment.google.token.GoogleTokenRefreshListener;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.http.HttpResponseException;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@Test(groups = {"circuitBreakerTests"})
+public class GoogleCircuitBreakerTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final int WINDOW_SIZE = 4;
+
+    private GoogleCalendarStubServer stubServer;
+    private GoogleCircuitBreaker googleCircuitBreaker;
+    private GoogleClientProvider googleClientProvider;
+    private GoogleTokenManager googleTokenManager;
+    private GoogleCalendarService googleCalendarService;
+    private Credential credential;
+
+    @BeforeClass
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        final GoogleRetryPolicy googleRetryPolicy = new GoogleRetryPolicy();
+        ReflectionTestUtils.setField(googleRetryPolicy, "enabled", false);
+        final GoogleRateLimiter googleRateLimiter = new GoogleRateLimiter();
+        ReflectionTestUtils.setField(googleRateLimiter, "enabled", false);
+        googleCircuitBreaker = new GoogleCircuitBreaker();
+        ReflectionTestUtils.setField(googleCircuitBreaker, "windowSize", WINDOW_SIZE);
+        ReflectionTestUtils.setField(googleCircuitBreaker, "minimumCalls", WINDOW_SIZE);
+        ReflectionTestUtils.setField(googleCircuitBreaker, "halfOpenCalls", 1);
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).retryPolicy(googleRetryPolicy).rateLimiter(googleRateLimiter)
+                .circuitBreaker(googleCircuitBreaker).build();
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+
+        googleTokenManager = new GoogleTokenManager(googleClientProvider,
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        googleCalendarService = new GoogleCalendarService(googleClientProvider, new AppointmentEventConverter(),
+                new GoogleCalendarCredentialsConverter(googleClientProvider, googleTokenManager), null, googleTokenManager,
+                new LastKnownEventCache(), null, null);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void resetCircuit() {
+        stubServer.clearScriptedErrors();
+        ReflectionTestUtils.setField(googleCircuitBreaker, "openSeconds", 30L);
+        googleCircuitBreaker.reset();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        googleTokenManager.destroy();
+        stubServer.close();
+    }
+
+    @Test
+    public void opensOnServerErrors() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Circuit breaker event"), credential);
+        openCircuit(eventId);
+        Assert.assertEquals(googleCircuitBreaker.getState(), CircuitState.OPEN);
+
+        //Fails without calling Google.
+        final int requestsBefore = stubServer.getHttpRequests();
+        Assert.assertThrows(CircuitOpenException.class, () -> googleClientProvider.getEvent(eventId, credential));
+        Assert.assertEquals(stubServer.getHttpRequests(), requestsBefore);
+    }
+
+    @Test
+    public void clientErrorsDoNotOpen() throws GeneralSecurityException, IOException {
+        for (int i = 0; i < WINDOW_SIZE * 2; i++) {
+            Assert.assertFalse(googleClientProvider.deleteCalendarEvent(GoogleClientProvider.PRIMARY_CALENDAR_ID, "doesNotExist",
+                    null, credential));
+        }
+        Assert.assertEquals(googleCircuitBreaker.getState(), CircuitState.CLOSED);
+    }
+
+    @Test
+    public void closesAfterHalfOpenSuccess() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Circuit breaker event"), credential);
+        ReflectionTestUtils.setField(googleCircuitBreaker, "openSeconds", 0L);
+        openCircuit(eventId);
+        Assert.assertEquals(googleCircuitBreaker.getState(), CircuitState.HALF_OPEN);
+
+        Assert.assertNotNull(googleClientProvider.getEvent(eventId, credential));
+        Assert.assertEquals(googleCircuitBreaker.getState(), CircuitState.CLOSED);
+    }
+
+    @Test
+    public void reopensAfterHalfOpenFailure() throws GeneralSecurityException, IOException, InterruptedException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Circuit breaker event"), credential);
+        ReflectionTestUtils.setField(googleCircuitBreaker, "openSeconds", 1L);
+        openCircuit(eventId);
+        Thread.sleep(1100);
+        Assert.assertEquals(googleCircuitBreaker.getState(), CircuitState.HALF_OPEN);
+
+        stubServer.scriptError(503, null, 1);
+        Assert.assertThrows(HttpResponseException.class, () -> googleClientProvider.getEvent(eventId, credential));
+        Assert.assertEquals(googleCircuitBreaker.getState(), CircuitState.OPEN);
+    }
+
+    @Test
+    public void runtimeErrorsAreNotCounted() throws IOException {
+        ReflectionTestUtils.setField(googleCircuitBreaker, "openSeconds", 0L);
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+            failingCall();
+        }
+        Assert.assertEquals(googleCircuitBreaker.getState(), CircuitState.HALF_OPEN);
+
+        //Neither closes the circuit nor takes the half-open call.
+        Assert.assertThrows(IllegalStateException.class, () -> googleCircuitBreaker.execute("test", () -> {
+            throw new IllegalStateException("Bug");
+        }));
+        Assert.assertEquals(googleCircuitBreaker.getState(), CircuitState.HALF_OPEN);
+        Assert.assertEquals(googleCircuitBreaker.execute("test", () -> "answer"), "answer");
+        Assert.assertEquals(googleCircuitBreaker.getState(), CircuitState.CLOSED);
+    }
+
+    @Test
+    public void callsStartedBeforeATransitionAreNotCounted() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> slowCall = executor.submit(() -> googleCircuitBreaker.execute("slow", () -> {
+                started.countDown();
+                await(release);
+                throw new IOException("Connection reset");
+            }));
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            //Opened and closed again while the slow call is running.
+            ReflectionTestUtils.setField(googleCircuitBreaker, "openSeconds", 0L);
+            for (int i = 0; i < WINDOW_SIZE; i++) {
+                failingCall();
+            }
+            googleCircuitBreaker.execute("test", () -> "answer");
+            Assert.assertEquals(googleCircuitBreaker.getState(), CircuitState.CLOSED);
+            release.countDown();
+            Assert.assertThrows(ExecutionException.class, () -> slowCall.get(5, TimeUnit.SECONDS));
+
+            //The slow failure is not on the new window.
+            for (int i = 0; i < WINDOW_SIZE - 1; i++) {
+                failingCall();
+            }
+            Assert.assertEquals(googleCircuitBreaker.getState(), CircuitState.CLOSED);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void lastKnownEventsWhenOpen() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Circuit breaker event"), credential);
+        final ExternalCalendarCredentialsDTO credentials = createCredentials(UUID.randomUUID());
+        final LocalDateTime from = LocalDateTime.now().minusDays(1);
+        final LocalDateTime to = LocalDateTime.now().plusDays(1);
+
+        final EventReadResult result = googleCalendarService.readEvents(from, to, credentials);
+        Assert.assertFalse(result.isStale());
+        Assert.assertTrue(result.getAppointments().stream().anyMatch(appointment -> eventId.equals(appointment.getExternalReference())));
+
+        openCircuit(eventId);
+        final EventReadResult staleResult = googleCalendarService.readEvents(from, to, credentials);
+        Assert.assertTrue(staleResult.isStale());
+        Assert.assertEquals(staleResult.getAppointments().size(),
+                result.getAppointments().stream().filter(appointment -> !appointment.isDeleted()).count());
+        final AppointmentDTO appointment = googleCalendarService.getEvent(eventId, credentials);
+        Assert.assertEquals(appointment.getExternalReference(), eventId);
+
+        //Nothing is known of this user.
+        Assert.assertThrows(ExternalCalendarActionException.class,
+                () -> googleCalendarService.readEvents(from, to, createCredentials(UUID.randomUUID())));
+    }
+
+    @Test
+    public void lastKnownEventsOnlyForReadIntervals() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Circuit breaker event"), credential);
+        final ExternalCalendarCredentialsDTO credentials = createCredentials(UUID.randomUUID());
+        final LocalDateTime from = LocalDateTime.now().minusDays(1);
+        final LocalDateTime to = LocalDateTime.now().plusDays(1);
+        Assert.assertTrue(googleCalendarService.readEvents(from, to, credentials).getAppointments().stream()
+                .anyMatch(appointment -> eventId.equals(appointment.getExternalReference())));
+
+        //Deleted in Google. The next read of the interval purges it.
+        Assert.assertTrue(googleClientProvider.deleteCalendarEvent(GoogleClientProvider.PRIMARY_CALENDAR_ID, eventId, null, credential));
+        Assert.assertTrue(googleCalendarService.readEvents(from, to, credentials).getAppointments().stream()
+                .noneMatch(appointment -> eventId.equals(appointment.getExternalReference()) && !appointment.isDeleted()));
+
+        openCircuit(eventId);
+        Assert.assertTrue(googleCalendarService.readEvents(from, to, credentials).getAppointments().stream()
+                .noneMatch(appointment -> eventId.equals(appointment.getExternalReference())));
+        Assert.assertTrue(googleCalendarService.readEvents(from.plusHours(1), to.minusHours(1), credentials).isStale());
+        //Never read, it is not free time.
+        Assert.assertThrows(ExternalCalendarActionException.class,
+                () -> googleCalendarService.readEvents(from.minusDays(1), to, credentials));
+        Assert.assertThrows(ExternalCalendarActionException.class,
+                () -> googleCalendarService.readEvents(to.plusDays(1), to.plusDays(2), credentials));
+    }
+
+    private void failingCall() {
+        Assert.assertThrows(IOException.class, () -> googleCircuitBreaker.execute("test", () -> {
+            throw new IOException("Connection reset");
+        }));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void openCircuit(String eventId) {
+        stubServer.scriptError(503, null, WINDOW_SIZE);
+        //The last calls may be already rejected by the circuit breaker.
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+            Assert.assertThrows(IOException.class, () -> googleClientProvider.getEvent(eventId, credential));
+        }
+        stubServer.clearScriptedErrors();
+    }
+
+    private ExternalCalendarCredentialsDTO createCredentials(UUID userId) {
+        final ExternalCalendarCredentialsDTO credentials = new ExternalCalendarCredentialsDTO();
+        credentials.setCalendarProvider(CalendarProviderDTO.GOOGLE);
+        credentials.setUserId(userId);
+        credentials.setCredentialData(new CredentialData("access", "refresh", ONE_HOUR, null));
+        return credentials;
+    }
+}
@@ -0,0 +1,279 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.exceptions.ExternalCalendarActionException;
+import com.biit.appointment.core.exceptions.ExternalCalendarNotFoundException;
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.core.models.CalendarProviderDTO;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.http.GoogleDeadline;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Test(groups = {"asyncServiceTests"})
+public class AsyncGoogleCalendarServiceTests {
+
+    private static final int USERS = 20;
+
+    @Test
+    public void callsRunConcurrently() throws Exception {
+        //All calls must be waiting at the same time to pass the latch.
+        final CountDownLatch allStarted = new CountDownLatch(USERS);
+        final GoogleCalendarService googleCalendarService = new BlockingCalendarService(allStarted);
+        final ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        try {
+            final AsyncGoogleCalendarService asyncService = new AsyncGoogleCalendarService(googleCalendarService, executor);
+            final List<CompletableFuture<List<AppointmentDTO>>> futures = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                futures.add(asyncService.getEvents(LocalDateTime.now(), LocalDateTime.now().plusDays(1), null));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+            for (CompletableFuture<List<AppointmentDTO>> future : futures) {
+                Assert.assertEquals(future.get().size(), 1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void errorsAreMappedToActionException() throws Exception {
+        final GoogleCalendarService googleCalendarService = new FailingCalendarService();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final AsyncGoogleCalendarService asyncService = new AsyncGoogleCalendarService(googleCalendarService, executor);
+            assertActionException(asyncService.getEvent("event", null));
+            assertActionException(asyncService.addEvent(new AppointmentDTO(), null));
+            //Not mapped, as the blocking service.
+            try {
+                asyncService.deleteEvent(new AppointmentDTO(), null).get(5, TimeUnit.SECONDS);
+                Assert.fail("Exception expected.");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof ExternalCalendarNotFoundException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void usersAreFetchedInParallelWithLimitAndTimeout() throws Exception {
+        final int maxParallelUsers = 4;
+        final UUID slowUser = UUID.randomUUID();
+        final ParallelCalendarService googleCalendarService = new ParallelCalendarService(slowUser);
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final AsyncGoogleCalendarService asyncService = new AsyncGoogleCalendarService(googleCalendarService, executor);
+            ReflectionTestUtils.setField(asyncService, "maxParallelUsers", maxParallelUsers);
+            ReflectionTestUtils.setField(asyncService, "userTimeoutSeconds", 1L);
+            final List<ExternalCalendarCredentialsDTO> credentials = new ArrayList<>();
+            credentials.add(new ExternalCalendarCredentialsDTO(slowUser, CalendarProviderDTO.GOOGLE));
+            for (int i = 0; i < USERS; i++) {
+                credentials.add(new ExternalCalendarCredentialsDTO(UUID.randomUUID(), CalendarProviderDTO.GOOGLE));
+            }
+
+            final long start = System.currentTimeMillis();
+            final MultiUserEventsResult result = asyncService.getEvents(credentials, LocalDateTime.now(), LocalDateTime.now().plusDays(1));
+            final long elapsed = System.currentTimeMillis() - start;
+
+            Assert.assertEquals(result.getEvents().size(), USERS);
+            Assert.assertEquals(result.getFailures().size(), 1);
+            Assert.assertTrue(result.getFailures().get(slowUser).getCause() instanceof TimeoutException);
+            Assert.assertTrue(googleCalendarService.getMaxConcurrentCalls() <= maxParallelUsers);
+            //Sequentially would be 20 * 100 ms plus the slow user.
+            Assert.assertTrue(elapsed < 2000, "Elapsed " + elapsed + " ms");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void slotIsKeptUntilTheCallEnds() throws Exception {
+        final int maxParallelUsers = 2;
+        final StubbornCalendarService googleCalendarService = new StubbornCalendarService();
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final AsyncGoogleCalendarService asyncService = new AsyncGoogleCalendarService(googleCalendarService, executor);
+            ReflectionTestUtils.setField(asyncService, "maxParallelUsers", maxParallelUsers);
+            ReflectionTestUtils.setField(asyncService, "userTimeoutSeconds", 1L);
+            final List<ExternalCalendarCredentialsDTO> credentials = new ArrayList<>();
+            for (int i = 0; i < maxParallelUsers * 2; i++) {
+                credentials.add(new ExternalCalendarCredentialsDTO(UUID.randomUUID(), CalendarProviderDTO.GOOGLE));
+            }
+
+            final MultiUserEventsResult result = asyncService.getEvents(credentials, LocalDateTime.now(), LocalDateTime.now().plusDays(1));
+
+            //The first users time out, but ignore the interruption. The next ones wait for them.
+            Assert.assertEquals(result.getFailures().size(), maxParallelUsers);
+            Assert.assertTrue(googleCalendarService.getMaxConcurrentCalls() <= maxParallelUsers,
+                    "Concurrent calls " + googleCalendarService.getMaxConcurrentCalls());
+            //Each call is bounded by the deadline.
+            Assert.assertTrue(googleCalendarService.getMaxRemainingMilliseconds() <= 1000);
+            //No timeout is left scheduled.
+            Assert.assertTrue(((ScheduledThreadPoolExecutor) ReflectionTestUtils.getField(asyncService, "timeoutScheduler"))
+                    .getQueue().isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertActionException(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("Exception expected.");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ExternalCalendarActionException);
+        }
+    }
+
+    private static class BlockingCalendarService extends GoogleCalendarService {
+        private final CountDownLatch allStarted;
+
+        BlockingCalendarService(CountDownLatch allStarted) {
+            super(null, null, null, null, null, null, null, null);
+            this.allStarted = allStarted;
+        }
+
+        @Override
+        public List<AppointmentDTO> getEvents(LocalDateTime startingFrom, LocalDateTime endingTo, ExternalCalendarCredentialsDTO credentials) {
+            allStarted.countDown();
+            try {
+                if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Calls are not concurrent.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(new AppointmentDTO());
+        }
+    }
+
+    private static class ParallelCalendarService extends GoogleCalendarService {
+        private final UUID slowUser;
+        private final AtomicInteger concurrentCalls = new AtomicInteger();
+        private final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+
+        ParallelCalendarService(UUID slowUser) {
+            super(null, null, null, null, null, null, null, null);
+            this.slowUser = slowUser;
+        }
+
+        @Override
+        public List<AppointmentDTO> getEvents(LocalDateTime startingFrom, LocalDateTime endingTo, ExternalCalendarCredentialsDTO credentials) {
+            maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(credentials.getUserId().equals(slowUser) ? 60_000 : 100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrentCalls.decrementAndGet();
+            }
+            return List.of(new AppointmentDTO());
+        }
+
+        int getMaxConcurrentCalls() {
+            return maxConcurrentCalls.get();
+        }
+    }
+
+    /**
+     * The first calls take longer than the timeout and ignore the interruption.
+     */
+    private static class StubbornCalendarService extends GoogleCalendarService {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger concurrentCalls = new AtomicInteger();
+        private final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+        private final AtomicLong maxRemainingMilliseconds = new AtomicLong();
+
+        StubbornCalendarService() {
+            super(null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public List<AppointmentDTO> getEvents(LocalDateTime startingFrom, LocalDateTime endingTo, ExternalCalendarCredentialsDTO credentials) {
+            maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+            maxRemainingMilliseconds.accumulateAndGet(GoogleDeadline.getRemainingMilliseconds(), Math::max);
+            try {
+                final long end = System.currentTimeMillis() + (calls.incrementAndGet() <= 2 ? 1500 : 50);
+                while (System.currentTimeMillis() < end) {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        //Ignored.
+                    }
+                }
+            } finally {
+                concurrentCalls.decrementAndGet();
+            }
+            return List.of(new AppointmentDTO());
+        }
+
+        int getMaxConcurrentCalls() {
+            return maxConcurrentCalls.get();
+        }
+
+        long getMaxRemainingMilliseconds() {
+            return maxRemainingMilliseconds.get();
+        }
+    }
+
+    private static class FailingCalendarService extends GoogleCalendarService {
+
+        FailingCalendarService() {
+            super(null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public AppointmentDTO getEvent(String externalReference, ExternalCalendarCredentialsDTO credentials) {
+            throw new ExternalCalendarActionException(this.getClass(), new IOException("Google not available"));
+        }
+
+        @Override
+        public String addEvent(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials) {
+            //Unexpected errors are mapped too.
+            throw new IllegalArgumentException("Invalid appointment");
+        }
+
+        @Override
+        public void deleteEvent(AppointmentDTO appointmentDTO, ExternalCalendarCredentialsDTO credentials) {
+            throw new ExternalCalendarNotFoundException(this.getClass(), "Event not found");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.biit.appointment.google.logger.TestLogging;
+import com.biit.appointment.google.ratelimit.GoogleRateLimiter;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.services.calendar.model.Event;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Test(groups = {"batchRequestTests"})
+public class BatchRequestTests {
+
+    private static final int NUMBER_OF_EVENTS = 120;
+    private static final long LATENCY_MILLISECONDS = 20;
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final String BENCHMARK_CALENDAR_ID = "benchmark";
+
+    private GoogleCalendarStubServer stubServer;
+    private GoogleClientProvider googleClientProvider;
+    private Credential credential;
+
+    @BeforeClass(alwaysRun = true)
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        //Benchmarks measure the requests, not the rate limiter.
+        final GoogleRateLimiter googleRateLimiter = new GoogleRateLimiter();
+        ReflectionTestUtils.setField(googleRateLimiter, "enabled", false);
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).rateLimiter(googleRateLimiter).build();
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        stubServer.close();
+    }
+
+    @Test
+    public void createAndDeleteInBatches() throws GeneralSecurityException, IOException {
+        final int requestsBefore = stubServer.getHttpRequests();
+        final List<BatchItemResult> created = googleClientProvider.createCalendarEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID,
+                createEvents(NUMBER_OF_EVENTS), credential);
+        Assert.assertEquals(created.size(), NUMBER_OF_EVENTS);
+        Assert.assertTrue(created.stream().allMatch(BatchItemResult::isSuccessful));
+        //120 events in batches of 50.
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, 3);
+
+        final List<String> eventIds = new ArrayList<>(created.stream().map(BatchItemResult::getExternalReference).toList());
+        eventIds.add("doesNotExist");
+        final List<BatchItemResult> deleted = googleClientProvider.deleteCalendarEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID,
+                eventIds, credential);
+        Assert.assertEquals(deleted.size(), NUMBER_OF_EVENTS + 1);
+        //Missing events are already deleted.
+        Assert.assertTrue(deleted.stream().allMatch(BatchItemResult::isSuccessful));
+        Assert.assertTrue(stubServer.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID).values().stream()
+                .allMatch(event -> AppointmentEventConverter.DELETED_STATUS.equals(event.getStatus())));
+    }
+
+    @Test(groups = {"benchmark"})
+    public void batchLatency() throws GeneralSecurityException, IOException {
+        stubServer.setLatencyMilliseconds(LATENCY_MILLISECONDS);
+        try {
+            final List<Event> events = createEvents(NUMBER_OF_EVENTS);
+
+            long start = System.nanoTime();
+            for (Event event : events) {
+                googleClientProvider.createCalendarEvent(BENCHMARK_CALENDAR_ID, event.clone(), credential);
+            }
+            final long sequentialMilliseconds = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            googleClientProvider.createCalendarEvents(BENCHMARK_CALENDAR_ID, events, credential);
+            final long batchMilliseconds = (System.nanoTime() - start) / 1_000_000;
+
+            TestLogging.info(this.getClass(), "Creating '{}' events with '{}' ms of latency: sequential '{}' ms, batch '{}' ms.",
+                    NUMBER_OF_EVENTS, LATENCY_MILLISECONDS, sequentialMilliseconds, batchMilliseconds);
+            Assert.assertTrue(batchMilliseconds < sequentialMilliseconds);
+        } finally {
+            stubServer.setLatencyMilliseconds(0);
+        }
+    }
+
+    private List<Event> createEvents(int numberOfEvents) {
+        final AppointmentEventConverter appointmentEventConverter = new AppointmentEventConverter();
+        final List<AppointmentDTO> appointments = new ArrayList<>();
+        final LocalDateTime startTime = LocalDateTime.now();
+        for (int i = 0; i < numberOfEvents; i++) {
+            final AppointmentDTO appointmentDTO = new AppointmentDTO();
+            appointmentDTO.setTitle("Batch appointment " + i);
+            appointmentDTO.setStartTime(startTime.plusHours(i));
+            appointmentDTO.setEndTime(startTime.plusHours(i + 1));
+            appointments.add(appointmentDTO);
+        }
+        return appointmentEventConverter.reverseAll(appointments);
+    }
+}
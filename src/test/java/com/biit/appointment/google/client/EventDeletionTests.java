@@ -0,0 +1,92 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.logger.GoogleCalDAVLogger;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.stub.StubEvents;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.services.calendar.model.Event;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+@Test(groups = {"eventDeletionTests"})
+public class EventDeletionTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    private GoogleCalendarStubServer stubServer;
+    private GoogleClientProvider googleClientProvider;
+    private Credential credential;
+
+    @BeforeClass
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).build();
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        stubServer.close();
+    }
+
+    @Test
+    public void deleteWithSingleRequest() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Event to delete"), credential);
+
+        final int requestsBefore = stubServer.getHttpRequests();
+        Assert.assertTrue(googleClientProvider.deleteCalendarEvent(GoogleClientProvider.PRIMARY_CALENDAR_ID, eventId, null, credential));
+        //Debug logging adds a GET request.
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, GoogleCalDAVLogger.isDebugEnabled() ? 2 : 1);
+    }
+
+    @Test
+    public void deleteAlreadyDeleted() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Event to delete"), credential);
+        googleClientProvider.deleteCalendarEvent(eventId, credential);
+
+        Assert.assertFalse(googleClientProvider.deleteCalendarEvent(GoogleClientProvider.PRIMARY_CALENDAR_ID, eventId, null, credential));
+        Assert.assertFalse(googleClientProvider.deleteCalendarEvent(GoogleClientProvider.PRIMARY_CALENDAR_ID, "doesNotExist", null, credential));
+    }
+
+    @Test
+    public void conditionalDelete() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Event to delete"), credential);
+        final Event event = googleClientProvider.getEvent(eventId, credential);
+
+        try {
+            googleClientProvider.deleteCalendarEvent(GoogleClientProvider.PRIMARY_CALENDAR_ID, eventId, "\"outdated\"", credential);
+            Assert.fail("Event must not be deleted with an outdated ETag.");
+        } catch (HttpResponseException e) {
+            Assert.assertEquals(e.getStatusCode(), 412);
+        }
+        Assert.assertTrue(googleClientProvider.deleteCalendarEvent(GoogleClientProvider.PRIMARY_CALENDAR_ID, eventId, event.getEtag(), credential));
+    }
+}
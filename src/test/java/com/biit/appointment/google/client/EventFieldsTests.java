@@ -0,0 +1,175 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.logger.TestLogging;
+import com.biit.appointment.google.ratelimit.GoogleRateLimiter;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.ConferenceData;
+import com.google.api.services.calendar.model.EntryPoint;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventAttendee;
+import com.google.api.services.calendar.model.EventDateTime;
+import com.google.api.services.calendar.model.EventReminder;
+import com.google.api.services.calendar.model.Events;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Test(groups = {"eventFieldsTests"})
+public class EventFieldsTests {
+
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final long DAY_START = 1_767_225_600_000L;
+    private static final String CALENDAR_ID = "fields";
+    private static final String BENCHMARK_CALENDAR_ID = "benchmark";
+    private static final int NUMBER_OF_EVENTS = 250;
+    private static final int ITERATIONS = 50;
+
+    private GoogleCalendarStubServer stubServer;
+    private GoogleClientProvider googleClientProvider;
+    private Credential credential;
+
+    @BeforeClass(alwaysRun = true)
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        //Benchmarks measure the requests, not the rate limiter.
+        final GoogleRateLimiter googleRateLimiter = new GoogleRateLimiter();
+        ReflectionTestUtils.setField(googleRateLimiter, "enabled", false);
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).rateLimiter(googleRateLimiter).build();
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        stubServer.close();
+    }
+
+    @Test
+    public void onlyConverterFieldsAreRequested() throws GeneralSecurityException, IOException {
+        final Event event = createEvent(0);
+        stubServer.getEvents(CALENDAR_ID).put(event.getId(), event);
+
+        final List<Event> events = googleClientProvider.getEvents(CALENDAR_ID, new DateTime(DAY_START), null, credential);
+        Assert.assertTrue(stubServer.getLastRequestUri().contains("fields="));
+        Assert.assertEquals(events.size(), 1);
+        Assert.assertEquals(events.get(0).getSummary(), event.getSummary());
+        Assert.assertEquals(events.get(0).getStart().getTimeZone(), "Europe/Madrid");
+        Assert.assertNull(events.get(0).getAttendees());
+        Assert.assertNull(events.get(0).getConferenceData());
+
+        final Event fullEvent = googleClientProvider.getEvent(CALENDAR_ID, event.getId(), EventFieldsProfile.FULL, credential);
+        Assert.assertFalse(stubServer.getLastRequestUri().contains("fields="));
+        Assert.assertEquals(fullEvent.getAttendees().size(), event.getAttendees().size());
+    }
+
+    @Test(groups = {"benchmark"})
+    public void fieldMaskPayload() throws GeneralSecurityException, IOException {
+        final Map<String, Event> calendar = stubServer.getEvents(BENCHMARK_CALENDAR_ID);
+        final List<Event> events = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+            events.add(createEvent(i));
+            calendar.put(events.get(i).getId(), events.get(i));
+        }
+
+        final String json = JSON_FACTORY.toString(new Events().setItems(events));
+        //Warm up, so the first profile is not penalized.
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (EventFieldsProfile profile : EventFieldsProfile.values()) {
+                googleClientProvider.getEventPages(BENCHMARK_CALENDAR_ID, null, null, NUMBER_OF_EVENTS, profile, credential).next();
+                JSON_FACTORY.fromString(getPage(json, events, profile), Events.class);
+            }
+        }
+
+        for (EventFieldsProfile profile : EventFieldsProfile.values()) {
+            final long bytesBefore = stubServer.getBytesSent();
+            final long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                Assert.assertEquals(googleClientProvider.getEventPages(BENCHMARK_CALENDAR_ID, null, null, NUMBER_OF_EVENTS, profile,
+                        credential).next().size(), NUMBER_OF_EVENTS);
+            }
+            final long requestMicroseconds = (System.nanoTime() - start) / 1000 / ITERATIONS;
+            final long bytesPerPage = (stubServer.getBytesSent() - bytesBefore) / ITERATIONS;
+
+            //Parsing only, without the HTTP request and the stub filtering time.
+            final String page = getPage(json, events, profile);
+            final long parseStart = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                JSON_FACTORY.fromString(page, Events.class);
+            }
+            final long parseMicroseconds = (System.nanoTime() - parseStart) / 1000 / ITERATIONS;
+
+            TestLogging.info(this.getClass(), "Page of '{}' events with profile '{}': '{}' bytes, request '{}' us, parse '{}' us.",
+                    NUMBER_OF_EVENTS, profile, bytesPerPage, requestMicroseconds, parseMicroseconds);
+        }
+    }
+
+    private String getPage(String json, List<Event> events, EventFieldsProfile profile) throws IOException {
+        if (profile == EventFieldsProfile.FULL) {
+            return json;
+        }
+        return JSON_FACTORY.toString(new Events().setItems(events.stream().map(event -> mask(event, profile)).toList()));
+    }
+
+    private Event mask(Event event, EventFieldsProfile profile) {
+        final Event masked = new Event();
+        for (String field : profile.getEventFields().split(",")) {
+            if (event.get(field) != null) {
+                masked.set(field, event.get(field));
+            }
+        }
+        return masked;
+    }
+
+    private Event createEvent(int index) {
+        final List<EventAttendee> attendees = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            attendees.add(new EventAttendee().setEmail("attendee" + i + "@example.com").setDisplayName("Attendee " + i)
+                    .setResponseStatus("needsAction"));
+        }
+        return new Event().setId("event" + index).setEtag("\"" + index + "\"").setStatus("confirmed")
+                .setSummary("Appointment " + index).setDescription("Appointment with the physiotherapist.")
+                .setStart(new EventDateTime().setDateTime(new DateTime(DAY_START + index * ONE_HOUR)).setTimeZone("Europe/Madrid"))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(DAY_START + (index + 1) * ONE_HOUR)).setTimeZone("Europe/Madrid"))
+                .setHtmlLink("https://www.google.com/calendar/event?eid=event" + index)
+                .setLocation("Main office, room " + index)
+                .setAttendees(attendees)
+                .setReminders(new Event.Reminders().setUseDefault(false)
+                        .setOverrides(List.of(new EventReminder().setMethod("popup").setMinutes(10))))
+                .setConferenceData(new ConferenceData().setConferenceId("abc-defg-hij")
+                        .setEntryPoints(List.of(new EntryPoint().setEntryPointType("video").setUri("https://meet.google.com/abc-defg-hij"))));
+    }
+}
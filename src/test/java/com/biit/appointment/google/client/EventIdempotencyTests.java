@@ -0,0 +1,124 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.services.calendar.model.Event;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Test(groups = {"eventIdempotencyTests"})
+public class EventIdempotencyTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final String CALENDAR_ID = "idempotency";
+
+    private GoogleCalendarStubServer stubServer;
+    private GoogleClientProvider googleClientProvider;
+    private AppointmentEventConverter appointmentEventConverter;
+    private Credential credential;
+
+    @BeforeClass
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).build();
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+        appointmentEventConverter = new AppointmentEventConverter();
+        ReflectionTestUtils.setField(appointmentEventConverter, "deterministicEventIds", true);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        stubServer.close();
+    }
+
+    @Test
+    public void deterministicIds() {
+        final Event event = appointmentEventConverter.reverse(createAppointment(1L));
+        Assert.assertNotNull(event.getId());
+        Assert.assertEquals(appointmentEventConverter.reverse(createAppointment(1L)).getId(), event.getId());
+        Assert.assertNotEquals(appointmentEventConverter.reverse(createAppointment(2L)).getId(), event.getId());
+        //Google only accepts lowercase base32hex ids between 5 and 1024 characters.
+        Assert.assertTrue(event.getId().matches("[a-v0-9]{5,1024}"));
+
+        //Disabled by default.
+        Assert.assertNull(new AppointmentEventConverter().reverse(createAppointment(1L)).getId());
+        //Existing events keep their id.
+        final AppointmentDTO appointment = createAppointment(1L);
+        appointment.setExternalReference("existing");
+        Assert.assertEquals(appointmentEventConverter.reverse(appointment).getId(), "existing");
+    }
+
+    @Test
+    public void repeatedCreationDoesNotDuplicate() throws GeneralSecurityException, IOException {
+        final Event event = appointmentEventConverter.reverse(createAppointment(10L));
+        final String eventId = googleClientProvider.createCalendarEvent(CALENDAR_ID, event, credential);
+        Assert.assertEquals(googleClientProvider.createCalendarEvent(CALENDAR_ID, event, credential), eventId);
+        Assert.assertEquals(stubServer.getEvents(CALENDAR_ID).values().stream()
+                .filter(storedEvent -> storedEvent.getId().equals(eventId)).count(), 1);
+    }
+
+    @Test
+    public void deletedEventIsRestored() throws GeneralSecurityException, IOException {
+        final Event event = appointmentEventConverter.reverse(createAppointment(20L));
+        final String eventId = googleClientProvider.createCalendarEvent(CALENDAR_ID, event, credential);
+        Assert.assertTrue(googleClientProvider.deleteCalendarEvent(CALENDAR_ID, eventId, null, credential));
+
+        Assert.assertEquals(googleClientProvider.createCalendarEvent(CALENDAR_ID, event, credential), eventId);
+        Assert.assertEquals(stubServer.getEvents(CALENDAR_ID).get(eventId).getStatus(), "confirmed");
+        Assert.assertEquals(stubServer.getEvents(CALENDAR_ID).get(eventId).getSummary(), event.getSummary());
+    }
+
+    @Test
+    public void repeatedBatchDoesNotDuplicate() throws GeneralSecurityException, IOException {
+        final List<Event> events = appointmentEventConverter.reverseAll(List.of(createAppointment(30L), createAppointment(31L)));
+        googleClientProvider.createCalendarEvents(CALENDAR_ID, events.subList(0, 1), credential);
+        final int eventsBefore = stubServer.getEvents(CALENDAR_ID).size();
+
+        final List<BatchItemResult> results = googleClientProvider.createCalendarEvents(CALENDAR_ID, events, credential);
+        Assert.assertTrue(results.stream().allMatch(BatchItemResult::isSuccessful));
+        Assert.assertEquals(results.get(0).getExternalReference(), events.get(0).getId());
+        Assert.assertEquals(results.get(1).getExternalReference(), events.get(1).getId());
+        Assert.assertEquals(stubServer.getEvents(CALENDAR_ID).size(), eventsBefore + 1);
+    }
+
+    private AppointmentDTO createAppointment(Long id) {
+        final AppointmentDTO appointmentDTO = new AppointmentDTO();
+        appointmentDTO.setId(id);
+        appointmentDTO.setTitle("Appointment " + id);
+        appointmentDTO.setStartTime(LocalDateTime.now());
+        appointmentDTO.setEndTime(LocalDateTime.now().plusHours(1));
+        return appointmentDTO;
+    }
+}
@@ -0,0 +1,66 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.Events;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Test(groups = {"eventPageIteratorTests"})
+public class EventPageIteratorTests {
+
+    @Test
+    public void pagesAreFetchedLazily() {
+        final List<String> requestedTokens = new ArrayList<>();
+        final EventPageIterator pages = new EventPageIterator(pageToken -> {
+            requestedTokens.add(pageToken);
+            if (pageToken == null) {
+                return new Events().setItems(List.of(new Event().setId("1"), new Event().setId("2"))).setNextPageToken("page2");
+            }
+            return new Events().setItems(List.of(new Event().setId("3"))).setNextSyncToken("sync");
+        });
+
+        Assert.assertTrue(requestedTokens.isEmpty());
+        Assert.assertEquals(pages.next().size(), 2);
+        Assert.assertEquals(requestedTokens.size(), 1);
+        Assert.assertNull(pages.getNextSyncToken());
+        Assert.assertEquals(pages.next().get(0).getId(), "3");
+        Assert.assertFalse(pages.hasNext());
+        Assert.assertEquals(requestedTokens, Arrays.asList(null, "page2"));
+        Assert.assertEquals(pages.getNextSyncToken(), "sync");
+    }
+
+    @Test(expectedExceptions = UncheckedIOException.class)
+    public void errorsAreUnchecked() {
+        final EventPageIterator pages = new EventPageIterator(pageToken -> {
+            throw new IOException("Connection reset");
+        });
+        pages.hasNext();
+    }
+}
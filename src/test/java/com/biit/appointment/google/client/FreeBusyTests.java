@@ -0,0 +1,151 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.stub.StubEvents;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.util.DateTime;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+@Test(groups = {"freeBusyTests"})
+public class FreeBusyTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final long DAY_START = 1_767_225_600_000L;
+
+    private GoogleCalendarStubServer stubServer;
+    private GoogleClientProvider googleClientProvider;
+    private Credential credential;
+
+    @BeforeClass
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).build();
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        stubServer.close();
+    }
+
+    @Test
+    public void overlappingIntervalsAreMerged() {
+        final BusyIntervals busyIntervals = BusyIntervals.fromEpochMilliseconds(new long[]{50, 10, 20, 80}, new long[]{60, 30, 40, 80});
+
+        //Empty interval 80-80 is ignored.
+        Assert.assertEquals(busyIntervals.getStarts(), new long[]{10, 50});
+        Assert.assertEquals(busyIntervals.getEnds(), new long[]{40, 60});
+        Assert.assertTrue(busyIntervals.isFree(0, 10));
+        Assert.assertTrue(busyIntervals.isFree(40, 50));
+        Assert.assertFalse(busyIntervals.isFree(35, 45));
+        Assert.assertFalse(busyIntervals.isFree(0, 100));
+        Assert.assertTrue(busyIntervals.isFree(60, 100));
+    }
+
+    @Test
+    public void unsortedIntervalsAreSorted() {
+        final BusyIntervals busyIntervals = BusyIntervals.fromEpochMilliseconds(new long[]{90, 30, 70, 10, 50}, new long[]{100, 40, 80, 20, 60});
+
+        Assert.assertEquals(busyIntervals.getStarts(), new long[]{10, 30, 50, 70, 90});
+        Assert.assertEquals(busyIntervals.getEnds(), new long[]{20, 40, 60, 80, 100});
+        Assert.assertTrue(busyIntervals.isFree(20, 30));
+        Assert.assertFalse(busyIntervals.isFree(85, 95));
+    }
+
+    @Test
+    public void nestedAndTouchingIntervalsAreMerged() {
+        //10-100 contains 20-30 and 40-50 (ending after a longer one starts), 100-110 touches it, 200-210 is repeated.
+        final BusyIntervals busyIntervals = BusyIntervals.fromEpochMilliseconds(new long[]{40, 200, 20, 100, 10, 200},
+                new long[]{50, 210, 30, 110, 100, 210});
+
+        Assert.assertEquals(busyIntervals.getStarts(), new long[]{10, 200});
+        Assert.assertEquals(busyIntervals.getEnds(), new long[]{110, 210});
+        Assert.assertTrue(busyIntervals.isFree(110, 200));
+        Assert.assertFalse(busyIntervals.isFree(60, 70));
+    }
+
+    @Test
+    public void mergedAsNaiveUnion() {
+        final Random random = new Random(42);
+        for (int round = 0; round < 100; round++) {
+            final int length = random.nextInt(20);
+            final long[] starts = new long[length];
+            final long[] ends = new long[length];
+            final boolean[] busy = new boolean[200];
+            for (int i = 0; i < length; i++) {
+                starts[i] = random.nextInt(180);
+                ends[i] = starts[i] + random.nextInt(20);
+                Arrays.fill(busy, (int) starts[i], (int) ends[i], true);
+            }
+            final BusyIntervals busyIntervals = BusyIntervals.fromEpochMilliseconds(starts, ends);
+            for (int time = 0; time < busy.length; time++) {
+                Assert.assertEquals(busyIntervals.isFree(time, time + 1), !busy[time], "Time " + time + " of " + busyIntervals);
+            }
+            for (int i = 1; i < busyIntervals.size(); i++) {
+                Assert.assertTrue(busyIntervals.getStart(i) > busyIntervals.getEnd(i - 1));
+            }
+        }
+    }
+
+    @Test
+    public void errorsAreNotFree() {
+        Assert.assertThrows(IllegalStateException.class, () -> BusyIntervals.error("notFound").isFree(0, 10));
+    }
+
+    @Test
+    public void busyTimeOfManyCalendars() throws GeneralSecurityException, IOException {
+        googleClientProvider.createCalendarEvent("alice@example.com",
+                StubEvents.createEvent("Busy", DAY_START + ONE_HOUR, DAY_START + 2 * ONE_HOUR), credential);
+        googleClientProvider.createCalendarEvent("alice@example.com",
+                StubEvents.createEvent("Busy", DAY_START + 3 * ONE_HOUR, DAY_START + 4 * ONE_HOUR), credential);
+        googleClientProvider.createCalendarEvent("bob@example.com",
+                StubEvents.createEvent("Busy", DAY_START + 2 * ONE_HOUR, DAY_START + 3 * ONE_HOUR), credential);
+        //Outside the interval.
+        googleClientProvider.createCalendarEvent("bob@example.com",
+                StubEvents.createEvent("Busy", DAY_START + 30 * ONE_HOUR, DAY_START + 31 * ONE_HOUR), credential);
+
+        final int requestsBefore = stubServer.getHttpRequests();
+        final Map<String, BusyIntervals> busyIntervals = googleClientProvider.getFreeBusy(
+                List.of("alice@example.com", "bob@example.com", "unknown@example.com"),
+                new DateTime(DAY_START), new DateTime(DAY_START + 24 * ONE_HOUR), credential);
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, 1);
+
+        Assert.assertEquals(busyIntervals.get("alice@example.com").getStarts(), new long[]{DAY_START + ONE_HOUR, DAY_START + 3 * ONE_HOUR});
+        Assert.assertEquals(busyIntervals.get("alice@example.com").getEnds(), new long[]{DAY_START + 2 * ONE_HOUR, DAY_START + 4 * ONE_HOUR});
+        Assert.assertEquals(busyIntervals.get("bob@example.com").size(), 1);
+        Assert.assertFalse(busyIntervals.get("bob@example.com").isFree(DAY_START + 2 * ONE_HOUR, DAY_START + 3 * ONE_HOUR));
+        Assert.assertEquals(busyIntervals.get("unknown@example.com").getError(), "notFound");
+    }
+}
@@ -0,0 +1,133 @@
+package com.biit.appointment.google.client;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.cache.GoogleEventCache;
+import com.biit.appointment.google.http.GoogleHttpTransportProvider;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.stub.StubEvents;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.List;
+
+@Test(groups = {"googleEndpointsTests"})
+public class GoogleEndpointsTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final String CALENDAR_ID = "endpoints";
+    private static final String COMPRESSED_CALENDAR_ID = "compressed";
+    private static final int EVENTS = 7;
+    private static final int PAGE_SIZE = 3;
+
+    private GoogleCalendarStubServer stubServer;
+    private GoogleHttpTransportProvider googleHttpTransportProvider;
+    private GoogleEventCache googleEventCache;
+    private GoogleClientProvider googleClientProvider;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        stubServer = new GoogleCalendarStubServer();
+        //Production transport, without redirections. Only the configured URLs point to the server.
+        googleHttpTransportProvider = new GoogleHttpTransportProvider();
+        googleEventCache = new GoogleEventCache();
+        googleClientProvider = new StubClientProviderBuilder(googleHttpTransportProvider).eventCache(googleEventCache).endpoints(stubServer)
+                .build();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() throws IOException {
+        googleHttpTransportProvider.destroy();
+        stubServer.close();
+    }
+
+    @Test
+    public void eventsArePaginatedAndFilteredByTime() throws GeneralSecurityException, IOException {
+        final Credential credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < EVENTS; i++) {
+            googleClientProvider.createCalendarEvent(CALENDAR_ID,
+                    StubEvents.createEvent("Endpoint event", start + i * ONE_HOUR, start + (i + 1) * ONE_HOUR), credential);
+        }
+        //An event out of the interval.
+        googleClientProvider.createCalendarEvent(CALENDAR_ID, StubEvents.createEvent("Endpoint event", start - 2 * ONE_HOUR, start - ONE_HOUR),
+                credential);
+
+        final int requestsBefore = stubServer.getHttpRequests();
+        final List<Event> events = googleClientProvider.streamEvents(CALENDAR_ID, new DateTime(start), new DateTime(start + EVENTS * ONE_HOUR),
+                PAGE_SIZE, credential).toList();
+        Assert.assertEquals(events.size(), EVENTS);
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, (EVENTS + PAGE_SIZE - 1) / PAGE_SIZE);
+        for (int i = 0; i < EVENTS; i++) {
+            Assert.assertEquals(events.get(i).getStart().getDateTime().getValue(), start + i * ONE_HOUR);
+        }
+    }
+
+    @Test
+    public void compressedBytesAreSaved() throws GeneralSecurityException, IOException {
+        final Credential credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+        final Event event = StubEvents.createEvent("Compressed event");
+        event.setDescription("Repeated text, so it is compressed. ".repeat(20));
+        final String eventId = googleClientProvider.createCalendarEvent(COMPRESSED_CALENDAR_ID, event, credential);
+
+        stubServer.setGzipResponses(true);
+        try {
+            final long writtenBefore = stubServer.getBytesWritten();
+            final long sentBefore = stubServer.getBytesSent();
+            googleClientProvider.getEvent(COMPRESSED_CALENDAR_ID, eventId, credential);
+            final long compressed = stubServer.getBytesWritten() - writtenBefore;
+            Assert.assertTrue(compressed < stubServer.getBytesSent() - sentBefore);
+
+            final long savedBefore = googleEventCache.getBytesSaved();
+            googleClientProvider.getEvent(COMPRESSED_CALENDAR_ID, eventId, credential);
+            Assert.assertEquals(googleEventCache.getBytesSaved() - savedBefore, compressed);
+
+            //Without Content-Length, the size of the event is used.
+            stubServer.setChunkedResponses(true);
+            googleEventCache.clear();
+            googleClientProvider.getEvent(COMPRESSED_CALENDAR_ID, eventId, credential);
+            final long chunkedSavedBefore = googleEventCache.getBytesSaved();
+            googleClientProvider.getEvent(COMPRESSED_CALENDAR_ID, eventId, credential);
+            Assert.assertTrue(googleEventCache.getBytesSaved() - chunkedSavedBefore > 0);
+        } finally {
+            stubServer.setGzipResponses(false);
+            stubServer.setChunkedResponses(false);
+        }
+    }
+
+    @Test
+    public void tokensAreRefreshedOnTheTokenUri() throws GeneralSecurityException, IOException {
+        final int tokensBefore = stubServer.getTokenRequests();
+        final CredentialData credentialData = googleClientProvider.refreshCredentials("refresh", ONE_HOUR, "clientId", "clientSecret");
+        Assert.assertEquals(stubServer.getTokenRequests() - tokensBefore, 1);
+        Assert.assertTrue(credentialData.getAccessToken().startsWith("stub-access-"));
+        Assert.assertEquals(credentialData.getRefreshToken(), "refresh");
+    }
+}
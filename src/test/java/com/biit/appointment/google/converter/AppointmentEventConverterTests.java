@@ -0,0 +1,113 @@
+package com.biit.appointment.google.converter;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+@Test(groups = {"appointmentEventConverterTests"})
+public class AppointmentEventConverterTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final String[] TIME_ZONES = {"UTC", "Europe/Madrid", "America/New_York", "Australia/Lord_Howe", "Asia/Kolkata"};
+
+    private final AppointmentEventConverter converter = new AppointmentEventConverter();
+
+    @Test
+    public void convertUsesEventZones() {
+        //Hours around the daylight saving changes of 2025, and dates before the epoch.
+        final long[] instants = {Instant.parse("2025-03-30T00:30:00Z").toEpochMilli(), Instant.parse("2025-10-26T00:59:59.999Z").toEpochMilli(),
+                Instant.parse("2025-11-02T05:30:00Z").toEpochMilli(), Instant.parse("1969-12-31T23:59:59.500Z").toEpochMilli()};
+        final List<Event> events = new ArrayList<>();
+        for (String timeZone : TIME_ZONES) {
+            for (long instant : instants) {
+                for (int hour = 0; hour < 3; hour++) {
+                    events.add(createEvent(instant + hour * ONE_HOUR, timeZone));
+                }
+            }
+        }
+
+        final List<AppointmentDTO> appointments = converter.convertAll(events);
+        Assert.assertEquals(appointments.size(), events.size());
+        for (int i = 0; i < events.size(); i++) {
+            final EventDateTime start = events.get(i).getStart();
+            Assert.assertEquals(appointments.get(i).getStartTime(), Instant.ofEpochMilli(start.getDateTime().getValue())
+                    .atZone(ZoneId.of(start.getTimeZone())).toLocalDateTime());
+            Assert.assertFalse(appointments.get(i).isAllDay());
+        }
+    }
+
+    @Test
+    public void eventsWithoutZoneUseSystemZone() {
+        final long now = System.currentTimeMillis();
+        final AppointmentDTO appointment = converter.convert(createEvent(now, null));
+        Assert.assertEquals(appointment.getStartTime(), LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault()));
+    }
+
+    @Test
+    public void reverseKeepsTheInstant() {
+        final LocalDateTime start = LocalDateTime.of(2025, 3, 30, 1, 59, 59, 999_999_999);
+        final List<AppointmentDTO> appointments = new ArrayList<>();
+        for (int hour = 0; hour < 48; hour++) {
+            final AppointmentDTO appointmentDTO = new AppointmentDTO();
+            appointmentDTO.setStartTime(start.plusHours(hour));
+            appointmentDTO.setEndTime(start.plusHours(hour + 1));
+            appointments.add(appointmentDTO);
+        }
+
+        final List<Event> events = converter.reverseAll(appointments);
+        for (int i = 0; i < appointments.size(); i++) {
+            //Same value as java.util.Date, that truncates to milliseconds.
+            Assert.assertEquals(events.get(i).getStart().getDateTime().getValue(),
+                    appointments.get(i).getStartTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            Assert.assertEquals(events.get(i).getStart().getTimeZone(), ZoneId.systemDefault().getId());
+        }
+    }
+
+    @Test
+    public void allDayEvents() {
+        final AppointmentDTO appointmentDTO = new AppointmentDTO();
+        appointmentDTO.setStartTime(LocalDateTime.of(2025, 6, 15, 10, 0));
+        appointmentDTO.setEndTime(LocalDateTime.of(2025, 6, 15, 11, 0));
+        appointmentDTO.setAllDay(true);
+
+        final Event event = converter.reverse(appointmentDTO);
+        Assert.assertEquals(event.getStart().getDate().toStringRfc3339(), "2025-06-15");
+        Assert.assertTrue(converter.convert(event).isAllDay());
+    }
+
+    private Event createEvent(long start, String timeZone) {
+        return new Event().setId("event" + start).setStatus("confirmed")
+                .setStart(new EventDateTime().setDateTime(new DateTime(start)).setTimeZone(timeZone))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(start + ONE_HOUR)).setTimeZone(timeZone));
+    }
+}
@@ -0,0 +1,129 @@
+package com.biit.appointment.google.http;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.ratelimit.GoogleRateLimiter;
+import com.biit.appointment.google.retry.GoogleRetryPolicy;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.stub.StubEvents;
+import com.biit.appointment.google.stub.StubHttpTransportProvider;
+import com.google.api.client.auth.oauth2.Credential;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Test(groups = {"deadlineTests"})
+public class GoogleDeadlineTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final long LATENCY = 500;
+
+    private GoogleCalendarStubServer stubServer;
+    private StubHttpTransportProvider transportProvider;
+    private GoogleRetryPolicy googleRetryPolicy;
+    private GoogleClientProvider googleClientProvider;
+    private Credential credential;
+
+    @BeforeClass
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        transportProvider = new StubHttpTransportProvider(stubServer);
+        googleRetryPolicy = new GoogleRetryPolicy();
+        ReflectionTestUtils.setField(googleRetryPolicy, "initialDelayMilliseconds", 10L);
+        final GoogleRateLimiter googleRateLimiter = new GoogleRateLimiter();
+        ReflectionTestUtils.setField(googleRateLimiter, "enabled", false);
+        googleClientProvider = new StubClientProviderBuilder(transportProvider).retryPolicy(googleRetryPolicy)
+                .rateLimiter(googleRateLimiter).build();
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void resetServer() {
+        stubServer.setLatencyMilliseconds(0);
+        ReflectionTestUtils.setField(transportProvider, "listReadTimeout", -1);
+        ReflectionTestUtils.setField(googleRetryPolicy, "enabled", true);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        stubServer.close();
+    }
+
+    @Test
+    public void operationReadTimeout() throws GeneralSecurityException, IOException {
+        ReflectionTestUtils.setField(googleRetryPolicy, "enabled", false);
+        ReflectionTestUtils.setField(transportProvider, "listReadTimeout", (int) LATENCY / 5);
+        stubServer.setLatencyMilliseconds(LATENCY);
+
+        Assert.assertThrows(SocketTimeoutException.class, () -> googleClientProvider.getEvents(LocalDateTime.now().minusDays(1),
+                LocalDateTime.now().plusDays(1), credential));
+        //Other operations use the general timeout.
+        Assert.assertNotNull(googleClientProvider.createCalendarEvent(StubEvents.createEvent("Slow event"), credential));
+    }
+
+    @Test
+    public void deadlineExceeded() {
+        stubServer.setLatencyMilliseconds(LATENCY);
+
+        final long start = System.currentTimeMillis();
+        try (GoogleDeadline ignored = GoogleDeadline.start(Duration.ofMillis(LATENCY / 5))) {
+            Assert.assertThrows(DeadlineExceededException.class, () -> googleClientProvider.getEvents(LocalDateTime.now().minusDays(1),
+                    LocalDateTime.now().plusDays(1), credential));
+        }
+        //No retries after the deadline.
+        Assert.assertTrue(System.currentTimeMillis() - start < LATENCY, "Took " + (System.currentTimeMillis() - start) + " ms.");
+        Assert.assertEquals(GoogleDeadline.getRemainingMilliseconds(), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void completedBeforeDeadline() throws GeneralSecurityException, IOException {
+        stubServer.setLatencyMilliseconds(LATENCY / 10);
+
+        try (GoogleDeadline ignored = GoogleDeadline.start(Duration.ofMillis(LATENCY * 4))) {
+            Assert.assertNotNull(googleClientProvider.getEvents(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1),
+                    credential));
+        }
+    }
+
+    @Test
+    public void nestedDeadlinesOnlyReduceTime() {
+        try (GoogleDeadline outer = GoogleDeadline.start(Duration.ofSeconds(1))) {
+            try (GoogleDeadline inner = GoogleDeadline.start(Duration.ofMinutes(1))) {
+                Assert.assertTrue(GoogleDeadline.getRemainingMilliseconds() <= 1000);
+            }
+            Assert.assertTrue(GoogleDeadline.getRemainingMilliseconds() <= 1000);
+        }
+        Assert.assertFalse(GoogleDeadline.isExceeded());
+    }
+}
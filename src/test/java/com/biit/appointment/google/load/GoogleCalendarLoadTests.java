@@ -0,0 +1,273 @@
+package com.biit.appointment.google.load;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.core.models.CalendarProviderDTO;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.cache.LastKnownEventCache;
+import com.biit.appointment.google.client.BatchItemResult;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleCalendarService;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.biit.appointment.google.converter.GoogleCalendarCredentialsConverter;
+import com.biit.appointment.google.http.GoogleHttpTransportProvider;
+import com.biit.appointment.google.logger.TestLogging;
+import com.biit.appointment.google.ratelimit.GoogleRateLimiter;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import com.biit.appointment.google.token.GoogleTokenRefreshListener;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput and latency of each {@link GoogleCalendarService} operation against a {@link GoogleCalendarStubServer}, using
+ * the same HTTP transport as production. The client is pointed to the server through the root URL and token URI.
+ */
+@Test(groups = {"benchmark"})
+public class GoogleCalendarLoadTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final long MILLISECONDS = 1000L;
+    private static final long LATENCY_MILLISECONDS = 5;
+    private static final int THREADS = 8;
+    private static final int USERS = 16;
+    private static final int WARM_UP_OPERATIONS = 50;
+    private static final int OPERATIONS = 400;
+    private static final int ERROR_OPERATIONS = 200;
+    private static final int BATCH_SIZE = 10;
+    private static final int EVENTS_PER_WEEK = 40;
+    private static final double ERROR_RATE = 0.02;
+    private static final double PERCENTILE_50 = 0.50;
+    private static final double PERCENTILE_99 = 0.99;
+
+    private GoogleCalendarStubServer stubServer;
+    private GoogleHttpTransportProvider googleHttpTransportProvider;
+    private GoogleTokenManager googleTokenManager;
+    private GoogleCalendarService googleCalendarService;
+    private final List<ExternalCalendarCredentialsDTO> users = new ArrayList<>();
+    private final List<String> summary = new ArrayList<>();
+    private LocalDateTime weekStart;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        stubServer = new GoogleCalendarStubServer();
+        stubServer.setLatencyMilliseconds(LATENCY_MILLISECONDS);
+        googleHttpTransportProvider = new GoogleHttpTransportProvider();
+        //Load tests measure the requests, not the rate limiter.
+        final GoogleRateLimiter googleRateLimiter = new GoogleRateLimiter();
+        ReflectionTestUtils.setField(googleRateLimiter, "enabled", false);
+        final GoogleClientProvider googleClientProvider = new StubClientProviderBuilder(googleHttpTransportProvider)
+                .rateLimiter(googleRateLimiter).endpoints(stubServer).build();
+        googleTokenManager = new GoogleTokenManager(googleClientProvider,
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        googleCalendarService = new GoogleCalendarService(googleClientProvider, new AppointmentEventConverter(),
+                new GoogleCalendarCredentialsConverter(googleClientProvider, googleTokenManager), null, googleTokenManager,
+                new LastKnownEventCache(), null, null);
+        for (int i = 0; i < USERS; i++) {
+            users.add(createCredentials("access" + i, "refresh" + i));
+        }
+
+        weekStart = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        for (int i = 0; i < EVENTS_PER_WEEK; i++) {
+            googleCalendarService.addEvent(createAppointment(weekStart.plusHours(i * 4L)), users.get(0));
+        }
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() throws IOException {
+        TestLogging.info(this.getClass(), "Load test with '{}' threads, '{}' ms of latency and '{}' processors.", THREADS,
+                LATENCY_MILLISECONDS, Runtime.getRuntime().availableProcessors());
+        summary.forEach(line -> TestLogging.info(this.getClass(), line));
+        if (googleTokenManager != null) {
+            googleTokenManager.destroy();
+        }
+        if (googleHttpTransportProvider != null) {
+            googleHttpTransportProvider.destroy();
+        }
+        if (stubServer != null) {
+            stubServer.close();
+        }
+    }
+
+    @Test
+    public void getEvents() throws Exception {
+        load("getEvents", OPERATIONS, index ->
+                Assert.assertEquals(googleCalendarService.getEvents(weekStart, weekStart.plusDays(7), getUser(index)).size(), EVENTS_PER_WEEK));
+    }
+
+    @Test
+    public void getEvent() throws Exception {
+        final String externalReference = googleCalendarService.addEvent(createAppointment(weekStart.minusDays(1)), users.get(0));
+        load("getEvent", OPERATIONS, index -> Assert.assertNotNull(googleCalendarService.getEvent(externalReference, getUser(index))));
+    }
+
+    @Test
+    public void getFreeBusy() throws Exception {
+        load("getFreeBusy", OPERATIONS, index ->
+                Assert.assertFalse(googleCalendarService.getFreeBusy(weekStart, weekStart.plusDays(7), getUser(index)).isEmpty()));
+    }
+
+    @Test
+    public void addAndDeleteEvent() throws Exception {
+        final Queue<AppointmentDTO> created = new ConcurrentLinkedQueue<>();
+        load("addEvent", OPERATIONS, index -> {
+            final AppointmentDTO appointmentDTO = createAppointment(weekStart.minusWeeks(1).plusMinutes(index));
+            appointmentDTO.setExternalReference(googleCalendarService.addEvent(appointmentDTO, getUser(index)));
+            created.add(appointmentDTO);
+        });
+        load("deleteEvent", OPERATIONS, index -> googleCalendarService.deleteEvent(created.remove(), getUser(index)));
+    }
+
+    @Test
+    public void addAndDeleteEvents() throws Exception {
+        final Queue<List<AppointmentDTO>> created = new ConcurrentLinkedQueue<>();
+        load("addEvents (" + BATCH_SIZE + ")", OPERATIONS, index -> {
+            final List<AppointmentDTO> appointments = new ArrayList<>();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                appointments.add(createAppointment(weekStart.minusWeeks(2).plusMinutes((long) index * BATCH_SIZE + i)));
+            }
+            final List<BatchItemResult> results = googleCalendarService.addEvents(appointments, getUser(index));
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Assert.assertTrue(results.get(i).isSuccessful());
+                appointments.get(i).setExternalReference(results.get(i).getExternalReference());
+            }
+            created.add(appointments);
+        });
+        load("deleteEvents (" + BATCH_SIZE + ")", OPERATIONS, index -> googleCalendarService.deleteEvents(created.remove(), getUser(index))
+                .forEach(result -> Assert.assertTrue(result.isSuccessful())));
+    }
+
+    @Test
+    public void updateToken() throws Exception {
+        final int tokensBefore = stubServer.getTokenRequests();
+        //Different refresh tokens each time, as recent refreshes of the same user are reused.
+        load("updateToken", OPERATIONS, index -> Assert.assertNotNull(googleCalendarService.updateToken(
+                createCredentials("expired" + index, "refresh-" + UUID.randomUUID())).getCredentialData(CredentialData.class).getAccessToken()));
+        Assert.assertTrue(stubServer.getTokenRequests() - tokensBefore >= OPERATIONS);
+    }
+
+    @Test(dependsOnMethods = {"getEvents"})
+    public void getEventsWithErrors() throws Exception {
+        stubServer.setRandomErrors(503, ERROR_RATE);
+        try {
+            load("getEvents (" + Math.round(ERROR_RATE * 100) + "% HTTP 503)", ERROR_OPERATIONS, index ->
+                    Assert.assertEquals(googleCalendarService.getEvents(weekStart, weekStart.plusDays(7), getUser(index)).size(),
+                            EVENTS_PER_WEEK));
+        } finally {
+            stubServer.clearScriptedErrors();
+        }
+    }
+
+    /**
+     * Executes the operation from several threads, after some warm-up executions, and stores the requests per second and the
+     * latency percentiles.
+     */
+    private void load(String operationName, int operations, LoadOperation operation) throws Exception {
+        execute(WARM_UP_OPERATIONS, operation, new long[WARM_UP_OPERATIONS], OPERATIONS);
+        final long[] latencies = new long[operations];
+        final long start = System.nanoTime();
+        execute(operations, operation, latencies, 0);
+        final long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        summary.add(String.format("%-24s %8.1f req/s   p50 %7.2f ms   p99 %7.2f ms", operationName,
+                operations * 1_000_000_000d / elapsed, getPercentile(latencies, PERCENTILE_50), getPercentile(latencies, PERCENTILE_99)));
+    }
+
+    private void execute(int operations, LoadOperation operation, long[] latencies, int firstIndex)
+            throws InterruptedException, ExecutionException {
+        final AtomicInteger next = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                workers.add(executor.submit(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < operations) {
+                        final long start = System.nanoTime();
+                        operation.execute(firstIndex + index);
+                        latencies[index] = System.nanoTime() - start;
+                    }
+                    return null;
+                }));
+            }
+            //Any failed operation fails the test.
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private double getPercentile(long[] sortedLatencies, double percentile) {
+        return sortedLatencies[(int) Math.ceil(percentile * sortedLatencies.length) - 1] / 1_000_000d;
+    }
+
+    private ExternalCalendarCredentialsDTO getUser(int index) {
+        return users.get(index % USERS);
+    }
+
+    private ExternalCalendarCredentialsDTO createCredentials(String accessToken, String refreshToken) {
+        final ExternalCalendarCredentialsDTO credentials = new ExternalCalendarCredentialsDTO();
+        credentials.setCalendarProvider(CalendarProviderDTO.GOOGLE);
+        credentials.setUserId(UUID.randomUUID());
+        credentials.setCredentialData(new CredentialData(accessToken, refreshToken, ONE_HOUR,
+                GoogleCalendarService.REFRESH_TOKEN_EXPIRATION_SECONDS * MILLISECONDS));
+        return credentials;
+    }
+
+    private AppointmentDTO createAppointment(LocalDateTime start) {
+        final AppointmentDTO appointmentDTO = new AppointmentDTO();
+        appointmentDTO.setTitle("Load test");
+        appointmentDTO.setStartTime(start);
+        appointmentDTO.setEndTime(start.plusHours(1));
+        return appointmentDTO;
+    }
+
+    @FunctionalInterface
+    private interface LoadOperation {
+        void execute(int index) throws Exception;
+    }
+}
@@ -0,0 +1,143 @@
+package com.biit.appointment.google.metrics;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.cache.EventWindowCache;
+import com.biit.appointment.google.cache.GoogleClientCache;
+import com.biit.appointment.google.cache.GoogleEventCache;
+import com.biit.appointment.google.cache.LastKnownEventCache;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.retry.GoogleRetryPolicy;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.stub.StubEvents;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import com.biit.appointment.google.token.GoogleTokenRefreshListener;
+import com.google.api.client.auth.oauth2.Credential;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+
+@Test(groups = {"metricsTests"})
+public class GoogleMetricsTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    private GoogleCalendarStubServer stubServer;
+    private SimpleMeterRegistry meterRegistry;
+    private GoogleClientProvider googleClientProvider;
+    private GoogleTokenManager googleTokenManager;
+    private Credential credential;
+
+    @BeforeClass
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        meterRegistry = new SimpleMeterRegistry();
+        final GoogleRetryPolicy googleRetryPolicy = new GoogleRetryPolicy();
+        ReflectionTestUtils.setField(googleRetryPolicy, "initialDelayMilliseconds", 10L);
+        final GoogleClientCache googleClientCache = new GoogleClientCache();
+        final GoogleEventCache googleEventCache = new GoogleEventCache();
+        final GoogleMetrics googleMetrics = new GoogleMetrics(meterRegistry);
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).clientCache(googleClientCache).eventCache(googleEventCache)
+                .retryPolicy(googleRetryPolicy).metrics(googleMetrics).build();
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+
+        googleTokenManager = new GoogleTokenManager(googleClientProvider,
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        new GoogleMetricsBinder(googleMetrics, googleClientCache, googleEventCache, new LastKnownEventCache(), new EventWindowCache(),
+                googleTokenManager);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        googleTokenManager.destroy();
+        stubServer.close();
+    }
+
+    @Test
+    public void operationsAreTimed() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Measured event"), credential);
+        googleClientProvider.getEvent(eventId, credential);
+        googleClientProvider.getEvents(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), credential);
+        googleClientProvider.deleteCalendarEvent(eventId, credential);
+
+        for (String operation : new String[]{"insert", "get", "list", "delete"}) {
+            final Timer timer = meterRegistry.find(GoogleMetrics.REQUESTS_TIMER).tags(GoogleMetrics.OPERATION_TAG, operation,
+                    GoogleMetrics.OUTCOME_TAG, "SUCCESS").timer();
+            Assert.assertNotNull(timer, operation);
+            Assert.assertTrue(timer.count() > 0, operation);
+        }
+        Assert.assertEquals(meterRegistry.get(GoogleMetrics.IN_FLIGHT_GAUGE).gauge().value(), 0d);
+    }
+
+    @Test
+    public void errorsAreTaggedWithStatus() throws GeneralSecurityException, IOException {
+        googleClientProvider.deleteCalendarEvent(GoogleClientProvider.PRIMARY_CALENDAR_ID, "doesNotExist", null, credential);
+
+        final Timer timer = meterRegistry.find(GoogleMetrics.REQUESTS_TIMER).tags(GoogleMetrics.OPERATION_TAG, "delete",
+                GoogleMetrics.OUTCOME_TAG, "CLIENT_ERROR", GoogleMetrics.STATUS_TAG, "404").timer();
+        Assert.assertNotNull(timer);
+        Assert.assertEquals(timer.count(), 1);
+    }
+
+    @Test
+    public void retriesAreCounted() throws GeneralSecurityException, IOException {
+        final String eventId = googleClientProvider.createCalendarEvent(StubEvents.createEvent("Measured event"), credential);
+        stubServer.scriptError(503, null, 2);
+        try {
+            googleClientProvider.getEvent(eventId, credential);
+        } finally {
+            stubServer.clearScriptedErrors();
+        }
+
+        final Counter failedCalls = meterRegistry.find(GoogleMetrics.CALLS_COUNTER).tags(GoogleMetrics.OPERATION_TAG, "get",
+                GoogleMetrics.STATUS_TAG, "503").counter();
+        Assert.assertNotNull(failedCalls);
+        Assert.assertEquals(failedCalls.count(), 2d);
+        Assert.assertNull(meterRegistry.find(GoogleMetrics.REQUESTS_TIMER).tags(GoogleMetrics.OPERATION_TAG, "get",
+                GoogleMetrics.STATUS_TAG, "503").timer());
+    }
+
+    @Test
+    public void gaugesAreRegistered() {
+        Assert.assertEquals(meterRegistry.find(GoogleMetricsBinder.CACHE_SIZE_GAUGE).gauges().size(), 4);
+        for (String counter : new String[]{GoogleMetricsBinder.CACHE_HITS_COUNTER, GoogleMetricsBinder.CACHE_MISSES_COUNTER,
+                GoogleMetricsBinder.CACHE_EVICTIONS_COUNTER}) {
+            Assert.assertNotNull(meterRegistry.find(counter).tags("cache", "client").functionCounter(), counter);
+        }
+        Assert.assertNotNull(meterRegistry.find(GoogleMetricsBinder.CACHE_HIT_RATIO_GAUGE).tags("cache", "event").gauge());
+        Assert.assertNotNull(meterRegistry.find(GoogleMetricsBinder.CACHE_BYTES_SAVED_COUNTER).tags("cache", "event").functionCounter());
+        Assert.assertNotNull(meterRegistry.find(GoogleMetricsBinder.TRACKED_TOKENS_GAUGE).gauge());
+        Assert.assertTrue(Double.isNaN(meterRegistry.get(GoogleMetricsBinder.TOKEN_EXPIRATION_GAUGE).gauge().value()));
+    }
+}
@@ -0,0 +1,149 @@
+package com.biit.appointment.google.ratelimit;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.util.DateTime;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.UUID;
+
+@Test(groups = {"rateLimiterTests"})
+public class GoogleRateLimiterTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    @Test
+    public void failFastWhenBucketIsEmpty() throws IOException {
+        final GoogleRateLimiter googleRateLimiter = createRateLimiter(RateLimitMode.FAIL_FAST, 2, 100);
+
+        googleRateLimiter.acquire("user1");
+        googleRateLimiter.acquire("user1");
+        try {
+            googleRateLimiter.acquire("user1");
+            Assert.fail("Exception expected.");
+        } catch (RateLimitExceededException e) {
+            Assert.assertTrue(e.getBucket().contains("user1"));
+        }
+        //Other users have their own bucket.
+        googleRateLimiter.acquire("user2");
+    }
+
+    @Test
+    public void projectBucketIsShared() throws IOException {
+        final GoogleRateLimiter googleRateLimiter = createRateLimiter(RateLimitMode.FAIL_FAST, 100, 100);
+        ReflectionTestUtils.setField(googleRateLimiter, "projectCapacity", 3L);
+
+        for (int i = 0; i < 3; i++) {
+            googleRateLimiter.acquire(UUID.randomUUID().toString());
+        }
+        try {
+            googleRateLimiter.acquire(UUID.randomUUID().toString());
+            Assert.fail("Exception expected.");
+        } catch (RateLimitExceededException e) {
+            Assert.assertTrue(e.getBucket().contains("project"));
+        }
+    }
+
+    @Test
+    public void rejectedRequestsKeepTheUserToken() throws IOException {
+        final GoogleRateLimiter googleRateLimiter = createRateLimiter(RateLimitMode.FAIL_FAST, 2, 0.01);
+        ReflectionTestUtils.setField(googleRateLimiter, "projectCapacity", 1L);
+        ReflectionTestUtils.setField(googleRateLimiter, "projectTokensPerSecond", 0.01);
+
+        googleRateLimiter.acquire("user");
+        //Rejected by the project bucket each time, not by an exhausted user bucket.
+        for (int i = 0; i < 2; i++) {
+            try {
+                googleRateLimiter.acquire("user");
+                Assert.fail("Exception expected.");
+            } catch (RateLimitExceededException e) {
+                Assert.assertTrue(e.getBucket().contains("project"));
+            }
+        }
+        Assert.assertEquals(googleRateLimiter.getRateLimiterBackend().tryAcquire("google-user:user", 0.01, 2), 0);
+        Assert.assertTrue(googleRateLimiter.getRateLimiterBackend().tryAcquire("google-user:user", 0.01, 2) > 0);
+    }
+
+    @Test
+    public void fullBucketsAreEvicted() throws InterruptedException {
+        final InMemoryRateLimiterBackend rateLimiterBackend = new InMemoryRateLimiterBackend(Duration.ZERO);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(rateLimiterBackend.tryAcquire("idle" + i, 1000, 1), 0);
+        }
+        Assert.assertEquals(rateLimiterBackend.tryAcquire("busy", 0.01, 1), 0);
+        Thread.sleep(20);
+
+        Assert.assertEquals(rateLimiterBackend.tryAcquire("other", 1000, 1), 0);
+        Assert.assertEquals(rateLimiterBackend.size(), 2);
+        //The bucket still being refilled keeps its state.
+        Assert.assertTrue(rateLimiterBackend.tryAcquire("busy", 0.01, 1) > 0);
+    }
+
+    @Test
+    public void blockingWaitsForRefill() throws IOException {
+        final GoogleRateLimiter googleRateLimiter = createRateLimiter(RateLimitMode.BLOCKING, 1, 10);
+
+        final long start = System.currentTimeMillis();
+        googleRateLimiter.acquire("user");
+        googleRateLimiter.acquire("user");
+        googleRateLimiter.acquire("user");
+        //Two refills of 100 ms.
+        Assert.assertTrue(System.currentTimeMillis() - start >= 180);
+    }
+
+    @Test
+    public void limitedRequestsAreNotSentNorRetried() throws IOException, GeneralSecurityException {
+        final GoogleRateLimiter googleRateLimiter = createRateLimiter(RateLimitMode.FAIL_FAST, 1, 0.01);
+        try (GoogleCalendarStubServer stubServer = new GoogleCalendarStubServer()) {
+            final GoogleClientProvider googleClientProvider = StubClientProviderBuilder.forServer(stubServer).rateLimiter(googleRateLimiter)
+                    .build();
+            final Credential credential = googleClientProvider.getCredentials(UUID.randomUUID(),
+                    new CredentialData("access", "refresh", ONE_HOUR, null));
+
+            googleClientProvider.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID, new DateTime(0), null, credential);
+            try {
+                googleClientProvider.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID, new DateTime(0), null, credential);
+                Assert.fail("Exception expected.");
+            } catch (RateLimitExceededException e) {
+                Assert.assertEquals(stubServer.getHttpRequests(), 1);
+            }
+        }
+    }
+
+    private GoogleRateLimiter createRateLimiter(RateLimitMode mode, long userCapacity, double userTokensPerSecond) {
+        final GoogleRateLimiter googleRateLimiter = new GoogleRateLimiter();
+        ReflectionTestUtils.setField(googleRateLimiter, "mode", mode);
+        ReflectionTestUtils.setField(googleRateLimiter, "userCapacity", userCapacity);
+        ReflectionTestUtils.setField(googleRateLimiter, "userTokensPerSecond", userTokensPerSecond);
+        return googleRateLimiter;
+    }
+}
@@ -0,0 +1,134 @@
+package com.biit.appointment.google.retry;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.stub.StubEvents;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.util.DateTime;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+@Test(groups = {"retryTests"})
+public class GoogleRetryPolicyTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    private GoogleCalendarStubServer stubServer;
+    private GoogleRetryPolicy googleRetryPolicy;
+    private GoogleClientProvider googleClientProvider;
+    private Credential credential;
+
+    @BeforeClass
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        googleRetryPolicy = new GoogleRetryPolicy();
+        ReflectionTestUtils.setField(googleRetryPolicy, "initialDelayMilliseconds", 10L);
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).retryPolicy(googleRetryPolicy).build();
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void resetServer() {
+        stubServer.clearScriptedErrors();
+        ReflectionTestUtils.setField(googleRetryPolicy, "maxTotalMilliseconds", 60_000L);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        stubServer.close();
+    }
+
+    @Test
+    public void temporaryErrorsAreRetried() throws GeneralSecurityException, IOException {
+        stubServer.scriptError(429, null, 1);
+        stubServer.scriptError(503, null, 1);
+        stubServer.scriptError(403, null, 1);
+
+        final int requestsBefore = stubServer.getHttpRequests();
+        Assert.assertNotNull(googleClientProvider.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID, new DateTime(0), null, credential));
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, 4);
+    }
+
+    @Test
+    public void retryAfterIsHonored() throws GeneralSecurityException, IOException {
+        stubServer.scriptError(429, "1", 1);
+
+        final long start = System.currentTimeMillis();
+        googleClientProvider.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID, new DateTime(0), null, credential);
+        Assert.assertTrue(System.currentTimeMillis() - start >= 1000);
+    }
+
+    @Test
+    public void maxAttemptsAreRespected() throws GeneralSecurityException {
+        stubServer.scriptError(503, null, 10);
+
+        final int requestsBefore = stubServer.getHttpRequests();
+        try {
+            googleClientProvider.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID, new DateTime(0), null, credential);
+            Assert.fail("Exception expected.");
+        } catch (IOException e) {
+            Assert.assertEquals(((HttpResponseException) e).getStatusCode(), 503);
+        }
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, 5);
+    }
+
+    @Test
+    public void maxTotalTimeIsRespected() throws GeneralSecurityException {
+        ReflectionTestUtils.setField(googleRetryPolicy, "maxTotalMilliseconds", 500L);
+        stubServer.scriptError(429, "2", 2);
+
+        final long start = System.currentTimeMillis();
+        try {
+            googleClientProvider.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID, new DateTime(0), null, credential);
+            Assert.fail("Exception expected.");
+        } catch (IOException e) {
+            Assert.assertEquals(((HttpResponseException) e).getStatusCode(), 429);
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void insertIsOnlyRetriedOnRateLimits() throws GeneralSecurityException, IOException {
+        stubServer.scriptError(429, null, 1);
+        Assert.assertNotNull(googleClientProvider.createCalendarEvent(StubEvents.createEvent("Retried appointment"), credential));
+
+        stubServer.scriptError(503, null, 1);
+        try {
+            googleClientProvider.createCalendarEvent(StubEvents.createEvent("Retried appointment"), credential);
+            Assert.fail("Exception expected.");
+        } catch (HttpResponseException e) {
+            Assert.assertEquals(e.getStatusCode(), 503);
+        }
+    }
+}
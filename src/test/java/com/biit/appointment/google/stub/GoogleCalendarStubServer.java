@@ -0,0 +1,663 @@
+package com.biit.appointment.google.stub;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Channel;
+import com.google.api.services.calendar.model.Error;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import com.google.api.services.calendar.model.Events;
+import com.google.api.services.calendar.model.FreeBusyCalendar;
+import com.google.api.services.calendar.model.FreeBusyRequest;
+import com.google.api.services.calendar.model.FreeBusyRequestItem;
+import com.google.api.services.calendar.model.FreeBusyResponse;
+import com.google.api.services.calendar.model.TimePeriod;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the Google Calendar v3 API and the OAuth token endpoint, with events kept in memory. Each HTTP request
+ * waits the configured latency before being answered. It can be used through {@link #getTransport()}, that redirects the
+ * requests addressed to Google, or by setting {@link #getRootUrl()} and {@link #getTokenUri()} as 'google.api.root-url' and
+ * 'google.oauth.token-uri'.
+ */
+public class GoogleCalendarStubServer implements AutoCloseable {
+
+    public static final String GOOGLE_ROOT_URL = "https://www.googleapis.com/";
+    public static final String GOOGLE_TOKEN_URI = "https://oauth2.googleapis.com/token";
+
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+    private static final Pattern EVENTS_PATH = Pattern.compile("^/calendar/v3/calendars/([^/]+)/events(?:/([^/]+))?$");
+    private static final String FREE_BUSY_PATH = "/calendar/v3/freeBusy";
+    private static final String CHANNELS_STOP_PATH = "/calendar/v3/channels/stop";
+    private static final String TOKEN_PATH = "/token";
+    private static final int DEFAULT_PAGE_SIZE = 250;
+    private static final long TOKEN_LIFETIME_SECONDS = 3600;
+    private static final String WATCH_ID = "watch";
+    private static final long DEFAULT_CHANNEL_TTL_MILLISECONDS = 7 * 24 * 60 * 60 * 1000L;
+    private static final String BATCH_BOUNDARY = "batch_stub_boundary";
+    private static final String CRLF = "\r\n";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, Map<String, Event>> calendars = new ConcurrentHashMap<>();
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger httpRequests = new AtomicInteger();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private volatile boolean gzipResponses = false;
+    private volatile boolean chunkedResponses = false;
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private volatile String lastRequestUri;
+    private final Queue<ScriptedError> scriptedErrors = new ConcurrentLinkedQueue<>();
+    private final AtomicLong versions = new AtomicLong();
+    private volatile long latencyMilliseconds = 0;
+    private volatile int randomErrorStatus;
+    private volatile double randomErrorRate = 0;
+
+    static {
+        //Responses are written as headers and body. Without it, the body waits for the delayed ACK of the client.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    public GoogleCalendarStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String getRootUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    public String getTokenUri() {
+        return getRootUrl() + TOKEN_PATH.substring(1);
+    }
+
+    /**
+     * Transport that sends to this server any request addressed to Google.
+     *
+     * @return a new transport.
+     */
+    public HttpTransport getTransport() {
+        return new NetHttpTransport.Builder().setConnectionFactory(url -> (HttpURLConnection) redirect(url).openConnection()).build();
+    }
+
+    public void setLatencyMilliseconds(long latencyMilliseconds) {
+        this.latencyMilliseconds = latencyMilliseconds;
+    }
+
+    public int getHttpRequests() {
+        return httpRequests.get();
+    }
+
+    /**
+     * @return access tokens issued, from refresh tokens or authorization codes.
+     */
+    public int getTokenRequests() {
+        return tokenRequests.get();
+    }
+
+    /**
+     * @return size of all response bodies sent, before any compression.
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * @return size of all response bodies written, after compression.
+     */
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * Compresses the responses with gzip when the client accepts it, as Google does.
+     */
+    public void setGzipResponses(boolean gzipResponses) {
+        this.gzipResponses = gzipResponses;
+    }
+
+    /**
+     * Sends the responses with chunked encoding, without Content-Length.
+     */
+    public void setChunkedResponses(boolean chunkedResponses) {
+        this.chunkedResponses = chunkedResponses;
+    }
+
+    /**
+     * The next requests fail with this error, before being processed.
+     *
+     * @param status     HTTP status. HTTP 403 is answered with reason 'rateLimitExceeded'.
+     * @param retryAfter value of the 'Retry-After' header, or null.
+     * @param times      number of requests that fail.
+     */
+    public void scriptError(int status, String retryAfter, int times) {
+        for (int i = 0; i < times; i++) {
+            scriptedErrors.add(new ScriptedError(status, retryAfter));
+        }
+    }
+
+    /**
+     * The next requests are processed normally. Used before {@link #scriptError(int, String, int)} to fail a later request, as
+     * the second page of a list.
+     *
+     * @param times number of requests processed before the scripted errors added afterward.
+     */
+    public void scriptSuccess(int times) {
+        for (int i = 0; i < times; i++) {
+            scriptedErrors.add(new ScriptedError(0, null));
+        }
+    }
+
+    /**
+     * Each request fails with this probability, for load tests. Scripted errors are answered first.
+     *
+     * @param status HTTP status, as 429 or 503.
+     * @param rate   probability between 0 and 1. Zero disables the random errors.
+     */
+    public void setRandomErrors(int status, double rate) {
+        this.randomErrorStatus = status;
+        this.randomErrorRate = rate;
+    }
+
+    public void clearScriptedErrors() {
+        scriptedErrors.clear();
+        randomErrorRate = 0;
+    }
+
+    public String getLastRequestUri() {
+        return lastRequestUri;
+    }
+
+    public Map<String, Event> getEvents(String calendarId) {
+        return calendars.computeIfAbsent(calendarId, key -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @return the notification channels not stopped, by id.
+     */
+    public Map<String, Channel> getChannels() {
+        return channels;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private URL redirect(URL url) throws IOException {
+        final String value = url.toString();
+        if (value.startsWith(GOOGLE_ROOT_URL)) {
+            return new URL(getRootUrl() + value.substring(GOOGLE_ROOT_URL.length()));
+        }
+        if (value.startsWith(GOOGLE_TOKEN_URI)) {
+            return new URL(getTokenUri() + value.substring(GOOGLE_TOKEN_URI.length()));
+        }
+        return url;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            httpRequests.incrementAndGet();
+            lastRequestUri = exchange.getRequestURI().toString();
+            waitLatency();
+            final String body = readBody(exchange);
+            final ScriptedError scriptedError = getError();
+            if (scriptedError != null) {
+                if (scriptedError.retryAfter() != null) {
+                    exchange.getResponseHeaders().set("Retry-After", scriptedError.retryAfter());
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                send(exchange, error(scriptedError.status(), scriptedError.status() == 403 ? "rateLimitExceeded" : "backendError",
+                        "Scripted error"));
+                return;
+            }
+            if (TOKEN_PATH.equals(exchange.getRequestURI().getPath())) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                send(exchange, token(body));
+            } else if (exchange.getRequestURI().getPath().startsWith("/batch/")) {
+                final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                final String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length());
+                final StubResponse response = new StubResponse(200, handleBatch(body, boundary));
+                exchange.getResponseHeaders().set("Content-Type", "multipart/mixed; boundary=" + BATCH_BOUNDARY);
+                send(exchange, response);
+            } else {
+                final StubResponse response = process(exchange.getRequestMethod(), exchange.getRequestURI(), getHeaders(exchange), body);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                send(exchange, response);
+            }
+        }
+    }
+
+    private ScriptedError getError() {
+        final ScriptedError scriptedError = scriptedErrors.poll();
+        if (scriptedError != null && scriptedError.status() == 0) {
+            return null;
+        }
+        if (scriptedError == null && randomErrorRate > 0 && ThreadLocalRandom.current().nextDouble() < randomErrorRate) {
+            return new ScriptedError(randomErrorStatus, null);
+        }
+        return scriptedError;
+    }
+
+    /**
+     * OAuth token endpoint. Any refresh token or authorization code is accepted.
+     */
+    private StubResponse token(String body) {
+        final URI form = URI.create("?" + body);
+        final String grantType = getQueryParameter(form, "grant_type");
+        if (!"refresh_token".equals(grantType) && !"authorization_code".equals(grantType)) {
+            return new StubResponse(400, "{\"error\":\"unsupported_grant_type\"}");
+        }
+        final int token = tokenRequests.incrementAndGet();
+        //As Google, a new refresh token is only issued for authorization codes.
+        return new StubResponse(200, "{\"access_token\":\"stub-access-" + token + "\",\"expires_in\":" + TOKEN_LIFETIME_SECONDS
+                + ",\"token_type\":\"Bearer\"" + ("authorization_code".equals(grantType) ? ",\"refresh_token\":\"stub-refresh-" + token + "\"" : "")
+                + "}");
+    }
+
+    private String readBody(HttpExchange exchange) throws IOException {
+        //Google client compresses the content of the requests.
+        final InputStream inputStream = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+                ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody();
+        return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private void send(HttpExchange exchange, StubResponse response) throws IOException {
+        if (response.getBody() == null) {
+            exchange.sendResponseHeaders(response.getStatus(), -1);
+            return;
+        }
+        byte[] content = response.getBody().getBytes(StandardCharsets.UTF_8);
+        bytesSent.addAndGet(content.length);
+        final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (gzipResponses && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+                gzipOutputStream.write(content);
+            }
+            content = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        bytesWritten.addAndGet(content.length);
+        exchange.sendResponseHeaders(response.getStatus(), chunkedResponses ? 0 : content.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(content);
+        }
+    }
+
+    /**
+     * Executes each request of a multipart batch and returns the multipart response body.
+     */
+    private String handleBatch(String body, String boundary) throws IOException {
+        final StringBuilder responseBody = new StringBuilder();
+        for (String part : body.split("--" + boundary)) {
+            final int requestStart = part.indexOf(CRLF + CRLF);
+            if (requestStart < 0) {
+                continue;
+            }
+            final String request = part.substring(requestStart + (CRLF + CRLF).length());
+            final int contentStart = request.indexOf(CRLF + CRLF);
+            final String[] requestLines = (contentStart >= 0 ? request.substring(0, contentStart) : request.trim()).split(CRLF);
+            final String[] requestLine = requestLines[0].split(" ");
+            final Map<String, String> headers = new HashMap<>();
+            for (int i = 1; i < requestLines.length; i++) {
+                final int separator = requestLines[i].indexOf(':');
+                if (separator > 0) {
+                    headers.put(requestLines[i].substring(0, separator).trim().toLowerCase(Locale.ROOT), requestLines[i].substring(separator + 1).trim());
+                }
+            }
+            final String content = contentStart >= 0 ? request.substring(contentStart + (CRLF + CRLF).length()).trim() : "";
+            final StubResponse response = process(requestLine[0], URI.create(requestLine[1]), headers, content);
+
+            responseBody.append("--").append(BATCH_BOUNDARY).append(CRLF)
+                    .append("Content-Type: application/http").append(CRLF).append(CRLF)
+                    .append("HTTP/1.1 ").append(response.getStatus()).append(' ').append(response.getReason()).append(CRLF);
+            if (response.getBody() != null) {
+                responseBody.append("Content-Type: application/json; charset=UTF-8").append(CRLF).append(CRLF)
+                        .append(response.getBody()).append(CRLF);
+            } else {
+                responseBody.append(CRLF);
+            }
+        }
+        responseBody.append("--").append(BATCH_BOUNDARY).append("--").append(CRLF);
+        return responseBody.toString();
+    }
+
+    private Map<String, String> getHeaders(HttpExchange exchange) {
+        final Map<String, String> headers = new HashMap<>();
+        exchange.getRequestHeaders().forEach((name, values) -> headers.put(name.toLowerCase(Locale.ROOT), values.get(0)));
+        return headers;
+    }
+
+    private StubResponse process(String method, URI uri, Map<String, String> headers, String body) throws IOException {
+        if (FREE_BUSY_PATH.equals(uri.getPath()) && "POST".equals(method)) {
+            return freeBusy(JSON_FACTORY.fromString(body, FreeBusyRequest.class));
+        }
+        if (CHANNELS_STOP_PATH.equals(uri.getPath()) && "POST".equals(method)) {
+            final Channel channel = JSON_FACTORY.fromString(body, Channel.class);
+            final Channel stoppedChannel = channels.get(channel.getId());
+            if (stoppedChannel == null || !stoppedChannel.getResourceId().equals(channel.getResourceId())) {
+                return error(404, "Channel not found");
+            }
+            channels.remove(channel.getId());
+            return new StubResponse(204, null);
+        }
+        final Matcher matcher = EVENTS_PATH.matcher(uri.getPath());
+        if (!matcher.matches()) {
+            return error(404, "Not Found");
+        }
+        final Map<String, Event> events = getEvents(matcher.group(1));
+        final String eventId = matcher.group(2);
+        if (eventId == null) {
+            if ("POST".equals(method)) {
+                final Event event = JSON_FACTORY.fromString(body, Event.class);
+                if (event.getId() == null) {
+                    event.setId(UUID.randomUUID().toString().replace("-", ""));
+                } else if (events.containsKey(event.getId())) {
+                    return error(409, "duplicate", "The requested identifier already exists.");
+                }
+                event.setStatus("confirmed");
+                event.setEtag("\"" + versions.incrementAndGet() + "\"");
+                events.put(event.getId(), event);
+                return new StubResponse(200, JSON_FACTORY.toString(event));
+            }
+            return new StubResponse(200, applyFields(JSON_FACTORY.toString(list(events, uri)), uri));
+        }
+        if (WATCH_ID.equals(eventId) && "POST".equals(method)) {
+            final Channel channel = JSON_FACTORY.fromString(body, Channel.class);
+            if (channels.containsKey(channel.getId())) {
+                return error(400, "channelIdNotUnique", "Channel id not unique");
+            }
+            channel.setResourceId("resource-" + matcher.group(1)).setResourceUri(uri.toString()).setKind("api#channel");
+            if (channel.getExpiration() == null) {
+                channel.setExpiration(System.currentTimeMillis() + DEFAULT_CHANNEL_TTL_MILLISECONDS);
+            }
+            channels.put(channel.getId(), channel);
+            return new StubResponse(200, JSON_FACTORY.toString(channel));
+        }
+        final Event event = events.get(eventId);
+        if (event == null) {
+            return error(404, "Not Found");
+        }
+        if ("DELETE".equals(method)) {
+            if ("cancelled".equals(event.getStatus())) {
+                return error(410, "Resource has been deleted");
+            }
+            if (headers.containsKey("if-match") && !headers.get("if-match").equals(event.getEtag())) {
+                return error(412, "Precondition Failed");
+            }
+            event.setStatus("cancelled");
+            event.setEtag("\"" + versions.incrementAndGet() + "\"");
+            return new StubResponse(204, null);
+        }
+        if ("PUT".equals(method)) {
+            final Event updated = JSON_FACTORY.fromString(body, Event.class).setId(eventId);
+            if (updated.getStatus() == null) {
+                updated.setStatus("confirmed");
+            }
+            updated.setEtag("\"" + versions.incrementAndGet() + "\"");
+            events.put(eventId, updated);
+            return new StubResponse(200, JSON_FACTORY.toString(updated));
+        }
+        if (headers.containsKey("if-none-match") && headers.get("if-none-match").equals(event.getEtag())) {
+            return new StubResponse(304, null);
+        }
+        return new StubResponse(200, applyFields(JSON_FACTORY.toString(event), uri));
+    }
+
+    /**
+     * Sync tokens are the last version returned. Only events changed afterward are listed. Page tokens are the offset on
+     * the sorted events and the version when the first page was read, so events changed while reading the pages are
+     * listed again on the next synchronization.
+     */
+    private Events list(Map<String, Event> events, URI uri) {
+        final String syncToken = getQueryParameter(uri, "syncToken");
+        final String pageToken = getQueryParameter(uri, "pageToken");
+        final int offset = pageToken != null ? Integer.parseInt(pageToken.substring(0, pageToken.indexOf(':'))) : 0;
+        final long version = pageToken != null ? Long.parseLong(pageToken.substring(pageToken.indexOf(':') + 1)) : versions.get();
+        //Google does not allow time bounds with sync tokens. timeMin bounds the end of the events, and timeMax their start.
+        final long timeMin = syncToken == null ? getTime(uri, "timeMin", Long.MIN_VALUE) : Long.MIN_VALUE;
+        final long timeMax = syncToken == null ? getTime(uri, "timeMax", Long.MAX_VALUE) : Long.MAX_VALUE;
+        final List<Event> items = new ArrayList<>();
+        for (Event event : events.values()) {
+            if ((syncToken == null || getVersion(event) > Long.parseLong(syncToken))
+                    && getTime(event.getEnd(), Long.MAX_VALUE) > timeMin && getTime(event.getStart(), Long.MIN_VALUE) < timeMax) {
+                items.add(event);
+            }
+        }
+        items.sort(Comparator.comparingLong((Event event) -> getTime(event.getStart(), Long.MIN_VALUE)).thenComparing(Event::getId));
+
+        final String maxResults = getQueryParameter(uri, "maxResults");
+        final int end = Math.min(items.size(), offset + (maxResults != null ? Integer.parseInt(maxResults) : DEFAULT_PAGE_SIZE));
+        final Events page = new Events().setItems(new ArrayList<>(items.subList(Math.min(offset, end), end)));
+        if (end < items.size()) {
+            return page.setNextPageToken(end + ":" + version);
+        }
+        return page.setNextSyncToken(String.valueOf(version));
+    }
+
+    private long getTime(URI uri, String parameter, long defaultValue) {
+        final String value = getQueryParameter(uri, parameter);
+        return value != null ? DateTime.parseRfc3339(value).getValue() : defaultValue;
+    }
+
+    private long getTime(EventDateTime eventDateTime, long defaultValue) {
+        if (eventDateTime == null) {
+            return defaultValue;
+        }
+        if (eventDateTime.getDateTime() != null) {
+            return eventDateTime.getDateTime().getValue();
+        }
+        return eventDateTime.getDate() != null ? eventDateTime.getDate().getValue() : defaultValue;
+    }
+
+    private long getVersion(Event event) {
+        try {
+            return event.getEtag() != null ? Long.parseLong(event.getEtag().replace("\"", "")) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Partial responses. Supports masks as 'nextPageToken,items(id,start)'.
+     */
+    private String applyFields(String json, URI uri) throws IOException {
+        final String fields = getQueryParameter(uri, "fields");
+        if (fields == null) {
+            return json;
+        }
+        return JSON_FACTORY.toString(filter(JSON_FACTORY.fromString(json, GenericJson.class), fields));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object filter(Object value, String fields) {
+        if (value instanceof List<?> list) {
+            return list.stream().map(item -> filter(item, fields)).toList();
+        }
+        if (!(value instanceof Map<?, ?>)) {
+            return value;
+        }
+        final Map<String, Object> map = (Map<String, Object>) value;
+        final Map<String, Object> filtered = new GenericJson();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= fields.length(); i++) {
+            final char character = i < fields.length() ? fields.charAt(i) : ',';
+            if (character == '(') {
+                depth++;
+            } else if (character == ')') {
+                depth--;
+            } else if (character == ',' && depth == 0) {
+                final String field = fields.substring(start, i).trim();
+                final int subFields = field.indexOf('(');
+                final String name = subFields >= 0 ? field.substring(0, subFields) : field;
+                if (map.containsKey(name)) {
+                    filtered.put(name, subFields >= 0
+                            ? filter(map.get(name), field.substring(subFields + 1, field.length() - 1)) : map.get(name));
+                }
+                start = i + 1;
+            }
+        }
+        return filtered;
+    }
+
+    private String getQueryParameter(URI uri, String name) {
+        if (uri.getRawQuery() == null) {
+            return null;
+        }
+        for (String parameter : uri.getRawQuery().split("&")) {
+            final int separator = parameter.indexOf('=');
+            if (separator > 0 && parameter.substring(0, separator).equals(name)) {
+                return URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Busy periods are the not cancelled events of each calendar overlapping the requested interval. Calendars without
+     * events are unknown.
+     */
+    private StubResponse freeBusy(FreeBusyRequest request) throws IOException {
+        final long timeMin = request.getTimeMin().getValue();
+        final long timeMax = request.getTimeMax().getValue();
+        final Map<String, FreeBusyCalendar> freeBusyCalendars = new HashMap<>();
+        for (FreeBusyRequestItem item : request.getItems()) {
+            final Map<String, Event> events = calendars.get(item.getId());
+            if (events == null) {
+                freeBusyCalendars.put(item.getId(), new FreeBusyCalendar()
+                        .setErrors(List.of(new Error().setDomain("global").setReason("notFound"))));
+                continue;
+            }
+            final List<TimePeriod> busy = new ArrayList<>();
+            for (Event event : events.values()) {
+                if ("cancelled".equals(event.getStatus()) || event.getStart() == null || event.getStart().getDateTime() == null) {
+                    continue;
+                }
+                if (event.getStart().getDateTime().getValue() < timeMax && event.getEnd().getDateTime().getValue() > timeMin) {
+                    busy.add(new TimePeriod().setStart(event.getStart().getDateTime()).setEnd(event.getEnd().getDateTime()));
+                }
+            }
+            freeBusyCalendars.put(item.getId(), new FreeBusyCalendar().setBusy(busy));
+        }
+        return new StubResponse(200, JSON_FACTORY.toString(new FreeBusyResponse().setKind("calendar#freeBusy")
+                .setTimeMin(request.getTimeMin()).setTimeMax(request.getTimeMax()).setCalendars(freeBusyCalendars)));
+    }
+
+    private StubResponse error(int status, String message) {
+        return error(status, null, message);
+    }
+
+    private StubResponse error(int status, String reason, String message) {
+        return new StubResponse(status, "{\"error\":{\"code\":" + status + ",\"message\":\"" + message + "\",\"errors\":[{"
+                + (reason != null ? "\"reason\":\"" + reason + "\"," : "") + "\"message\":\"" + message + "\"}]}}");
+    }
+
+    private void waitLatency() {
+        if (latencyMilliseconds > 0) {
+            try {
+                Thread.sleep(latencyMilliseconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private record ScriptedError(int status, String retryAfter) {
+    }
+
+    private static final class StubResponse {
+        private final int status;
+        private final String body;
+
+        private StubResponse(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        private int getStatus() {
+            return status;
+        }
+
+        private String getBody() {
+            return body;
+        }
+
+        private String getReason() {
+            return switch (status) {
+                case 200 -> "OK";
+                case 204 -> "No Content";
+                case 400 -> "Bad Request";
+                case 304 -> "Not Modified";
+                case 404 -> "Not Found";
+                case 410 -> "Gone";
+                case 412 -> "Precondition Failed";
+                case 429 -> "Too Many Requests";
+                case 503 -> "Service Unavailable";
+                default -> "Error";
+            };
+        }
+    }
+}
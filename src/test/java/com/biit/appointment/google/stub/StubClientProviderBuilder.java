@@ -0,0 +1,110 @@
+package com.biit.appointment.google.stub;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.cache.GoogleClientCache;
+import com.biit.appointment.google.cache.GoogleEventCache;
+import com.biit.appointment.google.circuit.GoogleCircuitBreaker;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.http.GoogleHttpTransportProvider;
+import com.biit.appointment.google.metrics.GoogleMetrics;
+import com.biit.appointment.google.ratelimit.GoogleRateLimiter;
+import com.biit.appointment.google.retry.GoogleRetryPolicy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Builds a {@link GoogleClientProvider} for tests. Components not set use their defaults. The client id is always set, so
+ * credentials can be created from stored credential data.
+ */
+public class StubClientProviderBuilder {
+
+    private static final String CLIENT_ID = "clientId";
+
+    private final GoogleHttpTransportProvider googleHttpTransportProvider;
+    private GoogleClientCache googleClientCache = new GoogleClientCache();
+    private GoogleEventCache googleEventCache = new GoogleEventCache();
+    private GoogleRetryPolicy googleRetryPolicy = new GoogleRetryPolicy();
+    private GoogleRateLimiter googleRateLimiter = new GoogleRateLimiter();
+    private GoogleCircuitBreaker googleCircuitBreaker = new GoogleCircuitBreaker();
+    private GoogleMetrics googleMetrics = new GoogleMetrics();
+    private GoogleCalendarStubServer endpointsServer;
+
+    public StubClientProviderBuilder(GoogleHttpTransportProvider googleHttpTransportProvider) {
+        this.googleHttpTransportProvider = googleHttpTransportProvider;
+    }
+
+    /**
+     * Sends all requests to the stub server, whatever their URL is.
+     */
+    public static StubClientProviderBuilder forServer(GoogleCalendarStubServer stubServer) {
+        return new StubClientProviderBuilder(new StubHttpTransportProvider(stubServer));
+    }
+
+    public StubClientProviderBuilder clientCache(GoogleClientCache googleClientCache) {
+        this.googleClientCache = googleClientCache;
+        return this;
+    }
+
+    public StubClientProviderBuilder eventCache(GoogleEventCache googleEventCache) {
+        this.googleEventCache = googleEventCache;
+        return this;
+    }
+
+    public StubClientProviderBuilder retryPolicy(GoogleRetryPolicy googleRetryPolicy) {
+        this.googleRetryPolicy = googleRetryPolicy;
+        return this;
+    }
+
+    public StubClientProviderBuilder rateLimiter(GoogleRateLimiter googleRateLimiter) {
+        this.googleRateLimiter = googleRateLimiter;
+        return this;
+    }
+
+    public StubClientProviderBuilder circuitBreaker(GoogleCircuitBreaker googleCircuitBreaker) {
+        this.googleCircuitBreaker = googleCircuitBreaker;
+        return this;
+    }
+
+    public StubClientProviderBuilder metrics(GoogleMetrics googleMetrics) {
+        this.googleMetrics = googleMetrics;
+        return this;
+    }
+
+    /**
+     * Uses the URLs of the stub server as Google endpoints, for transports that send requests to their real URL.
+     */
+    public StubClientProviderBuilder endpoints(GoogleCalendarStubServer stubServer) {
+        this.endpointsServer = stubServer;
+        return this;
+    }
+
+    public GoogleClientProvider build() {
+        final GoogleClientProvider googleClientProvider = new GoogleClientProvider(googleHttpTransportProvider, googleClientCache,
+                googleEventCache, googleRetryPolicy, googleRateLimiter, googleCircuitBreaker, googleMetrics);
+        ReflectionTestUtils.setField(googleClientProvider, "clientId", CLIENT_ID);
+        if (endpointsServer != null) {
+            ReflectionTestUtils.setField(googleClientProvider, "rootUrl", endpointsServer.getRootUrl());
+            ReflectionTestUtils.setField(googleClientProvider, "tokenUri", endpointsServer.getTokenUri());
+        }
+        return googleClientProvider;
+    }
+}
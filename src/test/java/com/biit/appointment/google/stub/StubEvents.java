@@ -0,0 +1,51 @@
+package com.biit.appointment.google.stub;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+
+/**
+ * Events to be created on the stub server by tests.
+ */
+public final class StubEvents {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    private StubEvents() {
+    }
+
+    /**
+     * Creates an event of one hour starting now.
+     */
+    public static Event createEvent(String summary) {
+        final long now = System.currentTimeMillis();
+        return createEvent(summary, now, now + ONE_HOUR);
+    }
+
+    public static Event createEvent(String summary, long start, long end) {
+        return new Event().setSummary(summary)
+                .setStart(new EventDateTime().setDateTime(new DateTime(start)).setTimeZone("UTC"))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(end)).setTimeZone("UTC"));
+    }
+}
@@ -0,0 +1,42 @@
+package com.biit.appointment.google.stub;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.google.http.GoogleHttpTransportProvider;
+import com.google.api.client.http.HttpTransport;
+
+/**
+ * Provides a transport that sends all Google requests to a {@link GoogleCalendarStubServer}.
+ */
+public class StubHttpTransportProvider extends GoogleHttpTransportProvider {
+
+    private final HttpTransport transport;
+
+    public StubHttpTransportProvider(GoogleCalendarStubServer stubServer) {
+        this.transport = stubServer.getTransport();
+    }
+
+    @Override
+    public synchronized HttpTransport getTransport() {
+        return transport;
+    }
+}
@@ -0,0 +1,220 @@
+package com.biit.appointment.google.sync;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.exceptions.ExternalCalendarActionException;
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.core.models.CalendarProviderDTO;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.biit.appointment.google.converter.GoogleCalendarCredentialsConverter;
+import com.biit.appointment.google.ratelimit.GoogleRateLimiter;
+import com.biit.appointment.google.retry.GoogleRetryPolicy;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import com.biit.appointment.google.token.GoogleTokenRefreshListener;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Test(groups = {"syncTests"})
+public class GoogleCalendarSyncServiceTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final int PAGE_SIZE = 2;
+
+    private final RecordingSyncTokenStore syncTokenStore = new RecordingSyncTokenStore();
+    private GoogleCalendarStubServer stubServer;
+    private GoogleClientProvider googleClientProvider;
+    private GoogleTokenManager googleTokenManager;
+    private GoogleCalendarSyncService googleCalendarSyncService;
+    private Credential credential;
+
+    @BeforeClass
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        final GoogleRetryPolicy googleRetryPolicy = new GoogleRetryPolicy();
+        ReflectionTestUtils.setField(googleRetryPolicy, "enabled", false);
+        final GoogleRateLimiter googleRateLimiter = new GoogleRateLimiter();
+        ReflectionTestUtils.setField(googleRateLimiter, "enabled", false);
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).retryPolicy(googleRetryPolicy).rateLimiter(googleRateLimiter)
+                .build();
+        //Many pages with a few events.
+        ReflectionTestUtils.setField(googleClientProvider, "pageSize", PAGE_SIZE);
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+        googleTokenManager = new GoogleTokenManager(googleClientProvider,
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+
+        final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("syncTokenStore", syncTokenStore);
+        googleCalendarSyncService = new GoogleCalendarSyncService(googleClientProvider, new AppointmentEventConverter(),
+                new GoogleCalendarCredentialsConverter(googleClientProvider, googleTokenManager),
+                beanFactory.getBeanProvider(SyncTokenStore.class));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void clearErrors() {
+        stubServer.clearScriptedErrors();
+        syncTokenStore.storedTokens.clear();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        googleTokenManager.destroy();
+        stubServer.close();
+    }
+
+    @Test
+    public void tokenStoreCanBeReplaced() throws GeneralSecurityException, IOException {
+        final ExternalCalendarCredentialsDTO credentials = createCredentials();
+        final String calendarId = "replacedStore";
+        createEvents(calendarId, 1);
+
+        final EventSyncResult fullSync = googleCalendarSyncService.synchronize(credentials, calendarId, LocalDateTime.now().minusDays(1));
+        Assert.assertTrue(fullSync.isFullSynchronization());
+        Assert.assertNotNull(syncTokenStore.getSyncToken(credentials.getUserId(), calendarId));
+
+        //The token is read from the bean.
+        Assert.assertFalse(googleCalendarSyncService.synchronize(credentials, calendarId, LocalDateTime.now().minusDays(1))
+                .isFullSynchronization());
+        googleCalendarSyncService.reset(credentials.getUserId(), calendarId);
+        Assert.assertNull(syncTokenStore.getSyncToken(credentials.getUserId(), calendarId));
+    }
+
+    @Test
+    public void tokenIsStoredAfterLastPage() throws GeneralSecurityException, IOException {
+        final ExternalCalendarCredentialsDTO credentials = createCredentials();
+        final String calendarId = "paged";
+        createEvents(calendarId, PAGE_SIZE * 2 + 1);
+
+        //Second page fails. The events of the first one are not marked as synchronized.
+        stubServer.scriptSuccess(1);
+        stubServer.scriptError(503, null, 1);
+        Assert.assertThrows(ExternalCalendarActionException.class,
+                () -> googleCalendarSyncService.synchronize(credentials, calendarId, LocalDateTime.now().minusDays(1)));
+        Assert.assertTrue(syncTokenStore.storedTokens.isEmpty());
+
+        final EventSyncResult fullSync = googleCalendarSyncService.synchronize(credentials, calendarId, LocalDateTime.now().minusDays(1));
+        Assert.assertTrue(fullSync.isFullSynchronization());
+        Assert.assertEquals(fullSync.getAppointments().size(), PAGE_SIZE * 2 + 1);
+        //Only the token of the last page.
+        Assert.assertEquals(syncTokenStore.storedTokens.size(), 1);
+        Assert.assertEquals(syncTokenStore.storedTokens.get(0), syncTokenStore.getSyncToken(credentials.getUserId(), calendarId));
+    }
+
+    @Test
+    public void deletedEventsAreReturnedAsDeleted() throws GeneralSecurityException, IOException {
+        final ExternalCalendarCredentialsDTO credentials = createCredentials();
+        final String calendarId = "deleted";
+        final List<String> eventIds = createEvents(calendarId, 2);
+        googleCalendarSyncService.synchronize(credentials, calendarId, LocalDateTime.now().minusDays(1));
+
+        googleClientProvider.deleteCalendarEvent(calendarId, eventIds.get(0), credential);
+        final EventSyncResult changes = googleCalendarSyncService.synchronize(credentials, calendarId, LocalDateTime.now().minusDays(1));
+        Assert.assertFalse(changes.isFullSynchronization());
+        Assert.assertEquals(changes.getAppointments().size(), 1);
+        final AppointmentDTO deleted = changes.getAppointments().get(0);
+        Assert.assertEquals(deleted.getExternalReference(), eventIds.get(0));
+        Assert.assertTrue(deleted.isDeleted());
+    }
+
+    @Test
+    public void expiredTokenDoesFullSync() throws GeneralSecurityException, IOException {
+        final ExternalCalendarCredentialsDTO credentials = createCredentials();
+        final String calendarId = "expired";
+        createEvents(calendarId, 3);
+        googleCalendarSyncService.synchronize(credentials, calendarId, LocalDateTime.now().minusDays(1));
+        final String expiredToken = syncTokenStore.getSyncToken(credentials.getUserId(), calendarId);
+
+        //Google rejects the token with a 410 Gone.
+        stubServer.scriptError(410, null, 1);
+        final EventSyncResult result = googleCalendarSyncService.synchronize(credentials, calendarId, LocalDateTime.now().minusDays(1));
+        Assert.assertTrue(result.isFullSynchronization());
+        Assert.assertEquals(result.getAppointments().size(), 3);
+        Assert.assertNotNull(syncTokenStore.getSyncToken(credentials.getUserId(), calendarId));
+        Assert.assertTrue(syncTokenStore.removed.contains(expiredToken));
+    }
+
+    @Test
+    public void goneWithoutTokenIsAnError() {
+        stubServer.scriptError(410, null, 1);
+        Assert.assertThrows(ExternalCalendarActionException.class,
+                () -> googleCalendarSyncService.synchronize(createCredentials(), "gone", LocalDateTime.now().minusDays(1)));
+    }
+
+    private List<String> createEvents(String calendarId, int events) throws GeneralSecurityException, IOException {
+        final List<String> eventIds = new ArrayList<>();
+        for (int i = 0; i < events; i++) {
+            final long start = System.currentTimeMillis() + i * ONE_HOUR;
+            eventIds.add(googleClientProvider.createCalendarEvent(calendarId, new Event().setSummary("Synchronized " + i)
+                    .setStart(new EventDateTime().setDateTime(new DateTime(start)))
+                    .setEnd(new EventDateTime().setDateTime(new DateTime(start + ONE_HOUR))), credential));
+        }
+        return eventIds;
+    }
+
+    private ExternalCalendarCredentialsDTO createCredentials() {
+        final ExternalCalendarCredentialsDTO credentials = new ExternalCalendarCredentialsDTO();
+        credentials.setCalendarProvider(CalendarProviderDTO.GOOGLE);
+        credentials.setUserId(UUID.randomUUID());
+        credentials.setCredentialData(new CredentialData("access", "refresh", ONE_HOUR, null));
+        return credentials;
+    }
+
+    /**
+     * Keeps the tokens in memory, recording the changes.
+     */
+    private static final class RecordingSyncTokenStore extends InMemorySyncTokenStore {
+        private final List<String> storedTokens = new ArrayList<>();
+        private final List<String> removed = new ArrayList<>();
+
+        @Override
+        public void setSyncToken(UUID userId, String calendarId, String syncToken) {
+            storedTokens.add(syncToken);
+            super.setSyncToken(userId, calendarId, syncToken);
+        }
+
+        @Override
+        public void removeSyncToken(UUID userId, String calendarId) {
+            removed.add(getSyncToken(userId, calendarId));
+            super.removeSyncToken(userId, calendarId);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.biit.appointment.google.token;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.models.CalendarProviderDTO;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleCalendarService;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Test(groups = {"tokenManagerTests"})
+public class GoogleTokenManagerTests {
+
+    private static final int THREADS = 10;
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Test
+    public void concurrentRefreshesAreCoalesced() throws Exception {
+        final CountDownLatch releaseRefresh = new CountDownLatch(1);
+        final CountingClientProvider googleClientProvider = new CountingClientProvider(releaseRefresh);
+        final GoogleTokenManager googleTokenManager = new GoogleTokenManager(googleClientProvider,
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        final CredentialData expired = new CredentialData("expired", "refresh", 0L, ONE_HOUR);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<CredentialData>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> googleTokenManager.refresh(USER_ID, expired)));
+            }
+            //Let all threads reach the manager before the token endpoint answers.
+            Thread.sleep(200);
+            releaseRefresh.countDown();
+            for (Future<CredentialData> result : results) {
+                Assert.assertEquals(result.get(5, TimeUnit.SECONDS).getAccessToken(), "access1");
+            }
+        } finally {
+            executor.shutdownNow();
+            googleTokenManager.destroy();
+        }
+        Assert.assertEquals(googleClientProvider.getRefreshes(), 1);
+    }
+
+    @Test
+    public void refreshedTokenIsReused() throws Exception {
+        final CountingClientProvider googleClientProvider = new CountingClientProvider(new CountDownLatch(0));
+        final GoogleTokenManager googleTokenManager = new GoogleTokenManager(googleClientProvider,
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        final CredentialData expired = new CredentialData("expired", "refresh", 0L, ONE_HOUR);
+        try {
+            final CredentialData refreshed = googleTokenManager.refresh(USER_ID, expired);
+            Assert.assertSame(googleTokenManager.refresh(USER_ID, expired), refreshed);
+            Assert.assertSame(googleTokenManager.getValidCredentialData(expired), refreshed);
+            Assert.assertEquals(googleClientProvider.getRefreshes(), 1);
+        } finally {
+            googleTokenManager.destroy();
+        }
+    }
+
+    @Test
+    public void refreshFinishedMeanwhileIsReused() throws Exception {
+        final CountingClientProvider googleClientProvider = new CountingClientProvider(new CountDownLatch(0));
+        final GoogleTokenManager googleTokenManager = new GoogleTokenManager(googleClientProvider,
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        final CredentialData expired = new CredentialData("expired", "refresh", 0L, ONE_HOUR);
+        try {
+            final CredentialData refreshed = googleTokenManager.refresh(USER_ID, expired);
+            //As a thread that checked the tracked tokens before the refresh ended.
+            Assert.assertSame(ReflectionTestUtils.invokeMethod(googleTokenManager, "refreshCoalesced", USER_ID, expired), refreshed);
+            Assert.assertEquals(googleClientProvider.getRefreshes(), 1);
+        } finally {
+            googleTokenManager.destroy();
+        }
+    }
+
+    @Test
+    public void rotatedAndIdleTokensAreForgotten() throws Exception {
+        final GoogleTokenManager googleTokenManager = new GoogleTokenManager(new RotatingClientProvider(),
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        ReflectionTestUtils.setField(googleTokenManager, "proactiveRefresh", false);
+        try {
+            googleTokenManager.refresh(USER_ID, new CredentialData("expired", "refresh", 0L, ONE_HOUR));
+            //The new refresh token and the replaced one.
+            Assert.assertEquals(googleTokenManager.getTrackedTokens(), 2);
+
+            //The access token obtained with the replaced one has expired.
+            Thread.sleep(20);
+            googleTokenManager.evictTokens();
+            Assert.assertEquals(googleTokenManager.getTrackedTokens(), 1);
+
+            ReflectionTestUtils.setField(googleTokenManager, "idleHours", 0L);
+            Thread.sleep(5);
+            googleTokenManager.evictTokens();
+            Assert.assertEquals(googleTokenManager.getTrackedTokens(), 0);
+        } finally {
+            googleTokenManager.destroy();
+        }
+    }
+
+    @Test
+    public void updatedTokenWithoutExpiration() {
+        final GoogleTokenManager googleTokenManager = new GoogleTokenManager(new NoExpirationClientProvider(),
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        try {
+            final GoogleCalendarService googleCalendarService = new GoogleCalendarService(null, null, null, null, googleTokenManager,
+                    null, null, null);
+            final ExternalCalendarCredentialsDTO credentials = new ExternalCalendarCredentialsDTO(USER_ID, CalendarProviderDTO.GOOGLE);
+            credentials.setCredentialData(new CredentialData("expired", "noExpiration", 0L, ONE_HOUR));
+
+            final ExternalCalendarCredentialsDTO updatedCredentials = googleCalendarService.updateToken(credentials);
+            Assert.assertEquals(updatedCredentials.getCredentialData(CredentialData.class).getAccessToken(), "access");
+            Assert.assertNull(updatedCredentials.getExpiresAt());
+        } finally {
+            googleTokenManager.destroy();
+        }
+    }
+
+    /**
+     * Google does not send the lifetime of the access token.
+     */
+    private static final class NoExpirationClientProvider extends GoogleClientProvider {
+        @Override
+        public CredentialData refreshCredentials(CredentialData credentialData) {
+            return new CredentialData("access", credentialData.getRefreshToken(), null, ONE_HOUR);
+        }
+    }
+
+    /**
+     * Google replaces the refresh token on each refresh. Access tokens expire after 10 ms.
+     */
+    private static final class RotatingClientProvider extends GoogleClientProvider {
+        private final AtomicInteger refreshes = new AtomicInteger();
+
+        @Override
+        public CredentialData refreshCredentials(CredentialData credentialData) {
+            return new CredentialData("access", "rotated" + refreshes.incrementAndGet(), 10L, ONE_HOUR);
+        }
+    }
+
+    private static final class CountingClientProvider extends GoogleClientProvider {
+        private final CountDownLatch releaseRefresh;
+        private final AtomicInteger refreshes = new AtomicInteger();
+
+        private CountingClientProvider(CountDownLatch releaseRefresh) {
+            this.releaseRefresh = releaseRefresh;
+        }
+
+        @Override
+        public CredentialData refreshCredentials(CredentialData credentialData) {
+            final int refresh = refreshes.incrementAndGet();
+            try {
+                releaseRefresh.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new CredentialData("access" + refresh, credentialData.getRefreshToken(), ONE_HOUR, ONE_HOUR);
+        }
+
+        private int getRefreshes() {
+            return refreshes.get();
+        }
+    }
+}
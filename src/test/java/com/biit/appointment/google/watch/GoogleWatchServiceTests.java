@@ -0,0 +1,277 @@
+package com.biit.appointment.google.watch;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.exceptions.ExternalCalendarActionException;
+import com.biit.appointment.core.models.CalendarProviderDTO;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.biit.appointment.google.converter.GoogleCalendarCredentialsConverter;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.stub.StubEvents;
+import com.biit.appointment.google.sync.EventSyncResult;
+import com.biit.appointment.google.sync.GoogleCalendarSyncService;
+import com.biit.appointment.google.sync.SyncTokenStore;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import com.biit.appointment.google.token.GoogleTokenRefreshListener;
+import com.google.api.client.auth.oauth2.Credential;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Test(groups = {"watchTests"})
+public class GoogleWatchServiceTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final long WAIT_SECONDS = 10;
+    private static final String ADDRESS = "https://appointments.example.com/google/calendar/notifications";
+    private static final String SLOW_CALENDAR = "slow";
+    private static final long SLOW_LISTENER_MILLISECONDS = 500;
+
+    private final BlockingQueue<EventSyncResult> changes = new LinkedBlockingQueue<>();
+    private final AtomicInteger runningSlowListeners = new AtomicInteger();
+    private final AtomicInteger maxRunningSlowListeners = new AtomicInteger();
+    private GoogleCalendarStubServer stubServer;
+    private GoogleClientProvider googleClientProvider;
+    private GoogleTokenManager googleTokenManager;
+    private GoogleWatchService googleWatchService;
+    private GoogleCalendarNotificationController googleCalendarNotificationController;
+    private Credential credential;
+
+    @BeforeClass
+    public void startServer() throws IOException, GeneralSecurityException {
+        stubServer = new GoogleCalendarStubServer();
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).build();
+        credential = googleClientProvider.getCredentials(new CredentialData("access", "refresh", ONE_HOUR, null));
+        googleTokenManager = new GoogleTokenManager(googleClientProvider,
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        final GoogleCalendarCredentialsConverter googleCalendarCredentialsConverter =
+                new GoogleCalendarCredentialsConverter(googleClientProvider, googleTokenManager);
+
+        final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("listener", (GoogleCalendarChangeListener) (userId, calendarId, result) -> changes.add(result));
+        beanFactory.addBean("slowListener", (GoogleCalendarChangeListener) (userId, calendarId, result) -> slowListener(calendarId));
+        final GoogleCalendarSyncService googleCalendarSyncService = new GoogleCalendarSyncService(googleClientProvider,
+                new AppointmentEventConverter(), googleCalendarCredentialsConverter, beanFactory.getBeanProvider(SyncTokenStore.class));
+        googleWatchService = new GoogleWatchService(googleClientProvider, googleCalendarSyncService, googleCalendarCredentialsConverter,
+                googleTokenManager, beanFactory.getBeanProvider(WatchChannelStore.class),
+                beanFactory.getBeanProvider(GoogleCalendarChangeListener.class));
+        ReflectionTestUtils.setField(googleWatchService, "enabled", true);
+        ReflectionTestUtils.setField(googleWatchService, "address", ADDRESS);
+        googleWatchService.afterPropertiesSet();
+        googleCalendarNotificationController = new GoogleCalendarNotificationController(googleWatchService);
+    }
+
+    @BeforeMethod
+    public void clearChanges() {
+        changes.clear();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        googleWatchService.destroy();
+        googleTokenManager.destroy();
+        stubServer.close();
+    }
+
+    @Test
+    public void watchRegistersChannel() throws ExternalCalendarActionException {
+        final ExternalCalendarCredentialsDTO credentials = createCredentials();
+        final WatchChannel channel = googleWatchService.watch(credentials, "registered");
+
+        Assert.assertTrue(stubServer.getChannels().containsKey(channel.getChannelId()));
+        Assert.assertEquals(stubServer.getChannels().get(channel.getChannelId()).getAddress(), ADDRESS);
+        Assert.assertEquals(stubServer.getChannels().get(channel.getChannelId()).getToken(), channel.getToken());
+        Assert.assertNotNull(channel.getResourceId());
+        Assert.assertTrue(channel.getExpiration() > System.currentTimeMillis());
+
+        //Watching again replaces the channel.
+        final WatchChannel newChannel = googleWatchService.watch(credentials, "registered");
+        Assert.assertFalse(stubServer.getChannels().containsKey(channel.getChannelId()));
+        Assert.assertTrue(stubServer.getChannels().containsKey(newChannel.getChannelId()));
+        Assert.assertEquals(googleWatchService.getChannels(credentials.getUserId(), "registered").size(), 1);
+    }
+
+    @Test
+    public void notificationTriggersIncrementalSync() throws GeneralSecurityException, IOException, ExternalCalendarActionException,
+            InterruptedException {
+        final String calendarId = "notified";
+        googleClientProvider.createCalendarEvent(calendarId, StubEvents.createEvent("First"), credential);
+        final WatchChannel channel = googleWatchService.watch(createCredentials(), calendarId);
+
+        //First message after registering the channel.
+        Assert.assertEquals(notify(channel, channel.getToken(), "sync"), HttpStatus.OK);
+        Assert.assertNull(changes.poll(1, TimeUnit.SECONDS));
+
+        Assert.assertEquals(notify(channel, channel.getToken(), "exists"), HttpStatus.OK);
+        final EventSyncResult fullSync = changes.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(fullSync);
+        Assert.assertTrue(fullSync.isFullSynchronization());
+        Assert.assertEquals(fullSync.getAppointments().size(), 1);
+
+        googleClientProvider.createCalendarEvent(calendarId, StubEvents.createEvent("Second"), credential);
+        final int requestsBefore = stubServer.getHttpRequests();
+        Assert.assertEquals(notify(channel, channel.getToken(), "exists"), HttpStatus.OK);
+        final EventSyncResult incrementalSync = changes.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(incrementalSync);
+        Assert.assertFalse(incrementalSync.isFullSynchronization());
+        Assert.assertEquals(incrementalSync.getAppointments().size(), 1);
+        Assert.assertEquals(incrementalSync.getAppointments().get(0).getTitle(), "Second");
+        //Only the notified calendar is requested.
+        Assert.assertEquals(stubServer.getHttpRequests() - requestsBefore, 1);
+        Assert.assertTrue(stubServer.getLastRequestUri().contains("/calendars/" + calendarId + "/events"));
+    }
+
+    @Test
+    public void forgedNotificationsAreRejected() throws ExternalCalendarActionException, InterruptedException {
+        final WatchChannel channel = googleWatchService.watch(createCredentials(), "forged");
+
+        Assert.assertEquals(notify(channel, "wrongToken", "exists"), HttpStatus.FORBIDDEN);
+        Assert.assertEquals(notify(channel, null, "exists"), HttpStatus.FORBIDDEN);
+        Assert.assertEquals(googleWatchService.handleNotification(channel.getChannelId(), channel.getToken(), "otherResource", "exists"),
+                NotificationResult.REJECTED);
+        //Unknown channels are acknowledged, so Google does not retry them.
+        Assert.assertEquals(googleWatchService.handleNotification("unknown", channel.getToken(), channel.getResourceId(), "exists"),
+                NotificationResult.UNKNOWN_CHANNEL);
+        Assert.assertEquals(googleCalendarNotificationController.notification("unknown", "token", "resource", "exists").getStatusCode(),
+                HttpStatus.OK);
+        Assert.assertNull(changes.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void expiringChannelsAreRenewed() throws ExternalCalendarActionException {
+        final ExternalCalendarCredentialsDTO credentials = createCredentials();
+        final WatchChannel channel = googleWatchService.watch(credentials, "renewed");
+        Assert.assertEquals(googleWatchService.renewExpiringChannels(), 0);
+
+        ReflectionTestUtils.setField(googleWatchService, "renewBeforeSeconds", 8 * 24 * 60 * 60L);
+        try {
+            Assert.assertTrue(googleWatchService.renewExpiringChannels() >= 1);
+        } finally {
+            ReflectionTestUtils.setField(googleWatchService, "renewBeforeSeconds", 60 * 60L);
+        }
+
+        final WatchChannel renewedChannel = googleWatchService.getChannels(credentials.getUserId(), "renewed").iterator().next();
+        Assert.assertNotEquals(renewedChannel.getChannelId(), channel.getChannelId());
+        Assert.assertFalse(stubServer.getChannels().containsKey(channel.getChannelId()));
+        Assert.assertTrue(stubServer.getChannels().containsKey(renewedChannel.getChannelId()));
+        //Notifications of the old channel are ignored.
+        Assert.assertEquals(googleWatchService.handleNotification(channel.getChannelId(), channel.getToken(), channel.getResourceId(), "exists"),
+                NotificationResult.UNKNOWN_CHANNEL);
+    }
+
+    @Test
+    public void stopChannel() throws ExternalCalendarActionException {
+        final ExternalCalendarCredentialsDTO credentials = createCredentials();
+        final WatchChannel channel = googleWatchService.watch(credentials, "stopped");
+
+        Assert.assertTrue(googleWatchService.stop(credentials.getUserId(), "stopped"));
+        Assert.assertFalse(stubServer.getChannels().containsKey(channel.getChannelId()));
+        Assert.assertTrue(googleWatchService.getChannels(credentials.getUserId(), "stopped").isEmpty());
+        Assert.assertFalse(googleWatchService.stop(credentials.getUserId(), "stopped"));
+    }
+
+    @Test
+    public void synchronizationsOfACalendarDoNotOverlap() throws ExternalCalendarActionException, InterruptedException {
+        final WatchChannel channel = googleWatchService.watch(createCredentials(), SLOW_CALENDAR);
+        Assert.assertEquals(notify(channel, channel.getToken(), "sync"), HttpStatus.OK);
+
+        Assert.assertEquals(notify(channel, channel.getToken(), "exists"), HttpStatus.OK);
+        Assert.assertNotNull(changes.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+        //The first synchronization is still running on the slow listener.
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(notify(channel, channel.getToken(), "exists"), HttpStatus.OK);
+        }
+
+        //Repeated only once after the running one.
+        Assert.assertNotNull(changes.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertNull(changes.poll(SLOW_LISTENER_MILLISECONDS * 3, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(maxRunningSlowListeners.get(), 1);
+    }
+
+    @Test
+    public void expiredCredentialsOfChannelsAreRefreshed() throws ExternalCalendarActionException, InterruptedException {
+        final WatchChannel channel = googleWatchService.watch(createCredentials(), "expired");
+        Assert.assertEquals(notify(channel, channel.getToken(), "sync"), HttpStatus.OK);
+        //Access token stored when the channel was registered, expired since then.
+        final CredentialData expiredData = new CredentialData("expired-access", "expired-refresh", ONE_HOUR, null);
+        expiredData.setCreatedAt(LocalDateTime.now().minusHours(2));
+        channel.setCredentialData(expiredData);
+        final int tokenRequestsBefore = stubServer.getTokenRequests();
+
+        Assert.assertEquals(notify(channel, channel.getToken(), "exists"), HttpStatus.OK);
+        Assert.assertNotNull(changes.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(stubServer.getTokenRequests() - tokenRequestsBefore, 1);
+        final WatchChannel storedChannel = googleWatchService.getChannels(channel.getUserId(), "expired").iterator().next();
+        Assert.assertNotEquals(storedChannel.getCredentialData().getAccessToken(), "expired-access");
+        Assert.assertTrue(storedChannel.getCredentialData().getAccessTokenExpirationEpochMilliseconds() > System.currentTimeMillis());
+
+        //Already fresh, not refreshed again.
+        Assert.assertEquals(notify(channel, channel.getToken(), "exists"), HttpStatus.OK);
+        Assert.assertNotNull(changes.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(stubServer.getTokenRequests() - tokenRequestsBefore, 1);
+    }
+
+    private void slowListener(String calendarId) {
+        if (!SLOW_CALENDAR.equals(calendarId)) {
+            return;
+        }
+        maxRunningSlowListeners.accumulateAndGet(runningSlowListeners.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(SLOW_LISTENER_MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            runningSlowListeners.decrementAndGet();
+        }
+    }
+
+    private HttpStatus notify(WatchChannel channel, String token, String resourceState) {
+        return (HttpStatus) googleCalendarNotificationController.notification(channel.getChannelId(), token, channel.getResourceId(),
+                resourceState).getStatusCode();
+    }
+
+    private ExternalCalendarCredentialsDTO createCredentials() {
+        final ExternalCalendarCredentialsDTO credentials = new ExternalCalendarCredentialsDTO();
+        credentials.setCalendarProvider(CalendarProviderDTO.GOOGLE);
+        credentials.setUserId(UUID.nameUUIDFromBytes("watch".getBytes()));
+        credentials.setCredentialData(new CredentialData("access", "refresh", ONE_HOUR, null));
+        return credentials;
+    }
+}
@@ -0,0 +1,361 @@
+package com.biit.appointment.google.writebehind;
+
+/*-
+ * #%L
+ * Google Calendar Client
+ * %%
+ * Copyright (C) 2025 BiiT Sourcing Solutions S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.biit.appointment.core.exceptions.ExternalCalendarActionException;
+import com.biit.appointment.core.models.AppointmentDTO;
+import com.biit.appointment.core.models.CalendarProviderDTO;
+import com.biit.appointment.core.models.ExternalCalendarCredentialsDTO;
+import com.biit.appointment.google.cache.EventWindowCache;
+import com.biit.appointment.google.cache.LastKnownEventCache;
+import com.biit.appointment.google.client.CredentialData;
+import com.biit.appointment.google.client.GoogleCalendarService;
+import com.biit.appointment.google.client.GoogleClientProvider;
+import com.biit.appointment.google.client.GoogleEventIds;
+import com.biit.appointment.google.converter.AppointmentEventConverter;
+import com.biit.appointment.google.converter.GoogleCalendarCredentialsConverter;
+import com.biit.appointment.google.ratelimit.GoogleRateLimiter;
+import com.biit.appointment.google.retry.GoogleRetryPolicy;
+import com.biit.appointment.google.stub.GoogleCalendarStubServer;
+import com.biit.appointment.google.stub.StubClientProviderBuilder;
+import com.biit.appointment.google.token.GoogleTokenManager;
+import com.biit.appointment.google.token.GoogleTokenRefreshListener;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@Test(groups = {"writeBehindTests"})
+public class GoogleWriteBehindServiceTests {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final long WAIT_SECONDS = 10;
+
+    private final BlockingQueue<WriteBehindResult> results = new LinkedBlockingQueue<>();
+    private GoogleCalendarStubServer stubServer;
+    private GoogleClientProvider googleClientProvider;
+    private GoogleTokenManager googleTokenManager;
+    private GoogleCalendarCredentialsConverter googleCalendarCredentialsConverter;
+    private Path journalPath;
+    private GoogleWriteBehindService googleWriteBehindService;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        stubServer = new GoogleCalendarStubServer();
+        final GoogleRateLimiter googleRateLimiter = new GoogleRateLimiter();
+        ReflectionTestUtils.setField(googleRateLimiter, "enabled", false);
+        final GoogleRetryPolicy googleRetryPolicy = new GoogleRetryPolicy();
+        ReflectionTestUtils.setField(googleRetryPolicy, "enabled", false);
+        googleClientProvider = StubClientProviderBuilder.forServer(stubServer).retryPolicy(googleRetryPolicy).rateLimiter(googleRateLimiter)
+                .build();
+        googleTokenManager = new GoogleTokenManager(googleClientProvider,
+                new StaticListableBeanFactory().getBeanProvider(GoogleTokenRefreshListener.class));
+        googleCalendarCredentialsConverter = new GoogleCalendarCredentialsConverter(googleClientProvider, googleTokenManager);
+        journalPath = Files.createTempDirectory("write-behind").resolve("journal");
+    }
+
+    @BeforeMethod
+    public void startService() throws IOException {
+        results.clear();
+        googleWriteBehindService = createService();
+        googleWriteBehindService.start();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void stopService() throws IOException, InterruptedException {
+        googleWriteBehindService.destroy();
+        stubServer.clearScriptedErrors();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        googleTokenManager.destroy();
+        stubServer.close();
+    }
+
+    @Test
+    public void createdInBackground() throws InterruptedException {
+        final String key = UUID.randomUUID().toString();
+        final String externalReference = googleWriteBehindService.enqueueCreate(createAppointment(), createCredentials(), key);
+        Assert.assertEquals(externalReference, GoogleEventIds.fromKey(key));
+
+        final WriteBehindResult result = results.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(result);
+        Assert.assertTrue(result.isSuccessful(), result.getError());
+        Assert.assertEquals(result.getExternalReference(), externalReference);
+        Assert.assertTrue(stubServer.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID).containsKey(externalReference));
+        Assert.assertEquals(googleWriteBehindService.getPendingWrites(), 0);
+    }
+
+    @Test
+    public void sameKeyIsWrittenOnce() throws InterruptedException {
+        final String key = UUID.randomUUID().toString();
+        final String externalReference = googleWriteBehindService.enqueueCreate(createAppointment(), createCredentials(), key);
+        Assert.assertEquals(googleWriteBehindService.enqueueCreate(createAppointment(), createCredentials(), key), externalReference);
+        Assert.assertNotNull(results.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+
+        //Already completed.
+        Assert.assertEquals(googleWriteBehindService.enqueueCreate(createAppointment(), createCredentials(), key), externalReference);
+        Assert.assertNull(results.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void eventCreatedAgainAfterItsDeletion() throws InterruptedException {
+        final String createKey = UUID.randomUUID().toString();
+        final String deleteKey = UUID.randomUUID().toString();
+        final AppointmentDTO appointment = createAppointment();
+        appointment.setExternalReference(googleWriteBehindService.enqueueCreate(appointment, createCredentials(), createKey));
+        googleWriteBehindService.enqueueDelete(appointment, createCredentials(), deleteKey);
+        Assert.assertTrue(results.poll(WAIT_SECONDS, TimeUnit.SECONDS).isSuccessful());
+        Assert.assertTrue(results.poll(WAIT_SECONDS, TimeUnit.SECONDS).isSuccessful());
+
+        //The keys are completed, but the event has been written afterward.
+        Assert.assertEquals(googleWriteBehindService.enqueueCreate(appointment, createCredentials(), createKey),
+                appointment.getExternalReference());
+        WriteBehindResult result = results.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(result.getOperation(), WriteOperation.CREATE);
+        Assert.assertTrue(result.isSuccessful(), result.getError());
+        Assert.assertNotEquals(stubServer.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID).get(appointment.getExternalReference())
+                .getStatus(), "cancelled");
+
+        googleWriteBehindService.enqueueDelete(appointment, createCredentials(), deleteKey);
+        result = results.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(result.getOperation(), WriteOperation.DELETE);
+        Assert.assertTrue(result.isSuccessful(), result.getError());
+        Assert.assertEquals(stubServer.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID).get(appointment.getExternalReference())
+                .getStatus(), "cancelled");
+    }
+
+    @Test
+    public void repeatedAfterRestartIsNotDuplicated() throws IOException, InterruptedException {
+        final String key = UUID.randomUUID().toString();
+        googleWriteBehindService.enqueueCreate(createAppointment(), createCredentials(), key);
+        Assert.assertTrue(results.poll(WAIT_SECONDS, TimeUnit.SECONDS).isSuccessful());
+        final int events = stubServer.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID).size();
+
+        //A new instance does not know the key. Google rejects the id with a conflict.
+        googleWriteBehindService.destroy();
+        googleWriteBehindService = createService();
+        googleWriteBehindService.start();
+        googleWriteBehindService.enqueueCreate(createAppointment(), createCredentials(), key);
+        Assert.assertTrue(results.poll(WAIT_SECONDS, TimeUnit.SECONDS).isSuccessful());
+        Assert.assertEquals(stubServer.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID).size(), events);
+    }
+
+    @Test
+    public void pendingWritesAreRecovered() throws IOException, InterruptedException {
+        googleWriteBehindService.destroy();
+        final String key = UUID.randomUUID().toString();
+        final FileWriteBehindJournal journal = new FileWriteBehindJournal(journalPath, true);
+        journal.recover();
+        journal.enqueued(new PendingWrite(key, WriteOperation.CREATE, UUID.randomUUID(), GoogleClientProvider.PRIMARY_CALENDAR_ID,
+                GoogleEventIds.fromKey(key), "{\"id\":\"" + GoogleEventIds.fromKey(key) + "\",\"summary\":\"Recovered\"}",
+                new CredentialData("access", "refresh", ONE_HOUR, null)));
+        journal.close();
+
+        googleWriteBehindService = createService();
+        googleWriteBehindService.start();
+        final WriteBehindResult result = results.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(result.getIdempotencyKey(), key);
+        Assert.assertTrue(stubServer.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID).containsKey(GoogleEventIds.fromKey(key)));
+    }
+
+    @Test
+    public void expiredCredentialsAreRefreshedWhenSent() throws InterruptedException {
+        //Enqueued long ago, as recovered from the journal.
+        final CredentialData expiredData = new CredentialData("expired-access", "write-behind-refresh", ONE_HOUR, null);
+        expiredData.setCreatedAt(LocalDateTime.now().minusHours(2));
+        final ExternalCalendarCredentialsDTO credentials = createCredentials();
+        credentials.setCredentialData(expiredData);
+        final int tokenRequestsBefore = stubServer.getTokenRequests();
+
+        googleWriteBehindService.enqueueCreate(createAppointment(), credentials, UUID.randomUUID().toString());
+        final WriteBehindResult result = results.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(result);
+        Assert.assertTrue(result.isSuccessful(), result.getError());
+        Assert.assertEquals(stubServer.getTokenRequests() - tokenRequestsBefore, 1);
+        //Shared with the other requests of the user.
+        Assert.assertNotEquals(googleTokenManager.getValidCredentialData(expiredData).getAccessToken(), "expired-access");
+    }
+
+    @Test
+    public void temporaryErrorsAreRetried() throws InterruptedException {
+        stubServer.scriptError(503, null, 2);
+        final String externalReference = googleWriteBehindService.enqueueCreate(createAppointment(), createCredentials(),
+                UUID.randomUUID().toString());
+
+        final WriteBehindResult result = results.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(result);
+        Assert.assertTrue(result.isSuccessful(), result.getError());
+        Assert.assertTrue(stubServer.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID).containsKey(externalReference));
+    }
+
+    @Test
+    public void deletedInBackground() throws GeneralSecurityException, IOException, InterruptedException {
+        final AppointmentDTO appointment = createAppointment();
+        appointment.setExternalReference(googleClientProvider.createCalendarEvent(new AppointmentEventConverter().reverse(appointment),
+                googleCalendarCredentialsConverter.reverse(createCredentials())));
+
+        googleWriteBehindService.enqueueDelete(appointment, createCredentials(), UUID.randomUUID().toString());
+        final WriteBehindResult result = results.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(result.getOperation(), WriteOperation.DELETE);
+        Assert.assertEquals(stubServer.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID).get(appointment.getExternalReference())
+                .getStatus(), "cancelled");
+    }
+
+    @Test
+    public void writesOfAnEventAreSentInOrder() throws InterruptedException {
+        //The creation is retried, and the deletion waits for it.
+        stubServer.scriptError(503, null, 2);
+        final AppointmentDTO appointment = createAppointment();
+        appointment.setExternalReference(googleWriteBehindService.enqueueCreate(appointment, createCredentials(),
+                UUID.randomUUID().toString()));
+        googleWriteBehindService.enqueueDelete(appointment, createCredentials(), UUID.randomUUID().toString());
+
+        final WriteBehindResult creation = results.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        final WriteBehindResult deletion = results.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(deletion);
+        Assert.assertEquals(creation.getOperation(), WriteOperation.CREATE);
+        Assert.assertTrue(creation.isSuccessful(), creation.getError());
+        Assert.assertEquals(deletion.getOperation(), WriteOperation.DELETE);
+        Assert.assertTrue(deletion.isSuccessful(), deletion.getError());
+        Assert.assertEquals(stubServer.getEvents(GoogleClientProvider.PRIMARY_CALENDAR_ID).get(appointment.getExternalReference())
+                .getStatus(), "cancelled");
+    }
+
+    @Test
+    public void windowsReadBeforeTheCreationAreInvalidated() throws InterruptedException {
+        final EventWindowCache eventWindowCache = new EventWindowCache();
+        ReflectionTestUtils.setField(eventWindowCache, "enabled", true);
+        final GoogleCalendarService googleCalendarService = new GoogleCalendarService(googleClientProvider, new AppointmentEventConverter(),
+                googleCalendarCredentialsConverter, null, googleTokenManager, new LastKnownEventCache(), googleWriteBehindService,
+                eventWindowCache);
+        final LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        //The creation fails once, and is retried later.
+        stubServer.scriptError(503, null, 1);
+        ReflectionTestUtils.setField(googleWriteBehindService, "retryDelayMilliseconds", 1000L);
+        final AppointmentDTO appointment = createAppointment();
+        appointment.setId(UUID.randomUUID().getMostSignificantBits());
+        final int requestsBefore = stubServer.getHttpRequests();
+        final String externalReference = googleCalendarService.addEvent(appointment, createCredentials());
+        while (stubServer.getHttpRequests() == requestsBefore) {
+            Thread.sleep(10);
+        }
+
+        //Read before the event exists.
+        Assert.assertTrue(googleCalendarService.getEvents(today, today.plusDays(7), createCredentials()).stream()
+                .noneMatch(event -> externalReference.equals(event.getExternalReference())));
+        final WriteBehindResult result = results.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(result);
+        Assert.assertTrue(result.isSuccessful(), result.getError());
+        Assert.assertTrue(googleCalendarService.getEvents(today, today.plusDays(7), createCredentials()).stream()
+                .anyMatch(event -> externalReference.equals(event.getExternalReference())));
+    }
+
+    @Test
+    public void unidentifiedAppointmentsAreRejected() {
+        final GoogleCalendarService googleCalendarService = new GoogleCalendarService(googleClientProvider, new AppointmentEventConverter(),
+                googleCalendarCredentialsConverter, null, googleTokenManager, new LastKnownEventCache(), googleWriteBehindService, null);
+
+        //Without id, each call would get a different key and create the event again.
+        Assert.assertThrows(ExternalCalendarActionException.class, () -> googleCalendarService.addEvent(createAppointment(), createCredentials()));
+        Assert.assertThrows(ExternalCalendarActionException.class,
+                () -> googleCalendarService.deleteEvent(createAppointment(), createCredentials()));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> googleWriteBehindService.enqueueDelete(createAppointment(), createCredentials(), UUID.randomUUID().toString()));
+        Assert.assertEquals(googleWriteBehindService.getPendingWrites(), 0);
+    }
+
+    @Test
+    public void journalPathIsRequired() {
+        final GoogleWriteBehindService service = createService();
+        ReflectionTestUtils.setField(service, "journalPath", null);
+        Assert.assertThrows(IllegalStateException.class, service::start);
+        Assert.assertFalse(service.isEnabled());
+    }
+
+    @Test
+    public void journalOnlyRecoversPendingWrites() throws IOException {
+        final Path path = Files.createTempDirectory("write-behind").resolve("journal");
+        final FileWriteBehindJournal journal = new FileWriteBehindJournal(path, false);
+        Assert.assertTrue(journal.recover().isEmpty());
+        for (String key : List.of("first", "second", "third")) {
+            journal.enqueued(new PendingWrite(key, WriteOperation.DELETE, UUID.randomUUID(), GoogleClientProvider.PRIMARY_CALENDAR_ID,
+                    key, null, new CredentialData("access", "refresh", ONE_HOUR, null)));
+        }
+        journal.completed("first", "first");
+        journal.failed("third", "error");
+
+        final List<PendingWrite> pending = journal.recover();
+        Assert.assertEquals(pending.size(), 1);
+        Assert.assertEquals(pending.get(0).getIdempotencyKey(), "second");
+        Assert.assertEquals(pending.get(0).getCredentialData().getRefreshToken(), "refresh");
+        journal.close();
+    }
+
+    private GoogleWriteBehindService createService() {
+        final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("listener", (GoogleWriteBehindListener) results::add);
+        final GoogleWriteBehindService service = new GoogleWriteBehindService(googleClientProvider, new AppointmentEventConverter(),
+                googleCalendarCredentialsConverter, googleTokenManager, beanFactory.getBeanProvider(WriteBehindJournal.class),
+                beanFactory.getBeanProvider(GoogleWriteBehindListener.class));
+        ReflectionTestUtils.setField(service, "journalPath", journalPath.toString());
+        ReflectionTestUtils.setField(service, "retryDelayMilliseconds", 10L);
+        return service;
+    }
+
+    private AppointmentDTO createAppointment() {
+        final AppointmentDTO appointment = new AppointmentDTO();
+        appointment.setTitle("Booked appointment");
+        appointment.setStartTime(LocalDateTime.now().plusDays(1));
+        appointment.setEndTime(LocalDateTime.now().plusDays(1).plusHours(1));
+        return appointment;
+    }
+
+    private ExternalCalendarCredentialsDTO createCredentials() {
+        final ExternalCalendarCredentialsDTO credentials = new ExternalCalendarCredentialsDTO();
+        credentials.setCalendarProvider(CalendarProviderDTO.GOOGLE);
+        credentials.setUserId(UUID.nameUUIDFromBytes("writeBehind".getBytes()));
+        credentials.setCredentialData(new CredentialData("access", "refresh", ONE_HOUR, null));
+        return credentials;
+    }
+}